@@ -0,0 +1,58 @@
+package com.qtp.mcpserver.benchmark;
+
+import com.qtp.mcpserver.entity.Alert;
+
+import java.util.ArrayList;
+import java.util.Date;
+import java.util.List;
+import java.util.Random;
+
+/**
+ * 基准测试用的告警数据，固定随机种子，各次运行数据一致
+ */
+final class AlertFixtures {
+
+    static final String[] LEVELS = {"LOW", "MEDIUM", "HIGH", "CRITICAL"};
+
+    static final String[] TYPES = {"接口探测", "UI探测", "性能", "可用性", "证书"};
+
+    static final String[] COMPANIES = {"总部", "华东分公司", "华南分公司", "华北分公司", "西南分公司", "西北分公司"};
+
+    private AlertFixtures() {
+    }
+
+    /**
+     * @param payloadBytes 每条告警 response 报文的大约字节数，0 表示没有报文
+     */
+    static List<Alert> alerts(int count, int payloadBytes) {
+        Random random = new Random(42);
+        String payload = payloadBytes == 0 ? null : "{\"code\":500,\"message\":\"" + "x".repeat(Math.max(0, payloadBytes - 32)) + "\"}";
+        long now = 1_700_000_000_000L;
+        List<Alert> alerts = new ArrayList<>(count);
+        for (int i = 0; i < count; i++) {
+            Alert alert = new Alert();
+            alert.setId(String.format("%024x", i));
+            alert.setCaseExecId("case-" + random.nextInt(5000));
+            alert.setAlarmLevel(LEVELS[random.nextInt(LEVELS.length)]);
+            alert.setAlarmType(TYPES[random.nextInt(TYPES.length)]);
+            alert.setAlertId("alert-" + random.nextInt(200));
+            alert.setCompany(COMPANIES[random.nextInt(COMPANIES.length)]);
+            alert.setSystemName("系统-" + random.nextInt(40));
+            alert.setTaskName("任务-" + random.nextInt(300));
+            alert.setHost("10.0." + random.nextInt(16) + "." + random.nextInt(256));
+            alert.setStatus(random.nextInt(3));
+            alert.setType(random.nextInt(2));
+            alert.setIsRecover(random.nextBoolean());
+            alert.setLayerName("应用层");
+            alert.setRegionName("区域-" + random.nextInt(8));
+            alert.setFailReason("接口响应超时，耗时 " + (1000 + random.nextInt(9000)) + "ms，超过阈值 1000ms");
+            alert.setBeginTime(new Date(now - random.nextInt(86_400_000)));
+            alert.setEndTime(new Date(alert.getBeginTime().getTime() + random.nextInt(60_000)));
+            alert.setAveTime(String.valueOf(random.nextInt(5000)));
+            alert.setIsReply(0);
+            alert.setResponse(payload);
+            alerts.add(alert);
+        }
+        return alerts;
+    }
+}
@@ -0,0 +1,98 @@
+package com.qtp.mcpserver.benchmark;
+
+import cn.hutool.json.JSONUtil;
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.datatype.jsr310.JavaTimeModule;
+import com.qtp.mcpserver.entity.Alert;
+import com.qtp.mcpserver.tools.ToolResultRenderer;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * 告警列表序列化：改造前工具使用的 hutool 格式化输出、Jackson 格式化/紧凑输出，
+ * 以及现在工具统一使用的 ToolResultRenderer（紧凑、省略空值、按字节上限截断、可选字段）
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class AlertSerializationBenchmark {
+
+    @Param({"1", "20"})
+    public int count;
+
+    /** 每条告警 response 报文的字节数 */
+    @Param({"0", "8192"})
+    public int payloadBytes;
+
+    private List<Alert> alerts;
+
+    private ObjectMapper objectMapper;
+
+    private ToolResultRenderer renderer;
+
+    private ToolResultRenderer budgetedRenderer;
+
+    @Setup
+    public void setup() {
+        alerts = AlertFixtures.alerts(count, payloadBytes);
+        objectMapper = new ObjectMapper().registerModule(new JavaTimeModule());
+        // 上限放大到不截断，与其他实现输出同样多的条目
+        renderer = new ToolResultRenderer(Integer.MAX_VALUE / 2, Integer.MAX_VALUE, 4);
+        budgetedRenderer = new ToolResultRenderer(16384, 2000, 4);
+    }
+
+    @Benchmark
+    public String hutoolPretty() {
+        return JSONUtil.toJsonPrettyStr(alerts);
+    }
+
+    @Benchmark
+    public String jacksonPretty() throws JsonProcessingException {
+        return objectMapper.writerWithDefaultPrettyPrinter().writeValueAsString(alerts);
+    }
+
+    @Benchmark
+    public String jacksonCompact() throws JsonProcessingException {
+        return objectMapper.writeValueAsString(alerts);
+    }
+
+    @Benchmark
+    public String rendererCompact() {
+        try (ToolResultRenderer.Output out = renderer.open("benchmark")) {
+            return out.list(alerts).finish();
+        }
+    }
+
+    @Benchmark
+    public String rendererSelectedFields() {
+        try (ToolResultRenderer.Output out = renderer.open("benchmark", "id,alarmLevel,endTime,failReason")) {
+            return out.list(alerts).finish();
+        }
+    }
+
+    /**
+     * 工具实际使用的默认配置：16KB 上限、长字符串截断
+     */
+    @Benchmark
+    public String rendererDefaultBudget() {
+        try (ToolResultRenderer.Output out = budgetedRenderer.open("benchmark")) {
+            return out.list(alerts).finish();
+        }
+    }
+}
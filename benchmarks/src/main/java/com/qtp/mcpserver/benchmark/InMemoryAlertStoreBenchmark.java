@@ -0,0 +1,96 @@
+package com.qtp.mcpserver.benchmark;
+
+import com.qtp.mcpserver.dto.AlertFilter;
+import com.qtp.mcpserver.dto.AlertPageRequest;
+import com.qtp.mcpserver.dto.AlertPageResult;
+import com.qtp.mcpserver.dto.AlertStatistics;
+import com.qtp.mcpserver.storage.InMemoryAlertStore;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.util.Date;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * 进程内告警存储的查询开销：按时间倒序取首页（沿时间索引遍历）、按级别+系统过滤（位图求交）、
+ * 按单位包含匹配（只检查字典取值）、按模块包含匹配（逐行检查），以及全量和带条件的统计
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class InMemoryAlertStoreBenchmark {
+
+    @Param({"10000", "100000"})
+    public int size;
+
+    private InMemoryAlertStore store;
+
+    private AlertFilter empty;
+
+    private AlertFilter levelAndSystem;
+
+    private AlertFilter companyLike;
+
+    private AlertFilter taskNameLike;
+
+    private AlertPageRequest firstPage;
+
+    @Setup
+    public void setup() {
+        store = new InMemoryAlertStore(event -> {
+        }, "EXACT", 10000, null);
+        AlertFixtures.alerts(size, 0).forEach(store::save);
+
+        empty = new AlertFilter();
+        levelAndSystem = AlertFilter.endTimeBetween(new Date(1_700_000_000_000L - 43_200_000L), null);
+        levelAndSystem.setAlarmLevel("CRITICAL");
+        levelAndSystem.setSystemName("系统-7");
+        companyLike = new AlertFilter();
+        companyLike.setCompanyLike("华东");
+        taskNameLike = new AlertFilter();
+        taskNameLike.setTaskNameLike("任务-12");
+        firstPage = AlertPageRequest.of(1, 20, "endTime", "desc", null);
+    }
+
+    @Benchmark
+    public AlertPageResult pageByEndTime() {
+        return store.page(empty, firstPage);
+    }
+
+    @Benchmark
+    public AlertPageResult pageByLevelAndSystem() {
+        return store.page(levelAndSystem, firstPage);
+    }
+
+    @Benchmark
+    public AlertPageResult pageByCompanyLike() {
+        return store.page(companyLike, firstPage);
+    }
+
+    @Benchmark
+    public AlertPageResult pageByTaskNameLike() {
+        return store.page(taskNameLike, firstPage);
+    }
+
+    @Benchmark
+    public AlertStatistics statisticsAll() {
+        return store.statistics(empty);
+    }
+
+    @Benchmark
+    public AlertStatistics statisticsByLevelAndSystem() {
+        return store.statistics(levelAndSystem);
+    }
+}
@@ -0,0 +1,131 @@
+package com.qtp.mcpserver.benchmark;
+
+import com.qtp.mcpserver.controller.AlertController;
+import com.qtp.mcpserver.dto.AlertPageRequest;
+import com.qtp.mcpserver.dto.AlertPageResult;
+import com.qtp.mcpserver.entity.Alert;
+import com.qtp.mcpserver.service.AlertArchiveService;
+import com.qtp.mcpserver.service.AlertPageService;
+import com.qtp.mcpserver.service.AlertQueryCoalescer;
+import com.qtp.mcpserver.storage.MongoAlertStore;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.bson.Document;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.springframework.data.mongodb.core.convert.MappingMongoConverter;
+import org.springframework.data.mongodb.core.convert.NoOpDbRefResolver;
+import org.springframework.data.mongodb.core.convert.QueryMapper;
+import org.springframework.data.mongodb.core.mapping.MongoMappingContext;
+import org.springframework.data.mongodb.core.mapping.MongoPersistentEntity;
+import org.springframework.data.mongodb.core.query.Query;
+import org.springframework.util.ReflectionUtils;
+
+import java.lang.reflect.Field;
+import java.time.Duration;
+import java.util.Date;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * AlertController.searchAlerts 的查询构建：按请求参数拼装过滤条件并转换为 Criteria，以及 MongoTemplate 发送前把属性名映射为字段名的开销。
+ * 分页服务替换为只记录查询的桩，不访问数据库
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class SearchQueryBenchmark {
+
+    /** empty：不带条件；typical：级别+系统+时间范围；full：全部条件 */
+    @Param({"empty", "typical", "full"})
+    public String filters;
+
+    private AlertController controller;
+
+    private CapturingPageService pageService;
+
+    private QueryMapper queryMapper;
+
+    private MongoPersistentEntity<?> alertEntity;
+
+    private Date beginTime;
+
+    private Date endTime;
+
+    @Setup
+    public void setup() {
+        pageService = new CapturingPageService();
+        controller = new AlertController();
+        Field field = ReflectionUtils.findField(AlertController.class, "alertStore");
+        ReflectionUtils.makeAccessible(field);
+        ReflectionUtils.setField(field, controller, new MongoAlertStore(null, null, null, null, pageService, null, null, null,
+                NO_ARCHIVE, NO_COALESCING, null, null));
+
+        MongoMappingContext mappingContext = new MongoMappingContext();
+        MappingMongoConverter converter = new MappingMongoConverter(NoOpDbRefResolver.INSTANCE, mappingContext);
+        converter.afterPropertiesSet();
+        queryMapper = new QueryMapper(converter);
+        alertEntity = mappingContext.getRequiredPersistentEntity(Alert.class);
+        endTime = new Date(1_700_000_000_000L);
+        beginTime = new Date(endTime.getTime() - 86_400_000L);
+    }
+
+    @Benchmark
+    public Document buildQuery() {
+        search();
+        return pageService.lastQuery.getQueryObject();
+    }
+
+    @Benchmark
+    public Document buildAndMapQuery() {
+        search();
+        return queryMapper.getMappedObject(pageService.lastQuery.getQueryObject(), alertEntity);
+    }
+
+    private void search() {
+        switch (filters) {
+            case "empty" -> controller.searchAlerts(null, null, null, null, null, null, null, null,
+                    null, null, null, 1, 10, "endTime", "desc", null, null);
+            case "typical" -> controller.searchAlerts(null, "CRITICAL", null, null, null, "系统-7", null, null, null,
+                    beginTime, endTime, 1, 10, "endTime", "desc", null, null);
+            default -> controller.searchAlerts("case-12", "CRITICAL", "接口探测", "华东", 1, "系统-7", "任务-3", "10.0.1", null,
+                    beginTime, endTime, 3, 20, "endTime", "desc", null, "EXACT");
+        }
+    }
+
+    /** 不读取归档，查询不合并归档 */
+    private static final AlertArchiveService NO_ARCHIVE = new AlertArchiveService(null, null, new SimpleMeterRegistry(),
+            false, false, "alert_archive", Duration.ofDays(30), 500, 200, Duration.ZERO);
+
+    /** 关闭查询合并，每次调用都构建查询 */
+    private static final AlertQueryCoalescer NO_COALESCING = new AlertQueryCoalescer(new SimpleMeterRegistry(),
+            false, Duration.ZERO, Duration.ZERO, 1);
+
+    /**
+     * 只记录查询条件的分页服务
+     */
+    static final class CapturingPageService extends AlertPageService {
+
+        private Query lastQuery;
+
+        CapturingPageService() {
+            super(null, null, NO_ARCHIVE, "EXACT", 10000);
+        }
+
+        @Override
+        public AlertPageResult page(Query filter, AlertPageRequest request, boolean includeArchive) {
+            lastQuery = filter;
+            return null;
+        }
+    }
+}
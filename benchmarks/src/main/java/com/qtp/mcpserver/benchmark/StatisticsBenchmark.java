@@ -0,0 +1,129 @@
+package com.qtp.mcpserver.benchmark;
+
+import com.qtp.mcpserver.dto.AlertStatistics;
+import com.qtp.mcpserver.entity.Alert;
+import com.qtp.mcpserver.event.AlertChangeEvent;
+import com.qtp.mcpserver.service.AlertCounterStore;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Function;
+import java.util.stream.Collectors;
+
+/**
+ * 内存中的告警统计：最初 getStatistics 每个维度一次 groupingBy 的写法、单次遍历累加，
+ * 以及现在无过滤统计使用的 AlertCounterStore（事件增量维护，读取时只遍历分桶）
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class StatisticsBenchmark {
+
+    @Param({"10000", "100000"})
+    public int size;
+
+    private List<Alert> alerts;
+
+    private AlertCounterStore counterStore;
+
+    private AlertChangeEvent[] events;
+
+    private int next;
+
+    @Setup
+    public void setup() {
+        alerts = AlertFixtures.alerts(size, 0);
+        counterStore = new AlertCounterStore();
+        counterStore.reset(new AlertStatistics());
+        alerts.forEach(alert -> counterStore.onAlertChange(AlertChangeEvent.created(alert)));
+        // 状态变更事件：before/after 各计一次，计数总量不变
+        events = alerts.stream().limit(1024).map(alert -> {
+            Alert resolved = new Alert();
+            resolved.setStatus(2);
+            resolved.setAlarmLevel(alert.getAlarmLevel());
+            resolved.setAlarmType(alert.getAlarmType());
+            resolved.setCompany(alert.getCompany());
+            resolved.setSystemName(alert.getSystemName());
+            return AlertChangeEvent.updated(alert, resolved);
+        }).toArray(AlertChangeEvent[]::new);
+    }
+
+    /**
+     * 最初 getStatistics 的写法：每个维度各遍历一次
+     */
+    @Benchmark
+    public AlertStatistics groupingByPerDimension() {
+        AlertStatistics statistics = new AlertStatistics();
+        statistics.setTotalCount(alerts.size());
+        statistics.setStatusStats(groupingBy(Alert::getStatus));
+        statistics.setLevelStats(groupingBy(Alert::getAlarmLevel));
+        statistics.setTypeStats(groupingBy(Alert::getAlarmType));
+        statistics.setCompanyStats(groupingBy(Alert::getCompany));
+        statistics.setSystemStats(groupingBy(Alert::getSystemName));
+        return statistics;
+    }
+
+    private Map<String, Long> groupingBy(Function<Alert, Object> classifier) {
+        return alerts.stream().collect(Collectors.groupingBy(alert -> Objects.toString(classifier.apply(alert)), Collectors.counting()));
+    }
+
+    /**
+     * 单次遍历，五个维度同时累加
+     */
+    @Benchmark
+    public AlertStatistics singlePassMerge() {
+        Map<String, Long> status = new HashMap<>();
+        Map<String, Long> level = new HashMap<>();
+        Map<String, Long> type = new HashMap<>();
+        Map<String, Long> company = new HashMap<>();
+        Map<String, Long> system = new HashMap<>();
+        for (Alert alert : alerts) {
+            status.merge(String.valueOf(alert.getStatus()), 1L, Long::sum);
+            level.merge(String.valueOf(alert.getAlarmLevel()), 1L, Long::sum);
+            type.merge(String.valueOf(alert.getAlarmType()), 1L, Long::sum);
+            company.merge(String.valueOf(alert.getCompany()), 1L, Long::sum);
+            system.merge(String.valueOf(alert.getSystemName()), 1L, Long::sum);
+        }
+        AlertStatistics statistics = new AlertStatistics();
+        statistics.setTotalCount(alerts.size());
+        statistics.setStatusStats(status);
+        statistics.setLevelStats(level);
+        statistics.setTypeStats(type);
+        statistics.setCompanyStats(company);
+        statistics.setSystemStats(system);
+        return statistics;
+    }
+
+    /**
+     * 计数器读取：与告警数量无关，只遍历分桶
+     */
+    @Benchmark
+    public AlertStatistics counterStoreSnapshot() {
+        return counterStore.snapshot();
+    }
+
+    /**
+     * 计数器维护：每次写入告警时的增量开销
+     */
+    @Benchmark
+    public void counterStoreApply() {
+        counterStore.onAlertChange(events[next++ & (events.length - 1)]);
+    }
+}
@@ -0,0 +1,82 @@
+package com.qtp.mcpserver.benchmark;
+
+import com.qtp.mcpserver.entity.Alert;
+import com.qtp.mcpserver.service.AlertCacheService;
+import com.qtp.mcpserver.storage.MongoAlertStore;
+import com.qtp.mcpserver.tools.AlertTool;
+import com.qtp.mcpserver.tools.ToolMetrics;
+import com.qtp.mcpserver.tools.ToolResultRenderer;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.springframework.ai.tool.ToolCallback;
+import org.springframework.ai.tool.method.MethodToolCallbackProvider;
+import org.springframework.util.unit.DataSize;
+
+import java.time.Duration;
+import java.util.Arrays;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * MCP工具调用开销：queryAlert 在缓存命中时的直接方法调用、经 MethodToolCallbackProvider 生成的回调
+ * （JSON 入参解析、参数绑定、反射调用、结果转换），以及再包一层 ToolMetrics 计时后的开销
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class ToolInvocationBenchmark {
+
+    private AlertTool alertTool;
+
+    private ToolCallback callback;
+
+    private ToolCallback timedCallback;
+
+    private String alertId;
+
+    private String toolInput;
+
+    @Setup
+    public void setup() {
+        // 缓存预先放入告警，工具调用不访问数据库
+        AlertCacheService cacheService = new AlertCacheService(null, null, true, DataSize.ofMegabytes(64), Duration.ofHours(1));
+        Alert alert = AlertFixtures.alerts(1, 0).get(0);
+        cacheService.put(alert);
+        alertId = alert.getId();
+        toolInput = "{\"alertId\":\"" + alertId + "\"}";
+
+        alertTool = new AlertTool(new MongoAlertStore(null, null, cacheService, null, null, null, null, null, null, null, null, null),
+                new ToolResultRenderer(16384, 2000, 4));
+        callback = Arrays.stream(MethodToolCallbackProvider.builder().toolObjects(alertTool).build().getToolCallbacks())
+                .filter(candidate -> "queryAlert".equals(candidate.getToolDefinition().name()))
+                .findFirst()
+                .orElseThrow();
+        timedCallback = new ToolMetrics(new SimpleMeterRegistry()).timed(callback);
+    }
+
+    @Benchmark
+    public String directCall() {
+        return alertTool.queryAlert(alertId);
+    }
+
+    @Benchmark
+    public String toolCallback() {
+        return callback.call(toolInput);
+    }
+
+    @Benchmark
+    public String timedToolCallback() {
+        return timedCallback.call(toolInput);
+    }
+}
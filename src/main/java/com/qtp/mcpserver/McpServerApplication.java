@@ -1,34 +1,83 @@
 package com.qtp.mcpserver;
 
+import com.qtp.mcpserver.config.ReactorVirtualThreadsListener;
 import com.qtp.mcpserver.tools.AlertManagementTool;
+import com.qtp.mcpserver.tools.AlertResources;
 import com.qtp.mcpserver.tools.AlertTool;
+import com.qtp.mcpserver.tools.ReactiveAlertTool;
+import com.qtp.mcpserver.tools.ReactiveToolSpecifications;
+import com.qtp.mcpserver.tools.ToolMetrics;
+import io.modelcontextprotocol.server.McpServerFeatures;
+import org.springframework.ai.tool.ToolCallback;
 import org.springframework.ai.tool.ToolCallbackProvider;
 import org.springframework.ai.tool.method.MethodToolCallbackProvider;
 import org.springframework.boot.SpringApplication;
 import org.springframework.boot.autoconfigure.SpringBootApplication;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
 import org.springframework.context.annotation.Bean;
+import org.springframework.scheduling.annotation.EnableScheduling;
+
+import java.util.ArrayList;
+import java.util.List;
 
 @SpringBootApplication
+@EnableScheduling
 public class McpServerApplication {
 
     public static void main(String[] args) {
-        SpringApplication.run(McpServerApplication.class, args);
+        SpringApplication application = new SpringApplication(McpServerApplication.class);
+        application.addListeners(new ReactorVirtualThreadsListener());
+        application.run(args);
     }
 
 
     //TODO: 整合成一个
     @Bean
-    public ToolCallbackProvider alertTools(AlertTool alertTool) {
-        return MethodToolCallbackProvider.builder()
+    @ConditionalOnProperty(name = "alert.tools.mode", havingValue = "blocking", matchIfMissing = true)
+    public ToolCallbackProvider alertTools(AlertTool alertTool, ToolMetrics toolMetrics) {
+        return toolMetrics.timed(MethodToolCallbackProvider.builder()
                 .toolObjects(alertTool)
-                .build();
+                .build());
     }
 
     @Bean
-    public ToolCallbackProvider alertManagementTools(AlertManagementTool alertManagementTool) {
-        return MethodToolCallbackProvider.builder()
+    @ConditionalOnProperty(name = "alert.tools.mode", havingValue = "blocking", matchIfMissing = true)
+    public ToolCallbackProvider alertManagementTools(AlertManagementTool alertManagementTool, ToolMetrics toolMetrics) {
+        return toolMetrics.timed(MethodToolCallbackProvider.builder()
                 .toolObjects(alertManagementTool)
-                .build();
+                .build());
+    }
+
+    /**
+     * 响应式模式（需 spring.ai.mcp.server.type=ASYNC）：查询类工具使用 ReactiveAlertTool 的非阻塞实现，
+     * 其余工具仍由同步实现提供，在 boundedElastic 线程池上执行
+     */
+    @Bean
+    @ConditionalOnProperty(name = "alert.tools.mode", havingValue = "reactive")
+    public List<McpServerFeatures.AsyncToolSpecification> reactiveAlertTools(ReactiveAlertTool reactiveAlertTool,
+                                                                            AlertTool alertTool,
+                                                                            AlertManagementTool alertManagementTool,
+                                                                            ToolMetrics toolMetrics) {
+        List<ToolCallback> blockingCallbacks = new ArrayList<>();
+        blockingCallbacks.addAll(List.of(MethodToolCallbackProvider.builder().toolObjects(alertTool).build().getToolCallbacks()));
+        blockingCallbacks.addAll(List.of(MethodToolCallbackProvider.builder().toolObjects(alertManagementTool).build().getToolCallbacks()));
+        return ReactiveToolSpecifications.merge(toolMetrics.timed(ReactiveToolSpecifications.from(reactiveAlertTool)),
+                blockingCallbacks.stream().map(toolMetrics::timed).toList());
+    }
+
+    /**
+     * 告警资源，同步MCP服务端（默认）使用
+     */
+    @Bean
+    @ConditionalOnProperty(prefix = "spring.ai.mcp.server", name = "type", havingValue = "SYNC", matchIfMissing = true)
+    public List<McpServerFeatures.SyncResourceSpecification> alertResourceSpecifications(AlertResources alertResources) {
+        return alertResources.syncSpecifications();
+    }
+
+    @Bean
+    @ConditionalOnProperty(prefix = "spring.ai.mcp.server", name = "type", havingValue = "ASYNC")
+    public List<McpServerFeatures.AsyncResourceSpecification> asyncAlertResourceSpecifications(AlertResources alertResources) {
+        return alertResources.asyncSpecifications();
     }
 
 }
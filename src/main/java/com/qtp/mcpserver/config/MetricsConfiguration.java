@@ -0,0 +1,47 @@
+package com.qtp.mcpserver.config;
+
+import com.qtp.mcpserver.service.AlertCacheService;
+import com.qtp.mcpserver.service.AlertRollupService;
+import io.micrometer.core.instrument.FunctionCounter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.binder.MeterBinder;
+import io.micrometer.core.instrument.binder.cache.CaffeineCacheMetrics;
+import org.springframework.boot.autoconfigure.mongo.MongoClientSettingsBuilderCustomizer;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+
+/**
+ * 业务组件的指标注册：MongoDB 命令监听、按ID缓存、趋势汇总写入。
+ * 工具调用和工具输出的指标分别由 ToolMetrics、ToolResultRenderer 自行登记，REST 接口耗时使用 Spring Boot 自带的 http.server.requests。
+ */
+@Configuration
+public class MetricsConfiguration {
+
+    /**
+     * 同步和响应式 MongoDB 客户端都会应用该定制
+     */
+    @Bean
+    public MongoClientSettingsBuilderCustomizer mongoCommandMetricsCustomizer(MongoCommandMetrics mongoCommandMetrics) {
+        return builder -> builder.addCommandListener(mongoCommandMetrics);
+    }
+
+    @Bean
+    public MeterBinder alertCacheMetrics(AlertCacheService alertCacheService) {
+        return registry -> CaffeineCacheMetrics.monitor(registry, alertCacheService.getCache(), "alert");
+    }
+
+    @Bean
+    public MeterBinder alertRollupMetrics(AlertRollupService alertRollupService) {
+        return registry -> {
+            Gauge.builder("alert.rollup.pending", alertRollupService, AlertRollupService::pendingSize)
+                    .description("尚未写入汇总集合的分桶数")
+                    .register(registry);
+            FunctionCounter.builder("alert.rollup.flushed", alertRollupService, AlertRollupService::getFlushedBuckets)
+                    .description("已写入汇总集合的分桶增量数")
+                    .register(registry);
+            FunctionCounter.builder("alert.rollup.flush.failures", alertRollupService, AlertRollupService::getFlushFailures)
+                    .description("汇总写入失败次数")
+                    .register(registry);
+        };
+    }
+}
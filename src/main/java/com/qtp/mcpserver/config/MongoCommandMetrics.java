@@ -0,0 +1,369 @@
+package com.qtp.mcpserver.config;
+
+import com.mongodb.client.MongoClient;
+import com.mongodb.event.CommandFailedEvent;
+import com.mongodb.event.CommandListener;
+import com.mongodb.event.CommandStartedEvent;
+import com.mongodb.event.CommandSucceededEvent;
+import com.qtp.mcpserver.dto.SlowQuery;
+import com.qtp.mcpserver.tools.ToolMetrics;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import jakarta.servlet.http.HttpServletRequest;
+import lombok.extern.slf4j.Slf4j;
+import org.bson.BsonArray;
+import org.bson.BsonDocument;
+import org.bson.BsonString;
+import org.bson.BsonValue;
+import org.bson.Document;
+import org.springframework.beans.factory.ObjectProvider;
+import org.springframework.beans.factory.annotation.Qualifier;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.core.task.TaskExecutor;
+import org.springframework.stereotype.Component;
+import org.springframework.web.context.request.RequestContextHolder;
+import org.springframework.web.context.request.ServletRequestAttributes;
+import org.springframework.web.servlet.HandlerMapping;
+
+import java.time.Duration;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Date;
+import java.util.Deque;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * MongoDB 命令耗时统计，注册为驱动的 {@link CommandListener}（同步和响应式客户端共用）。
+ * <p>
+ * 每条命令按查询形态（命令、集合、过滤条件中的字段和操作符，具体值替换为占位符）记录到 alert.mongo.commands，
+ * 形态数超过 alert.metrics.mongo.max-shapes 后新形态归入 other。
+ * 耗时超过 alert.metrics.slow-query.threshold 的命令记入慢查询日志：命令本身、调用方（MCP工具或REST接口）
+ * 以及后台 explain 得到的执行计划，最近的若干条可通过 /actuator/slowqueries 查看。
+ */
+@Component
+@Slf4j
+public class MongoCommandMetrics implements CommandListener {
+
+    public static final String TIMER = "alert.mongo.commands";
+
+    private static final String OTHER_SHAPE = "other";
+
+    /** 连接握手、心跳、会话等内部命令不统计；explain 是慢查询诊断自身发出的 */
+    private static final Set<String> IGNORED_COMMANDS = Set.of("hello", "isMaster", "ismaster", "ping", "buildInfo",
+            "saslStart", "saslContinue", "endSessions", "killCursors", "explain", "getLastError");
+
+    /** 批量写入命令可能携带上千条语句，不保留命令文档，慢查询记录中只有形态 */
+    private static final Set<String> EXPLAINABLE_COMMANDS = Set.of("find", "aggregate", "count", "distinct", "findAndModify");
+
+    /** explain 前要去掉的会话、集群时间等驱动附加字段 */
+    private static final Set<String> DRIVER_FIELDS = Set.of("$db", "lsid", "$clusterTime", "$readPreference",
+            "txnNumber", "autocommit", "startTransaction", "apiVersion", "apiStrict", "apiDeprecationErrors");
+
+    private static final int MAX_COMMAND_LENGTH = 4096;
+
+    /** 同一形态的执行计划在该时间内复用，不重复 explain */
+    private static final long PLAN_REUSE_MILLIS = 60_000;
+
+    private final MeterRegistry meterRegistry;
+
+    private final ObjectProvider<MongoClient> mongoClient;
+
+    private final TaskExecutor taskExecutor;
+
+    private final long slowThresholdNanos;
+
+    private final int maxShapes;
+
+    private final int slowLogSize;
+
+    private final Map<Integer, Started> inFlight = new ConcurrentHashMap<>();
+
+    private final Set<String> shapes = ConcurrentHashMap.newKeySet();
+
+    private final Map<String, ExplainedPlan> plans = new ConcurrentHashMap<>();
+
+    private final Deque<SlowQuery> slowQueries = new ArrayDeque<>();
+
+    public MongoCommandMetrics(MeterRegistry meterRegistry,
+                               ObjectProvider<MongoClient> mongoClient,
+                               @Qualifier("applicationTaskExecutor") TaskExecutor taskExecutor,
+                               @Value("${alert.metrics.slow-query.threshold:200ms}") Duration slowThreshold,
+                               @Value("${alert.metrics.slow-query.log-size:100}") int slowLogSize,
+                               @Value("${alert.metrics.mongo.max-shapes:200}") int maxShapes) {
+        this.meterRegistry = meterRegistry;
+        this.mongoClient = mongoClient;
+        this.taskExecutor = taskExecutor;
+        this.slowThresholdNanos = slowThreshold.toNanos();
+        this.slowLogSize = slowLogSize;
+        this.maxShapes = maxShapes;
+    }
+
+    @Override
+    public void commandStarted(CommandStartedEvent event) {
+        if (IGNORED_COMMANDS.contains(event.getCommandName())) {
+            return;
+        }
+        BsonDocument command = event.getCommand();
+        String collection = collectionOf(event.getCommandName(), command);
+        String shape = shapeOf(event.getCommandName(), command);
+        // 事件中的命令文档只在回调期间有效，可 explain 的命令复制一份留给慢查询诊断
+        BsonDocument retained = EXPLAINABLE_COMMANDS.contains(event.getCommandName()) ? command.clone() : null;
+        inFlight.put(event.getRequestId(), new Started(event.getDatabaseName(),
+                event.getCommandName(), collection, shape, retained, caller()));
+    }
+
+    @Override
+    public void commandSucceeded(CommandSucceededEvent event) {
+        complete(event.getRequestId(), event.getElapsedTime(TimeUnit.NANOSECONDS), "success");
+    }
+
+    @Override
+    public void commandFailed(CommandFailedEvent event) {
+        complete(event.getRequestId(), event.getElapsedTime(TimeUnit.NANOSECONDS), "failure");
+    }
+
+    /**
+     * 最近的慢查询，最新的在前
+     */
+    public List<SlowQuery> slowQueries() {
+        synchronized (slowQueries) {
+            return new ArrayList<>(slowQueries);
+        }
+    }
+
+    public void clearSlowQueries() {
+        synchronized (slowQueries) {
+            slowQueries.clear();
+        }
+        plans.clear();
+    }
+
+    private void complete(int requestId, long elapsedNanos, String outcome) {
+        Started started = inFlight.remove(requestId);
+        if (started == null) {
+            return;
+        }
+        Timer.builder(TIMER)
+                .description("MongoDB 命令耗时（按查询形态）")
+                .tag("command", started.commandName)
+                .tag("collection", started.collection)
+                .tag("shape", started.shape)
+                .tag("outcome", outcome)
+                .register(meterRegistry)
+                .record(elapsedNanos, TimeUnit.NANOSECONDS);
+        if (elapsedNanos >= slowThresholdNanos) {
+            recordSlow(started, elapsedNanos);
+        }
+    }
+
+    private void recordSlow(Started started, long elapsedNanos) {
+        SlowQuery slowQuery = new SlowQuery();
+        slowQuery.setTime(new Date());
+        slowQuery.setDurationMillis(TimeUnit.NANOSECONDS.toMillis(elapsedNanos));
+        slowQuery.setCommandName(started.commandName);
+        slowQuery.setCollection(started.collection);
+        slowQuery.setShape(started.shape);
+        slowQuery.setCaller(started.caller);
+        if (started.command != null) {
+            String json = started.command.toJson();
+            slowQuery.setCommand(json.length() > MAX_COMMAND_LENGTH ? json.substring(0, MAX_COMMAND_LENGTH) + "…" : json);
+        }
+        log.warn("慢查询 {}ms：{} {} 形态 {}，调用方 {}", slowQuery.getDurationMillis(), started.commandName,
+                started.collection, started.shape, started.caller);
+        synchronized (slowQueries) {
+            slowQueries.addFirst(slowQuery);
+            while (slowQueries.size() > slowLogSize) {
+                slowQueries.removeLast();
+            }
+        }
+        if (started.command == null) {
+            return;
+        }
+        String planKey = started.commandName + " " + started.collection + " " + started.shape;
+        ExplainedPlan cached = plans.get(planKey);
+        if (cached != null && System.currentTimeMillis() - cached.explainedAt < PLAN_REUSE_MILLIS) {
+            cached.applyTo(slowQuery);
+            return;
+        }
+        taskExecutor.execute(() -> explain(planKey, started, slowQuery));
+    }
+
+    private void explain(String planKey, Started started, SlowQuery slowQuery) {
+        MongoClient client = mongoClient.getIfAvailable();
+        if (client == null) {
+            slowQuery.setExplainError("没有同步 MongoDB 客户端，无法 explain");
+            return;
+        }
+        try {
+            BsonDocument command = new BsonDocument();
+            started.command.forEach((field, value) -> {
+                if (!DRIVER_FIELDS.contains(field)) {
+                    command.append(field, value);
+                }
+            });
+            Document result = client.getDatabase(started.database).runCommand(
+                    new BsonDocument("explain", command).append("verbosity", new BsonString("queryPlanner")));
+            ExplainedPlan plan = ExplainedPlan.of(result);
+            plans.put(planKey, plan);
+            plan.applyTo(slowQuery);
+        } catch (Exception e) {
+            slowQuery.setExplainError(e.getMessage());
+        }
+    }
+
+    /**
+     * 调用方：同步MCP工具调用期间为工具名，REST请求中为请求方法和路径模板，其他情况为线程名
+     */
+    private static String caller() {
+        String tool = ToolMetrics.currentTool();
+        if (tool != null) {
+            return "tool:" + tool;
+        }
+        if (RequestContextHolder.getRequestAttributes() instanceof ServletRequestAttributes attributes) {
+            HttpServletRequest request = attributes.getRequest();
+            Object pattern = request.getAttribute(HandlerMapping.BEST_MATCHING_PATTERN_ATTRIBUTE);
+            return request.getMethod() + " " + (pattern != null ? pattern : request.getRequestURI());
+        }
+        return "thread:" + Thread.currentThread().getName();
+    }
+
+    private static String collectionOf(String commandName, BsonDocument command) {
+        BsonValue value = command.get(commandName);
+        return value != null && value.isString() ? value.asString().getValue() : "";
+    }
+
+    private String shapeOf(String commandName, BsonDocument command) {
+        BsonValue filter = switch (commandName) {
+            case "find" -> command.get("filter");
+            case "count", "distinct", "findAndModify" -> command.get("query");
+            case "update" -> first(command, "updates", "q");
+            case "delete" -> first(command, "deletes", "q");
+            case "aggregate" -> pipelineShape(command.get("pipeline"));
+            default -> null;
+        };
+        String shape = filter == null ? "{}" : placeholder(filter).toString();
+        if (shapes.contains(shape)) {
+            return shape;
+        }
+        if (shapes.size() >= maxShapes) {
+            return OTHER_SHAPE;
+        }
+        shapes.add(shape);
+        return shape;
+    }
+
+    private static BsonValue first(BsonDocument command, String arrayField, String field) {
+        BsonValue statements = command.get(arrayField);
+        if (statements instanceof BsonArray array && !array.isEmpty() && array.get(0).isDocument()) {
+            return array.get(0).asDocument().get(field);
+        }
+        return null;
+    }
+
+    /**
+     * 聚合的形态：各阶段名，$match 阶段保留过滤条件的形态
+     */
+    private static BsonValue pipelineShape(BsonValue pipeline) {
+        if (!(pipeline instanceof BsonArray stages)) {
+            return null;
+        }
+        BsonArray shape = new BsonArray();
+        for (BsonValue stage : stages) {
+            if (!stage.isDocument() || stage.asDocument().isEmpty()) {
+                continue;
+            }
+            String name = stage.asDocument().getFirstKey();
+            shape.add("$match".equals(name)
+                    ? new BsonDocument(name, placeholder(stage.asDocument().get(name)))
+                    : new BsonString(name));
+        }
+        return shape;
+    }
+
+    /**
+     * 把过滤条件中的具体值替换为占位符，保留字段名和操作符
+     */
+    private static BsonValue placeholder(BsonValue value) {
+        if (value.isDocument()) {
+            BsonDocument shape = new BsonDocument();
+            value.asDocument().forEach((field, child) -> shape.append(field, placeholder(child)));
+            return shape;
+        }
+        if (value.isArray()) {
+            BsonArray shape = new BsonArray();
+            for (BsonValue child : value.asArray()) {
+                BsonValue childShape = placeholder(child);
+                if (!childShape.isString() || !shape.contains(childShape)) {
+                    shape.add(childShape);
+                }
+            }
+            return shape;
+        }
+        return new BsonString("?");
+    }
+
+    private record Started(String database, String commandName, String collection, String shape,
+                           BsonDocument command, String caller) {
+    }
+
+    private record ExplainedPlan(long explainedAt, List<String> planStages, List<String> indexNames, String plan) {
+
+        static ExplainedPlan of(Document explain) {
+            // find 等命令在 queryPlanner 下，聚合在 stages[0].$cursor.queryPlanner 下
+            Object winningPlan = winningPlan(explain);
+            List<String> stages = new ArrayList<>();
+            List<String> indexNames = new ArrayList<>();
+            collect(winningPlan, stages, indexNames);
+            String json = winningPlan instanceof Document doc ? doc.toJson() : explain.toJson();
+            return new ExplainedPlan(System.currentTimeMillis(), stages, indexNames,
+                    json.length() > MAX_COMMAND_LENGTH ? json.substring(0, MAX_COMMAND_LENGTH) + "…" : json);
+        }
+
+        private static Object winningPlan(Object node) {
+            if (node instanceof Document doc) {
+                if (doc.get("winningPlan") != null) {
+                    return doc.get("winningPlan");
+                }
+                for (Object value : doc.values()) {
+                    Object found = winningPlan(value);
+                    if (found != null) {
+                        return found;
+                    }
+                }
+            } else if (node instanceof List<?> list) {
+                for (Object value : list) {
+                    Object found = winningPlan(value);
+                    if (found != null) {
+                        return found;
+                    }
+                }
+            }
+            return null;
+        }
+
+        private static void collect(Object node, List<String> stages, List<String> indexNames) {
+            if (node instanceof Document doc) {
+                if (doc.get("stage") instanceof String stage && !stages.contains(stage)) {
+                    stages.add(stage);
+                }
+                if (doc.get("indexName") instanceof String indexName && !indexNames.contains(indexName)) {
+                    indexNames.add(indexName);
+                }
+                doc.values().forEach(value -> collect(value, stages, indexNames));
+            } else if (node instanceof List<?> list) {
+                list.forEach(value -> collect(value, stages, indexNames));
+            }
+        }
+
+        void applyTo(SlowQuery slowQuery) {
+            slowQuery.setPlanStages(planStages);
+            slowQuery.setIndexNames(indexNames);
+            slowQuery.setCollectionScan(planStages.contains("COLLSCAN"));
+            slowQuery.setPlan(plan);
+        }
+    }
+}
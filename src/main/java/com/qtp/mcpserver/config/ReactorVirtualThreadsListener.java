@@ -0,0 +1,24 @@
+package com.qtp.mcpserver.config;
+
+import org.springframework.boot.autoconfigure.thread.Threading;
+import org.springframework.boot.context.event.ApplicationEnvironmentPreparedEvent;
+import org.springframework.context.ApplicationListener;
+
+/**
+ * 虚拟线程模式下让 Reactor 的 boundedElastic 调度器改用虚拟线程。
+ * MCP 服务端把同步工具调用放到 boundedElastic 上执行，开启后工具内的 MongoDB 阻塞调用同样运行在虚拟线程上。
+ * <p>
+ * Reactor 只在 Schedulers 类初始化时读取该系统属性，因此必须在容器创建任何 Reactor 组件之前设置，
+ * 这里监听环境准备完成事件，在 {@code McpServerApplication#main} 中注册。
+ */
+public class ReactorVirtualThreadsListener implements ApplicationListener<ApplicationEnvironmentPreparedEvent> {
+
+    static final String REACTOR_PROPERTY = "reactor.schedulers.defaultBoundedElasticOnVirtualThreads";
+
+    @Override
+    public void onApplicationEvent(ApplicationEnvironmentPreparedEvent event) {
+        if (Threading.VIRTUAL.isActive(event.getEnvironment()) && System.getProperty(REACTOR_PROPERTY) == null) {
+            System.setProperty(REACTOR_PROPERTY, "true");
+        }
+    }
+}
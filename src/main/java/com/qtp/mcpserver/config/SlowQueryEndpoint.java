@@ -0,0 +1,33 @@
+package com.qtp.mcpserver.config;
+
+import com.qtp.mcpserver.dto.SlowQuery;
+import org.springframework.boot.actuate.endpoint.annotation.DeleteOperation;
+import org.springframework.boot.actuate.endpoint.annotation.Endpoint;
+import org.springframework.boot.actuate.endpoint.annotation.ReadOperation;
+import org.springframework.stereotype.Component;
+
+import java.util.List;
+
+/**
+ * /actuator/slowqueries：最近的 MongoDB 慢查询及执行计划，DELETE 清空
+ */
+@Component
+@Endpoint(id = "slowqueries")
+public class SlowQueryEndpoint {
+
+    private final MongoCommandMetrics mongoCommandMetrics;
+
+    public SlowQueryEndpoint(MongoCommandMetrics mongoCommandMetrics) {
+        this.mongoCommandMetrics = mongoCommandMetrics;
+    }
+
+    @ReadOperation
+    public List<SlowQuery> slowQueries() {
+        return mongoCommandMetrics.slowQueries();
+    }
+
+    @DeleteOperation
+    public void clear() {
+        mongoCommandMetrics.clearSlowQueries();
+    }
+}
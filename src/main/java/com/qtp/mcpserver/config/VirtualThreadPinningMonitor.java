@@ -0,0 +1,112 @@
+package com.qtp.mcpserver.config;
+
+import jdk.jfr.consumer.RecordedEvent;
+import jdk.jfr.consumer.RecordedFrame;
+import jdk.jfr.consumer.RecordingStream;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnThreading;
+import org.springframework.boot.autoconfigure.thread.Threading;
+import org.springframework.context.SmartLifecycle;
+import org.springframework.stereotype.Component;
+
+import java.time.Duration;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.stream.Collectors;
+
+/**
+ * 虚拟线程钉住（pinning）监控，仅在 spring.threads.virtual.enabled=true 时启用。
+ * <p>
+ * 通过 JFR 事件流订阅 jdk.VirtualThreadPinned：虚拟线程在 synchronized 块或本地方法中阻塞超过阈值时，
+ * 载体线程被占住无法调度其他虚拟线程。每个不同的调用栈第一次出现时打印告警日志，之后只计数，
+ * 汇总结果可通过 /api/admin/virtual-threads/pinned 查看。
+ */
+@Component
+@Slf4j
+@ConditionalOnThreading(Threading.VIRTUAL)
+public class VirtualThreadPinningMonitor implements SmartLifecycle {
+
+    private static final int STACK_DEPTH = 8;
+
+    private static final int MAX_SIGNATURES = 200;
+
+    private final Duration threshold;
+
+    private final LongAdder pinnedCount = new LongAdder();
+
+    /** 调用栈摘要 → 次数 */
+    private final Map<String, LongAdder> signatures = new ConcurrentHashMap<>();
+
+    private volatile RecordingStream stream;
+
+    public VirtualThreadPinningMonitor(@Value("${alert.virtual-threads.pinned-threshold:20ms}") Duration threshold) {
+        this.threshold = threshold;
+    }
+
+    @Override
+    public void start() {
+        RecordingStream recording = new RecordingStream();
+        recording.enable("jdk.VirtualThreadPinned").withThreshold(threshold).withStackTrace();
+        recording.onEvent("jdk.VirtualThreadPinned", this::onPinned);
+        recording.startAsync();
+        stream = recording;
+        log.info("虚拟线程模式已启用，钉住监控阈值 {}", threshold);
+    }
+
+    private void onPinned(RecordedEvent event) {
+        pinnedCount.increment();
+        String signature = signature(event);
+        LongAdder counter = signatures.get(signature);
+        if (counter == null) {
+            if (signatures.size() >= MAX_SIGNATURES) {
+                return;
+            }
+            counter = signatures.computeIfAbsent(signature, key -> new LongAdder());
+            log.warn("虚拟线程被钉住 {} ms，调用栈：\n{}", event.getDuration().toMillis(), signature);
+        }
+        counter.increment();
+    }
+
+    private String signature(RecordedEvent event) {
+        if (event.getStackTrace() == null) {
+            return "<无调用栈>";
+        }
+        List<RecordedFrame> frames = event.getStackTrace().getFrames();
+        return frames.stream().limit(STACK_DEPTH)
+                .map(frame -> "\tat " + frame.getMethod().getType().getName() + "." + frame.getMethod().getName()
+                        + ":" + frame.getLineNumber())
+                .collect(Collectors.joining("\n"));
+    }
+
+    /**
+     * 钉住次数汇总，调用栈按次数降序
+     */
+    public Map<String, Object> report() {
+        Map<String, Object> report = new LinkedHashMap<>();
+        report.put("threshold", threshold.toString());
+        report.put("pinnedCount", pinnedCount.sum());
+        report.put("stacks", signatures.entrySet().stream()
+                .sorted((a, b) -> Long.compare(b.getValue().sum(), a.getValue().sum()))
+                .map(entry -> Map.of("count", entry.getValue().sum(), "stack", entry.getKey()))
+                .toList());
+        return report;
+    }
+
+    @Override
+    public void stop() {
+        RecordingStream recording = stream;
+        if (recording != null) {
+            recording.close();
+            stream = null;
+        }
+    }
+
+    @Override
+    public boolean isRunning() {
+        return stream != null;
+    }
+}
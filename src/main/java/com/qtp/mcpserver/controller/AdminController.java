@@ -0,0 +1,173 @@
+package com.qtp.mcpserver.controller;
+
+import com.qtp.mcpserver.config.VirtualThreadPinningMonitor;
+import com.qtp.mcpserver.dto.QueryShapeReport;
+import com.qtp.mcpserver.service.AlertArchiveService;
+import com.qtp.mcpserver.service.AlertCacheService;
+import com.qtp.mcpserver.service.AlertIndexAdvisor;
+import com.qtp.mcpserver.service.AlertIndexManager;
+import com.qtp.mcpserver.service.AlertPayloadService;
+import com.qtp.mcpserver.service.AlertQueryCoalescer;
+import com.qtp.mcpserver.service.AlertRollupService;
+import com.qtp.mcpserver.service.AlertTextSearchService;
+import com.qtp.mcpserver.tools.ToolResultRenderer;
+import org.bson.Document;
+import org.springframework.beans.factory.ObjectProvider;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.format.annotation.DateTimeFormat;
+import org.springframework.web.bind.annotation.*;
+
+import java.util.Date;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * 运维管理接口
+ */
+@RestController
+@RequestMapping("/api/admin")
+@CrossOrigin(origins = "*")
+public class AdminController {
+    @Autowired
+    private AlertIndexManager alertIndexManager;
+
+    @Autowired
+    private AlertIndexAdvisor alertIndexAdvisor;
+
+    @Autowired
+    private AlertTextSearchService alertTextSearchService;
+
+    @Autowired
+    private ObjectProvider<VirtualThreadPinningMonitor> pinningMonitor;
+
+    @Autowired
+    private AlertCacheService alertCacheService;
+
+    @Autowired
+    private AlertPayloadService alertPayloadService;
+
+    @Autowired
+    private ToolResultRenderer toolResultRenderer;
+
+    @Autowired
+    private AlertRollupService alertRollupService;
+
+    @Autowired
+    private AlertArchiveService alertArchiveService;
+
+    @Autowired
+    private AlertQueryCoalescer alertQueryCoalescer;
+
+    /**
+     * 查看alert集合当前的索引
+     */
+    @GetMapping("/indexes")
+    public List<Document> listIndexes() {
+        return alertIndexManager.listIndexes();
+    }
+
+    /**
+     * 手动创建缺失的索引
+     */
+    @PostMapping("/indexes/ensure")
+    public List<String> ensureIndexes() {
+        return alertIndexManager.ensureIndexes();
+    }
+
+    /**
+     * 索引建议：已观察到的查询形态及执行计划，COLLSCAN 的形态排在最前
+     */
+    @GetMapping("/indexes/advice")
+    public List<QueryShapeReport> indexAdvice(@RequestParam(defaultValue = "false") boolean collectionScanOnly) {
+        return alertIndexAdvisor.reports(collectionScanOnly);
+    }
+
+    /**
+     * 清空已记录的查询形态
+     */
+    @DeleteMapping("/indexes/advice")
+    public String clearIndexAdvice() {
+        alertIndexAdvisor.clear();
+        return "已清空";
+    }
+
+    /**
+     * 为历史告警回填全文检索分词字段
+     */
+    @PostMapping("/search/backfill")
+    public String backfillSearchText() {
+        return "回填完成，共 " + alertTextSearchService.backfill() + " 条";
+    }
+
+    /**
+     * 把已有告警的探测报文迁移到当前配置的存储方式（alert.payload.storage）
+     */
+    @PostMapping("/payload/migrate")
+    public String migratePayload() {
+        long migrated = alertPayloadService.migrate();
+        alertCacheService.clear();
+        return "迁移完成（" + (alertPayloadService.isSplit() ? "拆分存储" : "内联存储") + "），共 " + migrated + " 条";
+    }
+
+    /**
+     * 按原始告警重算趋势汇总，不传时间表示全部
+     */
+    @PostMapping("/rollup/backfill")
+    public String backfillRollup(
+            @RequestParam(required = false) @DateTimeFormat(pattern = "yyyy-MM-dd HH:mm:ss") Date startTime,
+            @RequestParam(required = false) @DateTimeFormat(pattern = "yyyy-MM-dd HH:mm:ss") Date endTime) {
+        return "重算完成，共 " + alertRollupService.backfill(startTime, endTime) + " 个分桶";
+    }
+
+    /**
+     * 立即执行一轮归档（不受 alert.archive.enabled 限制），把已恢复且超过 min-age 的告警移入归档集合
+     */
+    @PostMapping("/archive/run")
+    public String runArchive() {
+        long archived = alertArchiveService.archive();
+        alertCacheService.clear();
+        return "归档完成，共 " + archived + " 条";
+    }
+
+    /**
+     * 虚拟线程钉住统计，未开启虚拟线程模式时返回提示
+     */
+    @GetMapping("/virtual-threads/pinned")
+    public Map<String, Object> virtualThreadPinning() {
+        VirtualThreadPinningMonitor monitor = pinningMonitor.getIfAvailable();
+        return monitor != null ? monitor.report() : Map.of("message", "未开启虚拟线程模式（spring.threads.virtual.enabled）");
+    }
+
+    /**
+     * 各MCP工具的输出字节数与截断次数
+     */
+    @GetMapping("/tools/output")
+    public Map<String, Object> toolOutputStats() {
+        return toolResultRenderer.stats();
+    }
+
+    /**
+     * 只读查询的合并统计：各查询类型的执行、合并、短时缓存命中次数及合并比例
+     */
+    @GetMapping("/queries/coalescing")
+    public Map<String, Object> queryCoalescingStats() {
+        return alertQueryCoalescer.stats();
+    }
+
+    /**
+     * 告警按ID缓存的命中、淘汰统计
+     */
+    @GetMapping("/cache")
+    public Map<String, Object> cacheStats() {
+        return alertCacheService.stats();
+    }
+
+    /**
+     * 清空告警按ID缓存
+     */
+    @DeleteMapping("/cache")
+    public String clearCache() {
+        alertCacheService.clear();
+        return "已清空";
+    }
+}
@@ -1,26 +1,47 @@
 package com.qtp.mcpserver.controller;
 
+import com.qtp.mcpserver.dto.AlertBulkResult;
+import com.qtp.mcpserver.dto.AlertCountMode;
+import com.qtp.mcpserver.dto.AlertFilter;
+import com.qtp.mcpserver.dto.AlertMatchMode;
+import com.qtp.mcpserver.dto.AlertPageRequest;
+import com.qtp.mcpserver.dto.AlertPageResult;
+import com.qtp.mcpserver.dto.AlertStatistics;
+import com.qtp.mcpserver.dto.AlertTransitionResult;
+import com.qtp.mcpserver.dto.AlertTrend;
 import com.qtp.mcpserver.entity.Alert;
-import lombok.AllArgsConstructor;
-import lombok.Data;
+import com.qtp.mcpserver.service.AlertStreamService;
+import com.qtp.mcpserver.service.AlertTextSearchService;
+import com.qtp.mcpserver.storage.AlertStore;
 import org.springframework.beans.factory.annotation.Autowired;
-import org.springframework.data.domain.Sort;
-import org.springframework.data.mongodb.core.MongoTemplate;
-import org.springframework.data.mongodb.core.query.Criteria;
-import org.springframework.data.mongodb.core.query.Query;
+import org.springframework.beans.factory.annotation.Value;
 import org.springframework.format.annotation.DateTimeFormat;
+import org.springframework.http.MediaType;
+import org.springframework.http.ResponseEntity;
+import org.springframework.http.codec.ServerSentEvent;
 import org.springframework.web.bind.annotation.*;
+import reactor.core.publisher.Flux;
 import java.util.Date;
 import java.util.List;
 import java.util.Map;
 import java.util.HashMap;
+import java.util.LinkedHashMap;
 
 @RestController
 @RequestMapping("/api/alerts")
-@CrossOrigin(origins = "*")
+@CrossOrigin(origins = "*", exposedHeaders = AlertController.TRUNCATED_HEADER)
 public class AlertController {
     @Autowired
-    private MongoTemplate mongoTemplate;
+    private AlertStore alertStore;
+
+    @Autowired
+    private AlertStreamService alertStreamService;
+
+    /** 时间范围查询结果被 limit 截断时的响应头 */
+    static final String TRUNCATED_HEADER = "X-Result-Truncated";
+
+    @Value("${alert.export.time-range-max-limit:10000}")
+    private int timeRangeMaxLimit;
 
     /**
      * 多条件分页查询告警
@@ -35,58 +56,67 @@ public class AlertController {
             @RequestParam(required = false) String systemName,
             @RequestParam(required = false) String taskName,
             @RequestParam(required = false) String host,
+            @RequestParam(required = false) String match,
             @RequestParam(required = false) @DateTimeFormat(pattern = "yyyy-MM-dd HH:mm:ss") Date beginTime,
             @RequestParam(required = false) @DateTimeFormat(pattern = "yyyy-MM-dd HH:mm:ss") Date endTime,
             @RequestParam(defaultValue = "1") int pageNum,
             @RequestParam(defaultValue = "10") int pageSize,
             @RequestParam(defaultValue = "endTime") String sortField,
-            @RequestParam(defaultValue = "desc") String sortOrder
+            @RequestParam(defaultValue = "desc") String sortOrder,
+            @RequestParam(required = false) String cursor,
+            @RequestParam(required = false) String countMode
     ) {
-        Query query = new Query();
-        
-        // 添加查询条件
-        if (caseExecId != null && !caseExecId.trim().isEmpty()) {
-            query.addCriteria(Criteria.where("caseExecId").regex(caseExecId, "i"));
-        }
-        if (alarmLevel != null && !alarmLevel.trim().isEmpty()) {
-            query.addCriteria(Criteria.where("alarmLevel").is(alarmLevel));
-        }
-        if (alarmType != null && !alarmType.trim().isEmpty()) {
-            query.addCriteria(Criteria.where("alarmType").is(alarmType));
-        }
-        if (company != null && !company.trim().isEmpty()) {
-            query.addCriteria(Criteria.where("company").regex(company, "i"));
-        }
-        if (status != null) {
-            query.addCriteria(Criteria.where("status").is(status));
-        }
-        if (systemName != null && !systemName.trim().isEmpty()) {
-            query.addCriteria(Criteria.where("systemName").regex(systemName, "i"));
-        }
-        if (taskName != null && !taskName.trim().isEmpty()) {
-            query.addCriteria(Criteria.where("taskName").regex(taskName, "i"));
-        }
-        if (host != null && !host.trim().isEmpty()) {
-            query.addCriteria(Criteria.where("host").regex(host, "i"));
-        }
-        if (beginTime != null && endTime != null) {
-            query.addCriteria(Criteria.where("endTime").gte(beginTime).lte(endTime));
-        } else if (beginTime != null) {
-            query.addCriteria(Criteria.where("endTime").gte(beginTime));
-        } else if (endTime != null) {
-            query.addCriteria(Criteria.where("endTime").lte(endTime));
-        }
+        AlertFilter filter = searchFilter(caseExecId, alarmLevel, alarmType, company, status, systemName, taskName, host,
+                match, beginTime, endTime);
 
-        // 排序
-        Sort.Direction direction = "asc".equalsIgnoreCase(sortOrder) ? Sort.Direction.ASC : Sort.Direction.DESC;
-        query.with(Sort.by(direction, sortField));
-        
-        // 分页
-        long total = mongoTemplate.count(query, Alert.class);
-        query.skip((long) (pageNum - 1) * pageSize).limit(pageSize);
-        List<Alert> alerts = mongoTemplate.find(query, Alert.class);
-        
-        return new AlertPageResult(alerts, total, pageNum, pageSize);
+        // 排序、分页：传入cursor时使用游标分页，否则按页码偏移分页
+        AlertPageRequest pageRequest = AlertPageRequest.of(pageNum, pageSize, sortField, sortOrder, cursor);
+        pageRequest.setCountMode(AlertCountMode.parse(countMode, null));
+        return alertStore.page(filter, pageRequest);
+    }
+
+    /**
+     * 告警变更推送（SSE），过滤参数与 /search 相同。
+     * 推送满足条件的告警变更和所有变更的统计增量，stats=false 时只推送满足条件的告警变更
+     */
+    @GetMapping(value = "/stream", produces = MediaType.TEXT_EVENT_STREAM_VALUE)
+    public Flux<ServerSentEvent<String>> streamAlerts(
+            @RequestParam(required = false) String caseExecId,
+            @RequestParam(required = false) String alarmLevel,
+            @RequestParam(required = false) String alarmType,
+            @RequestParam(required = false) String company,
+            @RequestParam(required = false) Integer status,
+            @RequestParam(required = false) String systemName,
+            @RequestParam(required = false) String taskName,
+            @RequestParam(required = false) String host,
+            @RequestParam(required = false) String match,
+            @RequestParam(required = false) @DateTimeFormat(pattern = "yyyy-MM-dd HH:mm:ss") Date beginTime,
+            @RequestParam(required = false) @DateTimeFormat(pattern = "yyyy-MM-dd HH:mm:ss") Date endTime,
+            @RequestParam(defaultValue = "true") boolean stats,
+            @RequestHeader(value = "Last-Event-ID", required = false) String lastEventId
+    ) {
+        AlertFilter filter = searchFilter(caseExecId, alarmLevel, alarmType, company, status, systemName, taskName, host,
+                match, beginTime, endTime);
+        return alertStreamService.subscribe(filter, stats, lastEventId);
+    }
+
+    /**
+     * 单位、系统、用例、模块、IP 不区分大小写，默认前缀匹配，match=exact/contains 时为精确/包含匹配
+     */
+    private static AlertFilter searchFilter(String caseExecId, String alarmLevel, String alarmType, String company,
+                                            Integer status, String systemName, String taskName, String host,
+                                            String match, Date beginTime, Date endTime) {
+        AlertFilter filter = AlertFilter.endTimeBetween(beginTime, endTime);
+        filter.setCaseExecIdLike(caseExecId);
+        filter.setAlarmLevel(alarmLevel);
+        filter.setAlarmType(alarmType);
+        filter.setCompanyLike(company);
+        filter.setStatus(status);
+        filter.setSystemNameLike(systemName);
+        filter.setTaskNameLike(taskName);
+        filter.setHostLike(host);
+        filter.setMatchMode(AlertMatchMode.parse(match, AlertMatchMode.PREFIX));
+        return filter;
     }
 
     /**
@@ -94,7 +124,7 @@ public class AlertController {
      */
     @GetMapping("/{id}")
     public Alert getAlertById(@PathVariable String id) {
-        return mongoTemplate.findById(id, Alert.class);
+        return alertStore.findById(id);
     }
 
     /**
@@ -102,7 +132,7 @@ public class AlertController {
      */
     @PostMapping
     public Alert createAlert(@RequestBody Alert alert) {
-        return mongoTemplate.save(alert);
+        return alertStore.save(alert);
     }
 
     /**
@@ -110,12 +140,12 @@ public class AlertController {
      */
     @PutMapping("/{id}")
     public Alert updateAlert(@PathVariable String id, @RequestBody Alert alert) {
-        Alert existingAlert = mongoTemplate.findById(id, Alert.class);
-        if (existingAlert == null) {
+        alert.setId(id);
+        Alert replaced = alertStore.replace(alert);
+        if (replaced == null) {
             throw new RuntimeException("告警不存在");
         }
-        alert.setId(id);
-        return mongoTemplate.save(alert);
+        return replaced;
     }
 
     /**
@@ -123,12 +153,7 @@ public class AlertController {
      */
     @DeleteMapping("/{id}")
     public String deleteAlert(@PathVariable String id) {
-        Alert alert = mongoTemplate.findById(id, Alert.class);
-        if (alert == null) {
-            return "告警不存在";
-        }
-        mongoTemplate.remove(alert);
-        return "删除成功";
+        return alertStore.deleteById(id) == null ? "告警不存在" : "删除成功";
     }
 
     /**
@@ -136,83 +161,45 @@ public class AlertController {
      */
     @DeleteMapping("/batch")
     public Map<String, Object> batchDeleteAlerts(@RequestBody List<String> ids) {
-        Map<String, Object> result = new HashMap<>();
-        List<String> deletedIds = new java.util.ArrayList<>();
-        List<String> notFoundIds = new java.util.ArrayList<>();
+        AlertBulkResult bulkResult = alertStore.deleteByIds(ids);
         
-        for (String id : ids) {
-            Alert alert = mongoTemplate.findById(id, Alert.class);
-            if (alert != null) {
-                mongoTemplate.remove(alert);
-                deletedIds.add(id);
-            } else {
-                notFoundIds.add(id);
-            }
-        }
-        
-        result.put("deletedCount", deletedIds.size());
-        result.put("deletedIds", deletedIds);
-        result.put("notFoundIds", notFoundIds);
+        Map<String, Object> result = new HashMap<>();
+        result.put("deletedCount", bulkResult.getModifiedCount());
+        result.put("deletedIds", bulkResult.getAffected().stream().map(Alert::getId).toList());
+        result.put("notFoundIds", bulkResult.getNotFoundIds());
         return result;
     }
 
     /**
-     * 解决告警
+     * 解决告警，只返回发生变化的字段
      */
     @PutMapping("/{id}/resolve")
-    public Alert resolveAlert(@PathVariable String id) {
-        Alert alert = mongoTemplate.findById(id, Alert.class);
-        if (alert == null) {
-            throw new RuntimeException("告警不存在");
-        }
-        alert.setStatus(1);
-        alert.setIsRecover(true);
-        alert.setRecoverTime(new Date());
-        return mongoTemplate.save(alert);
+    public Map<String, Object> resolveAlert(@PathVariable String id) {
+        return transitionChanges(alertStore.resolve(id));
     }
 
     /**
-     * 激活告警
+     * 激活告警，只返回发生变化的字段
      */
     @PutMapping("/{id}/activate")
-    public Alert activateAlert(@PathVariable String id) {
-        Alert alert = mongoTemplate.findById(id, Alert.class);
-        if (alert == null) {
-            throw new RuntimeException("告警不存在");
-        }
-        alert.setStatus(0);
-        alert.setIsRecover(false);
-        return mongoTemplate.save(alert);
+    public Map<String, Object> activateAlert(@PathVariable String id) {
+        return transitionChanges(alertStore.activate(id));
     }
 
     /**
-     * 升级告警级别
+     * 升级告警级别，只返回发生变化的字段
      */
     @PutMapping("/{id}/escalate")
-    public Alert escalateAlert(@PathVariable String id) {
-        Alert alert = mongoTemplate.findById(id, Alert.class);
-        if (alert == null) {
-            throw new RuntimeException("告警不存在");
-        }
-        
-        String currentLevel = alert.getAlarmLevel();
-        String newLevel;
-        
-        switch (currentLevel.toLowerCase()) {
-            case "info":
-                newLevel = "warning";
-                break;
-            case "warning":
-                newLevel = "critical";
-                break;
-            case "critical":
-                throw new RuntimeException("告警已是最高级别");
-            default:
-                throw new RuntimeException("未知的告警级别：" + currentLevel);
+    public Map<String, Object> escalateAlert(@PathVariable String id) {
+        return transitionChanges(alertStore.escalate(id));
+    }
+
+    private Map<String, Object> transitionChanges(AlertTransitionResult result) {
+        if (result.getOutcome() == AlertTransitionResult.Outcome.NOT_FOUND
+                || result.getOutcome() == AlertTransitionResult.Outcome.REJECTED) {
+            throw new RuntimeException(result.getMessage());
         }
-        
-        alert.setAlarmLevel(newLevel);
-        return mongoTemplate.save(alert);
+        return result.getChanges();
     }
 
     /**
@@ -224,104 +211,87 @@ public class AlertController {
         List<String> ids = (List<String>) request.get("ids");
         Integer targetStatus = (Integer) request.get("status");
         
-        Map<String, Object> result = new HashMap<>();
-        List<String> updatedIds = new java.util.ArrayList<>();
-        List<String> notFoundIds = new java.util.ArrayList<>();
-        
-        for (String id : ids) {
-            Alert alert = mongoTemplate.findById(id, Alert.class);
-            if (alert != null) {
-                alert.setStatus(targetStatus);
-                mongoTemplate.save(alert);
-                updatedIds.add(id);
-            } else {
-                notFoundIds.add(id);
-            }
-        }
+        AlertBulkResult bulkResult = alertStore.updateStatus(ids, targetStatus);
         
-        result.put("updatedCount", updatedIds.size());
-        result.put("updatedIds", updatedIds);
-        result.put("notFoundIds", notFoundIds);
+        Map<String, Object> result = new HashMap<>();
+        result.put("updatedCount", bulkResult.getAffected().size());
+        result.put("updatedIds", bulkResult.getAffected().stream().map(Alert::getId).toList());
+        result.put("notFoundIds", bulkResult.getNotFoundIds());
         return result;
     }
 
     /**
-     * 获取告警统计信息
+     * 获取告警统计信息，支持按时间范围、单位、系统过滤
      */
     @GetMapping("/statistics")
-    public Map<String, Object> getStatistics() {
-        List<Alert> alerts = mongoTemplate.findAll(Alert.class);
-        
-        // 按状态统计
-        Map<Integer, Long> statusStats = alerts.stream()
-                .collect(java.util.stream.Collectors.groupingBy(Alert::getStatus, java.util.stream.Collectors.counting()));
-        
-        // 按级别统计
-        Map<String, Long> levelStats = alerts.stream()
-                .collect(java.util.stream.Collectors.groupingBy(Alert::getAlarmLevel, java.util.stream.Collectors.counting()));
-        
-        // 按类型统计
-        Map<String, Long> typeStats = alerts.stream()
-                .collect(java.util.stream.Collectors.groupingBy(Alert::getAlarmType, java.util.stream.Collectors.counting()));
-        
-        // 按公司统计
-        Map<String, Long> companyStats = alerts.stream()
-                .collect(java.util.stream.Collectors.groupingBy(Alert::getCompany, java.util.stream.Collectors.counting()));
-        
-        // 按系统统计
-        Map<String, Long> systemStats = alerts.stream()
-                .collect(java.util.stream.Collectors.groupingBy(Alert::getSystemName, java.util.stream.Collectors.counting()));
-        
-        Map<String, Object> statistics = new HashMap<>();
-        statistics.put("totalCount", alerts.size());
-        statistics.put("statusStats", statusStats);
-        statistics.put("levelStats", levelStats);
-        statistics.put("typeStats", typeStats);
-        statistics.put("companyStats", companyStats);
-        statistics.put("systemStats", systemStats);
-        
-        return statistics;
+    public AlertStatistics getStatistics(
+            @RequestParam(required = false) @DateTimeFormat(pattern = "yyyy-MM-dd HH:mm:ss") Date beginTime,
+            @RequestParam(required = false) @DateTimeFormat(pattern = "yyyy-MM-dd HH:mm:ss") Date endTime,
+            @RequestParam(required = false) String company,
+            @RequestParam(required = false) String systemName
+    ) {
+        AlertFilter filter = AlertFilter.endTimeBetween(beginTime, endTime);
+        filter.setCompany(company);
+        filter.setSystemName(systemName);
+        return alertStore.statistics(filter);
+    }
+
+    /**
+     * 告警趋势：按分钟或小时分桶的告警数，来自预聚合汇总，可按维度过滤和拆分
+     */
+    @GetMapping("/trend")
+    public AlertTrend getTrend(
+            @RequestParam @DateTimeFormat(pattern = "yyyy-MM-dd HH:mm:ss") Date startTime,
+            @RequestParam @DateTimeFormat(pattern = "yyyy-MM-dd HH:mm:ss") Date endTime,
+            @RequestParam(required = false) String granularity,
+            @RequestParam(required = false) String alarmLevel,
+            @RequestParam(required = false) String alarmType,
+            @RequestParam(required = false) String systemName,
+            @RequestParam(required = false) String company,
+            @RequestParam(required = false) String groupBy
+    ) {
+        Map<String, String> filters = new LinkedHashMap<>();
+        filters.put("alarmLevel", alarmLevel);
+        filters.put("alarmType", alarmType);
+        filters.put("systemName", systemName);
+        filters.put("company", company);
+        return alertStore.trend(startTime, endTime, granularity, filters, groupBy);
     }
 
     /**
-     * 全文搜索告警
+     * 全文搜索告警，默认按相关度排序；mode=regex 时使用多字段正则匹配并支持游标分页
      */
     @GetMapping("/search/fulltext")
     public AlertPageResult fullTextSearch(
             @RequestParam String keyword,
             @RequestParam(defaultValue = "1") int pageNum,
-            @RequestParam(defaultValue = "10") int pageSize
+            @RequestParam(defaultValue = "10") int pageSize,
+            @RequestParam(defaultValue = AlertTextSearchService.MODE_TEXT) String mode,
+            @RequestParam(required = false) String cursor,
+            @RequestParam(required = false) String countMode
     ) {
-        Query query = new Query();
-        query.addCriteria(new Criteria().orOperator(
-            Criteria.where("caseExecId").regex(keyword, "i"),
-            Criteria.where("failReason").regex(keyword, "i"),
-            Criteria.where("alarmType").regex(keyword, "i"),
-            Criteria.where("layerName").regex(keyword, "i"),
-            Criteria.where("company").regex(keyword, "i"),
-            Criteria.where("systemName").regex(keyword, "i"),
-            Criteria.where("taskName").regex(keyword, "i"),
-            Criteria.where("host").regex(keyword, "i")
-        ));
-        
-        long total = mongoTemplate.count(query, Alert.class);
-        query.skip((long) (pageNum - 1) * pageSize).limit(pageSize);
-        List<Alert> alerts = mongoTemplate.find(query, Alert.class);
-        
-        return new AlertPageResult(alerts, total, pageNum, pageSize);
+        AlertPageRequest pageRequest = AlertPageRequest.of(pageNum, pageSize, null, null, cursor);
+        pageRequest.setCountMode(AlertCountMode.parse(countMode, null));
+        return alertStore.search(keyword, mode, pageRequest);
     }
 
     /**
-     * 按时间范围查询告警
+     * 按时间范围查询告警，最多返回 limit 条（按告警时间倒序，limit 不超过 alert.export.time-range-max-limit）；
+     * 范围内还有未返回的告警时响应头 X-Result-Truncated 为 true，完整数据请使用 /export 流式导出
      */
     @GetMapping("/search/timeRange")
-    public List<Alert> searchByTimeRange(
+    public ResponseEntity<List<Alert>> searchByTimeRange(
             @RequestParam @DateTimeFormat(pattern = "yyyy-MM-dd HH:mm:ss") Date startTime,
-            @RequestParam @DateTimeFormat(pattern = "yyyy-MM-dd HH:mm:ss") Date endTime
+            @RequestParam @DateTimeFormat(pattern = "yyyy-MM-dd HH:mm:ss") Date endTime,
+            @RequestParam(defaultValue = "1000") int limit
     ) {
-        Query query = new Query();
-        query.addCriteria(Criteria.where("endTime").gte(startTime).lte(endTime));
-        return mongoTemplate.find(query, Alert.class);
+        int effectiveLimit = Math.min(Math.max(limit, 1), timeRangeMaxLimit);
+        // 多取一条用于判断是否被截断
+        List<Alert> alerts = alertStore.find(AlertFilter.endTimeBetween(startTime, endTime), effectiveLimit + 1);
+        boolean truncated = alerts.size() > effectiveLimit;
+        return ResponseEntity.ok()
+                .header(TRUNCATED_HEADER, String.valueOf(truncated))
+                .body(truncated ? alerts.subList(0, effectiveLimit) : alerts);
     }
 
     /**
@@ -351,13 +321,4 @@ public class AlertController {
         statuses.put("2", "待处理");
         return statuses;
     }
-
-    @Data
-    @AllArgsConstructor
-    public static class AlertPageResult {
-        private List<Alert> data;
-        private long total;
-        private int pageNum;
-        private int pageSize;
-    }
 } 
\ No newline at end of file
@@ -0,0 +1,71 @@
+package com.qtp.mcpserver.controller;
+
+import com.qtp.mcpserver.dto.IngestSummary;
+import com.qtp.mcpserver.service.AlertExportService;
+import com.qtp.mcpserver.service.AlertIngestService;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnWebApplication;
+import org.springframework.data.mongodb.core.query.Criteria;
+import org.springframework.data.mongodb.core.query.Query;
+import org.springframework.format.annotation.DateTimeFormat;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.MediaType;
+import org.springframework.http.ResponseEntity;
+import org.springframework.web.bind.annotation.*;
+import org.springframework.web.servlet.mvc.method.annotation.StreamingResponseBody;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.charset.StandardCharsets;
+import java.util.Date;
+import java.util.List;
+
+/**
+ * 告警批量接入和流式导出（Servlet 实现），直接读写请求和响应的字节流；响应式服务端见 {@link ReactiveAlertTransferController}
+ */
+@RestController
+@RequestMapping("/api/alerts")
+@CrossOrigin(origins = "*")
+@ConditionalOnWebApplication(type = ConditionalOnWebApplication.Type.SERVLET)
+public class AlertTransferController {
+    @Autowired
+    private AlertIngestService alertIngestService;
+
+    @Autowired
+    private AlertExportService alertExportService;
+
+    /**
+     * 按时间范围流式导出告警（NDJSON/CSV），逐条写出，支持字段投影
+     */
+    @GetMapping("/export")
+    public ResponseEntity<StreamingResponseBody> exportAlerts(
+            @RequestParam @DateTimeFormat(pattern = "yyyy-MM-dd HH:mm:ss") Date startTime,
+            @RequestParam @DateTimeFormat(pattern = "yyyy-MM-dd HH:mm:ss") Date endTime,
+            @RequestParam(defaultValue = "ndjson") String format,
+            @RequestParam(required = false) String fields
+    ) {
+        AlertExportService.Format exportFormat = AlertExportService.parseFormat(format);
+        List<String> exportFields = alertExportService.resolveFields(fields);
+        Query query = new Query(Criteria.where("endTime").gte(startTime).lte(endTime));
+        StreamingResponseBody body = out -> alertExportService.export(query, startTime, exportFormat, exportFields, out);
+        return exportResponse(exportFormat).body(body);
+    }
+
+    /**
+     * 批量接入告警：请求体为 NDJSON（每行一个告警），按批次无序写入，返回逐批接受/拒绝汇总
+     */
+    @PostMapping(value = "/ingest", consumes = {MediaType.APPLICATION_NDJSON_VALUE, MediaType.TEXT_PLAIN_VALUE})
+    public IngestSummary ingestAlerts(InputStream body) throws IOException {
+        return alertIngestService.ingest(body);
+    }
+
+    /**
+     * 导出响应的内容类型和附件文件名，两种实现共用
+     */
+    static ResponseEntity.BodyBuilder exportResponse(AlertExportService.Format format) {
+        boolean csv = format == AlertExportService.Format.CSV;
+        return ResponseEntity.ok()
+                .contentType(csv ? new MediaType("text", "csv", StandardCharsets.UTF_8) : MediaType.APPLICATION_NDJSON)
+                .header(HttpHeaders.CONTENT_DISPOSITION, "attachment; filename=alerts." + (csv ? "csv" : "ndjson"));
+    }
+}
@@ -0,0 +1,81 @@
+package com.qtp.mcpserver.controller;
+
+import com.qtp.mcpserver.dto.IngestSummary;
+import com.qtp.mcpserver.service.AlertExportService;
+import com.qtp.mcpserver.service.AlertIngestService;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnWebApplication;
+import org.springframework.core.io.buffer.DataBuffer;
+import org.springframework.core.io.buffer.DataBufferUtils;
+import org.springframework.core.io.buffer.DefaultDataBufferFactory;
+import org.springframework.data.mongodb.core.query.Criteria;
+import org.springframework.data.mongodb.core.query.Query;
+import org.springframework.format.annotation.DateTimeFormat;
+import org.springframework.http.MediaType;
+import org.springframework.http.ResponseEntity;
+import org.springframework.web.bind.annotation.*;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+import reactor.core.scheduler.Schedulers;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.UncheckedIOException;
+import java.util.Date;
+import java.util.List;
+
+/**
+ * 告警批量接入和流式导出（WebFlux 实现，sse 配置使用），语义与 {@link AlertTransferController} 相同。
+ * 接入时请求体按需拉取并转为输入流，导出时输出流按下游需求转为数据块，
+ * 两者的阻塞读写都在 boundedElastic 线程池上执行，不占用事件循环
+ */
+@RestController
+@RequestMapping("/api/alerts")
+@CrossOrigin(origins = "*")
+@ConditionalOnWebApplication(type = ConditionalOnWebApplication.Type.REACTIVE)
+public class ReactiveAlertTransferController {
+
+    /** 请求体每次向上游请求的缓冲区个数 */
+    private static final int BODY_DEMAND = 16;
+
+    @Autowired
+    private AlertIngestService alertIngestService;
+
+    @Autowired
+    private AlertExportService alertExportService;
+
+    /**
+     * 按时间范围流式导出告警（NDJSON/CSV），逐条写出，支持字段投影
+     */
+    @GetMapping("/export")
+    public ResponseEntity<Flux<DataBuffer>> exportAlerts(
+            @RequestParam @DateTimeFormat(pattern = "yyyy-MM-dd HH:mm:ss") Date startTime,
+            @RequestParam @DateTimeFormat(pattern = "yyyy-MM-dd HH:mm:ss") Date endTime,
+            @RequestParam(defaultValue = "ndjson") String format,
+            @RequestParam(required = false) String fields
+    ) {
+        AlertExportService.Format exportFormat = AlertExportService.parseFormat(format);
+        List<String> exportFields = alertExportService.resolveFields(fields);
+        Query query = new Query(Criteria.where("endTime").gte(startTime).lte(endTime));
+        Flux<DataBuffer> body = Flux.from(DataBufferUtils.outputStreamPublisher(out -> {
+            try {
+                alertExportService.export(query, startTime, exportFormat, exportFields, out);
+            } catch (IOException e) {
+                throw new UncheckedIOException(e);
+            }
+        }, DefaultDataBufferFactory.sharedInstance, task -> Schedulers.boundedElastic().schedule(task)));
+        return AlertTransferController.exportResponse(exportFormat).body(body);
+    }
+
+    /**
+     * 批量接入告警：请求体为 NDJSON（每行一个告警），按批次无序写入，返回逐批接受/拒绝汇总
+     */
+    @PostMapping(value = "/ingest", consumes = {MediaType.APPLICATION_NDJSON_VALUE, MediaType.TEXT_PLAIN_VALUE})
+    public Mono<IngestSummary> ingestAlerts(@RequestBody Flux<DataBuffer> body) {
+        return Mono.fromCallable(() -> {
+            try (InputStream in = DataBufferUtils.subscriberInputStream(body, BODY_DEMAND)) {
+                return alertIngestService.ingest(in);
+            }
+        }).subscribeOn(Schedulers.boundedElastic());
+    }
+}
@@ -0,0 +1,20 @@
+package com.qtp.mcpserver.dto;
+
+import com.qtp.mcpserver.entity.Alert;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * 批量操作结果。affected 为命中的告警（只含 id、caseExecId 及统计相关字段，
+ * 批量更新时为更新前的值），notFoundIds 为不存在的ID，modifiedCount 为数据库实际删除/修改的条数。
+ */
+@Data
+@NoArgsConstructor
+public class AlertBulkResult {
+    private List<Alert> affected = new ArrayList<>();
+    private List<String> notFoundIds = new ArrayList<>();
+    private long modifiedCount;
+}
@@ -0,0 +1,29 @@
+package com.qtp.mcpserver.dto;
+
+/**
+ * 分页查询的总数统计方式
+ */
+public enum AlertCountMode {
+    /** 当前页按索引 find，总数单独 count 精确统计 */
+    EXACT,
+    /**
+     * 当前页和精确总数由一次 $match → $sort → $facet 聚合返回，少一次往返；
+     * 过滤和排序按索引执行，但要读取全部匹配的文档，匹配数很大时不如 EXACT。合并归档时按 EXACT 执行
+     */
+    FACET,
+    /** 当前页按索引 find，总数最多数到上限，超过时标记为“上限+” */
+    CAPPED,
+    /** 无过滤条件时使用集合元数据估算总数，有过滤条件时退化为 CAPPED */
+    ESTIMATED;
+
+    public static AlertCountMode parse(String value, AlertCountMode defaultMode) {
+        if (value == null || value.trim().isEmpty()) {
+            return defaultMode;
+        }
+        try {
+            return AlertCountMode.valueOf(value.trim().toUpperCase());
+        } catch (IllegalArgumentException e) {
+            throw new IllegalArgumentException("不支持的计数方式：" + value);
+        }
+    }
+}
@@ -0,0 +1,23 @@
+package com.qtp.mcpserver.dto;
+
+import com.fasterxml.jackson.annotation.JsonInclude;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.util.Map;
+
+/**
+ * 告警推送流中的一条变更，只携带变化的部分。
+ */
+@Data
+@NoArgsConstructor
+@JsonInclude(JsonInclude.Include.NON_NULL)
+public class AlertDelta {
+    /** created、updated、resolved、activated、escalated、deleted；同一批合并的统计增量为 stats */
+    private String type;
+    private String id;
+    /** 新增时为全部非空字段，修改时为变化的字段（被清空的字段值为 null），删除时为空；不含探测报文 */
+    private Map<String, Object> fields;
+    /** 各统计分桶的增减量，只含有变化的分桶；统计没有变化时为空 */
+    private AlertStatistics stats;
+}
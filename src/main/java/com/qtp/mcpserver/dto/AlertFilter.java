@@ -0,0 +1,123 @@
+package com.qtp.mcpserver.dto;
+
+import com.qtp.mcpserver.entity.Alert;
+import com.qtp.mcpserver.service.AlertMatchKeys;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.util.Date;
+
+/**
+ * 与存储无关的告警过滤条件，所有条件之间为“且”关系，未设置的条件不参与过滤。
+ * <ul>
+ *     <li>status、alarmLevel、alarmType、company、systemName：精确匹配</li>
+ *     <li>xxxLike：不区分大小写，按 matchMode 匹配（默认前缀匹配），关键字按字面量处理（不是正则表达式）</li>
+ *     <li>endTimeFrom、endTimeTo：告警时间（endTime）上下限，均包含边界</li>
+ * </ul>
+ * 字符串条件为空白时视为未设置。
+ */
+@Data
+@NoArgsConstructor
+public class AlertFilter {
+    private Integer status;
+    private String alarmLevel;
+    private String alarmType;
+    private String company;
+    private String systemName;
+    private String caseExecIdLike;
+    private String companyLike;
+    private String systemNameLike;
+    private String taskNameLike;
+    private String hostLike;
+    private Date endTimeFrom;
+    private Date endTimeTo;
+    private AlertMatchMode matchMode = AlertMatchMode.PREFIX;
+
+    public static AlertFilter endTimeBetween(Date from, Date to) {
+        AlertFilter filter = new AlertFilter();
+        filter.setEndTimeFrom(from);
+        filter.setEndTimeTo(to);
+        return filter;
+    }
+
+    public void setAlarmLevel(String alarmLevel) {
+        this.alarmLevel = blankToNull(alarmLevel);
+    }
+
+    public void setAlarmType(String alarmType) {
+        this.alarmType = blankToNull(alarmType);
+    }
+
+    public void setCompany(String company) {
+        this.company = blankToNull(company);
+    }
+
+    public void setSystemName(String systemName) {
+        this.systemName = blankToNull(systemName);
+    }
+
+    public void setCaseExecIdLike(String caseExecIdLike) {
+        this.caseExecIdLike = blankToNull(caseExecIdLike);
+    }
+
+    public void setCompanyLike(String companyLike) {
+        this.companyLike = blankToNull(companyLike);
+    }
+
+    public void setSystemNameLike(String systemNameLike) {
+        this.systemNameLike = blankToNull(systemNameLike);
+    }
+
+    public void setTaskNameLike(String taskNameLike) {
+        this.taskNameLike = blankToNull(taskNameLike);
+    }
+
+    public void setHostLike(String hostLike) {
+        this.hostLike = blankToNull(hostLike);
+    }
+
+    public void setMatchMode(AlertMatchMode matchMode) {
+        this.matchMode = matchMode == null ? AlertMatchMode.PREFIX : matchMode;
+    }
+
+    /**
+     * 没有任何过滤条件
+     */
+    public boolean isEmpty() {
+        return status == null && alarmLevel == null && alarmType == null && company == null && systemName == null
+                && caseExecIdLike == null && companyLike == null && systemNameLike == null && taskNameLike == null
+                && hostLike == null && endTimeFrom == null && endTimeTo == null;
+    }
+
+    /**
+     * 单条告警是否满足条件，语义与存储层的过滤一致，用于对变更事件逐条判断
+     */
+    public boolean matches(Alert alert) {
+        if (status != null && !status.equals(alert.getStatus())) return false;
+        if (alarmLevel != null && !alarmLevel.equals(alert.getAlarmLevel())) return false;
+        if (alarmType != null && !alarmType.equals(alert.getAlarmType())) return false;
+        if (company != null && !company.equals(alert.getCompany())) return false;
+        if (systemName != null && !systemName.equals(alert.getSystemName())) return false;
+        if (!matches(alert.getCaseExecId(), caseExecIdLike)) return false;
+        if (!matches(alert.getCompany(), companyLike)) return false;
+        if (!matches(alert.getSystemName(), systemNameLike)) return false;
+        if (!matches(alert.getTaskName(), taskNameLike)) return false;
+        if (!matches(alert.getHost(), hostLike)) return false;
+        if (endTimeFrom != null || endTimeTo != null) {
+            Date endTime = alert.getEndTime();
+            if (endTime == null) return false;
+            if (endTimeFrom != null && endTime.before(endTimeFrom)) return false;
+            if (endTimeTo != null && endTime.after(endTimeTo)) return false;
+        }
+        return true;
+    }
+
+    private boolean matches(String value, String keyword) {
+        return keyword == null
+                || AlertMatchKeys.matches(AlertMatchKeys.normalize(value), AlertMatchKeys.normalize(keyword), matchMode);
+    }
+
+    private static String blankToNull(String value) {
+        return value == null || value.trim().isEmpty() ? null : value;
+    }
+}
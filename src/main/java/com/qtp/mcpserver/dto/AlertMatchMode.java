@@ -0,0 +1,24 @@
+package com.qtp.mcpserver.dto;
+
+/**
+ * 单位、系统、用例、模块、IP 等文本条件的匹配方式，均不区分大小写
+ */
+public enum AlertMatchMode {
+    /** 整个取值相等，可直接使用索引 */
+    EXACT,
+    /** 以关键字开头，转换为索引上的前缀范围扫描 */
+    PREFIX,
+    /** 包含关键字，需要逐条检查，只在明确指定时使用 */
+    CONTAINS;
+
+    public static AlertMatchMode parse(String value, AlertMatchMode defaultMode) {
+        if (value == null || value.trim().isEmpty()) {
+            return defaultMode;
+        }
+        try {
+            return AlertMatchMode.valueOf(value.trim().toUpperCase());
+        } catch (IllegalArgumentException e) {
+            throw new IllegalArgumentException("不支持的匹配方式：" + value);
+        }
+    }
+}
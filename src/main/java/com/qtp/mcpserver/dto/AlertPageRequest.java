@@ -0,0 +1,34 @@
+package com.qtp.mcpserver.dto;
+
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+/**
+ * 告警分页参数。cursor 不为空时使用游标（search-after）分页，忽略 pageNum；
+ * 为空时按 pageNum/pageSize 做偏移分页。总数的统计方式见 {@link AlertCountMode}。
+ */
+@Data
+@NoArgsConstructor
+public class AlertPageRequest {
+    private int pageNum = 1;
+    private int pageSize = 10;
+    private String sortField = "endTime";
+    private String sortOrder = "desc";
+    private String cursor;
+    /** 为空时使用配置的默认计数方式 */
+    private AlertCountMode countMode;
+
+    public static AlertPageRequest of(Integer pageNum, Integer pageSize, String sortField, String sortOrder, String cursor) {
+        AlertPageRequest request = new AlertPageRequest();
+        if (pageNum != null && pageNum > 0) request.setPageNum(pageNum);
+        if (pageSize != null && pageSize > 0) request.setPageSize(pageSize);
+        if (sortField != null && !sortField.trim().isEmpty()) request.setSortField(sortField);
+        if (sortOrder != null && !sortOrder.trim().isEmpty()) request.setSortOrder(sortOrder);
+        if (cursor != null && !cursor.trim().isEmpty()) request.setCursor(cursor.trim());
+        return request;
+    }
+
+    public boolean isCursorMode() {
+        return cursor != null;
+    }
+}
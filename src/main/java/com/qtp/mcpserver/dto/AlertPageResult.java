@@ -0,0 +1,30 @@
+package com.qtp.mcpserver.dto;
+
+import com.qtp.mcpserver.entity.Alert;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.util.List;
+
+/**
+ * 告警分页结果。游标分页时 nextCursor 为下一页的续页令牌，没有更多数据时为空。
+ * countMode 为实际采用的计数方式，totalCapped 为 true 时 total 只是下限（如“10000+”）。
+ */
+@Data
+@NoArgsConstructor
+public class AlertPageResult {
+    private List<Alert> data;
+    private long total;
+    private int pageNum;
+    private int pageSize;
+    private String nextCursor;
+    private AlertCountMode countMode;
+    private boolean totalCapped;
+
+    public AlertPageResult(List<Alert> data, long total, int pageNum, int pageSize) {
+        this.data = data;
+        this.total = total;
+        this.pageNum = pageNum;
+        this.pageSize = pageSize;
+    }
+}
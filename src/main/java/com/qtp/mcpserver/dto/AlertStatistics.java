@@ -0,0 +1,21 @@
+package com.qtp.mcpserver.dto;
+
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+/**
+ * 告警统计结果，只包含各维度的分桶计数，不包含告警明细。
+ */
+@Data
+@NoArgsConstructor
+public class AlertStatistics {
+    private long totalCount;
+    private Map<String, Long> statusStats = new LinkedHashMap<>();
+    private Map<String, Long> levelStats = new LinkedHashMap<>();
+    private Map<String, Long> typeStats = new LinkedHashMap<>();
+    private Map<String, Long> companyStats = new LinkedHashMap<>();
+    private Map<String, Long> systemStats = new LinkedHashMap<>();
+}
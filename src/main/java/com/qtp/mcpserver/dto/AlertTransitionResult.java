@@ -0,0 +1,39 @@
+package com.qtp.mcpserver.dto;
+
+import com.qtp.mcpserver.entity.Alert;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+/**
+ * 告警状态流转结果。changes 只包含本次实际修改的字段（及 id），
+ * before 为修改前的投影（caseExecId 及统计相关字段）。
+ */
+@Data
+@NoArgsConstructor
+public class AlertTransitionResult {
+
+    public enum Outcome {
+        /** 已修改 */
+        APPLIED,
+        /** 已处于目标状态，未做修改 */
+        UNCHANGED,
+        /** 当前状态不允许该操作 */
+        REJECTED,
+        NOT_FOUND
+    }
+
+    private Outcome outcome;
+    private String message;
+    private Alert before;
+    private Map<String, Object> changes = new LinkedHashMap<>();
+
+    public static AlertTransitionResult of(Outcome outcome, String message) {
+        AlertTransitionResult result = new AlertTransitionResult();
+        result.setOutcome(outcome);
+        result.setMessage(message);
+        return result;
+    }
+}
@@ -0,0 +1,36 @@
+package com.qtp.mcpserver.dto;
+
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.util.ArrayList;
+import java.util.Date;
+import java.util.List;
+
+/**
+ * 告警趋势：按分钟或小时分桶的告警数，可按某个维度拆分为多条序列
+ */
+@Data
+@NoArgsConstructor
+public class AlertTrend {
+    /** MINUTE 或 HOUR */
+    private String granularity;
+    private Date startTime;
+    private Date endTime;
+    /** 拆分维度（alarmLevel/alarmType/systemName/company），为空时只有一条序列 */
+    private String groupBy;
+    private long totalCount;
+    /** 按分桶时间升序，计数为0的分桶不返回 */
+    private List<Point> points = new ArrayList<>();
+
+    @Data
+    @NoArgsConstructor
+    @AllArgsConstructor
+    public static class Point {
+        private Date bucket;
+        /** groupBy 维度的取值，未拆分时为空 */
+        private String key;
+        private long count;
+    }
+}
@@ -0,0 +1,33 @@
+package com.qtp.mcpserver.dto;
+
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * 批量接入结果汇总，按批次给出接受/拒绝条数及拒绝原因（每批最多保留若干条原因）
+ */
+@Data
+@NoArgsConstructor
+public class IngestSummary {
+    private long totalLines;
+    private long accepted;
+    private long rejected;
+    /** 被合并到已有告警上的条数（计入 accepted） */
+    private long coalesced;
+    private long elapsedMs;
+    private double ratePerSecond;
+    private List<BatchSummary> batches = new ArrayList<>();
+
+    @Data
+    @NoArgsConstructor
+    public static class BatchSummary {
+        private int batch;
+        private int accepted;
+        private int rejected;
+        private int coalesced;
+        private List<String> errors = new ArrayList<>();
+    }
+}
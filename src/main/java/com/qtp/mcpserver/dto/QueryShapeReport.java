@@ -0,0 +1,29 @@
+package com.qtp.mcpserver.dto;
+
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.util.Date;
+import java.util.List;
+
+/**
+ * 索引顾问记录的查询形态及其执行计划摘要
+ */
+@Data
+@NoArgsConstructor
+public class QueryShapeReport {
+    /** 实际执行的命令：find 或 aggregate（合并归档） */
+    private String command;
+    /** 查询形态：过滤条件中的具体值替换为占位符 */
+    private String shape;
+    private String sort;
+    private long count;
+    private Date firstSeen;
+    private Date lastSeen;
+    /** 获胜执行计划中出现的阶段，如 IXSCAN、FETCH、SORT、COLLSCAN */
+    private List<String> planStages;
+    private List<String> indexNames;
+    /** 是否全表扫描，为空表示尚未完成 explain */
+    private Boolean collectionScan;
+    private String explainError;
+}
@@ -0,0 +1,32 @@
+package com.qtp.mcpserver.dto;
+
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.util.Date;
+import java.util.List;
+
+/**
+ * 慢查询记录：超过阈值的 MongoDB 命令、调用方及其执行计划摘要
+ */
+@Data
+@NoArgsConstructor
+public class SlowQuery {
+    private Date time;
+    private long durationMillis;
+    private String commandName;
+    private String collection;
+    /** 查询形态：过滤条件中的具体值替换为占位符 */
+    private String shape;
+    /** 调用方：tool:工具名、REST 请求方法和路径模板，或线程名 */
+    private String caller;
+    /** 原始命令（超长截断），批量写入命令不保留 */
+    private String command;
+    /** 获胜执行计划中出现的阶段，为空表示尚未完成 explain 或命令不支持 explain */
+    private List<String> planStages;
+    private List<String> indexNames;
+    private Boolean collectionScan;
+    /** 获胜执行计划（超长截断） */
+    private String plan;
+    private String explainError;
+}
@@ -60,5 +60,9 @@ public class Alert {
     private String actualValue; // actual_value
 //    @Field("is_reply")
     private Integer isReply; // is_reply
+    private String fingerprint; // 去重指纹，仅批量接入合并的告警有值
+    private Integer occurrenceCount; // 合并窗口内的发生次数
+    private Date firstSeen; // 首次发生时间
+    private Date lastSeen; // 最近一次发生时间
 
 }
\ No newline at end of file
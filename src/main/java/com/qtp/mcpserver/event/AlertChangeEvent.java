@@ -0,0 +1,52 @@
+package com.qtp.mcpserver.event;
+
+import com.qtp.mcpserver.entity.Alert;
+import lombok.Getter;
+import org.springframework.beans.BeanUtils;
+
+/**
+ * 告警变更事件，由各写入路径在写库成功后发布。
+ * before/after 分别为变更前后的告警快照，新增时 before 为空，删除时 after 为空。
+ */
+@Getter
+public class AlertChangeEvent {
+
+    public enum Type {
+        CREATED, UPDATED, DELETED
+    }
+
+    private final Type type;
+    private final Alert before;
+    private final Alert after;
+
+    private AlertChangeEvent(Type type, Alert before, Alert after) {
+        this.type = type;
+        this.before = before;
+        this.after = after;
+    }
+
+    public static AlertChangeEvent created(Alert after) {
+        return new AlertChangeEvent(Type.CREATED, null, after);
+    }
+
+    public static AlertChangeEvent updated(Alert before, Alert after) {
+        return new AlertChangeEvent(Type.UPDATED, before, after);
+    }
+
+    public static AlertChangeEvent deleted(Alert before) {
+        return new AlertChangeEvent(Type.DELETED, before, null);
+    }
+
+    public String getAlertId() {
+        return after != null ? after.getId() : before.getId();
+    }
+
+    /**
+     * 复制一份告警快照，用于在原对象被修改前保留变更前的状态
+     */
+    public static Alert snapshot(Alert alert) {
+        Alert copy = new Alert();
+        BeanUtils.copyProperties(alert, copy);
+        return copy;
+    }
+}
@@ -0,0 +1,81 @@
+package com.qtp.mcpserver.event;
+
+import com.qtp.mcpserver.entity.Alert;
+import com.qtp.mcpserver.service.AlertMatchKeys;
+import com.qtp.mcpserver.service.AlertPayloadService;
+import com.qtp.mcpserver.service.AlertTextTokenizer;
+import org.bson.Document;
+import org.bson.types.ObjectId;
+import org.springframework.data.mongodb.core.mapping.event.AbstractMongoEventListener;
+import org.springframework.data.mongodb.core.mapping.event.AfterDeleteEvent;
+import org.springframework.data.mongodb.core.mapping.event.AfterSaveEvent;
+import org.springframework.data.mongodb.core.mapping.event.BeforeSaveEvent;
+import org.springframework.stereotype.Component;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.List;
+
+/**
+ * alert 文档的持久化事件监听，负责在写入前维护派生字段（全文检索分词、文本条件匹配键），
+ * 覆盖所有经由 MongoTemplate 保存整篇文档的写入路径。
+ * <p>
+ * 报文拆分存储（alert.payload.storage=split）时，写入前从文档中移除报文字段，写入后保存到 alert_payload，
+ * 按ID删除告警时同步删除报文。
+ */
+@Component
+public class AlertMongoEventListener extends AbstractMongoEventListener<Alert> {
+
+    private final AlertPayloadService alertPayloadService;
+
+    public AlertMongoEventListener(AlertPayloadService alertPayloadService) {
+        this.alertPayloadService = alertPayloadService;
+    }
+
+    @Override
+    public void onBeforeSave(BeforeSaveEvent<Alert> event) {
+        if (event.getDocument() != null) {
+            event.getDocument().put(AlertTextTokenizer.FIELD, AlertTextTokenizer.searchText(event.getSource()));
+            event.getDocument().put(AlertMatchKeys.FIELD, AlertMatchKeys.document(event.getSource()));
+            if (alertPayloadService.isSplit()) {
+                AlertPayloadService.PAYLOAD_FIELDS.forEach(event.getDocument()::remove);
+            }
+        }
+    }
+
+    @Override
+    public void onAfterSave(AfterSaveEvent<Alert> event) {
+        if (!alertPayloadService.isSplit()) {
+            return;
+        }
+        Alert alert = event.getSource();
+        String id = alert.getId();
+        if (id == null && event.getDocument() != null) {
+            id = idString(event.getDocument().get("_id"));
+        }
+        alertPayloadService.store(id, alert.getResponse(), alert.getActualValue());
+    }
+
+    /**
+     * 只处理按 _id 删除的情况（单条删除、批量按ID删除），其他条件删除留下的报文文档不会再被读取
+     */
+    @Override
+    public void onAfterDelete(AfterDeleteEvent<Alert> event) {
+        Document filter = event.getSource();
+        if (!alertPayloadService.isSplit() || filter == null || filter.size() != 1 || !filter.containsKey("_id")) {
+            return;
+        }
+        Object idFilter = filter.get("_id");
+        List<String> ids = new ArrayList<>();
+        if (idFilter instanceof Document operator && operator.get("$in") instanceof Collection<?> values) {
+            values.forEach(value -> ids.add(idString(value)));
+        } else if (!(idFilter instanceof Document)) {
+            ids.add(idString(idFilter));
+        }
+        alertPayloadService.delete(ids);
+    }
+
+    private static String idString(Object id) {
+        return id instanceof ObjectId objectId ? objectId.toHexString() : String.valueOf(id);
+    }
+}
@@ -0,0 +1,316 @@
+package com.qtp.mcpserver.service;
+
+import com.mongodb.ErrorCategory;
+import com.mongodb.MongoBulkWriteException;
+import com.mongodb.client.model.InsertManyOptions;
+import com.mongodb.client.model.Sorts;
+import com.qtp.mcpserver.dto.AlertFilter;
+import com.qtp.mcpserver.entity.Alert;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import lombok.extern.slf4j.Slf4j;
+import org.bson.Document;
+import org.bson.types.ObjectId;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.data.domain.Sort;
+import org.springframework.data.mongodb.core.BulkOperations;
+import org.springframework.data.mongodb.core.FindAndReplaceOptions;
+import org.springframework.data.mongodb.core.MongoTemplate;
+import org.springframework.data.mongodb.core.convert.QueryMapper;
+import org.springframework.data.mongodb.core.index.IndexOperations;
+import org.springframework.data.mongodb.core.query.Criteria;
+import org.springframework.data.mongodb.core.query.Query;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Date;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+
+/**
+ * 告警冷热分层：已恢复（status=1 且 isRecover=true）且告警时间早于 min-age 的告警分批移入归档集合，
+ * alert 集合只保留近期和仍活跃的告警，扫描、计数和索引维护都只针对热数据。
+ * <p>
+ * 查询只在时间范围触及归档时才合并归档集合（$unionWith）：记录归档中最新的告警时间，
+ * 告警时间下限晚于它或只查活跃告警的请求不访问归档。按ID读取在 alert 中未找到时再查归档。
+ * 归档不发布变更事件，内存计数器仍按全部告警计数，对账时同样合并归档。
+ * 整体保存（修改）、状态流转和批量操作遇到归档中的告警时先将其移回 alert 集合，按ID删除时从归档中删除；
+ * 全文检索只作用于 alert 集合。
+ */
+@Service
+@Slf4j
+public class AlertArchiveService {
+
+    private final MongoTemplate mongoTemplate;
+
+    private final AlertPayloadService alertPayloadService;
+
+    private final boolean enabled;
+
+    private final boolean queryEnabled;
+
+    private final String collection;
+
+    private final Duration minAge;
+
+    private final int batchSize;
+
+    private final int maxBatches;
+
+    private final long pauseMillis;
+
+    private final Counter archived;
+
+    /** 归档中最新的告警时间，归档为空时为 null */
+    private volatile Date latestArchived;
+
+    private volatile boolean loaded;
+
+    @Autowired
+    public AlertArchiveService(MongoTemplate mongoTemplate,
+                               AlertPayloadService alertPayloadService,
+                               MeterRegistry meterRegistry,
+                               @Value("${alert.archive.enabled:false}") boolean enabled,
+                               @Value("${alert.archive.query-enabled:true}") boolean queryEnabled,
+                               @Value("${alert.archive.collection:alert_archive}") String collection,
+                               @Value("${alert.archive.min-age:30d}") Duration minAge,
+                               @Value("${alert.archive.batch-size:500}") int batchSize,
+                               @Value("${alert.archive.max-batches:200}") int maxBatches,
+                               @Value("${alert.archive.pause:200ms}") Duration pause) {
+        this.mongoTemplate = mongoTemplate;
+        this.alertPayloadService = alertPayloadService;
+        this.enabled = enabled;
+        this.queryEnabled = queryEnabled;
+        this.collection = collection;
+        this.minAge = minAge;
+        this.batchSize = batchSize;
+        this.maxBatches = maxBatches;
+        this.pauseMillis = pause.toMillis();
+        this.archived = Counter.builder("alert.archive.moved")
+                .description("移入归档集合的告警数")
+                .register(meterRegistry);
+    }
+
+    public String getCollection() {
+        return collection;
+    }
+
+    public Date getLatestArchived() {
+        return latestArchived;
+    }
+
+    /**
+     * 告警时间下限为 from（为空表示不限）的查询是否需要合并归档
+     */
+    public boolean reaches(Date from) {
+        Date latest = latestArchived;
+        return queryEnabled && latest != null && (from == null || !from.after(latest));
+    }
+
+    /**
+     * 归档中只有已恢复的告警，按其他状态筛选时不需要合并归档
+     */
+    public boolean reaches(AlertFilter filter) {
+        if (filter.getStatus() != null && filter.getStatus() != 1) {
+            return false;
+        }
+        return reaches(filter.getEndTimeFrom());
+    }
+
+    /**
+     * 合并归档集合的 $unionWith 阶段
+     *
+     * @param mappedMatch 已映射为数据库字段的过滤条件，为空时合并全部归档
+     */
+    public Document unionStage(Document mappedMatch) {
+        return unionStage(mappedMatch, null, 0);
+    }
+
+    /**
+     * 合并归档集合中按 sort 排序的前 limit 条，用于分页时两个集合各取一段再归并
+     */
+    public Document unionStage(Document mappedMatch, Document sort, long limit) {
+        List<Document> pipeline = new ArrayList<>();
+        if (mappedMatch != null && !mappedMatch.isEmpty()) {
+            pipeline.add(new Document("$match", mappedMatch));
+        }
+        if (sort != null) {
+            pipeline.add(new Document("$sort", sort));
+        }
+        if (limit > 0) {
+            pipeline.add(new Document("$limit", limit));
+        }
+        return new Document("$unionWith", new Document("coll", collection).append("pipeline", pipeline));
+    }
+
+    /**
+     * 按ID读取归档中的完整告警，不存在时返回 null
+     */
+    public Alert findById(String id) {
+        if (latestArchived == null) {
+            return null;
+        }
+        return alertPayloadService.attach(mongoTemplate.findById(id, Alert.class, collection));
+    }
+
+    /**
+     * 从归档中删除并返回告警（不含拆分存储的报文），不存在时返回 null
+     */
+    public Alert remove(String id) {
+        if (latestArchived == null) {
+            return null;
+        }
+        return mongoTemplate.findAndRemove(Query.query(Criteria.where("id").is(id)), Alert.class, collection);
+    }
+
+    /**
+     * 把归档中的告警原样移回 alert 集合（不发布变更事件，拆分存储的报文不动），供状态流转和批量操作修改归档中的告警。
+     * alert 中已有同ID文档（并发移回或已被重新保存）时保留 alert 中的版本
+     *
+     * @return 移回的告警ID
+     */
+    public Set<String> restore(Collection<String> ids) {
+        if (latestArchived == null || ids.isEmpty()) {
+            return Set.of();
+        }
+        Document filter = new QueryMapper(mongoTemplate.getConverter()).getMappedObject(
+                Query.query(Criteria.where("id").in(ids)).getQueryObject(),
+                mongoTemplate.getConverter().getMappingContext().getPersistentEntity(Alert.class));
+        List<Document> documents = mongoTemplate.getCollection(collection).find(filter).into(new ArrayList<>());
+        if (documents.isEmpty()) {
+            return Set.of();
+        }
+        try {
+            mongoTemplate.getCollection(mongoTemplate.getCollectionName(Alert.class))
+                    .insertMany(documents, new InsertManyOptions().ordered(false));
+        } catch (MongoBulkWriteException e) {
+            if (e.getWriteErrors().stream().anyMatch(error -> ErrorCategory.fromErrorCode(error.getCode()) != ErrorCategory.DUPLICATE_KEY)) {
+                throw e;
+            }
+        }
+        // 直接按集合删除，不经过告警的删除事件，避免拆分存储的报文被一并删除
+        mongoTemplate.getCollection(collection).deleteMany(filter);
+        Set<String> restored = new HashSet<>();
+        for (Document document : documents) {
+            Object id = document.get("_id");
+            restored.add(id instanceof ObjectId objectId ? objectId.toHexString() : String.valueOf(id));
+        }
+        log.info("已将 {} 条归档告警移回 alert", restored.size());
+        return restored;
+    }
+
+    /**
+     * 读取归档中最新的告警时间，只在启动后第一次调用时访问数据库；关闭 query-enabled 时不读取，查询不合并归档
+     */
+    public void ensureLoaded() {
+        if (!loaded && queryEnabled) {
+            Document newest = mongoTemplate.getCollection(collection).find()
+                    .sort(Sorts.descending("endTime")).projection(new Document("endTime", 1)).first();
+            latestArchived = newest == null ? null : newest.getDate("endTime");
+            loaded = true;
+        }
+    }
+
+    /**
+     * 定期归档：启动时先读取归档中最新的告警时间，开启归档时再移动满足条件的告警
+     */
+    @Scheduled(initialDelay = 0, fixedDelayString = "${alert.archive.interval:3600000}")
+    public void scheduledArchive() {
+        try {
+            ensureLoaded();
+            if (enabled) {
+                archive();
+            }
+        } catch (Exception e) {
+            log.warn("告警归档失败：{}", e.getMessage());
+        }
+    }
+
+    /**
+     * 执行一轮归档，每批之间暂停 pause，单轮最多 max-batches 批
+     *
+     * @return 本轮归档的告警数
+     */
+    public synchronized long archive() {
+        ensureLoaded();
+        // 与 alert 集合相同的过滤索引，合并查询中归档部分的 $match/$sort 同样走索引
+        IndexOperations indexOps = mongoTemplate.indexOps(collection);
+        AlertIndexManager.queryIndexes().forEach(indexOps::ensureIndex);
+        AlertIndexManager.dropObsoleteIndexes(indexOps);
+        Date cutoff = new Date(System.currentTimeMillis() - minAge.toMillis());
+        long total = 0;
+        for (int batch = 0; batch < maxBatches; batch++) {
+            int moved = archiveBatch(cutoff);
+            total += moved;
+            if (moved < batchSize) {
+                break;
+            }
+            pause();
+        }
+        if (total > 0) {
+            log.info("告警归档完成：移入 {} 条，截止告警时间 {}", total, cutoff);
+        }
+        return total;
+    }
+
+    /**
+     * 一批告警：先以ID覆盖写入归档（重复执行不会产生重复文档），再从 alert 中删除仍满足归档条件的文档；
+     * 期间被重新激活的告警不会被删除，同时撤回其归档副本
+     */
+    private int archiveBatch(Date cutoff) {
+        Criteria eligible = Criteria.where("status").is(1).and("isRecover").is(true).and("endTime").lt(cutoff);
+        Query query = new Query(eligible).with(Sort.by(Sort.Direction.ASC, "endTime")).limit(batchSize);
+        List<Document> batch = mongoTemplate.find(query, Document.class, mongoTemplate.getCollectionName(Alert.class));
+        if (batch.isEmpty()) {
+            return 0;
+        }
+        List<Object> ids = new ArrayList<>(batch.size());
+        BulkOperations bulkOps = mongoTemplate.bulkOps(BulkOperations.BulkMode.UNORDERED, collection);
+        Date latest = null;
+        for (Document document : batch) {
+            ids.add(document.get("_id"));
+            bulkOps.replaceOne(Query.query(Criteria.where("_id").is(document.get("_id"))), document,
+                    FindAndReplaceOptions.options().upsert());
+            Date endTime = document.getDate("endTime");
+            if (latest == null || endTime.after(latest)) {
+                latest = endTime;
+            }
+        }
+        bulkOps.execute();
+        // 先登记归档时间再删除，避免删除后、登记前的查询漏掉这批告警
+        advanceLatest(latest);
+
+        Query removable = new Query(Criteria.where("_id").in(ids).andOperator(eligible));
+        long removed = mongoTemplate.remove(removable, Alert.class).getDeletedCount();
+        if (removed < ids.size()) {
+            Set<Object> kept = new HashSet<>();
+            Query remaining = Query.query(Criteria.where("_id").in(ids));
+            remaining.fields().include("_id");
+            mongoTemplate.find(remaining, Document.class, mongoTemplate.getCollectionName(Alert.class))
+                    .forEach(document -> kept.add(document.get("_id")));
+            mongoTemplate.remove(Query.query(Criteria.where("_id").in(kept)), collection);
+        }
+        archived.increment(removed);
+        return batch.size();
+    }
+
+    private void advanceLatest(Date endTime) {
+        Date current = latestArchived;
+        if (current == null || endTime.after(current)) {
+            latestArchived = endTime;
+        }
+    }
+
+    private void pause() {
+        try {
+            Thread.sleep(pauseMillis);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+}
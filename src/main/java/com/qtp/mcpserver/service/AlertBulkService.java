@@ -0,0 +1,144 @@
+package com.qtp.mcpserver.service;
+
+import com.qtp.mcpserver.dto.AlertBulkResult;
+import com.qtp.mcpserver.entity.Alert;
+import com.qtp.mcpserver.event.AlertChangeEvent;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.ApplicationEventPublisher;
+import org.springframework.data.mongodb.core.MongoTemplate;
+import org.springframework.data.mongodb.core.query.Criteria;
+import org.springframework.data.mongodb.core.query.Query;
+import org.springframework.data.mongodb.core.query.Update;
+import org.springframework.stereotype.Service;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Set;
+
+/**
+ * 告警批量操作。ID按 chunk-size 分片，每片一次投影查询确认存在的ID（同时取得变更前的统计字段），
+ * 再用一次 $in 的 deleteMany/updateMany 完成写入，每片固定两次往返。
+ * 投影另含 taskName、host、endTime，供告警推送流按订阅条件过滤变更事件。
+ * alert 中未找到的ID再到归档中查找，归档中的告警先移回 alert（{@link AlertArchiveService#restore}）再一并处理。
+ */
+@Service
+public class AlertBulkService {
+
+    private static final String[] PROJECTED_FIELDS = {"caseExecId", "status", "alarmLevel", "alarmType", "company", "systemName",
+            "taskName", "host", "endTime"};
+
+    private final MongoTemplate mongoTemplate;
+
+    private final ApplicationEventPublisher eventPublisher;
+
+    private final AlertArchiveService alertArchiveService;
+
+    private final int chunkSize;
+
+    @Autowired
+    public AlertBulkService(MongoTemplate mongoTemplate,
+                            ApplicationEventPublisher eventPublisher,
+                            AlertArchiveService alertArchiveService,
+                            @Value("${alert.bulk.chunk-size:1000}") int chunkSize) {
+        this.mongoTemplate = mongoTemplate;
+        this.eventPublisher = eventPublisher;
+        this.alertArchiveService = alertArchiveService;
+        this.chunkSize = chunkSize;
+    }
+
+    /**
+     * 批量删除
+     */
+    public AlertBulkResult deleteByIds(Collection<String> ids) {
+        AlertBulkResult result = new AlertBulkResult();
+        for (List<String> chunk : chunks(ids)) {
+            List<Alert> found = findProjected(chunk, result);
+            if (found.isEmpty()) {
+                continue;
+            }
+            List<String> foundIds = found.stream().map(Alert::getId).toList();
+            result.setModifiedCount(result.getModifiedCount()
+                    + mongoTemplate.remove(Query.query(Criteria.where("id").in(foundIds)), Alert.class).getDeletedCount());
+            found.forEach(alert -> eventPublisher.publishEvent(AlertChangeEvent.deleted(alert)));
+        }
+        return result;
+    }
+
+    /**
+     * 批量更新状态，affected 中保留更新前的状态
+     */
+    public AlertBulkResult updateStatus(Collection<String> ids, Integer targetStatus) {
+        AlertBulkResult result = new AlertBulkResult();
+        for (List<String> chunk : chunks(ids)) {
+            List<Alert> found = findProjected(chunk, result);
+            if (found.isEmpty()) {
+                continue;
+            }
+            List<String> foundIds = found.stream().map(Alert::getId).toList();
+            result.setModifiedCount(result.getModifiedCount() + mongoTemplate.updateMulti(
+                    Query.query(Criteria.where("id").in(foundIds)), Update.update("status", targetStatus), Alert.class)
+                    .getModifiedCount());
+            for (Alert before : found) {
+                Alert after = AlertChangeEvent.snapshot(before);
+                after.setStatus(targetStatus);
+                eventPublisher.publishEvent(AlertChangeEvent.updated(before, after));
+            }
+        }
+        return result;
+    }
+
+    private List<Alert> findProjected(List<String> chunk, AlertBulkResult result) {
+        List<Alert> found = findProjected(chunk);
+        Set<String> foundIds = new LinkedHashSet<>();
+        found.forEach(alert -> foundIds.add(alert.getId()));
+        List<String> missing = chunk.stream().filter(id -> !foundIds.contains(id)).toList();
+        if (!missing.isEmpty() && !alertArchiveService.restore(missing).isEmpty()) {
+            found = new ArrayList<>(found);
+            for (Alert alert : findProjected(missing)) {
+                found.add(alert);
+                foundIds.add(alert.getId());
+            }
+        }
+        for (String id : chunk) {
+            if (!foundIds.contains(id)) {
+                result.getNotFoundIds().add(id);
+            }
+        }
+        result.getAffected().addAll(found);
+        return found;
+    }
+
+    private List<Alert> findProjected(List<String> ids) {
+        Query query = Query.query(Criteria.where("id").in(ids));
+        query.fields().include(PROJECTED_FIELDS);
+        return mongoTemplate.find(query, Alert.class);
+    }
+
+    /**
+     * 去空、去重后按 chunk-size 分片
+     */
+    private List<List<String>> chunks(Collection<String> ids) {
+        Set<String> distinct = new LinkedHashSet<>();
+        for (String id : ids) {
+            if (id != null && !id.trim().isEmpty()) {
+                distinct.add(id.trim());
+            }
+        }
+        List<List<String>> chunks = new ArrayList<>();
+        List<String> current = new ArrayList<>(Math.min(chunkSize, distinct.size()));
+        for (String id : distinct) {
+            current.add(id);
+            if (current.size() == chunkSize) {
+                chunks.add(current);
+                current = new ArrayList<>(chunkSize);
+            }
+        }
+        if (!current.isEmpty()) {
+            chunks.add(current);
+        }
+        return chunks;
+    }
+}
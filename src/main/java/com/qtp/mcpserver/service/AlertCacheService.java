@@ -0,0 +1,159 @@
+package com.qtp.mcpserver.service;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import com.github.benmanes.caffeine.cache.stats.CacheStats;
+import com.qtp.mcpserver.entity.Alert;
+import com.qtp.mcpserver.event.AlertChangeEvent;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.event.EventListener;
+import org.springframework.data.mongodb.core.MongoTemplate;
+import org.springframework.stereotype.Service;
+import org.springframework.util.unit.DataSize;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.time.Duration;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+/**
+ * 按ID读取告警的本地缓存（Caffeine，W-TinyLFU 淘汰）。
+ * <p>
+ * 缓存中保存告警的 JSON 字节而不是对象：按实际字节数计算权重，总量受 max-size 限制；
+ * 每次命中都反序列化出新对象，调用方修改返回值不会污染缓存。
+ * 所有写入路径都会发布 {@link AlertChangeEvent}，收到事件即失效对应条目；进程外的写入由 TTL 兜底。
+ */
+@Service
+@Slf4j
+public class AlertCacheService {
+
+    /** 键和条目的固定开销估算 */
+    private static final int ENTRY_OVERHEAD = 96;
+
+    private final MongoTemplate mongoTemplate;
+
+    private final AlertPayloadService alertPayloadService;
+
+    /** 独立的序列化器，日期按毫秒时间戳写入，读回后与库中值完全一致 */
+    private final ObjectMapper objectMapper = new ObjectMapper();
+
+    private final boolean enabled;
+
+    private final Cache<String, byte[]> cache;
+
+    @Autowired
+    public AlertCacheService(MongoTemplate mongoTemplate,
+                             AlertPayloadService alertPayloadService,
+                             @Value("${alert.cache.enabled:true}") boolean enabled,
+                             @Value("${alert.cache.max-size:64MB}") DataSize maxSize,
+                             @Value("${alert.cache.ttl:10m}") Duration ttl) {
+        this.mongoTemplate = mongoTemplate;
+        this.alertPayloadService = alertPayloadService;
+        this.enabled = enabled;
+        this.cache = Caffeine.newBuilder()
+                .maximumWeight(maxSize.toBytes())
+                .weigher((String id, byte[] bytes) -> id.length() * 2 + bytes.length + ENTRY_OVERHEAD)
+                .expireAfterWrite(ttl)
+                .recordStats()
+                .build();
+    }
+
+    /**
+     * 按ID读取完整告警（含报文），未命中时查库并写入缓存；不存在时返回 null 且不缓存
+     */
+    public Alert findById(String id) {
+        if (!enabled) {
+            return load(id);
+        }
+        byte[] bytes = cache.get(id, key -> serialize(load(key)));
+        return bytes == null ? null : deserialize(bytes);
+    }
+
+    /**
+     * 只查缓存，供响应式路径先查缓存、未命中再异步查库
+     */
+    public Alert getIfPresent(String id) {
+        if (!enabled) {
+            return null;
+        }
+        byte[] bytes = cache.getIfPresent(id);
+        return bytes == null ? null : deserialize(bytes);
+    }
+
+    public void put(Alert alert) {
+        if (enabled && alert != null && alert.getId() != null) {
+            cache.put(alert.getId(), serialize(alert));
+        }
+    }
+
+    public void invalidate(String id) {
+        if (id != null) {
+            cache.invalidate(id);
+        }
+    }
+
+    public void clear() {
+        cache.invalidateAll();
+    }
+
+    @EventListener
+    public void onAlertChange(AlertChangeEvent event) {
+        invalidate(event.getAlertId());
+    }
+
+    /**
+     * 缓存统计：命中、未命中、淘汰次数，当前条数与占用字节
+     */
+    public Map<String, Object> stats() {
+        CacheStats stats = cache.stats();
+        Map<String, Object> result = new LinkedHashMap<>();
+        result.put("enabled", enabled);
+        result.put("hitCount", stats.hitCount());
+        result.put("missCount", stats.missCount());
+        result.put("hitRate", stats.hitRate());
+        result.put("evictionCount", stats.evictionCount());
+        result.put("evictionWeight", stats.evictionWeight());
+        result.put("loadFailureCount", stats.loadFailureCount());
+        result.put("averageLoadPenaltyMs", stats.averageLoadPenalty() / 1_000_000.0);
+        result.put("size", cache.estimatedSize());
+        cache.policy().eviction().ifPresent(eviction -> {
+            result.put("weightedSizeBytes", eviction.weightedSize().orElse(0));
+            result.put("maximumBytes", eviction.getMaximum());
+        });
+        return result;
+    }
+
+    /**
+     * 供指标注册使用
+     */
+    public Cache<String, byte[]> getCache() {
+        return cache;
+    }
+
+    private Alert load(String id) {
+        return alertPayloadService.attach(mongoTemplate.findById(id, Alert.class));
+    }
+
+    private byte[] serialize(Alert alert) {
+        if (alert == null) {
+            return null;
+        }
+        try {
+            return objectMapper.writeValueAsBytes(alert);
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+
+    private Alert deserialize(byte[] bytes) {
+        try {
+            return objectMapper.readValue(bytes, Alert.class);
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+}
@@ -0,0 +1,391 @@
+package com.qtp.mcpserver.service;
+
+import com.mongodb.bulk.BulkWriteResult;
+import com.mongodb.bulk.BulkWriteUpsert;
+import com.qtp.mcpserver.entity.Alert;
+import com.qtp.mcpserver.event.AlertChangeEvent;
+import lombok.Getter;
+import lombok.extern.slf4j.Slf4j;
+import org.bson.Document;
+import org.bson.types.ObjectId;
+import org.springframework.beans.BeanWrapperImpl;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.ApplicationEventPublisher;
+import org.springframework.dao.DuplicateKeyException;
+import org.springframework.data.mongodb.BulkOperationException;
+import org.springframework.data.mongodb.core.BulkOperations;
+import org.springframework.data.mongodb.core.FindAndModifyOptions;
+import org.springframework.data.mongodb.core.MongoTemplate;
+import org.springframework.data.mongodb.core.query.Criteria;
+import org.springframework.data.mongodb.core.query.Query;
+import org.springframework.data.mongodb.core.query.Update;
+import org.springframework.stereotype.Service;
+
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Date;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.UUID;
+import java.util.concurrent.locks.ReentrantLock;
+
+/**
+ * 批量接入时的告警去重合并。
+ * 按指纹（默认 alertId + host + taskName）把同一窗口内重复发生的告警合并到一条文档上，
+ * 累加 occurrenceCount 并推进 lastSeen/endTime，而不是每次插入新文档。窗口从 firstSeen 起算，
+ * 超过窗口后的发生会开启一条新文档。
+ * <p>
+ * 最近活跃的指纹及其所在文档的 firstSeen 记在有界的 LRU 表里：命中时直接按 (fingerprint, firstSeen)
+ * 等值条件批量更新，无需先读；未命中时用一次 findAndModify upsert 定位或创建文档并记录下来。
+ */
+@Service
+@Slf4j
+public class AlertCoalescingService {
+
+    private final MongoTemplate mongoTemplate;
+
+    private final ApplicationEventPublisher eventPublisher;
+
+    private final AlertCacheService alertCacheService;
+
+    private final AlertPayloadService alertPayloadService;
+
+    private final AlertRollupService alertRollupService;
+
+    private final boolean enabled;
+
+    private final long windowMillis;
+
+    private final List<String> fingerprintFields;
+
+    /** 指纹 → 当前窗口文档的 id、firstSeen 和汇总维度，按访问顺序淘汰 */
+    private final Map<String, HotEntry> hotFingerprints;
+
+    /** 用显式锁而不是 synchronized，虚拟线程模式下不会钉住载体线程 */
+    private final ReentrantLock hotLock = new ReentrantLock();
+
+    @Autowired
+    public AlertCoalescingService(MongoTemplate mongoTemplate,
+                                  ApplicationEventPublisher eventPublisher,
+                                  AlertCacheService alertCacheService,
+                                  AlertPayloadService alertPayloadService,
+                                  AlertRollupService alertRollupService,
+                                  @Value("${alert.dedup.enabled:true}") boolean enabled,
+                                  @Value("${alert.dedup.window:300000}") long windowMillis,
+                                  @Value("${alert.dedup.fingerprint-fields:alertId,host,taskName}") String fingerprintFields,
+                                  @Value("${alert.dedup.hot-max-size:10000}") int hotMaxSize) {
+        this.mongoTemplate = mongoTemplate;
+        this.eventPublisher = eventPublisher;
+        this.alertCacheService = alertCacheService;
+        this.alertPayloadService = alertPayloadService;
+        this.alertRollupService = alertRollupService;
+        this.enabled = enabled;
+        this.windowMillis = windowMillis;
+        this.fingerprintFields = Arrays.stream(fingerprintFields.split(",")).map(String::trim)
+                .filter(field -> !field.isEmpty()).toList();
+        this.hotFingerprints = new LinkedHashMap<>(256, 0.75f, true) {
+            @Override
+            protected boolean removeEldestEntry(Map.Entry<String, HotEntry> eldest) {
+                return size() > hotMaxSize;
+            }
+        };
+    }
+
+    public boolean isEnabled() {
+        return enabled;
+    }
+
+    /**
+     * 计算告警指纹，指纹字段全部为空时返回 null（不参与合并）
+     */
+    public String fingerprint(Alert alert) {
+        BeanWrapperImpl wrapper = new BeanWrapperImpl(alert);
+        StringBuilder key = new StringBuilder();
+        boolean hasValue = false;
+        for (String field : fingerprintFields) {
+            Object value = wrapper.getPropertyValue(field);
+            hasValue |= value != null;
+            key.append(value == null ? "" : value).append('\u0001');
+        }
+        return hasValue ? UUID.nameUUIDFromBytes(key.toString().getBytes(StandardCharsets.UTF_8)).toString() : null;
+    }
+
+    /**
+     * 合并写入一批已校验的告警
+     *
+     * @param alerts 待写入的告警
+     * @return 被合并到已有文档上的条数（其余条数为新建文档）
+     */
+    public int coalesce(List<Alert> alerts) {
+        Progress progress = new Progress();
+        coalesce(alerts, progress);
+        return progress.coalesced;
+    }
+
+    /**
+     * 合并写入一批已校验的告警，每写完一个指纹分组即记入 progress；中途失败时抛出异常，
+     * progress 中是已经写入（并已发布变更事件）的条数，调用方据此只把其余告警记为失败
+     */
+    public void coalesce(List<Alert> alerts, Progress progress) {
+        // 批内先按指纹归并，一次批量里同一指纹只产生一个写操作
+        Map<String, Group> groups = new LinkedHashMap<>();
+        List<Alert> plain = new ArrayList<>();
+        for (Alert alert : alerts) {
+            String fingerprint = fingerprint(alert);
+            if (fingerprint == null) {
+                plain.add(alert);
+                continue;
+            }
+            groups.computeIfAbsent(fingerprint, key -> new Group(key, alert)).add(alert);
+        }
+
+        List<Group> hotGroups = new ArrayList<>();
+        for (Group group : groups.values()) {
+            HotEntry hot = hotEntry(group);
+            if (hot != null) {
+                group.hot = hot;
+                group.firstSeen = hot.document().getFirstSeen();
+                hotGroups.add(group);
+            } else {
+                progress.add(group.count, upsertCold(group));
+            }
+        }
+        upsertHot(hotGroups, progress);
+
+        if (!plain.isEmpty()) {
+            plain.forEach(alert -> {
+                if (alert.getId() == null) {
+                    alert.setId(new ObjectId().toHexString());
+                }
+            });
+            BulkOperationException failure = null;
+            Set<Integer> failed = new HashSet<>();
+            try {
+                mongoTemplate.bulkOps(BulkOperations.BulkMode.UNORDERED, Alert.class).insert(plain).execute();
+            } catch (BulkOperationException e) {
+                failure = e;
+                e.getErrors().forEach(error -> failed.add(error.getIndex()));
+            }
+            for (int i = 0; i < plain.size(); i++) {
+                if (!failed.contains(i)) {
+                    eventPublisher.publishEvent(AlertChangeEvent.created(plain.get(i)));
+                    progress.add(1, 0);
+                }
+            }
+            if (failure != null) {
+                throw failure;
+            }
+        }
+    }
+
+    private HotEntry hotEntry(Group group) {
+        HotEntry hot;
+        hotLock.lock();
+        try {
+            hot = hotFingerprints.get(group.fingerprint);
+        } finally {
+            hotLock.unlock();
+        }
+        if (hot == null || group.firstTime.getTime() - hot.document().getFirstSeen().getTime() >= windowMillis) {
+            return null;
+        }
+        return hot;
+    }
+
+    private void remember(String fingerprint, Alert document) {
+        hotLock.lock();
+        try {
+            hotFingerprints.put(fingerprint, new HotEntry(document));
+        } finally {
+            hotLock.unlock();
+        }
+    }
+
+    /**
+     * 未命中热点表：按窗口范围条件 upsert，一次往返既完成合并又拿到 firstSeen。
+     * 范围条件的 upsert 不会由服务端自动重试，并发接入同一指纹时后到的插入违反 (fingerprint, firstSeen) 唯一索引，
+     * 此时重试一次，按同样的条件命中先插入的文档完成合并
+     *
+     * @return 合并到已有文档上的条数
+     */
+    private int upsertCold(Group group) {
+        Query query = new Query(Criteria.where("fingerprint").is(group.fingerprint)
+                .and("firstSeen").gt(new Date(group.firstTime.getTime() - windowMillis)));
+        query.fields().include("id", "firstSeen", "occurrenceCount", "alarmLevel", "alarmType", "systemName", "company");
+        Document insertFields = insertFields(group);
+        insertFields.put("firstSeen", group.firstTime);
+        Update update = update(group, insertFields);
+        FindAndModifyOptions options = FindAndModifyOptions.options().upsert(true).returnNew(true);
+        Alert result;
+        try {
+            result = mongoTemplate.findAndModify(query, update, options, Alert.class);
+        } catch (DuplicateKeyException e) {
+            result = mongoTemplate.findAndModify(query, update, options, Alert.class);
+        }
+        if (result == null) {
+            return 0;
+        }
+        remember(group.fingerprint, summary(result.getId(), result.getFirstSeen(), result));
+        if (result.getOccurrenceCount() != null && result.getOccurrenceCount() == group.count) {
+            publishCreated(group, result.getId(), result.getFirstSeen());
+            return group.count - 1;
+        }
+        // 合并只改计数和时间，不发变更事件，但按ID缓存的旧内容需要失效、趋势汇总需要累加
+        alertCacheService.invalidate(result.getId());
+        alertRollupService.recordMerged(result, group.count);
+        return group.count;
+    }
+
+    /**
+     * 命中热点表：按 (fingerprint, firstSeen) 等值条件批量 upsert。
+     * 文档若已被删除或归档，upsert 会以原窗口重新建档。部分失败时先记录成功的分组再抛出异常
+     */
+    private void upsertHot(List<Group> groups, Progress progress) {
+        if (groups.isEmpty()) {
+            return;
+        }
+        BulkOperations bulkOps = mongoTemplate.bulkOps(BulkOperations.BulkMode.UNORDERED, Alert.class);
+        for (Group group : groups) {
+            Query query = new Query(Criteria.where("fingerprint").is(group.fingerprint).and("firstSeen").is(group.firstSeen));
+            bulkOps.upsert(query, update(group, insertFields(group)));
+        }
+        BulkWriteResult result;
+        BulkOperationException failure = null;
+        Set<Integer> failed = new HashSet<>();
+        try {
+            result = bulkOps.execute();
+        } catch (BulkOperationException e) {
+            result = e.getResult();
+            failure = e;
+            e.getErrors().forEach(error -> failed.add(error.getIndex()));
+        }
+        Set<Integer> upserted = new HashSet<>();
+        for (BulkWriteUpsert upsert : result.getUpserts()) {
+            Group group = groups.get(upsert.getIndex());
+            String id = upsert.getId().asObjectId().getValue().toHexString();
+            publishCreated(group, id, group.firstSeen);
+            remember(group.fingerprint, summary(id, group.firstSeen, group.first));
+            upserted.add(upsert.getIndex());
+            progress.add(group.count, group.count - 1);
+        }
+        for (int i = 0; i < groups.size(); i++) {
+            if (!upserted.contains(i) && !failed.contains(i)) {
+                Group group = groups.get(i);
+                alertCacheService.invalidate(group.hot.document().getId());
+                alertRollupService.recordMerged(group.hot.document(), group.count);
+                progress.add(group.count, group.count);
+            }
+        }
+        if (failure != null) {
+            throw failure;
+        }
+    }
+
+    private Update update(Group group, Document insertFields) {
+        Update update = new Update().inc("occurrenceCount", group.count)
+                .max("lastSeen", group.lastTime)
+                .max("endTime", group.lastTime);
+        insertFields.forEach(update::setOnInsert);
+        return update;
+    }
+
+    /**
+     * 新建文档时写入的字段：取窗口内第一条告警的内容，排除由更新操作符维护和出现在查询条件里的字段
+     */
+    private Document insertFields(Group group) {
+        Document document = new Document();
+        mongoTemplate.getConverter().write(group.first, document);
+        document.remove("_id");
+        document.remove("fingerprint");
+        document.remove("firstSeen");
+        document.remove("occurrenceCount");
+        document.remove("lastSeen");
+        document.remove("endTime");
+        // upsert 不经过实体保存事件，这里补上全文检索分词字段和文本条件匹配键，报文拆分存储时由 publishCreated 单独保存报文
+        document.put(AlertTextTokenizer.FIELD, AlertTextTokenizer.searchText(group.first));
+        document.put(AlertMatchKeys.FIELD, AlertMatchKeys.document(group.first));
+        if (alertPayloadService.isSplit()) {
+            AlertPayloadService.PAYLOAD_FIELDS.forEach(document::remove);
+        }
+        return document;
+    }
+
+    private void publishCreated(Group group, String id, Date firstSeen) {
+        if (alertPayloadService.isSplit()) {
+            alertPayloadService.store(id, group.first.getResponse(), group.first.getActualValue());
+        }
+        Alert created = AlertChangeEvent.snapshot(group.first);
+        created.setId(id);
+        created.setFingerprint(group.fingerprint);
+        created.setFirstSeen(firstSeen);
+        created.setLastSeen(group.lastTime);
+        created.setEndTime(group.lastTime);
+        created.setOccurrenceCount(group.count);
+        eventPublisher.publishEvent(AlertChangeEvent.created(created));
+    }
+
+    /**
+     * 一批告警的写入进度：已写入的条数（新建或合并）及其中合并到已有文档上的条数
+     */
+    @Getter
+    public static class Progress {
+        private int written;
+        private int coalesced;
+
+        private void add(int written, int coalesced) {
+            this.written += written;
+            this.coalesced += coalesced;
+        }
+    }
+
+    /**
+     * 同一批次中同一指纹的告警
+     */
+    private static class Group {
+        private final String fingerprint;
+        private final Alert first;
+        private int count;
+        private Date firstTime;
+        private Date lastTime;
+        private HotEntry hot;
+        private Date firstSeen;
+
+        Group(String fingerprint, Alert first) {
+            this.fingerprint = fingerprint;
+            this.first = first;
+        }
+
+        void add(Alert alert) {
+            Date time = alert.getEndTime() != null ? alert.getEndTime() : new Date();
+            count++;
+            if (firstTime == null || time.before(firstTime)) {
+                firstTime = time;
+            }
+            if (lastTime == null || time.after(lastTime)) {
+                lastTime = time;
+            }
+        }
+    }
+
+    /**
+     * 热点表中只保留定位文档和累加趋势汇总所需的字段
+     */
+    private static Alert summary(String id, Date firstSeen, Alert source) {
+        Alert summary = new Alert();
+        summary.setId(id);
+        summary.setFirstSeen(firstSeen);
+        summary.setAlarmLevel(source.getAlarmLevel());
+        summary.setAlarmType(source.getAlarmType());
+        summary.setSystemName(source.getSystemName());
+        summary.setCompany(source.getCompany());
+        return summary;
+    }
+
+    private record HotEntry(Alert document) {
+    }
+}
@@ -0,0 +1,181 @@
+package com.qtp.mcpserver.service;
+
+import com.qtp.mcpserver.dto.AlertStatistics;
+import com.qtp.mcpserver.entity.Alert;
+import com.qtp.mcpserver.event.AlertChangeEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.stereotype.Component;
+
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+
+/**
+ * 进程内告警计数器，按状态/级别/类型/单位/系统维护分桶计数。
+ * 启动时由 {@link AlertStatisticsService} 全量播种，之后通过告警变更事件增量维护，
+ * 并定期与数据库对账以纠正漂移。读取统计时只需遍历内存中的分桶。
+ * <p>
+ * 对账由 {@link #beginReconcile()} 开始：此后的变更事件在计入当前计数的同时另记一份增量，
+ * {@link #reset} 用聚合结果加上这份增量替换当前计数，聚合期间到达的事件不会丢失。
+ * 与聚合扫描同时提交的写入可能已被聚合计入又被增量计入一次，这类偏差只涉及对账窗口内的并发写入，由下一次对账纠正。
+ */
+@Component
+public class AlertCounterStore {
+
+    private volatile Counters counters = new Counters();
+
+    private volatile boolean seeded = false;
+
+    /** 对账期间的增量，为空表示不在对账中 */
+    private volatile Counters reconcileDeltas;
+
+    /** 事件增量之间共享读锁，开始对账和替换计数时持写锁，保证增量不会在替换之后才写入旧的计数 */
+    private final ReentrantReadWriteLock lock = new ReentrantReadWriteLock();
+
+    public boolean isSeeded() {
+        return seeded;
+    }
+
+    /**
+     * 开始对账：在取数据库聚合之前调用，之后的事件增量会在 {@link #reset} 时叠加到聚合结果上
+     */
+    public void beginReconcile() {
+        lock.writeLock().lock();
+        try {
+            reconcileDeltas = new Counters();
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    /**
+     * 放弃进行中的对账，当前计数不变
+     */
+    public void cancelReconcile() {
+        lock.writeLock().lock();
+        try {
+            reconcileDeltas = null;
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    /**
+     * 用数据库聚合结果整体替换当前计数，对账开始后的事件增量叠加在聚合结果上
+     *
+     * @return 替换后与替换前的总数之差，未播种时为0
+     */
+    public long reset(AlertStatistics statistics) {
+        Counters fresh = new Counters();
+        fresh.total.add(statistics.getTotalCount());
+        load(fresh.status, statistics.getStatusStats());
+        load(fresh.level, statistics.getLevelStats());
+        load(fresh.type, statistics.getTypeStats());
+        load(fresh.company, statistics.getCompanyStats());
+        load(fresh.system, statistics.getSystemStats());
+        lock.writeLock().lock();
+        try {
+            Counters deltas = reconcileDeltas;
+            if (deltas != null) {
+                fresh.total.add(deltas.total.sum());
+                merge(fresh.status, deltas.status);
+                merge(fresh.level, deltas.level);
+                merge(fresh.type, deltas.type);
+                merge(fresh.company, deltas.company);
+                merge(fresh.system, deltas.system);
+            }
+            long drift = seeded ? fresh.total.sum() - counters.total.sum() : 0;
+            this.counters = fresh;
+            this.reconcileDeltas = null;
+            this.seeded = true;
+            return drift;
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    /**
+     * 读取当前计数快照，计数为0的分桶不返回
+     */
+    public AlertStatistics snapshot() {
+        Counters current = this.counters;
+        AlertStatistics statistics = new AlertStatistics();
+        statistics.setTotalCount(current.total.sum());
+        dump(current.status, statistics.getStatusStats());
+        dump(current.level, statistics.getLevelStats());
+        dump(current.type, statistics.getTypeStats());
+        dump(current.company, statistics.getCompanyStats());
+        dump(current.system, statistics.getSystemStats());
+        return statistics;
+    }
+
+    @EventListener
+    public void onAlertChange(AlertChangeEvent event) {
+        if (!seeded && reconcileDeltas == null) {
+            return;
+        }
+        lock.readLock().lock();
+        try {
+            // 首次播种前只记对账增量
+            if (seeded) {
+                apply(this.counters, event);
+            }
+            Counters deltas = this.reconcileDeltas;
+            if (deltas != null) {
+                apply(deltas, event);
+            }
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    private void apply(Counters target, AlertChangeEvent event) {
+        if (event.getBefore() != null) {
+            apply(target, event.getBefore(), -1);
+        }
+        if (event.getAfter() != null) {
+            apply(target, event.getAfter(), 1);
+        }
+    }
+
+    private void apply(Counters current, Alert alert, int delta) {
+        current.total.add(delta);
+        increment(current.status, alert.getStatus(), delta);
+        increment(current.level, alert.getAlarmLevel(), delta);
+        increment(current.type, alert.getAlarmType(), delta);
+        increment(current.company, alert.getCompany(), delta);
+        increment(current.system, alert.getSystemName(), delta);
+    }
+
+    private void increment(Map<String, LongAdder> buckets, Object key, int delta) {
+        String bucket = key == null ? AlertStatisticsService.UNKNOWN_BUCKET : key.toString();
+        buckets.computeIfAbsent(bucket, k -> new LongAdder()).add(delta);
+    }
+
+    private void load(Map<String, LongAdder> target, Map<String, Long> source) {
+        source.forEach((key, count) -> target.computeIfAbsent(key, k -> new LongAdder()).add(count));
+    }
+
+    private void merge(Map<String, LongAdder> target, Map<String, LongAdder> deltas) {
+        deltas.forEach((key, adder) -> target.computeIfAbsent(key, k -> new LongAdder()).add(adder.sum()));
+    }
+
+    private void dump(Map<String, LongAdder> source, Map<String, Long> target) {
+        source.forEach((key, adder) -> {
+            long count = adder.sum();
+            if (count != 0) {
+                target.put(key, count);
+            }
+        });
+    }
+
+    private static class Counters {
+        private final LongAdder total = new LongAdder();
+        private final Map<String, LongAdder> status = new ConcurrentHashMap<>();
+        private final Map<String, LongAdder> level = new ConcurrentHashMap<>();
+        private final Map<String, LongAdder> type = new ConcurrentHashMap<>();
+        private final Map<String, LongAdder> company = new ConcurrentHashMap<>();
+        private final Map<String, LongAdder> system = new ConcurrentHashMap<>();
+    }
+}
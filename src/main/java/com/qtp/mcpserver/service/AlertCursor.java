@@ -0,0 +1,74 @@
+package com.qtp.mcpserver.service;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.node.ObjectNode;
+import lombok.Getter;
+
+import java.nio.charset.StandardCharsets;
+import java.util.Base64;
+import java.util.Date;
+
+/**
+ * 游标分页的续页令牌：记录排序字段、方向以及上一页最后一条记录的排序值和 _id，
+ * 对外以 base64url 编码的不透明字符串传递。
+ */
+@Getter
+public class AlertCursor {
+
+    private static final ObjectMapper MAPPER = new ObjectMapper();
+
+    private final String sortField;
+    private final boolean ascending;
+    private final Object lastValue;
+    private final String lastId;
+
+    public AlertCursor(String sortField, boolean ascending, Object lastValue, String lastId) {
+        this.sortField = sortField;
+        this.ascending = ascending;
+        this.lastValue = lastValue;
+        this.lastId = lastId;
+    }
+
+    public String encode() {
+        ObjectNode node = MAPPER.createObjectNode();
+        node.put("f", sortField);
+        node.put("a", ascending);
+        node.put("id", lastId);
+        if (lastValue instanceof Date date) {
+            node.put("t", "d");
+            node.put("v", date.getTime());
+        } else if (lastValue instanceof Boolean bool) {
+            node.put("t", "b");
+            node.put("v", bool);
+        } else if (lastValue instanceof Number number) {
+            node.put("t", "n");
+            node.put("v", number.longValue());
+        } else if (lastValue != null) {
+            node.put("t", "s");
+            node.put("v", lastValue.toString());
+        }
+        try {
+            return Base64.getUrlEncoder().withoutPadding().encodeToString(MAPPER.writeValueAsBytes(node));
+        } catch (Exception e) {
+            throw new IllegalStateException("游标编码失败", e);
+        }
+    }
+
+    public static AlertCursor decode(String token) {
+        try {
+            ObjectNode node = (ObjectNode) MAPPER.readTree(Base64.getUrlDecoder().decode(token.getBytes(StandardCharsets.US_ASCII)));
+            Object value = null;
+            if (node.hasNonNull("t")) {
+                value = switch (node.get("t").asText()) {
+                    case "d" -> new Date(node.get("v").asLong());
+                    case "b" -> node.get("v").asBoolean();
+                    case "n" -> node.get("v").isInt() ? (Object) node.get("v").asInt() : node.get("v").asLong();
+                    default -> node.get("v").asText();
+                };
+            }
+            return new AlertCursor(node.get("f").asText(), node.get("a").asBoolean(), value, node.get("id").asText());
+        } catch (Exception e) {
+            throw new IllegalArgumentException("无效的分页游标：" + token);
+        }
+    }
+}
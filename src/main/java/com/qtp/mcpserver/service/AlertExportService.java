@@ -0,0 +1,188 @@
+package com.qtp.mcpserver.service;
+
+import com.fasterxml.jackson.core.JsonGenerator;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.qtp.mcpserver.entity.Alert;
+import org.bson.Document;
+import org.springframework.beans.BeanWrapperImpl;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.data.domain.Sort;
+import org.springframework.data.mongodb.core.MongoTemplate;
+import org.springframework.data.mongodb.core.aggregation.Aggregation;
+import org.springframework.data.mongodb.core.aggregation.AggregationOperation;
+import org.springframework.data.mongodb.core.aggregation.AggregationOptions;
+import org.springframework.data.mongodb.core.aggregation.TypedAggregation;
+import org.springframework.data.mongodb.core.query.Query;
+import org.springframework.stereotype.Service;
+
+import java.io.BufferedWriter;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.OutputStreamWriter;
+import java.io.Writer;
+import java.nio.charset.StandardCharsets;
+import java.text.SimpleDateFormat;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Date;
+import java.util.List;
+import java.util.stream.Stream;
+
+/**
+ * 告警流式导出。逐条遍历 MongoDB 游标并增量写出 NDJSON/CSV，内存占用与结果集大小无关。
+ * 时间范围触及归档时以聚合合并归档集合，合并后的排序允许落盘。
+ */
+@Service
+public class AlertExportService {
+
+    public enum Format {
+        NDJSON, CSV
+    }
+
+    /** 未指定字段时导出的字段（不含大报文 response/actualValue） */
+    public static final List<String> DEFAULT_FIELDS = List.of("id", "caseExecId", "alarmLevel", "alarmType", "alertId",
+            "company", "endTime", "failReason", "isRecover", "layerName", "regionName", "status", "systemName",
+            "taskName", "type", "recoverTime", "aveTime", "beginTime", "host", "isReply", "occurrenceCount", "firstSeen",
+            "lastSeen");
+
+    private static final int CURSOR_BATCH_SIZE = 500;
+
+    private static final int FLUSH_EVERY = 1000;
+
+    private final MongoTemplate mongoTemplate;
+
+    private final ObjectMapper objectMapper;
+
+    private final AlertArchiveService archiveService;
+
+    @Autowired
+    public AlertExportService(MongoTemplate mongoTemplate, ObjectMapper objectMapper, AlertArchiveService archiveService) {
+        this.mongoTemplate = mongoTemplate;
+        this.objectMapper = objectMapper;
+        this.archiveService = archiveService;
+    }
+
+    /**
+     * 解析并校验导出字段，为空时使用默认字段
+     */
+    public List<String> resolveFields(String fields) {
+        if (fields == null || fields.trim().isEmpty()) {
+            return DEFAULT_FIELDS;
+        }
+        BeanWrapperImpl wrapper = new BeanWrapperImpl(Alert.class);
+        List<String> resolved = new ArrayList<>();
+        for (String field : fields.split(",")) {
+            String trimmed = field.trim();
+            if (trimmed.isEmpty()) {
+                continue;
+            }
+            if (!wrapper.isReadableProperty(trimmed)) {
+                throw new IllegalArgumentException("不支持的导出字段：" + trimmed);
+            }
+            resolved.add(trimmed);
+        }
+        return resolved.isEmpty() ? DEFAULT_FIELDS : resolved;
+    }
+
+    /**
+     * 按过滤条件导出，结果按 endTime、_id 升序
+     *
+     * @param from 告警时间下限，为空表示不限，用于判断是否合并归档
+     * @return 导出的条数
+     */
+    public long export(Query filter, Date from, Format format, List<String> fields, OutputStream out) throws IOException {
+        Sort sort = Sort.by(Sort.Direction.ASC, "endTime", "id");
+        String[] projection = fields.toArray(new String[0]);
+
+        Writer writer = new BufferedWriter(new OutputStreamWriter(out, StandardCharsets.UTF_8));
+        SimpleDateFormat dateFormat = new SimpleDateFormat("yyyy-MM-dd HH:mm:ss");
+        long count = 0;
+        if (format == Format.CSV) {
+            // UTF-8 BOM，便于 Excel 正确识别中文
+            writer.write('\uFEFF');
+            writer.write(String.join(",", fields));
+            writer.write('\n');
+        }
+        try (Stream<Alert> stream = archiveService.reaches(from) ? streamWithArchive(filter, sort, projection)
+                : stream(filter, sort, projection)) {
+            for (Alert alert : (Iterable<Alert>) stream::iterator) {
+                BeanWrapperImpl wrapper = new BeanWrapperImpl(alert);
+                if (format == Format.CSV) {
+                    writeCsvRow(writer, wrapper, fields, dateFormat);
+                } else {
+                    writeJsonLine(writer, wrapper, fields);
+                }
+                if (++count % FLUSH_EVERY == 0) {
+                    writer.flush();
+                }
+            }
+        }
+        writer.flush();
+        return count;
+    }
+
+    private Stream<Alert> stream(Query filter, Sort sort, String[] projection) {
+        Query query = Query.of(filter).with(sort).cursorBatchSize(CURSOR_BATCH_SIZE);
+        query.fields().include(projection);
+        return mongoTemplate.stream(query, Alert.class);
+    }
+
+    private Stream<Alert> streamWithArchive(Query filter, Sort sort, String[] projection) {
+        Document filterObject = filter.getQueryObject();
+        List<AggregationOperation> operations = new ArrayList<>();
+        if (!filterObject.isEmpty()) {
+            operations.add(context -> new Document("$match", context.getMappedObject(filterObject, Alert.class)));
+        }
+        operations.add(context -> archiveService.unionStage(context.getMappedObject(filterObject, Alert.class)));
+        operations.add(Aggregation.sort(sort));
+        operations.add(Aggregation.project(projection));
+        TypedAggregation<Alert> aggregation = Aggregation.newAggregation(Alert.class, operations)
+                .withOptions(AggregationOptions.builder().allowDiskUse(true).cursorBatchSize(CURSOR_BATCH_SIZE).build());
+        return mongoTemplate.aggregateStream(aggregation, Alert.class);
+    }
+
+    private void writeJsonLine(Writer writer, BeanWrapperImpl wrapper, List<String> fields) throws IOException {
+        JsonGenerator generator = objectMapper.getFactory().createGenerator(writer);
+        generator.disable(JsonGenerator.Feature.AUTO_CLOSE_TARGET);
+        generator.writeStartObject();
+        for (String field : fields) {
+            Object value = wrapper.getPropertyValue(field);
+            if (value != null) {
+                generator.writeFieldName(field);
+                objectMapper.writeValue(generator, value);
+            }
+        }
+        generator.writeEndObject();
+        generator.close();
+        writer.write('\n');
+    }
+
+    private void writeCsvRow(Writer writer, BeanWrapperImpl wrapper, List<String> fields, SimpleDateFormat dateFormat) throws IOException {
+        for (int i = 0; i < fields.size(); i++) {
+            if (i > 0) {
+                writer.write(',');
+            }
+            Object value = wrapper.getPropertyValue(fields.get(i));
+            if (value == null) {
+                continue;
+            }
+            String text = value instanceof Date date ? dateFormat.format(date) : value.toString();
+            if (text.indexOf(',') >= 0 || text.indexOf('"') >= 0 || text.indexOf('\n') >= 0 || text.indexOf('\r') >= 0) {
+                writer.write('"');
+                writer.write(text.replace("\"", "\"\""));
+                writer.write('"');
+            } else {
+                writer.write(text);
+            }
+        }
+        writer.write('\n');
+    }
+
+    public static Format parseFormat(String format) {
+        try {
+            return Format.valueOf(format.trim().toUpperCase());
+        } catch (Exception e) {
+            throw new IllegalArgumentException("不支持的导出格式：" + format + "，可选：" + Arrays.toString(Format.values()));
+        }
+    }
+}
@@ -0,0 +1,240 @@
+package com.qtp.mcpserver.service;
+
+import com.qtp.mcpserver.dto.QueryShapeReport;
+import com.qtp.mcpserver.entity.Alert;
+import lombok.extern.slf4j.Slf4j;
+import org.bson.Document;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Qualifier;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.core.task.TaskExecutor;
+import org.springframework.data.mongodb.core.MongoTemplate;
+import org.springframework.data.mongodb.core.aggregation.AggregationOperationContext;
+import org.springframework.data.mongodb.core.aggregation.TypeBasedAggregationOperationContext;
+import org.springframework.data.mongodb.core.aggregation.TypedAggregation;
+import org.springframework.data.mongodb.core.convert.QueryMapper;
+import org.springframework.data.mongodb.core.mapping.MongoPersistentEntity;
+import org.springframework.data.mongodb.core.query.Query;
+import org.springframework.stereotype.Service;
+
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.Date;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.Supplier;
+
+/**
+ * 索引顾问：记录实际出现的查询形态，每种形态在后台 explain 一次，
+ * 标记出执行计划为 COLLSCAN 的形态，供管理接口查看。
+ * explain 的是实际执行的命令：普通分页为带排序、skip、limit 的 find，合并归档时为整个聚合管道。
+ */
+@Service
+@Slf4j
+public class AlertIndexAdvisor {
+
+    private final MongoTemplate mongoTemplate;
+
+    private final TaskExecutor taskExecutor;
+
+    private final QueryMapper queryMapper;
+
+    private final int maxShapes;
+
+    private final Map<String, ShapeEntry> shapes = new ConcurrentHashMap<>();
+
+    @Autowired
+    public AlertIndexAdvisor(MongoTemplate mongoTemplate,
+                             @Qualifier("applicationTaskExecutor") TaskExecutor taskExecutor,
+                             @Value("${alert.index.advisor.max-shapes:500}") int maxShapes) {
+        this.mongoTemplate = mongoTemplate;
+        this.taskExecutor = taskExecutor;
+        this.queryMapper = new QueryMapper(mongoTemplate.getConverter());
+        this.maxShapes = maxShapes;
+    }
+
+    /**
+     * 记录一次 find 查询
+     *
+     * @param query 实际执行的查询（属性名），explain 时带上其排序、skip、limit 和投影
+     */
+    public void record(Query query) {
+        record(query.getQueryObject(), query.getSortObject(), "find", () -> {
+            Document find = new Document("find", mongoTemplate.getCollectionName(Alert.class))
+                    .append("filter", queryMapper.getMappedObject(query.getQueryObject(), entity()));
+            if (!query.getSortObject().isEmpty()) {
+                find.append("sort", queryMapper.getMappedSort(query.getSortObject(), entity()));
+            }
+            if (!query.getFieldsObject().isEmpty()) {
+                find.append("projection", queryMapper.getMappedFields(query.getFieldsObject(), entity()));
+            }
+            if (query.getSkip() > 0) {
+                find.append("skip", query.getSkip());
+            }
+            if (query.isLimited()) {
+                find.append("limit", query.getLimit());
+            }
+            return find;
+        });
+    }
+
+    /**
+     * 记录一次聚合查询，explain 整个管道
+     *
+     * @param filter      管道中 $match 的过滤条件（属性名），用于归类形态
+     * @param sort        排序，可为空
+     * @param aggregation 实际执行的聚合
+     */
+    public void record(Document filter, Document sort, TypedAggregation<Alert> aggregation) {
+        record(filter, sort, "aggregate", () -> {
+            AggregationOperationContext context = new TypeBasedAggregationOperationContext(Alert.class,
+                    mongoTemplate.getConverter().getMappingContext(), queryMapper);
+            return new Document("aggregate", mongoTemplate.getCollectionName(Alert.class))
+                    .append("pipeline", aggregation.toPipeline(context))
+                    .append("cursor", new Document());
+        });
+    }
+
+    private void record(Document filter, Document sort, String command, Supplier<Document> explainable) {
+        String shape = shapeOf(filter).toJson();
+        String sortShape = sort == null ? "{}" : sort.toJson();
+        String key = command + " " + shape + " sort " + sortShape;
+        ShapeEntry entry = shapes.get(key);
+        if (entry == null) {
+            if (shapes.size() >= maxShapes) {
+                return;
+            }
+            ShapeEntry created = new ShapeEntry(command, shape, sortShape);
+            entry = shapes.putIfAbsent(key, created);
+            if (entry == null) {
+                entry = created;
+                ShapeEntry target = created;
+                taskExecutor.execute(() -> explain(target, explainable));
+            }
+        }
+        entry.count.increment();
+        entry.lastSeen = new Date();
+    }
+
+    /**
+     * 查询形态报告，全表扫描的形态排在最前，其次按出现次数降序
+     */
+    public List<QueryShapeReport> reports(boolean collectionScanOnly) {
+        List<QueryShapeReport> reports = new ArrayList<>();
+        for (ShapeEntry entry : shapes.values()) {
+            if (collectionScanOnly && !Boolean.TRUE.equals(entry.collectionScan)) {
+                continue;
+            }
+            QueryShapeReport report = new QueryShapeReport();
+            report.setCommand(entry.command);
+            report.setShape(entry.shape);
+            report.setSort(entry.sort);
+            report.setCount(entry.count.sum());
+            report.setFirstSeen(entry.firstSeen);
+            report.setLastSeen(entry.lastSeen);
+            report.setPlanStages(entry.planStages);
+            report.setIndexNames(entry.indexNames);
+            report.setCollectionScan(entry.collectionScan);
+            report.setExplainError(entry.explainError);
+            reports.add(report);
+        }
+        reports.sort(Comparator.comparing((QueryShapeReport r) -> !Boolean.TRUE.equals(r.getCollectionScan()))
+                .thenComparing(QueryShapeReport::getCount, Comparator.reverseOrder()));
+        return reports;
+    }
+
+    public void clear() {
+        shapes.clear();
+    }
+
+    private void explain(ShapeEntry entry, Supplier<Document> explainable) {
+        try {
+            Document result = mongoTemplate.getDb().runCommand(
+                    new Document("explain", explainable.get()).append("verbosity", "queryPlanner"));
+            // 聚合的 explain 按阶段给出计划（$cursor、$unionWith 中各有 queryPlanner），整个结果都要遍历
+            Set<String> stages = new LinkedHashSet<>();
+            Set<String> indexNames = new LinkedHashSet<>();
+            collectPlan(result, stages, indexNames);
+            entry.planStages = new ArrayList<>(stages);
+            entry.indexNames = new ArrayList<>(indexNames);
+            entry.collectionScan = stages.contains("COLLSCAN");
+            if (entry.collectionScan) {
+                log.warn("查询形态未命中索引（COLLSCAN）：{} {} sort {}", entry.command, entry.shape, entry.sort);
+            }
+        } catch (Exception e) {
+            entry.explainError = e.getMessage();
+        }
+    }
+
+    private void collectPlan(Object node, Set<String> stages, Set<String> indexNames) {
+        if (node instanceof Document doc) {
+            if (doc.get("stage") instanceof String stage) {
+                stages.add(stage);
+            }
+            if (doc.get("indexName") instanceof String indexName) {
+                indexNames.add(indexName);
+            }
+            // 只统计胜出的计划
+            doc.forEach((key, value) -> {
+                if (!"rejectedPlans".equals(key)) {
+                    collectPlan(value, stages, indexNames);
+                }
+            });
+        } else if (node instanceof List<?> list) {
+            list.forEach(value -> collectPlan(value, stages, indexNames));
+        }
+    }
+
+    /**
+     * 将过滤条件中的具体值替换为占位符，保留字段名和操作符
+     */
+    private Object placeholder(Object value) {
+        if (value instanceof Document doc) {
+            Document shape = new Document();
+            doc.forEach((key, child) -> shape.append(key, placeholder(child)));
+            return shape;
+        }
+        if (value instanceof List<?> list) {
+            List<Object> shape = new ArrayList<>();
+            for (Object child : list) {
+                Object childShape = placeholder(child);
+                if (!(childShape instanceof String) || !shape.contains(childShape)) {
+                    shape.add(childShape);
+                }
+            }
+            return shape;
+        }
+        return "?";
+    }
+
+    private Document shapeOf(Document filter) {
+        return (Document) placeholder(filter);
+    }
+
+    private MongoPersistentEntity<?> entity() {
+        return mongoTemplate.getConverter().getMappingContext().getPersistentEntity(Alert.class);
+    }
+
+    private static class ShapeEntry {
+        private final String command;
+        private final String shape;
+        private final String sort;
+        private final LongAdder count = new LongAdder();
+        private final Date firstSeen = new Date();
+        private volatile Date lastSeen = firstSeen;
+        private volatile List<String> planStages;
+        private volatile List<String> indexNames;
+        private volatile Boolean collectionScan;
+        private volatile String explainError;
+
+        private ShapeEntry(String command, String shape, String sort) {
+            this.command = command;
+            this.shape = shape;
+            this.sort = sort;
+        }
+    }
+}
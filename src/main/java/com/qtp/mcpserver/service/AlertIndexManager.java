@@ -0,0 +1,168 @@
+package com.qtp.mcpserver.service;
+
+import com.qtp.mcpserver.entity.Alert;
+import lombok.extern.slf4j.Slf4j;
+import org.bson.Document;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Qualifier;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.core.task.TaskExecutor;
+import org.springframework.dao.DuplicateKeyException;
+import org.springframework.data.domain.Sort;
+import org.springframework.data.mongodb.core.MongoTemplate;
+import org.springframework.data.mongodb.core.index.Index;
+import org.springframework.data.mongodb.core.index.IndexDefinition;
+import org.springframework.data.mongodb.core.index.IndexInfo;
+import org.springframework.data.mongodb.core.index.IndexOperations;
+import org.springframework.data.mongodb.core.index.PartialIndexFilter;
+import org.springframework.data.mongodb.core.index.TextIndexDefinition;
+import org.springframework.data.mongodb.core.query.Criteria;
+import org.springframework.stereotype.Service;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * alert 集合的索引管理。
+ * 启动后在后台按控制器和MCP工具实际发出的查询形态创建复合索引：
+ * 等值过滤字段在前，endTime 排序字段和 _id（游标分页的决胜字段）在后。
+ * alert 是高频写入的集合，每个索引都会放大写入，只为选择性高或调用频繁的形态建索引，
+ * 其余条件沿 endTime 索引扫描过滤；未命中索引的形态可在 {@link AlertIndexAdvisor} 的报告中看到。
+ */
+@Service
+@Slf4j
+public class AlertIndexManager {
+
+    /**
+     * 已被替换的索引 → 替代它的索引，替代索引建好后删除：
+     * status 组合索引原先缺少 _id，游标分页的决胜条件无法走索引；指纹索引改为唯一索引，防止并发接入重复建档；
+     * status 单字段索引是组合索引的前缀；级别、类型和单位/系统匹配键取值少，由 endTime 索引或单位/系统索引代替
+     */
+    private static final Map<String, String> OBSOLETE_INDEXES = Map.of(
+            "idx_status_alarmLevel_alarmType_endTime", "idx_status_alarmLevel_alarmType_endTime_id",
+            "idx_fingerprint_firstSeen", "idx_fingerprint_firstSeen_unique",
+            "idx_status_endTime_id", "idx_status_alarmLevel_alarmType_endTime_id",
+            "idx_alarmLevel_endTime_id", "idx_endTime_id",
+            "idx_alarmType_endTime_id", "idx_endTime_id",
+            "idx_" + AlertMatchKeys.FIELD + "_company_endTime_id", "idx_company_endTime_id",
+            "idx_" + AlertMatchKeys.FIELD + "_systemName_endTime_id", "idx_systemName_endTime_id");
+
+    /** 建匹配键索引的字段：用例、模块、IP 取值多，前缀匹配走索引收益大 */
+    private static final List<String> INDEXED_MATCH_KEYS = List.of("caseExecId", "taskName", "host");
+
+    private final MongoTemplate mongoTemplate;
+
+    private final TaskExecutor taskExecutor;
+
+    private final boolean autoCreate;
+
+    @Autowired
+    public AlertIndexManager(MongoTemplate mongoTemplate,
+                             @Qualifier("applicationTaskExecutor") TaskExecutor taskExecutor,
+                             @Value("${alert.index.auto-create:true}") boolean autoCreate) {
+        this.mongoTemplate = mongoTemplate;
+        this.taskExecutor = taskExecutor;
+        this.autoCreate = autoCreate;
+    }
+
+    @EventListener(ApplicationReadyEvent.class)
+    public void onApplicationReady() {
+        if (autoCreate) {
+            taskExecutor.execute(() -> {
+                try {
+                    ensureIndexes();
+                } catch (Exception e) {
+                    log.warn("创建告警索引失败：{}", e.getMessage());
+                }
+            });
+        }
+    }
+
+    /**
+     * 需要的索引定义
+     */
+    public List<IndexDefinition> requiredIndexes() {
+        List<IndexDefinition> indexes = new ArrayList<>(queryIndexes());
+        // 接入去重：按指纹定位当前合并窗口的文档，同一指纹同一 firstSeen 只能有一条
+        indexes.add(new Index().on("fingerprint", Sort.Direction.ASC).on("firstSeen", Sort.Direction.DESC)
+                .unique().partial(PartialIndexFilter.of(Criteria.where("fingerprint").exists(true)))
+                .named("idx_fingerprint_firstSeen_unique"));
+        // 全文检索：searchText 为写入时预分词的结果，language=none 按空格切词
+        indexes.add(new TextIndexDefinition.TextIndexDefinitionBuilder()
+                .onField(AlertTextTokenizer.FIELD).withDefaultLanguage("none").named("idx_searchText").build());
+        return indexes;
+    }
+
+    /**
+     * 分页、统计等过滤查询使用的索引，归档集合上同样创建（见 {@link AlertArchiveService}）
+     */
+    public static List<IndexDefinition> queryIndexes() {
+        List<IndexDefinition> indexes = new ArrayList<>();
+        // 默认排序、时间范围查询、游标分页
+        indexes.add(new Index().on("endTime", Sort.Direction.DESC).on("_id", Sort.Direction.DESC)
+                .named("idx_endTime_id"));
+        // queryAlertList：status/alarmLevel/alarmType 组合过滤，只按 status 过滤时使用其前缀
+        indexes.add(new Index().on("status", Sort.Direction.ASC).on("alarmLevel", Sort.Direction.ASC)
+                .on("alarmType", Sort.Direction.ASC).on("endTime", Sort.Direction.DESC)
+                .on("_id", Sort.Direction.DESC).named("idx_status_alarmLevel_alarmType_endTime_id"));
+        // 统计、告警资源、按单位查询：单位/系统等值过滤 + endTime 范围或排序
+        for (String field : List.of("company", "systemName")) {
+            indexes.add(new Index().on(field, Sort.Direction.ASC).on("endTime", Sort.Direction.DESC)
+                    .on("_id", Sort.Direction.DESC).named("idx_" + field + "_endTime_id"));
+        }
+        // searchAlerts 文本条件：归一化匹配键上的精确/前缀匹配 + endTime 排序
+        for (String field : INDEXED_MATCH_KEYS) {
+            indexes.add(new Index().on(AlertMatchKeys.path(field), Sort.Direction.ASC).on("endTime", Sort.Direction.DESC)
+                    .on("_id", Sort.Direction.DESC).named("idx_" + AlertMatchKeys.FIELD + "_" + field + "_endTime_id"));
+        }
+        return indexes;
+    }
+
+    /**
+     * 删除替代索引已存在的旧索引
+     */
+    public static void dropObsoleteIndexes(IndexOperations indexOps) {
+        List<String> existing = indexOps.getIndexInfo().stream().map(IndexInfo::getName).toList();
+        OBSOLETE_INDEXES.forEach((name, replacement) -> {
+            if (existing.contains(name) && existing.contains(replacement)) {
+                indexOps.dropIndex(name);
+                log.info("已删除被 {} 替代的索引：{}", replacement, name);
+            }
+        });
+    }
+
+    /**
+     * 创建缺失的索引，已存在的同名索引由MongoDB直接忽略
+     *
+     * @return 确认存在的索引名
+     */
+    public List<String> ensureIndexes() {
+        IndexOperations indexOps = mongoTemplate.indexOps(Alert.class);
+        List<String> names = new ArrayList<>();
+        for (IndexDefinition index : requiredIndexes()) {
+            try {
+                names.add(indexOps.ensureIndex(index));
+            } catch (DuplicateKeyException e) {
+                // 已有重复指纹的文档时唯一索引无法创建，其余索引照常创建，旧索引保留
+                log.warn("创建告警索引 {} 失败：{}", index.getIndexOptions().get("name"), e.getMessage());
+            }
+        }
+        dropObsoleteIndexes(indexOps);
+        log.info("告警索引已就绪：{}", names);
+        return names;
+    }
+
+    public List<Document> listIndexes() {
+        List<Document> result = new ArrayList<>();
+        for (IndexInfo info : mongoTemplate.indexOps(Alert.class).getIndexInfo()) {
+            Document keys = new Document();
+            info.getIndexFields().forEach(field -> keys.append(field.getKey(),
+                    field.getDirection() == null ? "special" : field.getDirection() == Sort.Direction.ASC ? 1 : -1));
+            result.add(new Document("name", info.getName()).append("keys", keys));
+        }
+        return result;
+    }
+}
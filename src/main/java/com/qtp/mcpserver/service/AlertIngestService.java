@@ -0,0 +1,263 @@
+package com.qtp.mcpserver.service;
+
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.mongodb.bulk.BulkWriteError;
+import com.qtp.mcpserver.dto.IngestSummary;
+import com.qtp.mcpserver.entity.Alert;
+import com.qtp.mcpserver.event.AlertChangeEvent;
+import jakarta.annotation.PreDestroy;
+import lombok.extern.slf4j.Slf4j;
+import org.bson.types.ObjectId;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.ApplicationEventPublisher;
+import org.springframework.data.mongodb.BulkOperationException;
+import org.springframework.data.mongodb.core.BulkOperations;
+import org.springframework.data.mongodb.core.MongoTemplate;
+import org.springframework.stereotype.Service;
+
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InputStreamReader;
+import java.io.InterruptedIOException;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Date;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.Semaphore;
+
+/**
+ * 告警批量接入。
+ * 逐行解析 NDJSON 请求体并校验，攒满 batch-size 条后以无序 insertMany 写入。
+ * 所有请求共享 max-in-flight-batches 个写入许可：许可用尽时读取线程阻塞，不再从请求体读取数据，
+ * 由TCP流控把压力传回生产端，内存中最多同时存在 (许可数 + 并发请求数) 个批次。
+ * 开启去重时批次交给 {@link AlertCoalescingService} 按指纹合并写入。
+ */
+@Service
+@Slf4j
+public class AlertIngestService {
+
+    private static final Set<String> LEVELS = Set.of("info", "warning", "critical");
+
+    private static final int MAX_ERRORS_PER_BATCH = 20;
+
+    private final MongoTemplate mongoTemplate;
+
+    private final ObjectMapper objectMapper;
+
+    private final ApplicationEventPublisher eventPublisher;
+
+    private final AlertCoalescingService coalescingService;
+
+    private final int batchSize;
+
+    private final Semaphore inFlight;
+
+    private final ExecutorService writer;
+
+    @Autowired
+    public AlertIngestService(MongoTemplate mongoTemplate,
+                              ObjectMapper objectMapper,
+                              ApplicationEventPublisher eventPublisher,
+                              AlertCoalescingService coalescingService,
+                              @Value("${alert.ingest.batch-size:1000}") int batchSize,
+                              @Value("${alert.ingest.max-in-flight-batches:4}") int maxInFlightBatches,
+                              @Value("${spring.threads.virtual.enabled:false}") boolean virtualThreads) {
+        this.mongoTemplate = mongoTemplate;
+        this.objectMapper = objectMapper;
+        this.eventPublisher = eventPublisher;
+        this.coalescingService = coalescingService;
+        this.batchSize = batchSize;
+        this.inFlight = new Semaphore(maxInFlightBatches);
+        // 并发写入数已由 inFlight 限制，虚拟线程模式下无需固定大小的平台线程池
+        this.writer = virtualThreads
+                ? Executors.newThreadPerTaskExecutor(Thread.ofVirtual().name("alert-ingest-", 1).factory())
+                : Executors.newFixedThreadPool(maxInFlightBatches, Thread.ofPlatform().name("alert-ingest-", 1).daemon().factory());
+    }
+
+    @PreDestroy
+    public void shutdown() {
+        writer.shutdown();
+    }
+
+    /**
+     * 接入一个 NDJSON 流，每行一个告警
+     */
+    public IngestSummary ingest(InputStream in) throws IOException {
+        long start = System.nanoTime();
+        IngestSummary summary = new IngestSummary();
+        List<Future<IngestSummary.BatchSummary>> futures = new ArrayList<>();
+
+        BufferedReader reader = new BufferedReader(new InputStreamReader(in, StandardCharsets.UTF_8));
+        List<Alert> buffer = new ArrayList<>(batchSize);
+        IngestSummary.BatchSummary current = newBatch(0);
+        String line;
+        long lineNo = 0;
+        while ((line = reader.readLine()) != null) {
+            lineNo++;
+            if (line.isBlank()) {
+                continue;
+            }
+            summary.setTotalLines(summary.getTotalLines() + 1);
+            try {
+                Alert alert = objectMapper.readValue(line, Alert.class);
+                String error = validate(alert);
+                if (error == null) {
+                    buffer.add(alert);
+                } else {
+                    reject(current, "第" + lineNo + "行：" + error);
+                }
+            } catch (JsonProcessingException e) {
+                reject(current, "第" + lineNo + "行：JSON格式错误 " + e.getOriginalMessage());
+            }
+            if (buffer.size() == batchSize) {
+                futures.add(submit(buffer, current));
+                buffer = new ArrayList<>(batchSize);
+                current = newBatch(current.getBatch() + 1);
+            }
+        }
+        if (!buffer.isEmpty() || current.getRejected() > 0) {
+            futures.add(submit(buffer, current));
+        }
+
+        for (Future<IngestSummary.BatchSummary> future : futures) {
+            try {
+                IngestSummary.BatchSummary batch = future.get();
+                summary.getBatches().add(batch);
+                summary.setAccepted(summary.getAccepted() + batch.getAccepted());
+                summary.setRejected(summary.getRejected() + batch.getRejected());
+                summary.setCoalesced(summary.getCoalesced() + batch.getCoalesced());
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                throw new InterruptedIOException("等待批量写入被中断");
+            } catch (ExecutionException e) {
+                throw new IOException("批量写入失败", e.getCause());
+            }
+        }
+        long elapsedNanos = System.nanoTime() - start;
+        summary.setElapsedMs(elapsedNanos / 1_000_000);
+        summary.setRatePerSecond(elapsedNanos == 0 ? 0 : summary.getAccepted() * 1_000_000_000.0 / elapsedNanos);
+        return summary;
+    }
+
+    private IngestSummary.BatchSummary newBatch(int index) {
+        IngestSummary.BatchSummary batch = new IngestSummary.BatchSummary();
+        batch.setBatch(index);
+        return batch;
+    }
+
+    /**
+     * 校验并补齐默认值，返回错误信息，通过时返回 null
+     */
+    private String validate(Alert alert) {
+        if (alert.getCaseExecId() == null || alert.getCaseExecId().isBlank()) {
+            return "caseExecId不能为空";
+        }
+        if (alert.getAlarmLevel() == null || !LEVELS.contains(alert.getAlarmLevel().toLowerCase())) {
+            return "alarmLevel必须为 info/warning/critical";
+        }
+        if (alert.getAlarmType() == null || alert.getAlarmType().isBlank()) {
+            return "alarmType不能为空";
+        }
+        if (alert.getEndTime() == null) {
+            alert.setEndTime(new Date());
+        }
+        if (alert.getStatus() == null) {
+            alert.setStatus(0);
+        }
+        if (alert.getIsRecover() == null) {
+            alert.setIsRecover(false);
+        }
+        if (alert.getId() == null) {
+            alert.setId(new ObjectId().toHexString());
+        }
+        return null;
+    }
+
+    private void reject(IngestSummary.BatchSummary batch, String error) {
+        batch.setRejected(batch.getRejected() + 1);
+        if (batch.getErrors().size() < MAX_ERRORS_PER_BATCH) {
+            batch.getErrors().add(error);
+        }
+    }
+
+    private Future<IngestSummary.BatchSummary> submit(List<Alert> alerts, IngestSummary.BatchSummary batch) throws IOException {
+        if (alerts.isEmpty()) {
+            return CompletableFuture.completedFuture(batch);
+        }
+        try {
+            inFlight.acquire();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new InterruptedIOException("等待写入许可被中断");
+        }
+        try {
+            return writer.submit(() -> {
+                try {
+                    return write(alerts, batch);
+                } finally {
+                    inFlight.release();
+                }
+            });
+        } catch (RuntimeException e) {
+            inFlight.release();
+            throw e;
+        }
+    }
+
+    private IngestSummary.BatchSummary write(List<Alert> alerts, IngestSummary.BatchSummary batch) {
+        if (coalescingService.isEnabled()) {
+            return coalesce(alerts, batch);
+        }
+        Set<Integer> failed = new HashSet<>();
+        try {
+            batch.setAccepted(mongoTemplate.bulkOps(BulkOperations.BulkMode.UNORDERED, Alert.class)
+                    .insert(alerts).execute().getInsertedCount());
+        } catch (BulkOperationException e) {
+            batch.setAccepted(e.getResult().getInsertedCount());
+            for (BulkWriteError error : e.getErrors()) {
+                failed.add(error.getIndex());
+                reject(batch, alerts.get(error.getIndex()).getCaseExecId() + "：" + error.getMessage());
+            }
+        } catch (Exception e) {
+            log.error("告警批次{}写入失败", batch.getBatch(), e);
+            for (int i = 0; i < alerts.size(); i++) {
+                reject(batch, "批次写入失败：" + e.getMessage());
+            }
+            return batch;
+        }
+        for (int i = 0; i < alerts.size(); i++) {
+            if (!failed.contains(i)) {
+                eventPublisher.publishEvent(AlertChangeEvent.created(alerts.get(i)));
+            }
+        }
+        return batch;
+    }
+
+    /**
+     * 去重合并写入：中途失败时已写入的分组照常计入接受条数（其变更事件已由合并服务发布），只把其余告警记为拒绝
+     */
+    private IngestSummary.BatchSummary coalesce(List<Alert> alerts, IngestSummary.BatchSummary batch) {
+        AlertCoalescingService.Progress progress = new AlertCoalescingService.Progress();
+        try {
+            coalescingService.coalesce(alerts, progress);
+        } catch (Exception e) {
+            log.error("告警批次{}合并写入失败，已写入{}条", batch.getBatch(), progress.getWritten(), e);
+            for (int i = progress.getWritten(); i < alerts.size(); i++) {
+                reject(batch, "批次写入失败：" + e.getMessage());
+            }
+        }
+        batch.setAccepted(progress.getWritten());
+        batch.setCoalesced(progress.getCoalesced());
+        return batch;
+    }
+}
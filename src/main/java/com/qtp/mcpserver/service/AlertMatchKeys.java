@@ -0,0 +1,79 @@
+package com.qtp.mcpserver.service;
+
+import com.qtp.mcpserver.dto.AlertMatchMode;
+import com.qtp.mcpserver.entity.Alert;
+import org.bson.Document;
+
+import java.text.Normalizer;
+import java.util.List;
+import java.util.Locale;
+
+/**
+ * 文本条件的匹配键。
+ * 不区分大小写的正则无法使用索引，因此写入时把参与匹配的字段归一化（NFKC 兼容分解，全角转半角，去首尾空白并转小写）
+ * 后存入 {@link #FIELD} 子文档，查询时对关键字做同样处理，精确匹配和前缀匹配都落在该子文档的索引上。
+ */
+public final class AlertMatchKeys {
+
+    /** 匹配键在alert文档中的字段名 */
+    public static final String FIELD = "matchKeys";
+
+    /** 参与匹配的告警字段 */
+    public static final List<String> SOURCE_FIELDS = List.of("caseExecId", "company", "systemName", "taskName", "host");
+
+    private AlertMatchKeys() {
+    }
+
+    public static String normalize(String value) {
+        if (value == null) {
+            return null;
+        }
+        return Normalizer.normalize(value, Normalizer.Form.NFKC).trim().toLowerCase(Locale.ROOT);
+    }
+
+    /**
+     * 生成告警的匹配键子文档，空字段不写入
+     */
+    public static Document document(Alert alert) {
+        Document keys = new Document();
+        put(keys, "caseExecId", alert.getCaseExecId());
+        put(keys, "company", alert.getCompany());
+        put(keys, "systemName", alert.getSystemName());
+        put(keys, "taskName", alert.getTaskName());
+        put(keys, "host", alert.getHost());
+        return keys;
+    }
+
+    /**
+     * 字段在alert文档中的匹配键路径，如 matchKeys.company
+     */
+    public static String path(String field) {
+        return FIELD + "." + field;
+    }
+
+    /**
+     * 已归一化的取值是否满足条件，keyword 为 null 时视为满足
+     *
+     * @param key     归一化后的字段值
+     * @param keyword 归一化后的关键字
+     */
+    public static boolean matches(String key, String keyword, AlertMatchMode mode) {
+        if (keyword == null) {
+            return true;
+        }
+        if (key == null) {
+            return false;
+        }
+        return switch (mode) {
+            case EXACT -> key.equals(keyword);
+            case PREFIX -> key.startsWith(keyword);
+            case CONTAINS -> key.contains(keyword);
+        };
+    }
+
+    private static void put(Document keys, String field, String value) {
+        if (value != null) {
+            keys.put(field, normalize(value));
+        }
+    }
+}
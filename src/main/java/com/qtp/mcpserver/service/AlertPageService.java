@@ -0,0 +1,322 @@
+package com.qtp.mcpserver.service;
+
+import com.qtp.mcpserver.dto.AlertCountMode;
+import com.qtp.mcpserver.dto.AlertPageRequest;
+import com.qtp.mcpserver.dto.AlertPageResult;
+import com.qtp.mcpserver.entity.Alert;
+import org.bson.Document;
+import org.springframework.beans.BeanWrapperImpl;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.data.domain.Sort;
+import org.springframework.data.mongodb.core.MongoTemplate;
+import org.springframework.data.mongodb.core.aggregation.Aggregation;
+import org.springframework.data.mongodb.core.aggregation.AggregationOperation;
+import org.springframework.data.mongodb.core.aggregation.TypedAggregation;
+import org.springframework.data.mongodb.core.convert.MongoConverter;
+import org.springframework.data.mongodb.core.query.BasicQuery;
+import org.springframework.data.mongodb.core.query.Criteria;
+import org.springframework.data.mongodb.core.query.Query;
+import org.springframework.stereotype.Service;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * 告警分页查询，支持两种翻页模式：
+ * <ul>
+ *     <li>游标分页：以排序字段 + _id 作为 search-after 条件，每一页的代价相同，适合深翻页；</li>
+ *     <li>偏移分页：skip/limit，保留给现有页面按页码跳转使用。</li>
+ * </ul>
+ * 两种模式下只要还有下一页，结果中都会带上 nextCursor。当前页以 find（排序 + limit）执行，
+ * 排序和游标条件能走 {@link AlertIndexManager} 的复合索引；FACET 时当前页和总数由一次聚合返回。
+ * 总数的统计方式见 {@link AlertCountMode}。
+ */
+@Service
+public class AlertPageService {
+
+    private final MongoTemplate mongoTemplate;
+
+    private final AlertCountMode defaultCountMode;
+
+    private final int countCap;
+
+    private final AlertIndexAdvisor indexAdvisor;
+
+    private final AlertArchiveService archiveService;
+
+    @Autowired
+    public AlertPageService(MongoTemplate mongoTemplate,
+                            AlertIndexAdvisor indexAdvisor,
+                            AlertArchiveService archiveService,
+                            @Value("${alert.paging.count-mode:EXACT}") String defaultCountMode,
+                            @Value("${alert.paging.count-cap:10000}") int countCap) {
+        this.mongoTemplate = mongoTemplate;
+        this.indexAdvisor = indexAdvisor;
+        this.archiveService = archiveService;
+        this.defaultCountMode = AlertCountMode.parse(defaultCountMode, AlertCountMode.EXACT);
+        this.countCap = countCap;
+    }
+
+    /**
+     * 分页查询
+     *
+     * @param filter  只包含过滤条件的查询，排序和分页由本方法追加
+     * @param request 分页参数
+     */
+    public AlertPageResult page(Query filter, AlertPageRequest request) {
+        return page(filter, request, false);
+    }
+
+    /**
+     * 分页查询：当前页按索引执行 find（排序 + limit），总数用单独的 count 统计；
+     * includeArchive 为 true 时当前页改用聚合合并归档集合，两个集合各自按索引取前 skip+pageSize+1 条后再归并
+     */
+    public AlertPageResult page(Query filter, AlertPageRequest request, boolean includeArchive) {
+        PagePlan plan = plan(filter, request, includeArchive);
+        if (plan.mode == AlertCountMode.FACET) {
+            Document result = mongoTemplate.aggregate(plan.facetAggregation(), Document.class).getUniqueMappedResult();
+            return plan.facetResult(result, mongoTemplate.getConverter());
+        }
+        List<Alert> alerts = includeArchive
+                ? mongoTemplate.aggregate(plan.pageAggregation(), Alert.class).getMappedResults()
+                : mongoTemplate.find(plan.pageQuery(), Alert.class);
+        long total;
+        if (plan.mode == AlertCountMode.ESTIMATED) {
+            total = mongoTemplate.estimatedCount(Alert.class);
+        } else {
+            total = mongoTemplate.count(plan.countQuery(), Alert.class);
+            if (includeArchive) {
+                total += mongoTemplate.count(plan.countQuery(), Alert.class, archiveService.getCollection());
+            }
+        }
+        return plan.result(alerts, total);
+    }
+
+    /**
+     * 校验分页参数并生成查询计划，同步和响应式实现共用
+     */
+    PagePlan plan(Query filter, AlertPageRequest request, boolean includeArchive) {
+        String sortField = request.getSortField();
+        boolean ascending = "asc".equalsIgnoreCase(request.getSortOrder());
+        if (!"id".equals(sortField) && !new BeanWrapperImpl(Alert.class).isReadableProperty(sortField)) {
+            throw new IllegalArgumentException("不支持的排序字段：" + sortField);
+        }
+
+        Document filterObject = filter.getQueryObject();
+        Document pageObject = filterObject;
+        Document keysetObject = null;
+        long skip = 0;
+        if (request.isCursorMode()) {
+            AlertCursor cursor = AlertCursor.decode(request.getCursor());
+            if (!sortField.equals(cursor.getSortField()) || ascending != cursor.isAscending()) {
+                throw new IllegalArgumentException("分页游标与当前排序条件不匹配");
+            }
+            keysetObject = keyset(cursor).getCriteriaObject();
+            pageObject = filterObject.isEmpty() ? keysetObject : new Document("$and", List.of(filterObject, keysetObject));
+        } else {
+            skip = (long) (request.getPageNum() - 1) * request.getPageSize();
+        }
+        Sort.Direction direction = ascending ? Sort.Direction.ASC : Sort.Direction.DESC;
+        Sort sort = "id".equals(sortField) ? Sort.by(direction, "id") : Sort.by(direction, sortField, "id");
+        Document sortObject = new Document();
+        sort.forEach(order -> sortObject.append("id".equals(order.getProperty()) ? "_id" : order.getProperty(), order.isAscending() ? 1 : -1));
+
+        AlertCountMode mode = request.getCountMode() != null ? request.getCountMode() : defaultCountMode;
+        if (mode == AlertCountMode.FACET && includeArchive) {
+            // 合并归档时 $unionWith 之后的排序无法使用索引，改为分别 count
+            mode = AlertCountMode.EXACT;
+        }
+        if (mode == AlertCountMode.ESTIMATED && (!filterObject.isEmpty() || includeArchive)) {
+            mode = AlertCountMode.CAPPED;
+        }
+        PagePlan plan = new PagePlan(request, ascending, mode, filterObject, pageObject, keysetObject, sort, sortObject, skip,
+                includeArchive);
+        // 记录实际执行的当前页查询，索引顾问 explain 的计划与执行的一致
+        if (mode == AlertCountMode.FACET) {
+            indexAdvisor.record(filterObject, sortObject, plan.facetAggregation());
+        } else if (includeArchive) {
+            indexAdvisor.record(pageObject, sortObject, plan.pageAggregation());
+        } else {
+            indexAdvisor.record(plan.pageQuery());
+        }
+        return plan;
+    }
+
+    /**
+     * 一次分页查询的执行计划：过滤条件、游标条件、排序、偏移和统计方式都已确定，
+     * 调用方只负责执行查询，再用 {@link #result} 组装结果。
+     */
+    final class PagePlan {
+
+        private final AlertPageRequest request;
+        private final boolean ascending;
+        private final AlertCountMode mode;
+        private final Document filterObject;
+        private final Document pageObject;
+        // 游标分页的 search-after 条件，偏移分页时为 null
+        private final Document keysetObject;
+        private final Sort sort;
+        private final Document sortObject;
+        private final long skip;
+        private final boolean includeArchive;
+        // 多取一条用于判断是否还有下一页
+        private final int fetchSize;
+
+        private PagePlan(AlertPageRequest request, boolean ascending, AlertCountMode mode, Document filterObject, Document pageObject,
+                         Document keysetObject, Sort sort, Document sortObject, long skip, boolean includeArchive) {
+            this.request = request;
+            this.ascending = ascending;
+            this.mode = mode;
+            this.filterObject = filterObject;
+            this.pageObject = pageObject;
+            this.keysetObject = keysetObject;
+            this.sort = sort;
+            this.sortObject = sortObject;
+            this.skip = skip;
+            this.includeArchive = includeArchive;
+            this.fetchSize = request.getPageSize() + 1;
+        }
+
+        AlertCountMode mode() {
+            return mode;
+        }
+
+        Query pageQuery() {
+            Query query = new BasicQuery(pageObject).with(sort).skip(skip).limit(fetchSize);
+            return AlertPayloadService.excludePayload(query);
+        }
+
+        boolean includeArchive() {
+            return includeArchive;
+        }
+
+        /**
+         * 统计总数的查询，CAPPED 时最多数到上限+1
+         */
+        Query countQuery() {
+            Query query = new BasicQuery(filterObject);
+            return mode == AlertCountMode.CAPPED ? query.limit(countCap + 1) : query;
+        }
+
+        /**
+         * 合并归档时的当前页：
+         * $match(过滤、游标条件) → $sort → $limit(skip+pageSize+1) → $unionWith 归档（同样的条件、排序和 limit）
+         * → $sort → $skip → $limit → $project(排除报文)。归并前的阶段在两个集合上都能使用索引
+         */
+        TypedAggregation<Alert> pageAggregation() {
+            long headSize = skip + fetchSize;
+            List<AggregationOperation> operations = new ArrayList<>();
+            if (!pageObject.isEmpty()) {
+                operations.add(match(pageObject));
+            }
+            operations.add(context -> new Document("$sort", sortObject));
+            operations.add(Aggregation.limit(headSize));
+            operations.add(context -> archiveService.unionStage(context.getMappedObject(pageObject, Alert.class),
+                    sortObject, headSize));
+            operations.add(context -> new Document("$sort", sortObject));
+            if (skip > 0) {
+                operations.add(Aggregation.skip(skip));
+            }
+            operations.add(Aggregation.limit(fetchSize));
+            operations.add(context -> AlertPayloadService.excludePayloadStage());
+            return Aggregation.newAggregation(Alert.class, operations);
+        }
+
+        /**
+         * FACET 时当前页和总数一次返回：$match(过滤) → $sort → $project(排除报文) → $facet，
+         * 其中 data 分支为 $match(游标条件) → $skip → $limit，total 分支为 $count。
+         * $match 和 $sort 位于管道开头，按索引顺序读取匹配的文档，不需要内存排序
+         */
+        TypedAggregation<Alert> facetAggregation() {
+            List<AggregationOperation> operations = new ArrayList<>();
+            if (!filterObject.isEmpty()) {
+                operations.add(match(filterObject));
+            }
+            operations.add(context -> new Document("$sort", sortObject));
+            operations.add(context -> AlertPayloadService.excludePayloadStage());
+            operations.add(context -> {
+                List<Document> data = new ArrayList<>();
+                if (keysetObject != null) {
+                    data.add(new Document("$match", context.getMappedObject(keysetObject, Alert.class)));
+                }
+                if (skip > 0) {
+                    data.add(new Document("$skip", skip));
+                }
+                data.add(new Document("$limit", fetchSize));
+                return new Document("$facet", new Document("data", data)
+                        .append("total", List.of(new Document("$count", "count"))));
+            });
+            return Aggregation.newAggregation(Alert.class, operations);
+        }
+
+        /**
+         * 由 {@link #facetAggregation} 返回的文档组装结果
+         */
+        AlertPageResult facetResult(Document facet, MongoConverter converter) {
+            List<Alert> alerts = new ArrayList<>();
+            for (Document document : facet.getList("data", Document.class)) {
+                alerts.add(converter.read(Alert.class, document));
+            }
+            List<Document> totals = facet.getList("total", Document.class);
+            return result(alerts, totals.isEmpty() ? 0 : totals.get(0).get("count", Number.class).longValue());
+        }
+
+        AlertPageResult result(List<Alert> alerts, long total) {
+            boolean totalCapped = false;
+            if (mode == AlertCountMode.CAPPED && total > countCap) {
+                total = countCap;
+                totalCapped = true;
+            }
+            String nextCursor = null;
+            if (alerts.size() > request.getPageSize()) {
+                alerts = alerts.subList(0, request.getPageSize());
+                Alert last = alerts.get(alerts.size() - 1);
+                String sortField = request.getSortField();
+                Object lastValue = "id".equals(sortField) ? last.getId() : new BeanWrapperImpl(last).getPropertyValue(sortField);
+                nextCursor = new AlertCursor(sortField, ascending, lastValue, last.getId()).encode();
+            }
+
+            AlertPageResult result = new AlertPageResult(alerts, total, request.getPageNum(), request.getPageSize());
+            result.setNextCursor(nextCursor);
+            result.setCountMode(mode);
+            result.setTotalCapped(totalCapped);
+            return result;
+        }
+    }
+
+    /**
+     * 使用实体映射后的 $match，保证 id → _id 及 ObjectId 转换与普通查询一致
+     */
+    private AggregationOperation match(Document queryObject) {
+        return context -> new Document("$match", context.getMappedObject(queryObject, Alert.class));
+    }
+
+    /**
+     * 根据游标生成 search-after 条件。
+     * MongoDB 排序时 null/缺失值最小：降序时排在最后，升序时排在最前。
+     */
+    private Criteria keyset(AlertCursor cursor) {
+        String field = cursor.getSortField();
+        Object value = cursor.getLastValue();
+        String id = cursor.getLastId();
+        if ("id".equals(field)) {
+            return cursor.isAscending() ? Criteria.where("id").gt(id) : Criteria.where("id").lt(id);
+        }
+        if (cursor.isAscending()) {
+            return value == null
+                    ? new Criteria().orOperator(
+                            new Criteria().andOperator(Criteria.where(field).is(null), Criteria.where("id").gt(id)),
+                            Criteria.where(field).ne(null))
+                    : new Criteria().orOperator(
+                            Criteria.where(field).gt(value),
+                            new Criteria().andOperator(Criteria.where(field).is(value), Criteria.where("id").gt(id)));
+        }
+        return value == null
+                ? new Criteria().andOperator(Criteria.where(field).is(null), Criteria.where("id").lt(id))
+                : new Criteria().orOperator(
+                        Criteria.where(field).lt(value),
+                        new Criteria().andOperator(Criteria.where(field).is(value), Criteria.where("id").lt(id)),
+                        Criteria.where(field).is(null));
+    }
+}
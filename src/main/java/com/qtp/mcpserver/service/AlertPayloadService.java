@@ -0,0 +1,257 @@
+package com.qtp.mcpserver.service;
+
+import com.mongodb.client.model.ReplaceOptions;
+import com.mongodb.client.result.UpdateResult;
+import com.qtp.mcpserver.entity.Alert;
+import lombok.extern.slf4j.Slf4j;
+import org.bson.Document;
+import org.bson.types.Binary;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.data.domain.Sort;
+import org.springframework.data.mongodb.core.BulkOperations;
+import org.springframework.data.mongodb.core.MongoTemplate;
+import org.springframework.data.mongodb.core.query.Criteria;
+import org.springframework.data.mongodb.core.query.Query;
+import org.springframework.data.mongodb.core.query.Update;
+import org.springframework.stereotype.Service;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.List;
+import java.util.zip.GZIPInputStream;
+import java.util.zip.GZIPOutputStream;
+
+/**
+ * 告警探测报文（response 接口探测报文、actualValue UI探测报文）的存取。
+ * <p>
+ * 这两个字段可能有几十KB，列表、检索、时间范围等查询都不展示，一律通过投影排除（{@link #excludePayload}），
+ * 只有详情路径（queryAlert、GET /api/alerts/{id}）通过 {@link #attach} 取回。
+ * <p>
+ * 存储方式由 alert.payload.storage 决定：
+ * <ul>
+ *     <li>inline（默认）：报文仍保存在告警文档中，只靠投影避免列表查询读取和序列化</li>
+ *     <li>split：报文保存在独立的 alert_payload 集合（_id 与告警相同），超过阈值的报文 gzip 压缩，
+ *     告警文档不再包含报文，工作集只剩列表需要的字段</li>
+ * </ul>
+ * 切换存储方式并重启后，用 {@link #migrate} 把已有文档迁移到当前存储方式。
+ */
+@Service
+@Slf4j
+public class AlertPayloadService {
+
+    public static final String COLLECTION = "alert_payload";
+
+    /** 报文字段，列表类查询默认排除 */
+    public static final List<String> PAYLOAD_FIELDS = List.of("response", "actualValue");
+
+    public static final String STORAGE_SPLIT = "split";
+
+    private static final int MIGRATE_BATCH_SIZE = 500;
+
+    private final MongoTemplate mongoTemplate;
+
+    private final boolean split;
+
+    private final int compressThreshold;
+
+    @Autowired
+    public AlertPayloadService(MongoTemplate mongoTemplate,
+                               @Value("${alert.payload.storage:inline}") String storage,
+                               @Value("${alert.payload.compress-threshold:512}") int compressThreshold) {
+        this.mongoTemplate = mongoTemplate;
+        this.split = STORAGE_SPLIT.equalsIgnoreCase(storage.trim());
+        this.compressThreshold = compressThreshold;
+    }
+
+    public boolean isSplit() {
+        return split;
+    }
+
+    /**
+     * 列表类查询排除报文字段
+     */
+    public static Query excludePayload(Query query) {
+        PAYLOAD_FIELDS.forEach(field -> query.fields().exclude(field));
+        return query;
+    }
+
+    /**
+     * 聚合管道中排除报文字段的 $project 阶段
+     */
+    public static Document excludePayloadStage() {
+        Document projection = new Document();
+        PAYLOAD_FIELDS.forEach(field -> projection.append(field, 0));
+        return new Document("$project", projection);
+    }
+
+    /**
+     * 详情路径补齐报文：split 模式下告警文档中没有报文时从 alert_payload 读取；
+     * 尚未迁移的文档报文仍在告警文档里，直接返回
+     */
+    public Alert attach(Alert alert) {
+        if (!needsAttach(alert)) {
+            return alert;
+        }
+        return apply(alert, mongoTemplate.getCollection(COLLECTION).find(new Document("_id", alert.getId())).first());
+    }
+
+    boolean needsAttach(Alert alert) {
+        return split && alert != null && alert.getId() != null
+                && alert.getResponse() == null && alert.getActualValue() == null;
+    }
+
+    /**
+     * 把读到的报文文档解压后填回告警，供同步和响应式两条读取路径共用
+     */
+    Alert apply(Alert alert, Document payload) {
+        if (payload != null) {
+            alert.setResponse(decode(payload.get("response")));
+            alert.setActualValue(decode(payload.get("actualValue")));
+        }
+        return alert;
+    }
+
+    /**
+     * 保存告警的报文，两个字段都为空时删除报文文档
+     */
+    public void store(String id, String response, String actualValue) {
+        if (id == null) {
+            return;
+        }
+        if (response == null && actualValue == null) {
+            mongoTemplate.getCollection(COLLECTION).deleteOne(new Document("_id", id));
+            return;
+        }
+        Document payload = new Document("_id", id)
+                .append("response", encode(response))
+                .append("actualValue", encode(actualValue));
+        mongoTemplate.getCollection(COLLECTION).replaceOne(new Document("_id", id), payload,
+                new ReplaceOptions().upsert(true));
+    }
+
+    public void delete(Collection<?> ids) {
+        if (!ids.isEmpty()) {
+            mongoTemplate.getCollection(COLLECTION).deleteMany(new Document("_id", new Document("$in", ids)));
+        }
+    }
+
+    /**
+     * 把已有文档迁移到当前配置的存储方式：
+     * split 时把告警文档中的报文移到 alert_payload，inline 时把 alert_payload 中的报文写回告警文档
+     *
+     * @return 迁移的文档数
+     */
+    public long migrate() {
+        return split ? migrateToSplit() : migrateToInline();
+    }
+
+    /**
+     * 分批读出仍带报文的告警，先写 alert_payload，再以“报文未变”为条件移除告警文档中的报文；
+     * 期间被其他请求改过的文档条件不满足，保持原样，下次迁移再处理
+     */
+    private long migrateToSplit() {
+        long migrated = 0;
+        String lastId = null;
+        while (true) {
+            Criteria criteria = new Criteria().orOperator(
+                    Criteria.where("response").ne(null), Criteria.where("actualValue").ne(null));
+            if (lastId != null) {
+                criteria = new Criteria().andOperator(Criteria.where("id").gt(lastId), criteria);
+            }
+            Query query = new Query(criteria).with(Sort.by("id")).limit(MIGRATE_BATCH_SIZE);
+            query.fields().include("id", "response", "actualValue");
+            List<Alert> batch = mongoTemplate.find(query, Alert.class);
+            if (batch.isEmpty()) {
+                break;
+            }
+            BulkOperations bulkOps = mongoTemplate.bulkOps(BulkOperations.BulkMode.UNORDERED, Alert.class);
+            for (Alert alert : batch) {
+                store(alert.getId(), alert.getResponse(), alert.getActualValue());
+                Query unchanged = Query.query(Criteria.where("id").is(alert.getId())
+                        .and("response").is(alert.getResponse())
+                        .and("actualValue").is(alert.getActualValue()));
+                bulkOps.updateOne(unchanged, new Update().unset("response").unset("actualValue"));
+            }
+            migrated += bulkOps.execute().getModifiedCount();
+            lastId = batch.get(batch.size() - 1).getId();
+            log.info("报文拆分迁移进度：已迁移 {} 条", migrated);
+        }
+        return migrated;
+    }
+
+    /**
+     * 分批把 alert_payload 中的报文写回告警文档（只写回告警文档中仍为空的字段），只删除确实写回的报文文档；
+     * 告警文档已不存在或报文字段已有值的报文文档保留，按 _id 翻页跳过，留待人工核对
+     */
+    private long migrateToInline() {
+        long migrated = 0;
+        long skipped = 0;
+        Object lastId = null;
+        while (true) {
+            Document filter = lastId == null ? new Document() : new Document("_id", new Document("$gt", lastId));
+            List<Document> batch = mongoTemplate.getCollection(COLLECTION).find(filter)
+                    .sort(new Document("_id", 1)).limit(MIGRATE_BATCH_SIZE).into(new ArrayList<>());
+            if (batch.isEmpty()) {
+                break;
+            }
+            // 批量写入的结果只有匹配总数，逐条更新才能知道哪些文档匹配了条件
+            List<Object> matched = new ArrayList<>();
+            for (Document payload : batch) {
+                Object id = payload.get("_id");
+                Query empty = Query.query(Criteria.where("id").is(id)
+                        .and("response").is(null).and("actualValue").is(null));
+                UpdateResult result = mongoTemplate.updateFirst(empty, new Update()
+                        .set("response", decode(payload.get("response")))
+                        .set("actualValue", decode(payload.get("actualValue"))), Alert.class);
+                if (result.getMatchedCount() > 0) {
+                    matched.add(id);
+                }
+            }
+            if (!matched.isEmpty()) {
+                mongoTemplate.getCollection(COLLECTION).deleteMany(new Document("_id", new Document("$in", matched)));
+            }
+            migrated += matched.size();
+            skipped += batch.size() - matched.size();
+            lastId = batch.get(batch.size() - 1).get("_id");
+            log.info("报文合并迁移进度：已迁移 {} 条，未写回保留 {} 条", migrated, skipped);
+        }
+        return migrated;
+    }
+
+    /**
+     * 短报文原样保存，超过阈值的 gzip 压缩后以二进制保存
+     */
+    private Object encode(String value) {
+        if (value == null) {
+            return null;
+        }
+        byte[] raw = value.getBytes(StandardCharsets.UTF_8);
+        if (raw.length < compressThreshold) {
+            return value;
+        }
+        ByteArrayOutputStream out = new ByteArrayOutputStream(raw.length / 4 + 64);
+        try (GZIPOutputStream gzip = new GZIPOutputStream(out)) {
+            gzip.write(raw);
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+        return new Binary(out.toByteArray());
+    }
+
+    private String decode(Object value) {
+        if (value instanceof Binary binary) {
+            try (GZIPInputStream gzip = new GZIPInputStream(new ByteArrayInputStream(binary.getData()))) {
+                return new String(gzip.readAllBytes(), StandardCharsets.UTF_8);
+            } catch (IOException e) {
+                throw new UncheckedIOException(e);
+            }
+        }
+        return (String) value;
+    }
+}
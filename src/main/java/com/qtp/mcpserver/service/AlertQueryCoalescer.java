@@ -0,0 +1,274 @@
+package com.qtp.mcpserver.service;
+
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import com.qtp.mcpserver.event.AlertChangeEvent;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.event.EventListener;
+import org.springframework.stereotype.Service;
+import reactor.core.publisher.Mono;
+
+import java.time.Duration;
+import java.util.Date;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.concurrent.CancellationException;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.Supplier;
+
+/**
+ * 只读查询的合并（single-flight）：同一时刻键相同的查询只执行一次，其余调用等待并共享同一个结果。
+ * 告警高发时大量代理和页面会在同一秒内发出完全相同的统计、列表查询，合并后数据库只承担一次。
+ * <p>
+ * 键由调用方用归一化后的查询条件（MongoDB 查询文档、分页参数）构造，大小写不同的关键字等会得到同一个键。
+ * 可选的短时结果缓存（ttl）让刚结束的查询结果在几百毫秒内继续被复用。
+ * <p>
+ * 默认（maxStaleness 为 0）只复用本实例最近一次告警写入之后开始的查询，写后读不会读到写入前的结果。
+ * 告警风暴时可以配置 maxStaleness：开始于写入之前的查询（或缓存结果）在开始后 maxStaleness 内仍可被加入和复用，
+ * 写入密集时合并照常生效，代价是结果最多落后写入 maxStaleness。
+ * <p>
+ * 共享的结果对象由多个调用方同时持有，调用方只能读取、不能修改。
+ */
+@Service
+public class AlertQueryCoalescer {
+
+    private final boolean enabled;
+
+    private final MeterRegistry meterRegistry;
+
+    /** 进行中的查询，键 → 结果 */
+    private final Map<String, Flight> inflight = new ConcurrentHashMap<>();
+
+    /** 最近完成的查询结果，ttl 为 0 时不缓存 */
+    private final Cache<String, Flight> recent;
+
+    /** 告警写入次数，用于判断查询是否开始于最近一次写入之前 */
+    private final AtomicLong generation = new AtomicLong();
+
+    /** 开始于写入之前的查询仍可被复用的时长（纳秒） */
+    private final long maxStalenessNanos;
+
+    private final Map<String, OperationStats> stats = new ConcurrentHashMap<>();
+
+    @Autowired
+    public AlertQueryCoalescer(MeterRegistry meterRegistry,
+                               @Value("${alert.single-flight.enabled:true}") boolean enabled,
+                               @Value("${alert.single-flight.ttl:0ms}") Duration ttl,
+                               @Value("${alert.single-flight.max-staleness:0ms}") Duration maxStaleness,
+                               @Value("${alert.single-flight.max-size:1000}") int maxSize) {
+        this.meterRegistry = meterRegistry;
+        this.enabled = enabled;
+        this.maxStalenessNanos = maxStaleness.toNanos();
+        this.recent = ttl.isZero() ? null : Caffeine.newBuilder()
+                .maximumSize(maxSize)
+                .expireAfterWrite(ttl)
+                .build();
+        Gauge.builder("alert.query.inflight", inflight, Map::size)
+                .description("正在执行、可被合并的查询数")
+                .register(meterRegistry);
+    }
+
+    /**
+     * 同步执行查询，键相同的查询正在执行时等待其结果
+     *
+     * @param operation 查询类型，用于指标
+     * @param key       归一化后的查询条件
+     */
+    @SuppressWarnings("unchecked")
+    public <T> T execute(String operation, String key, Supplier<T> loader) {
+        if (!enabled) {
+            return loader.get();
+        }
+        String flightKey = operation + '\u0001' + key;
+        Flight cached = recent == null ? null : recent.getIfPresent(flightKey);
+        if (cached != null && fresh(cached)) {
+            stats(operation).cached.increment();
+            return (T) cached.result.join();
+        }
+        Flight flight = new Flight(generation.get(), System.nanoTime());
+        Flight existing = join(flightKey, flight);
+        if (existing != null) {
+            stats(operation).joined.increment();
+            return (T) await(existing.result);
+        }
+        stats(operation).executed.increment();
+        try {
+            T result = loader.get();
+            flight.result.complete(result);
+            remember(flightKey, flight, result);
+            return result;
+        } catch (RuntimeException | Error e) {
+            flight.result.completeExceptionally(e);
+            throw e;
+        } finally {
+            inflight.remove(flightKey, flight);
+        }
+    }
+
+    /**
+     * 响应式版本：由第一个订阅者执行查询，其余订阅者共享其结果；第一个订阅者取消时，等待中的订阅者收到错误
+     */
+    @SuppressWarnings("unchecked")
+    public <T> Mono<T> executeReactive(String operation, String key, Supplier<Mono<T>> loader) {
+        if (!enabled) {
+            return Mono.defer(loader);
+        }
+        return Mono.defer(() -> {
+            String flightKey = operation + '\u0001' + key;
+            Flight cached = recent == null ? null : recent.getIfPresent(flightKey);
+            if (cached != null && fresh(cached)) {
+                stats(operation).cached.increment();
+                return Mono.just((T) cached.result.join());
+            }
+            Flight flight = new Flight(generation.get(), System.nanoTime());
+            Flight existing = join(flightKey, flight);
+            if (existing != null) {
+                stats(operation).joined.increment();
+                // 取消等待不能取消共享的查询
+                return Mono.fromFuture(existing.result, true).map(result -> (T) result);
+            }
+            stats(operation).executed.increment();
+            return loader.get()
+                    .doOnSuccess(result -> {
+                        flight.result.complete(result);
+                        remember(flightKey, flight, result);
+                    })
+                    .doOnError(flight.result::completeExceptionally)
+                    .doFinally(signal -> {
+                        inflight.remove(flightKey, flight);
+                        flight.result.completeExceptionally(new CancellationException("合并的查询已取消"));
+                    });
+        });
+    }
+
+    /**
+     * 由多个查询参数拼接键，日期按毫秒时间戳
+     */
+    public static String key(Object... parts) {
+        StringBuilder key = new StringBuilder();
+        for (Object part : parts) {
+            key.append(part instanceof Date date ? date.getTime() : part).append('\u0001');
+        }
+        return key.toString();
+    }
+
+    /**
+     * 告警写入后，开始于写入之前的查询和缓存结果只在 maxStaleness 内继续被复用
+     */
+    @EventListener
+    public void onAlertChange(AlertChangeEvent event) {
+        if (enabled) {
+            generation.incrementAndGet();
+        }
+    }
+
+    /**
+     * 各查询类型的执行、合并、缓存命中次数及合并比例（合并与命中占全部调用的比例）
+     */
+    public Map<String, Object> stats() {
+        Map<String, Object> result = new TreeMap<>();
+        stats.forEach((operation, operationStats) -> result.put(operation, operationStats.snapshot()));
+        return result;
+    }
+
+    /**
+     * 加入键相同、仍可复用的进行中查询；没有时登记 flight 并返回 null，由调用方执行查询。
+     * 已过期的查询从表中替换掉，但仍会执行完并交付给已加入的调用方
+     */
+    private Flight join(String flightKey, Flight flight) {
+        Flight existing = inflight.putIfAbsent(flightKey, flight);
+        while (existing != null && !fresh(existing)) {
+            if (inflight.replace(flightKey, existing, flight)) {
+                return null;
+            }
+            existing = inflight.putIfAbsent(flightKey, flight);
+        }
+        return existing;
+    }
+
+    /**
+     * 查询开始后没有写入，或开始至今未超过 maxStaleness
+     */
+    private boolean fresh(Flight flight) {
+        return flight.generation == generation.get() || System.nanoTime() - flight.startedAt <= maxStalenessNanos;
+    }
+
+    private void remember(String flightKey, Flight flight, Object result) {
+        if (recent != null && result != null) {
+            recent.put(flightKey, flight);
+        }
+    }
+
+    private static Object await(CompletableFuture<Object> flight) {
+        try {
+            return flight.join();
+        } catch (CompletionException e) {
+            if (e.getCause() instanceof RuntimeException cause) {
+                throw cause;
+            }
+            throw e;
+        }
+    }
+
+    private OperationStats stats(String operation) {
+        return stats.computeIfAbsent(operation, OperationStats::new);
+    }
+
+    /**
+     * 一次查询：开始时的写入次数和时间，用于判断结果落后写入多久
+     */
+    private static final class Flight {
+
+        private final CompletableFuture<Object> result = new CompletableFuture<>();
+        private final long generation;
+        private final long startedAt;
+
+        Flight(long generation, long startedAt) {
+            this.generation = generation;
+            this.startedAt = startedAt;
+        }
+    }
+
+    /**
+     * 单个查询类型的统计，同时注册为 alert.query.coalesce{operation, result} 计数器
+     */
+    private final class OperationStats {
+
+        private final Counter executed;
+        private final Counter joined;
+        private final Counter cached;
+
+        OperationStats(String operation) {
+            this.executed = counter(operation, "executed");
+            this.joined = counter(operation, "joined");
+            this.cached = counter(operation, "cached");
+        }
+
+        private Counter counter(String operation, String result) {
+            return Counter.builder("alert.query.coalesce")
+                    .description("只读查询按执行、合并到进行中的查询、命中短时缓存计数")
+                    .tag("operation", operation)
+                    .tag("result", result)
+                    .register(meterRegistry);
+        }
+
+        Map<String, Object> snapshot() {
+            long executedCount = (long) executed.count();
+            long shared = (long) joined.count() + (long) cached.count();
+            Map<String, Object> snapshot = new LinkedHashMap<>();
+            snapshot.put("executed", executedCount);
+            snapshot.put("joined", (long) joined.count());
+            snapshot.put("cached", (long) cached.count());
+            snapshot.put("coalescingRatio", executedCount + shared == 0 ? 0.0 : (double) shared / (executedCount + shared));
+            return snapshot;
+        }
+    }
+}
@@ -0,0 +1,399 @@
+package com.qtp.mcpserver.service;
+
+import com.qtp.mcpserver.dto.AlertTrend;
+import com.qtp.mcpserver.entity.Alert;
+import com.qtp.mcpserver.event.AlertChangeEvent;
+import jakarta.annotation.PreDestroy;
+import lombok.extern.slf4j.Slf4j;
+import org.bson.Document;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Qualifier;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.core.task.TaskExecutor;
+import org.springframework.data.domain.Sort;
+import org.springframework.data.mongodb.BulkOperationException;
+import org.springframework.data.mongodb.core.BulkOperations;
+import org.springframework.data.mongodb.core.MongoTemplate;
+import org.springframework.data.mongodb.core.index.Index;
+import org.springframework.data.mongodb.core.index.IndexOperations;
+import org.springframework.data.mongodb.core.query.Criteria;
+import org.springframework.data.mongodb.core.query.Query;
+import org.springframework.data.mongodb.core.query.Update;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.Date;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * 告警时间分桶汇总（rollup），按分钟和小时两种粒度维护 alarmLevel/alarmType/systemName/company 组合下的告警发生次数，
+ * 趋势查询只读汇总集合 alert_rollup，耗时与原始告警量无关。
+ * <p>
+ * 计数口径：每条告警计 occurrenceCount 次（未合并的告警计1次），归入 firstSeen 所在分桶，没有 firstSeen 时取 endTime。
+ * 接入合并时后续发生计入同一个 firstSeen 分桶，因此分钟粒度下一次合并窗口内的重复发生集中在窗口起始分钟。
+ * <p>
+ * 增量来源：告警变更事件（新增 +1、删除 -1、修改先减旧值再加新值）以及接入合并时的 {@link #recordMerged}。
+ * 增量先在内存中按分桶合并，定期批量 $inc 写入；查询前先刷写，保证读到本进程已发生的变更。
+ * 汇总与原始数据的偏差（其他实例、直接改库、启用前的历史数据）通过 {@link #backfill} 按时间范围重算。
+ */
+@Service
+@Slf4j
+public class AlertRollupService {
+
+    public static final String COLLECTION = "alert_rollup";
+
+    public static final List<String> DIMENSIONS = List.of("alarmLevel", "alarmType", "systemName", "company");
+
+    private static final int BACKFILL_BATCH_SIZE = 1000;
+
+    /** 自动选择粒度时，不超过该跨度用分钟粒度 */
+    private static final long AUTO_MINUTE_SPAN = TimeUnit.HOURS.toMillis(6);
+
+    /** 分钟粒度单次查询的最大跨度 */
+    private static final long MAX_MINUTE_SPAN = TimeUnit.DAYS.toMillis(1);
+
+    public enum Granularity {
+        MINUTE(TimeUnit.MINUTES.toMillis(1)), HOUR(TimeUnit.HOURS.toMillis(1));
+
+        private final long millis;
+
+        Granularity(long millis) {
+            this.millis = millis;
+        }
+
+        public long floor(long time) {
+            return time - Math.floorMod(time, millis);
+        }
+    }
+
+    private final MongoTemplate mongoTemplate;
+
+    private final AlertArchiveService archiveService;
+
+    private final TaskExecutor taskExecutor;
+
+    private final boolean enabled;
+
+    private final Duration minuteRetention;
+
+    /** 尚未写入的增量 */
+    private final Map<RollupKey, Long> pending = new ConcurrentHashMap<>();
+
+    private final LongAdder flushedBuckets = new LongAdder();
+
+    private final LongAdder flushFailures = new LongAdder();
+
+    @Autowired
+    public AlertRollupService(MongoTemplate mongoTemplate,
+                              AlertArchiveService archiveService,
+                              @Qualifier("applicationTaskExecutor") TaskExecutor taskExecutor,
+                              @Value("${alert.rollup.enabled:true}") boolean enabled,
+                              @Value("${alert.rollup.minute-retention:7d}") Duration minuteRetention) {
+        this.mongoTemplate = mongoTemplate;
+        this.archiveService = archiveService;
+        this.taskExecutor = taskExecutor;
+        this.enabled = enabled;
+        this.minuteRetention = minuteRetention;
+    }
+
+    @EventListener(ApplicationReadyEvent.class)
+    public void onApplicationReady() {
+        if (enabled) {
+            taskExecutor.execute(() -> {
+                try {
+                    ensureIndexes();
+                } catch (Exception e) {
+                    log.warn("创建告警汇总索引失败：{}", e.getMessage());
+                }
+            });
+        }
+    }
+
+    public void ensureIndexes() {
+        IndexOperations indexOps = mongoTemplate.indexOps(COLLECTION);
+        Index key = new Index().on("granularity", Sort.Direction.ASC).on("bucket", Sort.Direction.ASC)
+                .unique().named("uk_granularity_bucket_dimensions");
+        DIMENSIONS.forEach(dimension -> key.on(dimension, Sort.Direction.ASC));
+        indexOps.ensureIndex(key);
+        // 分钟粒度文档带 expireAt，到期由 TTL 清理；小时粒度长期保留
+        indexOps.ensureIndex(new Index().on("expireAt", Sort.Direction.ASC).expire(0, TimeUnit.SECONDS).named("ttl_expireAt"));
+    }
+
+    @EventListener
+    public void onAlertChange(AlertChangeEvent event) {
+        if (!enabled) {
+            return;
+        }
+        if (event.getBefore() != null) {
+            record(event.getBefore(), -occurrences(event.getBefore()));
+        }
+        if (event.getAfter() != null) {
+            record(event.getAfter(), occurrences(event.getAfter()));
+        }
+    }
+
+    /**
+     * 接入合并到已有告警上的发生次数，合并本身不发布变更事件
+     *
+     * @param dimensions 已有告警的维度取值与 firstSeen
+     */
+    public void recordMerged(Alert dimensions, int count) {
+        if (enabled && count > 0) {
+            record(dimensions, count);
+        }
+    }
+
+    private static long occurrences(Alert alert) {
+        return alert.getOccurrenceCount() != null ? alert.getOccurrenceCount() : 1;
+    }
+
+    private void record(Alert alert, long delta) {
+        Date time = alert.getFirstSeen() != null ? alert.getFirstSeen() : alert.getEndTime();
+        if (time == null || delta == 0) {
+            return;
+        }
+        for (Granularity granularity : Granularity.values()) {
+            RollupKey key = new RollupKey(granularity, granularity.floor(time.getTime()), alert.getAlarmLevel(),
+                    alert.getAlarmType(), alert.getSystemName(), alert.getCompany());
+            pending.merge(key, delta, Long::sum);
+        }
+    }
+
+    /**
+     * 把内存中的增量批量写入汇总集合。逐个取走分桶的增量，取走后新到的增量留给下一次刷写；写入失败时放回
+     */
+    @Scheduled(fixedDelayString = "${alert.rollup.flush-interval:1000}")
+    public void flush() {
+        if (pending.isEmpty()) {
+            return;
+        }
+        Map<RollupKey, Long> batch = new HashMap<>();
+        for (RollupKey key : Set.copyOf(pending.keySet())) {
+            Long delta = pending.remove(key);
+            if (delta != null && delta != 0) {
+                batch.put(key, delta);
+            }
+        }
+        if (batch.isEmpty()) {
+            return;
+        }
+        List<Map.Entry<RollupKey, Long>> entries = new ArrayList<>(batch.entrySet());
+        try {
+            BulkOperations bulkOps = mongoTemplate.bulkOps(BulkOperations.BulkMode.UNORDERED, COLLECTION);
+            for (Map.Entry<RollupKey, Long> entry : entries) {
+                RollupKey key = entry.getKey();
+                Update update = new Update().inc("count", entry.getValue());
+                if (key.granularity() == Granularity.MINUTE) {
+                    update.setOnInsert("expireAt", new Date(key.bucket() + minuteRetention.toMillis()));
+                }
+                bulkOps.upsert(key.query(), update);
+            }
+            bulkOps.execute();
+            flushedBuckets.add(entries.size());
+        } catch (BulkOperationException e) {
+            flushFailures.increment();
+            flushedBuckets.add(entries.size() - e.getErrors().size());
+            // 无序批量中已成功的分桶不再重复累加，只放回失败的
+            e.getErrors().forEach(error -> {
+                Map.Entry<RollupKey, Long> failed = entries.get(error.getIndex());
+                pending.merge(failed.getKey(), failed.getValue(), Long::sum);
+            });
+            log.warn("告警汇总写入部分失败，{} 个分桶的增量留待下次写入：{}", e.getErrors().size(), e.getMessage());
+        } catch (Exception e) {
+            flushFailures.increment();
+            entries.forEach(entry -> pending.merge(entry.getKey(), entry.getValue(), Long::sum));
+            log.warn("告警汇总写入失败，{} 个分桶的增量留待下次写入：{}", entries.size(), e.getMessage());
+        }
+    }
+
+    @PreDestroy
+    public void shutdown() {
+        flush();
+    }
+
+    /** 尚未写入的分桶数 */
+    public int pendingSize() {
+        return pending.size();
+    }
+
+    public long getFlushedBuckets() {
+        return flushedBuckets.sum();
+    }
+
+    public long getFlushFailures() {
+        return flushFailures.sum();
+    }
+
+    /**
+     * 查询告警趋势
+     *
+     * @param granularity minute/hour，为空时跨度不超过6小时用分钟，否则用小时
+     * @param filters     维度等值过滤，值为空的维度不过滤
+     * @param groupBy     拆分维度，为空时不拆分
+     */
+    public AlertTrend trend(Date startTime, Date endTime, String granularity, Map<String, String> filters, String groupBy) {
+        Granularity resolved = trendGranularity(startTime, endTime, granularity, groupBy);
+        String group = groupBy == null || groupBy.isBlank() ? null : groupBy;
+        flush();
+
+        Criteria criteria = Criteria.where("granularity").is(resolved.name())
+                .and("bucket").gte(new Date(resolved.floor(startTime.getTime()))).lte(endTime);
+        filters.forEach((dimension, value) -> {
+            if (value != null && !value.isBlank()) {
+                criteria.and(dimension).is(value);
+            }
+        });
+        Document groupId = new Document("bucket", "$bucket");
+        if (group != null) {
+            groupId.append("key", "$" + group);
+        }
+        List<Document> pipeline = List.of(
+                new Document("$match", new Query(criteria).getQueryObject()),
+                new Document("$group", new Document("_id", groupId).append("count", new Document("$sum", "$count"))),
+                new Document("$match", new Document("count", new Document("$ne", 0))),
+                new Document("$sort", new Document("_id.bucket", 1).append("_id.key", 1)));
+
+        AlertTrend trend = new AlertTrend();
+        trend.setGranularity(resolved.name());
+        trend.setStartTime(startTime);
+        trend.setEndTime(endTime);
+        trend.setGroupBy(group);
+        long total = 0;
+        for (Document row : mongoTemplate.getCollection(COLLECTION).aggregate(pipeline)) {
+            Document id = row.get("_id", Document.class);
+            long count = row.get("count", Number.class).longValue();
+            Object key = id.get("key");
+            trend.getPoints().add(new AlertTrend.Point(id.getDate("bucket"), key == null ? null : key.toString(), count));
+            total += count;
+        }
+        trend.setTotalCount(total);
+        return trend;
+    }
+
+    /**
+     * 校验趋势查询的时间范围和拆分维度并确定粒度，MongoDB 和进程内存储共用
+     */
+    public static Granularity trendGranularity(Date startTime, Date endTime, String granularity, String groupBy) {
+        if (startTime == null || endTime == null) {
+            throw new IllegalArgumentException("开始时间和结束时间不能为空");
+        }
+        if (startTime.after(endTime)) {
+            throw new IllegalArgumentException("开始时间不能晚于结束时间");
+        }
+        if (groupBy != null && !groupBy.isBlank() && !DIMENSIONS.contains(groupBy)) {
+            throw new IllegalArgumentException("不支持的拆分维度：" + groupBy + "，可选 " + DIMENSIONS);
+        }
+        return resolveGranularity(granularity, endTime.getTime() - startTime.getTime());
+    }
+
+    private static Granularity resolveGranularity(String granularity, long span) {
+        if (granularity == null || granularity.isBlank()) {
+            return span <= AUTO_MINUTE_SPAN ? Granularity.MINUTE : Granularity.HOUR;
+        }
+        Granularity resolved;
+        try {
+            resolved = Granularity.valueOf(granularity.trim().toUpperCase());
+        } catch (IllegalArgumentException e) {
+            throw new IllegalArgumentException("不支持的粒度：" + granularity + "，可选 minute、hour");
+        }
+        if (resolved == Granularity.MINUTE && span > MAX_MINUTE_SPAN) {
+            throw new IllegalArgumentException("分钟粒度单次最多查询24小时，请改用 hour");
+        }
+        return resolved;
+    }
+
+    /**
+     * 按原始告警重算时间范围内的汇总：先删除范围内的分桶，再按分桶聚合原始告警写回。
+     * 范围按小时对齐；分钟粒度只重算保留期内的部分。重算期间新到的增量可能被覆盖，建议在低峰期执行
+     *
+     * @param startTime 起始时间，为空表示最早
+     * @param endTime   结束时间，为空表示当前
+     * @return 写入的分桶文档数
+     */
+    public long backfill(Date startTime, Date endTime) {
+        flush();
+        long start = startTime == null ? 0 : Granularity.HOUR.floor(startTime.getTime());
+        long end = Granularity.HOUR.floor((endTime == null ? System.currentTimeMillis() : endTime.getTime())) + Granularity.HOUR.millis;
+        long written = rebuild(Granularity.HOUR, start, end);
+        long minuteStart = Math.max(start, Granularity.HOUR.floor(System.currentTimeMillis() - minuteRetention.toMillis()));
+        if (minuteStart < end) {
+            written += rebuild(Granularity.MINUTE, minuteStart, end);
+        }
+        log.info("告警汇总重算完成（{} 至 {}），写入 {} 个分桶", new Date(start), new Date(end), written);
+        return written;
+    }
+
+    private long rebuild(Granularity granularity, long start, long end) {
+        Date from = new Date(start);
+        Date to = new Date(end);
+        mongoTemplate.remove(Query.query(Criteria.where("granularity").is(granularity.name()).and("bucket").gte(from).lt(to)), COLLECTION);
+
+        Document time = new Document("$ifNull", List.of("$firstSeen", "$endTime"));
+        Document millis = new Document("$toLong", time);
+        Document bucket = new Document("$toDate", new Document("$subtract",
+                List.of(millis, new Document("$mod", List.of(millis, granularity.millis)))));
+        Document groupId = new Document("bucket", bucket);
+        DIMENSIONS.forEach(dimension -> groupId.append(dimension, "$" + dimension));
+        Document match = new Document("$or", List.of(
+                new Document("firstSeen", new Document("$gte", from).append("$lt", to)),
+                new Document("firstSeen", null).append("endTime", new Document("$gte", from).append("$lt", to))));
+        List<Document> pipeline = new ArrayList<>();
+        pipeline.add(new Document("$match", match));
+        // 范围内已归档的告警同样计入，否则重算会丢掉它们的分桶
+        if (archiveService.reaches(from)) {
+            pipeline.add(archiveService.unionStage(match));
+        }
+        pipeline.add(new Document("$group", new Document("_id", groupId)
+                .append("count", new Document("$sum", new Document("$ifNull", List.of("$occurrenceCount", 1))))));
+
+        long written = 0;
+        List<Document> buffer = new ArrayList<>(BACKFILL_BATCH_SIZE);
+        for (Document row : mongoTemplate.getCollection(mongoTemplate.getCollectionName(Alert.class))
+                .aggregate(pipeline).allowDiskUse(true).batchSize(BACKFILL_BATCH_SIZE)) {
+            Document id = row.get("_id", Document.class);
+            Date bucketTime = id.getDate("bucket");
+            Document rollup = new Document("granularity", granularity.name()).append("bucket", bucketTime);
+            DIMENSIONS.forEach(dimension -> rollup.append(dimension, id.get(dimension)));
+            rollup.append("count", row.get("count", Number.class).longValue());
+            if (granularity == Granularity.MINUTE) {
+                rollup.append("expireAt", new Date(bucketTime.getTime() + minuteRetention.toMillis()));
+            }
+            buffer.add(rollup);
+            if (buffer.size() >= BACKFILL_BATCH_SIZE) {
+                written += insert(buffer);
+            }
+        }
+        written += insert(buffer);
+        return written;
+    }
+
+    private int insert(List<Document> buffer) {
+        if (buffer.isEmpty()) {
+            return 0;
+        }
+        int size = buffer.size();
+        mongoTemplate.getCollection(COLLECTION).insertMany(new ArrayList<>(buffer));
+        buffer.clear();
+        return size;
+    }
+
+    private record RollupKey(Granularity granularity, long bucket, String alarmLevel, String alarmType,
+                             String systemName, String company) {
+
+        Query query() {
+            return Query.query(Criteria.where("granularity").is(granularity.name()).and("bucket").is(new Date(bucket))
+                    .and("alarmLevel").is(alarmLevel).and("alarmType").is(alarmType)
+                    .and("systemName").is(systemName).and("company").is(company));
+        }
+    }
+}
@@ -0,0 +1,187 @@
+package com.qtp.mcpserver.service;
+
+import com.qtp.mcpserver.dto.AlertFilter;
+import com.qtp.mcpserver.dto.AlertStatistics;
+import com.qtp.mcpserver.entity.Alert;
+import lombok.extern.slf4j.Slf4j;
+import org.bson.Document;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.data.mongodb.core.MongoTemplate;
+import org.springframework.data.mongodb.core.aggregation.Aggregation;
+import org.springframework.data.mongodb.core.aggregation.AggregationOperation;
+import org.springframework.data.mongodb.core.query.Criteria;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+
+import java.util.ArrayList;
+import java.util.Date;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * 告警统计引擎，供REST接口和MCP工具共用。
+ * 通过一次 $facet 聚合在MongoDB端完成所有维度的分组计数，只返回分桶结果。
+ * 时间范围触及归档时合并归档集合（见 {@link AlertArchiveService}）。
+ */
+@Service
+@Slf4j
+public class AlertStatisticsService {
+
+    /** 分组字段为空时使用的桶名 */
+    public static final String UNKNOWN_BUCKET = "未知";
+
+    private final MongoTemplate mongoTemplate;
+
+    private final AlertCounterStore counterStore;
+
+    private final AlertArchiveService archiveService;
+
+    private final boolean reconcileEnabled;
+
+    @Autowired
+    public AlertStatisticsService(MongoTemplate mongoTemplate, AlertCounterStore counterStore,
+                                  AlertArchiveService archiveService,
+                                  @Value("${alert.statistics.reconcile-enabled:true}") boolean reconcileEnabled) {
+        this.mongoTemplate = mongoTemplate;
+        this.counterStore = counterStore;
+        this.archiveService = archiveService;
+        this.reconcileEnabled = reconcileEnabled;
+    }
+
+    /**
+     * 获取告警统计：无过滤条件且计数器已播种时直接读取内存计数，否则走数据库聚合
+     */
+    public AlertStatistics statistics(Date beginTime, Date endTime, String company, String systemName) {
+        if (canUseCounters(beginTime, endTime, company, systemName)) {
+            return counterStore.snapshot();
+        }
+        return aggregate(beginTime, endTime, company, systemName);
+    }
+
+    /**
+     * 启动时播种内存计数器，之后定期全量对账纠正增量维护产生的漂移。
+     * 聚合期间到达的变更事件由计数器另行记录，替换时叠加到聚合结果上
+     */
+    @Scheduled(initialDelay = 0, fixedDelayString = "${alert.statistics.reconcile-interval:300000}")
+    public void reconcileCounters() {
+        if (!reconcileEnabled) {
+            return;
+        }
+        try {
+            // 计数器包含归档中的告警，对账前先确定是否存在归档
+            archiveService.ensureLoaded();
+            counterStore.beginReconcile();
+            long drift = counterStore.reset(aggregate(null, null, null, null));
+            if (drift != 0) {
+                log.info("告警计数器对账，总数偏差 {}", drift);
+            }
+        } catch (Exception e) {
+            counterStore.cancelReconcile();
+            log.warn("告警计数器对账失败：{}", e.getMessage());
+        }
+    }
+
+    /**
+     * 统计告警，所有过滤条件均可为空
+     *
+     * @param beginTime  告警时间（endTime）下限
+     * @param endTime    告警时间（endTime）上限
+     * @param company    所属单位
+     * @param systemName 所属系统
+     */
+    public AlertStatistics aggregate(Date beginTime, Date endTime, String company, String systemName) {
+        return aggregate(buildCriteria(beginTime, endTime, company, systemName), archiveService.reaches(beginTime));
+    }
+
+    /**
+     * 按任意过滤条件统计告警
+     *
+     * @param criteria       过滤条件，为 null 时统计全部告警
+     * @param includeArchive 是否合并归档集合
+     */
+    public AlertStatistics aggregate(Criteria criteria, boolean includeArchive) {
+        return toStatistics(mongoTemplate.aggregate(aggregation(criteria, includeArchive), Alert.class, Document.class)
+                .getUniqueMappedResult());
+    }
+
+    /**
+     * 统计聚合管道，同步和响应式实现共用
+     */
+    Aggregation aggregation(Criteria criteria, boolean includeArchive) {
+        List<AggregationOperation> operations = new ArrayList<>();
+        if (criteria != null) {
+            operations.add(Aggregation.match(criteria));
+        }
+        if (includeArchive) {
+            operations.add(context -> archiveService.unionStage(criteria == null ? null
+                    : context.getMappedObject(criteria.getCriteriaObject(), Alert.class)));
+        }
+        operations.add(Aggregation.project("status", "alarmLevel", "alarmType", "company", "systemName"));
+        operations.add(Aggregation.facet(Aggregation.count().as("count")).as("totalCount")
+                .and(Aggregation.group("status").count().as("count")).as("statusStats")
+                .and(Aggregation.group("alarmLevel").count().as("count")).as("levelStats")
+                .and(Aggregation.group("alarmType").count().as("count")).as("typeStats")
+                .and(Aggregation.group("company").count().as("count")).as("companyStats")
+                .and(Aggregation.group("systemName").count().as("count")).as("systemStats"));
+        return Aggregation.newAggregation(operations);
+    }
+
+    /**
+     * 无过滤条件且计数器已播种时可直接使用内存计数
+     */
+    boolean canUseCounters(Date beginTime, Date endTime, String company, String systemName) {
+        return buildCriteria(beginTime, endTime, company, systemName) == null && counterStore.isSeeded();
+    }
+
+    boolean canUseCounters(AlertFilter filter) {
+        return filter.isEmpty() && counterStore.isSeeded();
+    }
+
+    AlertStatistics counterSnapshot() {
+        return counterStore.snapshot();
+    }
+
+    AlertStatistics toStatistics(Document result) {
+        AlertStatistics statistics = new AlertStatistics();
+        if (result == null) {
+            return statistics;
+        }
+        List<Document> total = result.getList("totalCount", Document.class);
+        statistics.setTotalCount(total.isEmpty() ? 0 : total.get(0).get("count", Number.class).longValue());
+        fillBuckets(result.getList("statusStats", Document.class), statistics.getStatusStats());
+        fillBuckets(result.getList("levelStats", Document.class), statistics.getLevelStats());
+        fillBuckets(result.getList("typeStats", Document.class), statistics.getTypeStats());
+        fillBuckets(result.getList("companyStats", Document.class), statistics.getCompanyStats());
+        fillBuckets(result.getList("systemStats", Document.class), statistics.getSystemStats());
+        return statistics;
+    }
+
+    private Criteria buildCriteria(Date beginTime, Date endTime, String company, String systemName) {
+        List<Criteria> criteriaList = new ArrayList<>();
+        if (beginTime != null && endTime != null) {
+            criteriaList.add(Criteria.where("endTime").gte(beginTime).lte(endTime));
+        } else if (beginTime != null) {
+            criteriaList.add(Criteria.where("endTime").gte(beginTime));
+        } else if (endTime != null) {
+            criteriaList.add(Criteria.where("endTime").lte(endTime));
+        }
+        if (company != null && !company.trim().isEmpty()) {
+            criteriaList.add(Criteria.where("company").is(company));
+        }
+        if (systemName != null && !systemName.trim().isEmpty()) {
+            criteriaList.add(Criteria.where("systemName").is(systemName));
+        }
+        if (criteriaList.isEmpty()) {
+            return null;
+        }
+        return criteriaList.size() == 1 ? criteriaList.get(0) : new Criteria().andOperator(criteriaList);
+    }
+
+    private void fillBuckets(List<Document> buckets, Map<String, Long> target) {
+        for (Document bucket : buckets) {
+            Object key = bucket.get("_id");
+            target.put(key == null ? UNKNOWN_BUCKET : key.toString(), bucket.get("count", Number.class).longValue());
+        }
+    }
+}
@@ -0,0 +1,499 @@
+package com.qtp.mcpserver.service;
+
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.qtp.mcpserver.dto.AlertDelta;
+import com.qtp.mcpserver.dto.AlertFilter;
+import com.qtp.mcpserver.dto.AlertStatistics;
+import com.qtp.mcpserver.entity.Alert;
+import com.qtp.mcpserver.event.AlertChangeEvent;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.BeanUtils;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.event.EventListener;
+import org.springframework.http.codec.ServerSentEvent;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+import org.springframework.util.ReflectionUtils;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+import reactor.core.publisher.Sinks;
+import reactor.util.concurrent.Queues;
+
+import java.beans.PropertyDescriptor;
+import java.time.Duration;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Objects;
+import java.util.Queue;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * 告警变更推送（GET /api/alerts/stream，SSE）。
+ * <p>
+ * 各写入路径发布的 {@link AlertChangeEvent} 在这里汇成一路：写入线程只把事件放入待推送队列，
+ * 由定时任务每隔 flush-interval 取出一批，每个变更只计算一次变化字段和统计增量、只序列化一次，
+ * 再按各订阅者的过滤条件放入订阅者自己的有界缓冲区，网络发送由各连接自行完成。
+ * 同一批中只影响统计的变更对每个订阅者合并为一条 stats 事件。
+ * <p>
+ * 事件名表示变更与订阅条件的关系：
+ * <ul>
+ *     <li>alert：满足条件的告警被新增、修改或删除</li>
+ *     <li>enter / leave：告警修改后开始 / 不再满足条件</li>
+ *     <li>stats：与条件无关的变更，只用于更新统计，同一批合并为一条（订阅时 stats=false 则不发送）</li>
+ *     <li>ready：新连接建立，数据为当前变更序号；客户端此时加载列表和统计，之后只应用变更</li>
+ *     <li>resync：缓冲区或待推送队列溢出、重连缺口超出保留范围，连接随即关闭，客户端应重新加载并重新订阅</li>
+ * </ul>
+ * 事件ID为“进程标识:变更序号”，最近 replay-size 条变更保留在内存中（最后一个连接断开后再保留一分钟），
+ * 断线重连携带 Last-Event-ID 时补发；服务重启后进程标识不同，重连按新连接处理。
+ * 只覆盖本进程内的写入，其他实例或直接改库的变更不会推送。
+ */
+@Service
+@Slf4j
+public class AlertStreamService {
+
+    public static final String EVENT_ALERT = "alert";
+    public static final String EVENT_ENTER = "enter";
+    public static final String EVENT_LEAVE = "leave";
+    public static final String EVENT_STATS = "stats";
+    public static final String EVENT_READY = "ready";
+    public static final String EVENT_RESYNC = "resync";
+
+    /** 参与变更字段计算的告警属性，不含ID和探测报文 */
+    private static final PropertyDescriptor[] FIELDS = Arrays.stream(BeanUtils.getPropertyDescriptors(Alert.class))
+            .filter(descriptor -> descriptor.getReadMethod() != null && descriptor.getWriteMethod() != null)
+            .filter(descriptor -> !Set.of("id", "response", "actualValue").contains(descriptor.getName()))
+            .toArray(PropertyDescriptor[]::new);
+
+    /** 最后一个连接断开后继续保留变更的时长，覆盖浏览器的自动重连间隔 */
+    private static final long RECONNECT_WINDOW_MILLIS = 60_000;
+
+    private static final ServerSentEvent<String> HEARTBEAT = ServerSentEvent.<String>builder().comment("heartbeat").build();
+
+    private final ObjectMapper objectMapper;
+
+    private final MeterRegistry meterRegistry;
+
+    private final int bufferSize;
+
+    private final int replaySize;
+
+    private final int maxPending;
+
+    private final Duration maxDuration;
+
+    /** 进程标识，区分重启前后的变更序号 */
+    private final String epoch = Long.toString(System.currentTimeMillis(), 36);
+
+    private final Set<Subscriber> subscribers = ConcurrentHashMap.newKeySet();
+
+    /** 写入线程放入、尚未推送的变更 */
+    private final Queue<AlertChangeEvent> pending = new ConcurrentLinkedQueue<>();
+
+    private final AtomicInteger pendingCount = new AtomicInteger();
+
+    /** 待推送队列满时丢弃的变更数，下一批推送时要求所有连接重新加载 */
+    private final AtomicLong dropped = new AtomicLong();
+
+    /** 最近的变更，按序号递增，由 this 保护 */
+    private final ArrayDeque<Change> replay = new ArrayDeque<>();
+
+    /** 最新的变更序号，由 this 保护 */
+    private long seq;
+
+    /** 最近一次有连接断开的时间 */
+    private volatile long lastDisconnectMillis;
+
+    @Autowired
+    public AlertStreamService(ObjectMapper objectMapper,
+                              MeterRegistry meterRegistry,
+                              @Value("${alert.stream.buffer-size:256}") int bufferSize,
+                              @Value("${alert.stream.replay-size:1000}") int replaySize,
+                              @Value("${alert.stream.max-pending:10000}") int maxPending,
+                              @Value("${alert.stream.max-duration:10m}") Duration maxDuration) {
+        this.objectMapper = objectMapper;
+        this.meterRegistry = meterRegistry;
+        this.bufferSize = bufferSize;
+        this.replaySize = replaySize;
+        this.maxPending = maxPending;
+        this.maxDuration = maxDuration;
+        Gauge.builder("alert.stream.subscribers", subscribers, Set::size)
+                .description("告警推送流的连接数")
+                .register(meterRegistry);
+    }
+
+    /**
+     * 订阅变更
+     *
+     * @param filter      过滤条件
+     * @param stats       是否接收不满足条件的变更的统计增量
+     * @param lastEventId 断线重连时浏览器带上的最后一个事件ID，新连接为空
+     */
+    public Flux<ServerSentEvent<String>> subscribe(AlertFilter filter, boolean stats, String lastEventId) {
+        Subscriber subscriber = new Subscriber(filter, stats);
+        synchronized (this) {
+            Long last = parseEventId(lastEventId);
+            if (last == null || last > seq) {
+                subscriber.emit(ServerSentEvent.builder("{\"seq\":" + seq + "}").id(eventId(seq)).event(EVENT_READY).build());
+            } else if (last < seq) {
+                if (replay.isEmpty() || replay.peekFirst().seq() > last + 1) {
+                    subscriber.resync("gap");
+                    return subscriber.flux();
+                }
+                List<Change> missed = replay.stream().filter(change -> change.seq() > last).toList();
+                if (!subscriber.offer(missed)) {
+                    return subscriber.flux();
+                }
+            }
+            subscribers.add(subscriber);
+        }
+        return subscriber.flux()
+                .take(maxDuration)
+                .doFinally(signal -> {
+                    subscribers.remove(subscriber);
+                    lastDisconnectMillis = System.currentTimeMillis();
+                });
+    }
+
+    /**
+     * 写入线程只入队，变更内容的计算和分发由 {@link #flush()} 完成
+     */
+    @EventListener
+    public void onAlertChange(AlertChangeEvent event) {
+        if (pendingCount.incrementAndGet() > maxPending) {
+            pendingCount.decrementAndGet();
+            dropped.incrementAndGet();
+            return;
+        }
+        pending.add(event);
+    }
+
+    /**
+     * 取出一批待推送的变更，计算推送内容后分发给各订阅者
+     */
+    @Scheduled(fixedDelayString = "${alert.stream.flush-interval:100}")
+    public void flush() {
+        List<AlertChangeEvent> events = new ArrayList<>();
+        for (AlertChangeEvent event; (event = pending.poll()) != null; ) {
+            pendingCount.decrementAndGet();
+            events.add(event);
+        }
+        long lost = dropped.getAndSet(0);
+        if (events.isEmpty() && lost == 0) {
+            return;
+        }
+        // 没有连接且超过重连窗口时不计算变更内容，只推进序号，使之后重连的客户端能发现缺口
+        boolean recording = !subscribers.isEmpty()
+                || System.currentTimeMillis() - lastDisconnectMillis < RECONNECT_WINDOW_MILLIS;
+        List<Change> changes = recording ? events.stream().map(this::change).toList() : List.of();
+        synchronized (this) {
+            if (lost > 0) {
+                // 丢弃的变更占用序号，补发无法跨越这段缺口
+                seq += lost;
+                replay.clear();
+                subscribers.forEach(subscriber -> subscriber.resync("overflow"));
+                subscribers.clear();
+            }
+            if (!recording) {
+                seq += events.size();
+                replay.clear();
+                return;
+            }
+            List<Change> batch = new ArrayList<>(changes.size());
+            for (Change change : changes) {
+                seq++;
+                Change numbered = change.withSeq(seq, eventId(seq));
+                if (replay.size() >= replaySize) {
+                    replay.removeFirst();
+                }
+                replay.addLast(numbered);
+                batch.add(numbered);
+            }
+            for (Subscriber subscriber : subscribers) {
+                if (!subscriber.offer(batch)) {
+                    subscribers.remove(subscriber);
+                }
+            }
+        }
+    }
+
+    /**
+     * 定期发送心跳注释，保持代理连接并及时发现已断开的客户端
+     */
+    @Scheduled(fixedRateString = "${alert.stream.heartbeat:15000}")
+    public void heartbeat() {
+        if (subscribers.isEmpty()) {
+            return;
+        }
+        synchronized (this) {
+            for (Subscriber subscriber : subscribers) {
+                if (!subscriber.emit(HEARTBEAT)) {
+                    subscribers.remove(subscriber);
+                }
+            }
+        }
+    }
+
+    private Change change(AlertChangeEvent event) {
+        AlertDelta delta = new AlertDelta();
+        delta.setType(type(event));
+        delta.setId(event.getAlertId());
+        if (event.getAfter() != null) {
+            delta.setFields(changedFields(event.getBefore(), event.getAfter()));
+        }
+        delta.setStats(statisticsDelta(event));
+        String data = serialize(delta);
+        String statsData = null;
+        if (delta.getStats() != null) {
+            // 不满足条件的订阅者只需要统计增量，不下发告警内容
+            delta.setFields(null);
+            statsData = serialize(delta);
+        }
+        return new Change(0, null, event.getBefore(), event.getAfter(), data, delta.getStats(), statsData);
+    }
+
+    /**
+     * 一批变更中只影响统计的部分合并后的推送内容
+     */
+    private String mergedStatsData(List<Change> changes) {
+        AlertStatistics merged = new AlertStatistics();
+        for (Change change : changes) {
+            AlertStatistics stats = change.stats();
+            merged.setTotalCount(merged.getTotalCount() + stats.getTotalCount());
+            stats.getStatusStats().forEach((key, count) -> merged.getStatusStats().merge(key, count, Long::sum));
+            stats.getLevelStats().forEach((key, count) -> merged.getLevelStats().merge(key, count, Long::sum));
+            stats.getTypeStats().forEach((key, count) -> merged.getTypeStats().merge(key, count, Long::sum));
+            stats.getCompanyStats().forEach((key, count) -> merged.getCompanyStats().merge(key, count, Long::sum));
+            stats.getSystemStats().forEach((key, count) -> merged.getSystemStats().merge(key, count, Long::sum));
+        }
+        AlertDelta delta = new AlertDelta();
+        delta.setType(EVENT_STATS);
+        delta.setStats(prune(merged));
+        return serialize(delta);
+    }
+
+    private String serialize(AlertDelta delta) {
+        try {
+            return objectMapper.writeValueAsString(delta);
+        } catch (JsonProcessingException e) {
+            log.warn("告警变更序列化失败：{}", e.getMessage());
+            return "{\"type\":\"" + delta.getType() + "\",\"id\":\"" + delta.getId() + "\"}";
+        }
+    }
+
+    private static String type(AlertChangeEvent event) {
+        if (event.getType() == AlertChangeEvent.Type.CREATED) {
+            return "created";
+        }
+        if (event.getType() == AlertChangeEvent.Type.DELETED) {
+            return "deleted";
+        }
+        Alert before = event.getBefore();
+        Alert after = event.getAfter();
+        if (!Objects.equals(before.getStatus(), after.getStatus())) {
+            if (Integer.valueOf(1).equals(after.getStatus())) {
+                return "resolved";
+            }
+            if (Integer.valueOf(0).equals(after.getStatus())) {
+                return "activated";
+            }
+        }
+        if (levelRank(after.getAlarmLevel()) > levelRank(before.getAlarmLevel())) {
+            return "escalated";
+        }
+        return "updated";
+    }
+
+    private static int levelRank(String level) {
+        if (level == null) {
+            return -1;
+        }
+        return switch (level.toLowerCase(Locale.ROOT)) {
+            case "info" -> 0;
+            case "warning" -> 1;
+            case "critical" -> 2;
+            default -> -1;
+        };
+    }
+
+    /**
+     * 新增时返回全部非空字段，修改时返回前后不同的字段。批量操作和状态流转的事件只含投影字段，未投影的字段前后都为空，不会被当作变化
+     */
+    private static Map<String, Object> changedFields(Alert before, Alert after) {
+        Map<String, Object> fields = new LinkedHashMap<>();
+        for (PropertyDescriptor descriptor : FIELDS) {
+            Object value = ReflectionUtils.invokeMethod(descriptor.getReadMethod(), after);
+            if (before == null) {
+                if (value != null) {
+                    fields.put(descriptor.getName(), value);
+                }
+            } else if (!Objects.equals(ReflectionUtils.invokeMethod(descriptor.getReadMethod(), before), value)) {
+                fields.put(descriptor.getName(), value);
+            }
+        }
+        return fields;
+    }
+
+    /**
+     * 与 {@link AlertCounterStore} 相同的分桶规则，变更前的快照减一、变更后的快照加一
+     */
+    private static AlertStatistics statisticsDelta(AlertChangeEvent event) {
+        AlertStatistics stats = new AlertStatistics();
+        if (event.getBefore() != null) {
+            count(stats, event.getBefore(), -1);
+        }
+        if (event.getAfter() != null) {
+            count(stats, event.getAfter(), 1);
+        }
+        return prune(stats);
+    }
+
+    /**
+     * 去掉增减为 0 的分桶，全部为 0 时返回 null
+     */
+    private static AlertStatistics prune(AlertStatistics stats) {
+        boolean empty = stats.getTotalCount() == 0;
+        for (Map<String, Long> buckets : List.of(stats.getStatusStats(), stats.getLevelStats(), stats.getTypeStats(),
+                stats.getCompanyStats(), stats.getSystemStats())) {
+            buckets.values().removeIf(count -> count == 0);
+            empty &= buckets.isEmpty();
+        }
+        return empty ? null : stats;
+    }
+
+    private static void count(AlertStatistics stats, Alert alert, long delta) {
+        stats.setTotalCount(stats.getTotalCount() + delta);
+        increment(stats.getStatusStats(), alert.getStatus(), delta);
+        increment(stats.getLevelStats(), alert.getAlarmLevel(), delta);
+        increment(stats.getTypeStats(), alert.getAlarmType(), delta);
+        increment(stats.getCompanyStats(), alert.getCompany(), delta);
+        increment(stats.getSystemStats(), alert.getSystemName(), delta);
+    }
+
+    private static void increment(Map<String, Long> buckets, Object key, long delta) {
+        buckets.merge(key == null ? AlertStatisticsService.UNKNOWN_BUCKET : key.toString(), delta, Long::sum);
+    }
+
+    private String eventId(long seq) {
+        return epoch + ":" + seq;
+    }
+
+    /**
+     * 解析本进程发出的事件ID，其他进程（重启前）的ID或格式不对时返回 null
+     */
+    private Long parseEventId(String lastEventId) {
+        if (lastEventId == null || !lastEventId.startsWith(epoch + ":")) {
+            return null;
+        }
+        try {
+            return Long.parseLong(lastEventId.substring(epoch.length() + 1));
+        } catch (NumberFormatException e) {
+            return null;
+        }
+    }
+
+    /**
+     * 一条变更：序号、用于按订阅条件判断的前后快照，以及序列化好的推送内容、统计增量和只含统计增量的推送内容
+     */
+    private record Change(long seq, String id, Alert before, Alert after, String data, AlertStatistics stats,
+                          String statsData) {
+
+        private Change withSeq(long seq, String id) {
+            return new Change(seq, id, before, after, data, stats, statsData);
+        }
+
+        /**
+         * 该变更对某个订阅者的告警事件（alert、enter、leave），不满足条件时返回 null
+         */
+        private ServerSentEvent<String> event(AlertFilter filter) {
+            boolean matchedBefore = before != null && (filter.isEmpty() || filter.matches(before));
+            boolean matchedAfter = after != null && (filter.isEmpty() || filter.matches(after));
+            if (matchedBefore || matchedAfter) {
+                String name = matchedBefore == matchedAfter || before == null || after == null ? EVENT_ALERT
+                        : matchedAfter ? EVENT_ENTER : EVENT_LEAVE;
+                return ServerSentEvent.builder(data).id(id).event(name).build();
+            }
+            return null;
+        }
+    }
+
+    private final class Subscriber {
+
+        private final AlertFilter filter;
+
+        private final boolean stats;
+
+        private final Sinks.Many<ServerSentEvent<String>> sink =
+                Sinks.many().unicast().onBackpressureBuffer(Queues.<ServerSentEvent<String>>get(bufferSize).get());
+
+        /** 需要客户端重新加载的原因，连接在缓冲区中的事件发送完后关闭 */
+        private volatile String resyncReason;
+
+        private Subscriber(AlertFilter filter, boolean stats) {
+            this.filter = filter;
+            this.stats = stats;
+        }
+
+        /**
+         * 按顺序发送一批变更中满足条件的告警事件，其余只影响统计的变更合并为最后一条 stats 事件，
+         * 其事件ID取本批最后一条变更，重连时从本批之后补发
+         *
+         * @return false 表示订阅者已失效（缓冲区溢出、已断开），应从订阅列表中移除
+         */
+        private boolean offer(List<Change> changes) {
+            List<Change> statsOnly = new ArrayList<>();
+            for (Change change : changes) {
+                ServerSentEvent<String> event = change.event(filter);
+                if (event != null) {
+                    if (!emit(event)) {
+                        return false;
+                    }
+                } else if (stats && change.statsData() != null) {
+                    statsOnly.add(change);
+                }
+            }
+            if (statsOnly.isEmpty()) {
+                return true;
+            }
+            String data = statsOnly.size() == 1 ? statsOnly.get(0).statsData() : mergedStatsData(statsOnly);
+            return emit(ServerSentEvent.builder(data).id(changes.get(changes.size() - 1).id()).event(EVENT_STATS).build());
+        }
+
+        private boolean emit(ServerSentEvent<String> event) {
+            Sinks.EmitResult result = sink.tryEmitNext(event);
+            // 连接尚未开始消费时缓冲区写满返回的是 FAIL_ZERO_SUBSCRIBER，同样按溢出处理
+            if (result == Sinks.EmitResult.FAIL_OVERFLOW || result == Sinks.EmitResult.FAIL_ZERO_SUBSCRIBER) {
+                resync("overflow");
+            }
+            return result.isSuccess();
+        }
+
+        private void resync(String reason) {
+            resyncReason = reason;
+            sink.tryEmitComplete();
+            Counter.builder("alert.stream.resyncs")
+                    .description("告警推送流要求客户端重新加载的次数")
+                    .tag("reason", reason)
+                    .register(meterRegistry)
+                    .increment();
+        }
+
+        private Flux<ServerSentEvent<String>> flux() {
+            return sink.asFlux().concatWith(Mono.fromSupplier(() -> resyncReason == null ? null
+                    : ServerSentEvent.builder("{\"reason\":\"" + resyncReason + "\"}").event(EVENT_RESYNC).build()));
+        }
+    }
+}
@@ -0,0 +1,175 @@
+package com.qtp.mcpserver.service;
+
+import com.mongodb.bulk.BulkWriteResult;
+import com.qtp.mcpserver.dto.AlertCountMode;
+import com.qtp.mcpserver.dto.AlertPageRequest;
+import com.qtp.mcpserver.dto.AlertPageResult;
+import com.qtp.mcpserver.entity.Alert;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Qualifier;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.core.task.TaskExecutor;
+import org.springframework.data.domain.Sort;
+import org.springframework.data.mongodb.core.BulkOperations;
+import org.springframework.data.mongodb.core.MongoTemplate;
+import org.springframework.data.mongodb.core.query.Criteria;
+import org.springframework.data.mongodb.core.query.Query;
+import org.springframework.data.mongodb.core.query.TextCriteria;
+import org.springframework.data.mongodb.core.query.TextQuery;
+import org.springframework.data.mongodb.core.query.Update;
+import org.springframework.stereotype.Service;
+
+import java.util.List;
+import java.util.Set;
+
+/**
+ * 告警全文检索。
+ * 默认走 searchText 字段上的文本索引，按相关度（textScore）排序；
+ * 关键词无法分词或含单个汉字时退回原先的多字段正则匹配。
+ */
+@Service
+@Slf4j
+public class AlertTextSearchService {
+
+    public static final String MODE_TEXT = "text";
+    public static final String MODE_REGEX = "regex";
+
+    private static final int BACKFILL_BATCH_SIZE = 500;
+
+    private final MongoTemplate mongoTemplate;
+
+    private final AlertPageService alertPageService;
+
+    private final TaskExecutor taskExecutor;
+
+    private final boolean backfillOnStartup;
+
+    private final int countCap;
+
+    @Autowired
+    public AlertTextSearchService(MongoTemplate mongoTemplate,
+                                  AlertPageService alertPageService,
+                                  @Qualifier("applicationTaskExecutor") TaskExecutor taskExecutor,
+                                  @Value("${alert.search.backfill-on-startup:true}") boolean backfillOnStartup,
+                                  @Value("${alert.paging.count-cap:10000}") int countCap) {
+        this.mongoTemplate = mongoTemplate;
+        this.alertPageService = alertPageService;
+        this.taskExecutor = taskExecutor;
+        this.backfillOnStartup = backfillOnStartup;
+        this.countCap = countCap;
+    }
+
+    /**
+     * 全文检索
+     *
+     * @param keyword 关键词
+     * @param mode    text（默认，文本索引+相关度排序）或 regex（多字段正则，支持游标分页）
+     * @param request 分页参数，text 模式下只使用 pageNum/pageSize
+     */
+    public AlertPageResult search(String keyword, String mode, AlertPageRequest request) {
+        if (usesRegex(keyword, mode)) {
+            return alertPageService.page(regexQuery(keyword), request);
+        }
+        Set<String> tokens = AlertTextTokenizer.queryTokens(keyword);
+
+        // 每个词元作为短语传入，多个短语之间为“与”关系
+        TextCriteria criteria = TextCriteria.forLanguage("none");
+        tokens.forEach(criteria::matchingPhrase);
+
+        Query pageQuery = TextQuery.queryText(criteria).sortByScore()
+                .with(Sort.by(Sort.Direction.DESC, "endTime"))
+                .skip((long) (request.getPageNum() - 1) * request.getPageSize())
+                .limit(request.getPageSize());
+        List<Alert> alerts = mongoTemplate.find(AlertPayloadService.excludePayload(pageQuery), Alert.class);
+
+        boolean capped = request.getCountMode() == AlertCountMode.CAPPED || request.getCountMode() == AlertCountMode.ESTIMATED;
+        Query countQuery = new Query(criteria);
+        if (capped) {
+            countQuery.limit(countCap + 1);
+        }
+        long total = mongoTemplate.count(countQuery, Alert.class);
+
+        boolean totalCapped = capped && total > countCap;
+        AlertPageResult result = new AlertPageResult(alerts, totalCapped ? countCap : total,
+                request.getPageNum(), request.getPageSize());
+        result.setCountMode(capped ? AlertCountMode.CAPPED : AlertCountMode.EXACT);
+        result.setTotalCapped(totalCapped);
+        return result;
+    }
+
+    /**
+     * 是否按多字段正则匹配：指定 regex，或关键词无法分词、含单个汉字（文本索引只有二元组）
+     */
+    public static boolean usesRegex(String keyword, String mode) {
+        return MODE_REGEX.equalsIgnoreCase(mode) || AlertTextTokenizer.queryTokens(keyword).isEmpty()
+                || AlertTextTokenizer.hasSingleCjkChar(keyword);
+    }
+
+    /**
+     * 原有的多字段不区分大小写正则匹配，无法使用索引
+     */
+    public Query regexQuery(String keyword) {
+        Query query = new Query();
+        query.addCriteria(new Criteria().orOperator(
+            Criteria.where("caseExecId").regex(keyword, "i"),
+            Criteria.where("failReason").regex(keyword, "i"),
+            Criteria.where("alarmType").regex(keyword, "i"),
+            Criteria.where("layerName").regex(keyword, "i"),
+            Criteria.where("company").regex(keyword, "i"),
+            Criteria.where("systemName").regex(keyword, "i"),
+            Criteria.where("taskName").regex(keyword, "i"),
+            Criteria.where("host").regex(keyword, "i")
+        ));
+        return query;
+    }
+
+    @EventListener(ApplicationReadyEvent.class)
+    public void onApplicationReady() {
+        if (backfillOnStartup) {
+            taskExecutor.execute(() -> {
+                try {
+                    backfill();
+                } catch (Exception e) {
+                    log.warn("回填检索字段失败：{}", e.getMessage());
+                }
+            });
+        }
+    }
+
+    /**
+     * 为缺少 searchText 或 matchKeys 字段的历史告警补齐分词结果和匹配键，按批次批量更新
+     *
+     * @return 回填的文档数
+     */
+    public long backfill() {
+        long updated = 0;
+        while (true) {
+            Query query = new Query(new Criteria().orOperator(
+                    Criteria.where(AlertTextTokenizer.FIELD).exists(false),
+                    Criteria.where(AlertMatchKeys.FIELD).exists(false))).limit(BACKFILL_BATCH_SIZE);
+            AlertTextTokenizer.SOURCE_FIELDS.forEach(field -> query.fields().include(field));
+            List<Alert> batch = mongoTemplate.find(query, Alert.class);
+            if (batch.isEmpty()) {
+                break;
+            }
+            BulkOperations bulkOps = mongoTemplate.bulkOps(BulkOperations.BulkMode.UNORDERED, Alert.class);
+            for (Alert alert : batch) {
+                bulkOps.updateOne(Query.query(Criteria.where("id").is(alert.getId())),
+                        Update.update(AlertTextTokenizer.FIELD, AlertTextTokenizer.searchText(alert))
+                                .set(AlertMatchKeys.FIELD, AlertMatchKeys.document(alert)));
+            }
+            BulkWriteResult result = bulkOps.execute();
+            updated += result.getModifiedCount();
+            if (batch.size() < BACKFILL_BATCH_SIZE || result.getMatchedCount() == 0) {
+                break;
+            }
+        }
+        if (updated > 0) {
+            log.info("检索字段回填完成，共 {} 条", updated);
+        }
+        return updated;
+    }
+}
@@ -0,0 +1,126 @@
+package com.qtp.mcpserver.service;
+
+import com.qtp.mcpserver.entity.Alert;
+
+import java.util.ArrayList;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Locale;
+import java.util.Set;
+
+/**
+ * 全文检索分词器。
+ * MongoDB 文本索引不对中文分词，因此写入时预先分词：连续的中日韩字符按二元组（bigram）切分，
+ * 其余字母数字按非字母数字字符切分并转小写，结果以空格拼接存入 {@link #FIELD} 字段，
+ * 再由 language=none 的文本索引按空格建立倒排。
+ */
+public final class AlertTextTokenizer {
+
+    /** 分词结果在alert文档中的字段名 */
+    public static final String FIELD = "searchText";
+
+    /** 参与全文检索的告警字段 */
+    public static final List<String> SOURCE_FIELDS = List.of(
+            "caseExecId", "failReason", "alarmType", "layerName", "company", "systemName", "taskName", "host");
+
+    private AlertTextTokenizer() {
+    }
+
+    /**
+     * 生成告警的检索文本
+     */
+    public static String searchText(Alert alert) {
+        List<String> tokens = new ArrayList<>();
+        for (String value : sourceValues(alert)) {
+            tokenize(value, tokens);
+        }
+        return String.join(" ", tokens);
+    }
+
+    /**
+     * 参与全文检索的字段取值，顺序与 {@link #SOURCE_FIELDS} 一致
+     */
+    public static String[] sourceValues(Alert alert) {
+        return new String[]{alert.getCaseExecId(), alert.getFailReason(), alert.getAlarmType(),
+                alert.getLayerName(), alert.getCompany(), alert.getSystemName(), alert.getTaskName(), alert.getHost()};
+    }
+
+    /**
+     * 对检索关键词分词并去重
+     */
+    public static Set<String> queryTokens(String keyword) {
+        List<String> tokens = new ArrayList<>();
+        tokenize(keyword, tokens);
+        return new LinkedHashSet<>(tokens);
+    }
+
+    /**
+     * 关键词中是否含有单独的中日韩字符。文档中只索引了二元组，单字无法命中索引。
+     */
+    public static boolean hasSingleCjkChar(String keyword) {
+        int run = 0;
+        for (int i = 0; i < keyword.length(); ) {
+            int cp = keyword.codePointAt(i);
+            if (isCjk(cp)) {
+                run++;
+            } else {
+                if (run == 1) {
+                    return true;
+                }
+                run = 0;
+            }
+            i += Character.charCount(cp);
+        }
+        return run == 1;
+    }
+
+    private static void tokenize(String text, List<String> tokens) {
+        if (text == null || text.isEmpty()) {
+            return;
+        }
+        StringBuilder word = new StringBuilder();
+        List<Integer> cjkRun = new ArrayList<>();
+        for (int i = 0; i < text.length(); ) {
+            int cp = text.codePointAt(i);
+            if (isCjk(cp)) {
+                flushWord(word, tokens);
+                cjkRun.add(cp);
+            } else if (Character.isLetterOrDigit(cp)) {
+                flushCjk(cjkRun, tokens);
+                word.appendCodePoint(cp);
+            } else {
+                flushWord(word, tokens);
+                flushCjk(cjkRun, tokens);
+            }
+            i += Character.charCount(cp);
+        }
+        flushWord(word, tokens);
+        flushCjk(cjkRun, tokens);
+    }
+
+    private static void flushWord(StringBuilder word, List<String> tokens) {
+        if (word.length() > 0) {
+            tokens.add(word.toString().toLowerCase(Locale.ROOT));
+            word.setLength(0);
+        }
+    }
+
+    private static void flushCjk(List<Integer> run, List<String> tokens) {
+        if (run.size() == 1) {
+            tokens.add(new String(Character.toChars(run.get(0))));
+        } else {
+            for (int i = 0; i + 1 < run.size(); i++) {
+                tokens.add(new StringBuilder().appendCodePoint(run.get(i)).appendCodePoint(run.get(i + 1)).toString());
+            }
+        }
+        run.clear();
+    }
+
+    private static boolean isCjk(int codePoint) {
+        Character.UnicodeScript script = Character.UnicodeScript.of(codePoint);
+        return script == Character.UnicodeScript.HAN
+                || script == Character.UnicodeScript.HIRAGANA
+                || script == Character.UnicodeScript.KATAKANA
+                || script == Character.UnicodeScript.HANGUL;
+    }
+}
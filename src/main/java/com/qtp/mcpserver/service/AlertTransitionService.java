@@ -0,0 +1,153 @@
+package com.qtp.mcpserver.service;
+
+import com.qtp.mcpserver.dto.AlertTransitionResult;
+import com.qtp.mcpserver.dto.AlertTransitionResult.Outcome;
+import com.qtp.mcpserver.entity.Alert;
+import com.qtp.mcpserver.event.AlertChangeEvent;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.context.ApplicationEventPublisher;
+import org.springframework.data.mongodb.core.FindAndModifyOptions;
+import org.springframework.data.mongodb.core.MongoTemplate;
+import org.springframework.data.mongodb.core.aggregation.AggregationUpdate;
+import org.springframework.data.mongodb.core.aggregation.ComparisonOperators;
+import org.springframework.data.mongodb.core.aggregation.ConditionalOperators;
+import org.springframework.data.mongodb.core.aggregation.StringOperators;
+import org.springframework.data.mongodb.core.query.Criteria;
+import org.springframework.data.mongodb.core.query.Query;
+import org.springframework.data.mongodb.core.query.Update;
+import org.springframework.data.mongodb.core.query.UpdateDefinition;
+import org.springframework.stereotype.Service;
+
+import java.util.Date;
+import java.util.List;
+import java.util.function.Consumer;
+
+/**
+ * 告警状态流转（解决/激活/升级）。
+ * 每个操作都是一次带前置条件的 findAndModify：只有当前状态允许时才修改，
+ * 只返回变更前的投影字段，不读写整篇文档；只有条件未命中时才额外查询一次用于给出准确提示。
+ * 告警已归档时先移回 alert 集合（{@link AlertArchiveService#restore}）再流转。
+ */
+@Service
+public class AlertTransitionService {
+
+    private static final String[] PROJECTED_FIELDS = {"caseExecId", "status", "alarmLevel", "alarmType", "company",
+            "systemName", "taskName", "host", "endTime", "isRecover", "recoverTime"};
+
+    private final MongoTemplate mongoTemplate;
+
+    private final ApplicationEventPublisher eventPublisher;
+
+    private final AlertArchiveService alertArchiveService;
+
+    @Autowired
+    public AlertTransitionService(MongoTemplate mongoTemplate, ApplicationEventPublisher eventPublisher,
+                                  AlertArchiveService alertArchiveService) {
+        this.mongoTemplate = mongoTemplate;
+        this.eventPublisher = eventPublisher;
+        this.alertArchiveService = alertArchiveService;
+    }
+
+    /**
+     * 解决告警：status 0/2 → 1，同时标记已恢复并记录恢复时间
+     */
+    public AlertTransitionResult resolve(String id) {
+        Date now = new Date();
+        AlertTransitionResult result = apply(id, Criteria.where("status").ne(1),
+                new Update().set("status", 1).set("isRecover", true).set("recoverTime", now),
+                alert -> {
+                    alert.setStatus(1);
+                    alert.setIsRecover(true);
+                    alert.setRecoverTime(now);
+                });
+        if (result.getOutcome() == Outcome.APPLIED) {
+            result.getChanges().put("status", 1);
+            result.getChanges().put("isRecover", true);
+            result.getChanges().put("recoverTime", now);
+        } else if (result.getOutcome() == Outcome.UNCHANGED) {
+            result.setMessage("告警已是已解决状态");
+        }
+        return result;
+    }
+
+    /**
+     * 激活告警：status → 0，并清除已恢复标记
+     */
+    public AlertTransitionResult activate(String id) {
+        AlertTransitionResult result = apply(id, Criteria.where("status").ne(0),
+                new Update().set("status", 0).set("isRecover", false),
+                alert -> {
+                    alert.setStatus(0);
+                    alert.setIsRecover(false);
+                });
+        if (result.getOutcome() == Outcome.APPLIED) {
+            result.getChanges().put("status", 0);
+            result.getChanges().put("isRecover", false);
+        } else if (result.getOutcome() == Outcome.UNCHANGED) {
+            result.setMessage("告警已是活跃状态");
+        }
+        return result;
+    }
+
+    /**
+     * 升级告警级别：info → warning → critical。
+     * 仅当级别仍为 info/warning（不区分大小写）时才修改，新级别由管道更新在服务端按当前值计算。
+     */
+    public AlertTransitionResult escalate(String id) {
+        AggregationUpdate update = AggregationUpdate.update().set("alarmLevel").toValue(
+                ConditionalOperators.when(ComparisonOperators.valueOf(StringOperators.valueOf("alarmLevel").toLower())
+                                .equalToValue("info"))
+                        .then("warning")
+                        .otherwise("critical"));
+        AlertTransitionResult result = apply(id, Criteria.where("alarmLevel").regex("^(info|warning)$", "i"), update,
+                alert -> alert.setAlarmLevel(nextLevel(alert.getAlarmLevel())));
+        if (result.getOutcome() == Outcome.APPLIED) {
+            result.getChanges().put("alarmLevel", nextLevel(result.getBefore().getAlarmLevel()));
+        } else if (result.getOutcome() == Outcome.UNCHANGED) {
+            String currentLevel = result.getBefore().getAlarmLevel();
+            result.setOutcome(Outcome.REJECTED);
+            result.setMessage("critical".equalsIgnoreCase(currentLevel)
+                    ? "告警已是最高级别（critical），无法再升级" : "未知的告警级别：" + currentLevel);
+        }
+        return result;
+    }
+
+    private static String nextLevel(String currentLevel) {
+        return "info".equalsIgnoreCase(currentLevel) ? "warning" : "critical";
+    }
+
+    /**
+     * 带条件的 findAndModify。条件未命中时再按ID投影查询一次，区分“不存在”和“状态不满足”；
+     * alert 中不存在而归档中存在时移回 alert 后重新执行。
+     *
+     * @param mutation 将同样的修改应用到变更前快照上，用于发布变更事件
+     */
+    private AlertTransitionResult apply(String id, Criteria condition, UpdateDefinition update, Consumer<Alert> mutation) {
+        Query query = Query.query(Criteria.where("id").is(id)).addCriteria(condition);
+        query.fields().include(PROJECTED_FIELDS);
+        Alert before = mongoTemplate.findAndModify(query, update, FindAndModifyOptions.options().returnNew(false), Alert.class);
+        if (before != null) {
+            Alert after = AlertChangeEvent.snapshot(before);
+            mutation.accept(after);
+            eventPublisher.publishEvent(AlertChangeEvent.updated(before, after));
+            AlertTransitionResult result = AlertTransitionResult.of(Outcome.APPLIED, null);
+            result.setBefore(before);
+            result.getChanges().put("id", id);
+            return result;
+        }
+
+        Query current = Query.query(Criteria.where("id").is(id));
+        current.fields().include(PROJECTED_FIELDS);
+        Alert existing = mongoTemplate.findOne(current, Alert.class);
+        if (existing == null) {
+            if (!alertArchiveService.restore(List.of(id)).isEmpty()) {
+                return apply(id, condition, update, mutation);
+            }
+            return AlertTransitionResult.of(Outcome.NOT_FOUND, "告警不存在");
+        }
+        AlertTransitionResult result = AlertTransitionResult.of(Outcome.UNCHANGED, null);
+        result.setBefore(existing);
+        result.getChanges().put("id", id);
+        return result;
+    }
+}
@@ -0,0 +1,150 @@
+package com.qtp.mcpserver.service;
+
+import com.qtp.mcpserver.dto.AlertCountMode;
+import com.qtp.mcpserver.dto.AlertFilter;
+import com.qtp.mcpserver.dto.AlertPageRequest;
+import com.qtp.mcpserver.dto.AlertPageResult;
+import com.qtp.mcpserver.dto.AlertStatistics;
+import com.qtp.mcpserver.entity.Alert;
+import com.qtp.mcpserver.storage.MongoAlertStore;
+import org.bson.Document;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.data.mongodb.core.ReactiveMongoTemplate;
+import org.springframework.data.mongodb.core.aggregation.Aggregation;
+import org.springframework.data.mongodb.core.query.Query;
+import org.springframework.stereotype.Service;
+import reactor.core.publisher.Mono;
+
+import java.util.List;
+
+/**
+ * 告警查询的响应式实现，供 alert.tools.mode=reactive（SSE/WebFlux）下的MCP工具使用。
+ * 查询计划（排序校验、游标条件、合并归档的分页管道）与同步实现共用，只是改由 {@link ReactiveMongoTemplate} 执行，
+ * 等待数据库期间不占用任何线程。
+ */
+@Service
+@ConditionalOnProperty(name = "alert.tools.mode", havingValue = "reactive")
+public class ReactiveAlertQueryService {
+
+    private final ReactiveMongoTemplate reactiveMongoTemplate;
+
+    private final AlertPageService alertPageService;
+
+    private final AlertStatisticsService alertStatisticsService;
+
+    private final AlertCacheService alertCacheService;
+
+    private final AlertPayloadService alertPayloadService;
+
+    private final AlertArchiveService alertArchiveService;
+
+    private final AlertQueryCoalescer alertQueryCoalescer;
+
+    @Autowired
+    public ReactiveAlertQueryService(ReactiveMongoTemplate reactiveMongoTemplate,
+                                     AlertPageService alertPageService,
+                                     AlertStatisticsService alertStatisticsService,
+                                     AlertCacheService alertCacheService,
+                                     AlertPayloadService alertPayloadService,
+                                     AlertArchiveService alertArchiveService,
+                                     AlertQueryCoalescer alertQueryCoalescer) {
+        this.reactiveMongoTemplate = reactiveMongoTemplate;
+        this.alertPageService = alertPageService;
+        this.alertStatisticsService = alertStatisticsService;
+        this.alertCacheService = alertCacheService;
+        this.alertPayloadService = alertPayloadService;
+        this.alertArchiveService = alertArchiveService;
+        this.alertQueryCoalescer = alertQueryCoalescer;
+    }
+
+    /**
+     * 先查本地缓存，未命中再异步查库（报文拆分存储时再取报文）并回填；alert 中没有时再查归档，归档中的告警不进缓存
+     */
+    public Mono<Alert> findById(String id) {
+        Alert cached = alertCacheService.getIfPresent(id);
+        if (cached != null) {
+            return Mono.just(cached);
+        }
+        Mono<Alert> archived = alertArchiveService.getLatestArchived() == null ? Mono.empty()
+                : reactiveMongoTemplate.findById(id, Alert.class, alertArchiveService.getCollection()).flatMap(this::attach);
+        return reactiveMongoTemplate.findById(id, Alert.class)
+                .flatMap(this::attach)
+                .doOnNext(alertCacheService::put)
+                .switchIfEmpty(archived);
+    }
+
+    private Mono<Alert> attach(Alert alert) {
+        if (!alertPayloadService.needsAttach(alert)) {
+            return Mono.just(alert);
+        }
+        return reactiveMongoTemplate.getCollection(AlertPayloadService.COLLECTION)
+                .flatMap(collection -> Mono.from(collection.find(new Document("_id", alert.getId())).first()))
+                .map(payload -> alertPayloadService.apply(alert, payload))
+                .defaultIfEmpty(alert);
+    }
+
+    /**
+     * 分页查询，语义与 {@link MongoAlertStore#page} 相同：条件由 {@link MongoAlertStore#query} 转换，触及归档时合并归档；
+     * 相同的并发查询只执行一次，合并键与同步实现一致，两者可共享同一次查询
+     */
+    public Mono<AlertPageResult> page(AlertFilter filter, AlertPageRequest request) {
+        return Mono.defer(() -> {
+            Query query = MongoAlertStore.query(filter);
+            boolean includeArchive = alertArchiveService.reaches(filter);
+            return alertQueryCoalescer.executeReactive("page",
+                    AlertQueryCoalescer.key(query.getQueryObject().toJson(), request, includeArchive),
+                    () -> execute(query, request, includeArchive));
+        });
+    }
+
+    private Mono<AlertPageResult> execute(Query filter, AlertPageRequest request, boolean includeArchive) {
+        return Mono.defer(() -> {
+            AlertPageService.PagePlan plan = alertPageService.plan(filter, request, includeArchive);
+            if (plan.mode() == AlertCountMode.FACET) {
+                return reactiveMongoTemplate.aggregate(plan.facetAggregation(), Document.class).next()
+                        .map(facet -> plan.facetResult(facet, reactiveMongoTemplate.getConverter()));
+            }
+            Mono<List<Alert>> alerts = includeArchive
+                    ? reactiveMongoTemplate.aggregate(plan.pageAggregation(), Alert.class).collectList()
+                    : reactiveMongoTemplate.find(plan.pageQuery(), Alert.class).collectList();
+            Mono<Long> total;
+            if (plan.mode() == AlertCountMode.ESTIMATED) {
+                total = reactiveMongoTemplate.estimatedCount(Alert.class);
+            } else {
+                total = reactiveMongoTemplate.count(plan.countQuery(), Alert.class);
+                if (includeArchive) {
+                    total = total.zipWith(reactiveMongoTemplate.count(plan.countQuery(), Alert.class,
+                            alertArchiveService.getCollection()), Long::sum);
+                }
+            }
+            return Mono.zip(alerts, total).map(tuple -> plan.result(tuple.getT1(), tuple.getT2()));
+        });
+    }
+
+    /**
+     * 告警统计，语义与 {@link MongoAlertStore#statistics} 相同：无过滤条件时直接读内存计数器
+     */
+    public Mono<AlertStatistics> statistics(AlertFilter filter) {
+        if (alertStatisticsService.canUseCounters(filter)) {
+            return Mono.fromSupplier(alertStatisticsService::counterSnapshot);
+        }
+        return aggregate(filter);
+    }
+
+    /**
+     * 按条件聚合统计，相同的并发查询只执行一次，合并键与同步实现一致
+     */
+    public Mono<AlertStatistics> aggregate(AlertFilter filter) {
+        return Mono.defer(() -> {
+            boolean includeArchive = alertArchiveService.reaches(filter);
+            Aggregation aggregation = alertStatisticsService.aggregation(MongoAlertStore.criteria(filter), includeArchive);
+            return alertQueryCoalescer.executeReactive("statistics",
+                    AlertQueryCoalescer.key(MongoAlertStore.query(filter).getQueryObject().toJson(), includeArchive),
+                    () -> reactiveMongoTemplate.aggregate(aggregation, Alert.class, Document.class)
+                            .next()
+                            .map(alertStatisticsService::toStatistics)
+                            .switchIfEmpty(Mono.fromSupplier(() -> alertStatisticsService.toStatistics(null))));
+        });
+    }
+}
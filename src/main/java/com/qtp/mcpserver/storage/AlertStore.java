@@ -0,0 +1,88 @@
+package com.qtp.mcpserver.storage;
+
+import com.qtp.mcpserver.dto.AlertBulkResult;
+import com.qtp.mcpserver.dto.AlertFilter;
+import com.qtp.mcpserver.dto.AlertPageRequest;
+import com.qtp.mcpserver.dto.AlertPageResult;
+import com.qtp.mcpserver.dto.AlertStatistics;
+import com.qtp.mcpserver.dto.AlertTransitionResult;
+import com.qtp.mcpserver.dto.AlertTrend;
+import com.qtp.mcpserver.entity.Alert;
+
+import java.util.Collection;
+import java.util.Date;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * 告警存储引擎，REST接口和MCP工具的告警增删改查、分页、统计都经由该接口完成。
+ * 由 alert.storage.type 选择实现：
+ * <ul>
+ *     <li>mongo（默认）：{@link MongoAlertStore}，委托给现有的 MongoDB 服务</li>
+ *     <li>memory：{@link InMemoryAlertStore}，进程内列式存储，不依赖 MongoDB</li>
+ * </ul>
+ * 所有写入都会发布 {@link com.qtp.mcpserver.event.AlertChangeEvent}。
+ * 列表类结果（分页、find）不包含探测报文，只有 {@link #findById} 返回完整告警。
+ * 导出、批量接入和管理接口（重建、回填等）仍直接基于 MongoDB。
+ */
+public interface AlertStore {
+
+    /**
+     * 按ID读取完整告警（含报文），不存在时返回 null
+     */
+    Alert findById(String id);
+
+    /**
+     * 保存告警：ID为空时生成新ID，ID已存在时整体替换
+     *
+     * @return 保存后的告警（带ID）
+     */
+    Alert save(Alert alert);
+
+    /**
+     * 按ID整体替换已存在的告警，告警不存在时不写入
+     *
+     * @return 替换后的告警，不存在时返回 null
+     */
+    Alert replace(Alert alert);
+
+    /**
+     * 按ID删除
+     *
+     * @return 被删除的告警，不存在时返回 null
+     */
+    Alert deleteById(String id);
+
+    AlertBulkResult deleteByIds(Collection<String> ids);
+
+    AlertBulkResult updateStatus(Collection<String> ids, Integer targetStatus);
+
+    AlertTransitionResult resolve(String id);
+
+    AlertTransitionResult activate(String id);
+
+    AlertTransitionResult escalate(String id);
+
+    /**
+     * 分页查询，排序、游标和计数方式的语义与 {@link com.qtp.mcpserver.service.AlertPageService} 一致
+     */
+    AlertPageResult page(AlertFilter filter, AlertPageRequest request);
+
+    AlertStatistics statistics(AlertFilter filter);
+
+    /**
+     * 按告警时间倒序返回最多 limit 条
+     */
+    List<Alert> find(AlertFilter filter, int limit);
+
+    /**
+     * 全文检索，语义与 {@link com.qtp.mcpserver.service.AlertTextSearchService#search} 一致：
+     * text 模式按相关度倒序、不支持游标；regex 模式或关键词无法分词时按多字段正则匹配并沿用分页参数
+     */
+    AlertPageResult search(String keyword, String mode, AlertPageRequest request);
+
+    /**
+     * 告警趋势，语义与 {@link com.qtp.mcpserver.service.AlertRollupService#trend} 一致
+     */
+    AlertTrend trend(Date startTime, Date endTime, String granularity, Map<String, String> filters, String groupBy);
+}
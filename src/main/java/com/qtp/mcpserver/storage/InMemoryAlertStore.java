@@ -0,0 +1,1190 @@
+package com.qtp.mcpserver.storage;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.qtp.mcpserver.dto.AlertBulkResult;
+import com.qtp.mcpserver.dto.AlertCountMode;
+import com.qtp.mcpserver.dto.AlertFilter;
+import com.qtp.mcpserver.dto.AlertMatchMode;
+import com.qtp.mcpserver.dto.AlertPageRequest;
+import com.qtp.mcpserver.dto.AlertPageResult;
+import com.qtp.mcpserver.dto.AlertStatistics;
+import com.qtp.mcpserver.dto.AlertTransitionResult;
+import com.qtp.mcpserver.dto.AlertTransitionResult.Outcome;
+import com.qtp.mcpserver.dto.AlertTrend;
+import com.qtp.mcpserver.entity.Alert;
+import com.qtp.mcpserver.event.AlertChangeEvent;
+import com.qtp.mcpserver.service.AlertCursor;
+import com.qtp.mcpserver.service.AlertMatchKeys;
+import com.qtp.mcpserver.service.AlertRollupService;
+import com.qtp.mcpserver.service.AlertStatisticsService;
+import com.qtp.mcpserver.service.AlertTextSearchService;
+import com.qtp.mcpserver.service.AlertTextTokenizer;
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+import lombok.extern.slf4j.Slf4j;
+import org.bson.types.ObjectId;
+import org.springframework.beans.BeanUtils;
+import org.springframework.beans.BeanWrapperImpl;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.context.ApplicationEventPublisher;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+import org.springframework.util.ReflectionUtils;
+
+import java.beans.PropertyDescriptor;
+import java.io.BufferedReader;
+import java.io.BufferedWriter;
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.io.OutputStreamWriter;
+import java.io.UncheckedIOException;
+import java.io.Writer;
+import java.lang.reflect.Method;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.BitSet;
+import java.util.Collection;
+import java.util.Comparator;
+import java.util.Date;
+import java.util.HashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.NavigableMap;
+import java.util.Objects;
+import java.util.Set;
+import java.util.TreeMap;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+import java.util.function.Consumer;
+import java.util.function.IntConsumer;
+import java.util.function.IntPredicate;
+import java.util.function.Supplier;
+import java.util.regex.Pattern;
+import java.util.zip.GZIPInputStream;
+import java.util.zip.GZIPOutputStream;
+
+/**
+ * 进程内告警存储（alert.storage.type=memory），不依赖 MongoDB，用于边缘站点、本地 stdio 调试和压测。
+ * <p>
+ * 数据按列组织，以 int 行号为主键：
+ * <ul>
+ *     <li>status、alarmLevel、alarmType、company、systemName 为字典编码的 int 列，每个取值一张行号位图作为二级索引；</li>
+ *     <li>endTime 为 long 列，另有按时间有序的索引，用于时间范围过滤和按时间排序的分页；</li>
+ *     <li>caseExecId、taskName、host 另存归一化的匹配键列，与 MongoDB 中的 matchKeys 一致；</li>
+ *     <li>全文检索的分词结果另存一列，与 MongoDB 中的 searchText 一致；</li>
+ *     <li>其余字段按行保存。</li>
+ * </ul>
+ * 过滤时先用位图求交，剩余的文本条件再逐行比较匹配键。排序、游标、计数方式和状态流转的语义与 {@link MongoAlertStore} 一致。
+ * 全文检索和趋势没有索引或预聚合，逐行扫描。
+ * <p>
+ * 配置了 alert.storage.memory.snapshot-path 时，启动时从快照恢复，之后定期（有变化时）及关闭时写入快照：
+ * gzip 压缩的 NDJSON，先写临时文件再原子替换，写入过程中进程退出不会损坏上一份快照。
+ */
+@Component
+@ConditionalOnProperty(name = "alert.storage.type", havingValue = "memory")
+@Slf4j
+public class InMemoryAlertStore implements AlertStore {
+
+    private static final long NULL_TIME = Long.MIN_VALUE;
+
+    private static final int INITIAL_CAPACITY = 1024;
+
+    private final ApplicationEventPublisher eventPublisher;
+
+    private final AlertCountMode defaultCountMode;
+
+    private final int countCap;
+
+    private final Path snapshotPath;
+
+    /** 快照序列化器，日期按毫秒时间戳写入 */
+    private final ObjectMapper objectMapper = new ObjectMapper();
+
+    private final ReentrantReadWriteLock lock = new ReentrantReadWriteLock();
+
+    private final Map<String, Integer> rowById = new HashMap<>();
+
+    private final BitSet live = new BitSet();
+
+    private String[] ids = new String[INITIAL_CAPACITY];
+
+    /** 列存之外的字段，列存字段在这里置空 */
+    private Alert[] rows = new Alert[INITIAL_CAPACITY];
+
+    private long[] endTimes = new long[INITIAL_CAPACITY];
+
+    /** caseExecId、taskName、host 的归一化匹配键，与 MongoDB 中的 matchKeys 一致 */
+    private String[] caseExecIdKeys = new String[INITIAL_CAPACITY];
+
+    private String[] taskNameKeys = new String[INITIAL_CAPACITY];
+
+    private String[] hostKeys = new String[INITIAL_CAPACITY];
+
+    /** 全文检索分词结果（空格分隔），与 MongoDB 中的 searchText 一致 */
+    private String[] searchTexts = new String[INITIAL_CAPACITY];
+
+    private final TreeMap<Long, RowList> endTimeIndex = new TreeMap<>();
+
+    private final BitSet nullEndTime = new BitSet();
+
+    private final DictionaryColumn<Integer> status = new DictionaryColumn<>(INITIAL_CAPACITY);
+
+    private final DictionaryColumn<String> alarmLevel = new DictionaryColumn<>(INITIAL_CAPACITY);
+
+    private final DictionaryColumn<String> alarmType = new DictionaryColumn<>(INITIAL_CAPACITY);
+
+    private final DictionaryColumn<String> company = new DictionaryColumn<>(INITIAL_CAPACITY);
+
+    private final DictionaryColumn<String> systemName = new DictionaryColumn<>(INITIAL_CAPACITY);
+
+    /** 每次写入加一，定期快照据此跳过没有变化的周期 */
+    private final AtomicLong version = new AtomicLong();
+
+    private volatile long snapshotVersion;
+
+    @Autowired
+    public InMemoryAlertStore(ApplicationEventPublisher eventPublisher,
+                              @Value("${alert.paging.count-mode:EXACT}") String defaultCountMode,
+                              @Value("${alert.paging.count-cap:10000}") int countCap,
+                              @Value("${alert.storage.memory.snapshot-path:}") String snapshotPath) {
+        this.eventPublisher = eventPublisher;
+        this.defaultCountMode = AlertCountMode.parse(defaultCountMode, AlertCountMode.EXACT);
+        this.countCap = countCap;
+        this.snapshotPath = snapshotPath == null || snapshotPath.trim().isEmpty() ? null : Path.of(snapshotPath.trim());
+        Arrays.fill(endTimes, NULL_TIME);
+    }
+
+    @Override
+    public Alert findById(String id) {
+        lock.readLock().lock();
+        try {
+            Integer row = id == null ? null : rowById.get(id);
+            return row == null ? null : materialize(row, true);
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    @Override
+    public Alert save(Alert alert) {
+        if (alert.getId() == null) {
+            alert.setId(new ObjectId().toHexString());
+        }
+        saveOrReplace(alert, true);
+        return alert;
+    }
+
+    @Override
+    public Alert replace(Alert alert) {
+        return saveOrReplace(alert, false) ? alert : null;
+    }
+
+    /**
+     * @return 是否写入；insert 为 false 且告警不存在时不写入
+     */
+    private boolean saveOrReplace(Alert alert, boolean insert) {
+        AlertChangeEvent event;
+        lock.writeLock().lock();
+        try {
+            Integer row = rowById.get(alert.getId());
+            if (row == null) {
+                if (!insert) {
+                    return false;
+                }
+                event = AlertChangeEvent.created(materialize(insert(alert), false));
+            } else {
+                Alert before = materialize(row, false);
+                write(row, alert);
+                event = AlertChangeEvent.updated(before, materialize(row, false));
+            }
+            version.incrementAndGet();
+        } finally {
+            lock.writeLock().unlock();
+        }
+        eventPublisher.publishEvent(event);
+        return true;
+    }
+
+    @Override
+    public Alert deleteById(String id) {
+        Alert existing;
+        lock.writeLock().lock();
+        try {
+            Integer row = id == null ? null : rowById.get(id);
+            if (row == null) {
+                return null;
+            }
+            existing = materialize(row, false);
+            remove(row);
+            version.incrementAndGet();
+        } finally {
+            lock.writeLock().unlock();
+        }
+        eventPublisher.publishEvent(AlertChangeEvent.deleted(existing));
+        return existing;
+    }
+
+    @Override
+    public AlertBulkResult deleteByIds(Collection<String> ids) {
+        AlertBulkResult result = new AlertBulkResult();
+        List<AlertChangeEvent> events = new ArrayList<>();
+        lock.writeLock().lock();
+        try {
+            for (String id : distinct(ids)) {
+                Integer row = rowById.get(id);
+                if (row == null) {
+                    result.getNotFoundIds().add(id);
+                    continue;
+                }
+                result.getAffected().add(projection(row, false));
+                events.add(AlertChangeEvent.deleted(materialize(row, false)));
+                remove(row);
+                result.setModifiedCount(result.getModifiedCount() + 1);
+            }
+            version.incrementAndGet();
+        } finally {
+            lock.writeLock().unlock();
+        }
+        events.forEach(eventPublisher::publishEvent);
+        return result;
+    }
+
+    /**
+     * 与 MongoDB 的 modifiedCount 一致，状态本来就等于目标状态的告警不计入修改条数
+     */
+    @Override
+    public AlertBulkResult updateStatus(Collection<String> ids, Integer targetStatus) {
+        AlertBulkResult result = new AlertBulkResult();
+        List<AlertChangeEvent> events = new ArrayList<>();
+        lock.writeLock().lock();
+        try {
+            for (String id : distinct(ids)) {
+                Integer row = rowById.get(id);
+                if (row == null) {
+                    result.getNotFoundIds().add(id);
+                    continue;
+                }
+                result.getAffected().add(projection(row, false));
+                Alert before = materialize(row, false);
+                if (!Objects.equals(status.get(row), targetStatus)) {
+                    status.set(row, targetStatus);
+                    result.setModifiedCount(result.getModifiedCount() + 1);
+                }
+                events.add(AlertChangeEvent.updated(before, materialize(row, false)));
+            }
+            version.incrementAndGet();
+        } finally {
+            lock.writeLock().unlock();
+        }
+        events.forEach(eventPublisher::publishEvent);
+        return result;
+    }
+
+    @Override
+    public AlertTransitionResult resolve(String id) {
+        Date now = new Date();
+        AlertTransitionResult result = transition(id, row -> !Objects.equals(status.get(row), 1),
+                alert -> {
+                    alert.setStatus(1);
+                    alert.setIsRecover(true);
+                    alert.setRecoverTime(now);
+                });
+        if (result.getOutcome() == Outcome.APPLIED) {
+            result.getChanges().put("status", 1);
+            result.getChanges().put("isRecover", true);
+            result.getChanges().put("recoverTime", now);
+        } else if (result.getOutcome() == Outcome.UNCHANGED) {
+            result.setMessage("告警已是已解决状态");
+        }
+        return result;
+    }
+
+    @Override
+    public AlertTransitionResult activate(String id) {
+        AlertTransitionResult result = transition(id, row -> !Objects.equals(status.get(row), 0),
+                alert -> {
+                    alert.setStatus(0);
+                    alert.setIsRecover(false);
+                });
+        if (result.getOutcome() == Outcome.APPLIED) {
+            result.getChanges().put("status", 0);
+            result.getChanges().put("isRecover", false);
+        } else if (result.getOutcome() == Outcome.UNCHANGED) {
+            result.setMessage("告警已是活跃状态");
+        }
+        return result;
+    }
+
+    @Override
+    public AlertTransitionResult escalate(String id) {
+        AlertTransitionResult result = transition(id, row -> "info".equalsIgnoreCase(alarmLevel.get(row))
+                        || "warning".equalsIgnoreCase(alarmLevel.get(row)),
+                alert -> alert.setAlarmLevel(nextLevel(alert.getAlarmLevel())));
+        if (result.getOutcome() == Outcome.APPLIED) {
+            result.getChanges().put("alarmLevel", nextLevel(result.getBefore().getAlarmLevel()));
+        } else if (result.getOutcome() == Outcome.UNCHANGED) {
+            String currentLevel = result.getBefore().getAlarmLevel();
+            result.setOutcome(Outcome.REJECTED);
+            result.setMessage("critical".equalsIgnoreCase(currentLevel)
+                    ? "告警已是最高级别（critical），无法再升级" : "未知的告警级别：" + currentLevel);
+        }
+        return result;
+    }
+
+    private static String nextLevel(String currentLevel) {
+        return "info".equalsIgnoreCase(currentLevel) ? "warning" : "critical";
+    }
+
+    /**
+     * 条件满足时修改并返回 APPLIED，否则返回 UNCHANGED；before 为修改前的投影
+     */
+    private AlertTransitionResult transition(String id, IntPredicate applicable, Consumer<Alert> mutation) {
+        AlertTransitionResult result;
+        AlertChangeEvent event = null;
+        lock.writeLock().lock();
+        try {
+            Integer row = id == null ? null : rowById.get(id);
+            if (row == null) {
+                return AlertTransitionResult.of(Outcome.NOT_FOUND, "告警不存在");
+            }
+            boolean apply = applicable.test(row);
+            result = AlertTransitionResult.of(apply ? Outcome.APPLIED : Outcome.UNCHANGED, null);
+            result.setBefore(projection(row, true));
+            result.getChanges().put("id", id);
+            if (apply) {
+                Alert before = materialize(row, true);
+                Alert after = AlertChangeEvent.snapshot(before);
+                mutation.accept(after);
+                write(row, after);
+                version.incrementAndGet();
+                event = AlertChangeEvent.updated(before, after);
+            }
+        } finally {
+            lock.writeLock().unlock();
+        }
+        if (event != null) {
+            eventPublisher.publishEvent(event);
+        }
+        return result;
+    }
+
+    @Override
+    public AlertPageResult page(AlertFilter filter, AlertPageRequest request) {
+        return page(() -> match(filter), filter.isEmpty(), request);
+    }
+
+    /**
+     * @param matcher    在读锁内求出命中的行
+     * @param unfiltered 是否没有过滤条件，ESTIMATED 只对无条件查询生效
+     */
+    private AlertPageResult page(Supplier<BitSet> matcher, boolean unfiltered, AlertPageRequest request) {
+        String sortField = request.getSortField();
+        boolean ascending = "asc".equalsIgnoreCase(request.getSortOrder());
+        Method reader = sortReader(sortField);
+        AlertCursor cursor = null;
+        long skip = 0;
+        if (request.isCursorMode()) {
+            cursor = AlertCursor.decode(request.getCursor());
+            if (!sortField.equals(cursor.getSortField()) || ascending != cursor.isAscending()) {
+                throw new IllegalArgumentException("分页游标与当前排序条件不匹配");
+            }
+        } else {
+            skip = (long) (request.getPageNum() - 1) * request.getPageSize();
+        }
+        AlertCountMode mode = request.getCountMode() != null ? request.getCountMode() : defaultCountMode;
+        if (mode == AlertCountMode.ESTIMATED && !unfiltered) {
+            mode = AlertCountMode.CAPPED;
+        }
+
+        List<Alert> alerts = new ArrayList<>();
+        long total;
+        lock.readLock().lock();
+        try {
+            BitSet matches = matcher.get();
+            total = matches.cardinality();
+            // 多取一条用于判断是否还有下一页
+            for (int row : select(matches, sortField, reader, ascending, cursor, skip, request.getPageSize() + 1)) {
+                alerts.add(materialize(row, false));
+            }
+        } finally {
+            lock.readLock().unlock();
+        }
+
+        boolean totalCapped = false;
+        if (mode == AlertCountMode.CAPPED && total > countCap) {
+            total = countCap;
+            totalCapped = true;
+        }
+        String nextCursor = null;
+        if (alerts.size() > request.getPageSize()) {
+            alerts = alerts.subList(0, request.getPageSize());
+            Alert last = alerts.get(alerts.size() - 1);
+            Object lastValue = "id".equals(sortField) ? last.getId() : new BeanWrapperImpl(last).getPropertyValue(sortField);
+            nextCursor = new AlertCursor(sortField, ascending, lastValue, last.getId()).encode();
+        }
+        AlertPageResult result = new AlertPageResult(alerts, total, request.getPageNum(), request.getPageSize());
+        result.setNextCursor(nextCursor);
+        result.setCountMode(mode);
+        result.setTotalCapped(totalCapped);
+        return result;
+    }
+
+    @Override
+    public AlertStatistics statistics(AlertFilter filter) {
+        lock.readLock().lock();
+        try {
+            BitSet matches = filter.isEmpty() ? null : match(filter);
+            AlertStatistics statistics = new AlertStatistics();
+            statistics.setTotalCount(matches == null ? live.cardinality() : matches.cardinality());
+            status.count(matches, statistics.getStatusStats());
+            alarmLevel.count(matches, statistics.getLevelStats());
+            alarmType.count(matches, statistics.getTypeStats());
+            company.count(matches, statistics.getCompanyStats());
+            systemName.count(matches, statistics.getSystemStats());
+            return statistics;
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    @Override
+    public List<Alert> find(AlertFilter filter, int limit) {
+        lock.readLock().lock();
+        try {
+            List<Alert> alerts = new ArrayList<>();
+            for (int row : select(match(filter), "endTime", null, false, null, 0, limit)) {
+                alerts.add(materialize(row, false));
+            }
+            return alerts;
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    /**
+     * text 模式按词元全部出现匹配，相关度近似为查询词元在分词结果中的出现次数，
+     * 按相关度、告警时间倒序，只使用 pageNum/pageSize；regex 模式按多字段正则逐行匹配后沿用分页
+     */
+    @Override
+    public AlertPageResult search(String keyword, String mode, AlertPageRequest request) {
+        if (AlertTextSearchService.usesRegex(keyword, mode)) {
+            Pattern pattern = Pattern.compile(keyword, Pattern.CASE_INSENSITIVE | Pattern.UNICODE_CASE);
+            return page(() -> matchRegex(pattern), false, request);
+        }
+        Set<String> tokens = AlertTextTokenizer.queryTokens(keyword);
+        List<SortKey> hits = new ArrayList<>();
+        List<Alert> alerts = new ArrayList<>();
+        long skip = (long) (request.getPageNum() - 1) * request.getPageSize();
+        lock.readLock().lock();
+        try {
+            for (int row = live.nextSetBit(0); row >= 0; row = live.nextSetBit(row + 1)) {
+                int score = score(searchTexts[row], tokens);
+                if (score > 0) {
+                    hits.add(new SortKey(row, score, ids[row]));
+                }
+            }
+            hits.sort(Comparator.comparing((SortKey hit) -> (Integer) hit.value()).reversed()
+                    .thenComparing(hit -> endTimes[hit.row()], Comparator.reverseOrder())
+                    .thenComparing(SortKey::id, Comparator.reverseOrder()));
+            hits.stream().skip(skip).limit(request.getPageSize()).forEach(hit -> alerts.add(materialize(hit.row(), false)));
+        } finally {
+            lock.readLock().unlock();
+        }
+
+        boolean capped = request.getCountMode() == AlertCountMode.CAPPED || request.getCountMode() == AlertCountMode.ESTIMATED;
+        boolean totalCapped = capped && hits.size() > countCap;
+        AlertPageResult result = new AlertPageResult(alerts, totalCapped ? countCap : hits.size(),
+                request.getPageNum(), request.getPageSize());
+        result.setCountMode(capped ? AlertCountMode.CAPPED : AlertCountMode.EXACT);
+        result.setTotalCapped(totalCapped);
+        return result;
+    }
+
+    /**
+     * 按原始告警逐行分桶计数，计数口径与 {@link AlertRollupService} 的预聚合一致
+     */
+    @Override
+    public AlertTrend trend(Date startTime, Date endTime, String granularity, Map<String, String> filters, String groupBy) {
+        AlertRollupService.Granularity resolved = AlertRollupService.trendGranularity(startTime, endTime, granularity, groupBy);
+        String group = groupBy == null || groupBy.isBlank() ? null : groupBy;
+        long from = resolved.floor(startTime.getTime());
+        // 分桶时间 -> 维度取值（空值在前）-> 计数
+        TreeMap<Long, TreeMap<String, Long>> buckets = new TreeMap<>();
+        lock.readLock().lock();
+        try {
+            BitSet matches = (BitSet) live.clone();
+            filters.forEach((dimension, value) -> {
+                if (value != null && !value.isBlank()) {
+                    matches.and(dimension(dimension).rows(value));
+                }
+            });
+            for (int row = matches.nextSetBit(0); row >= 0; row = matches.nextSetBit(row + 1)) {
+                Alert rest = rows[row];
+                long time = rest.getFirstSeen() != null ? rest.getFirstSeen().getTime() : endTimes[row];
+                long count = rest.getOccurrenceCount() != null ? rest.getOccurrenceCount() : 1;
+                if (time == NULL_TIME || count == 0) {
+                    continue;
+                }
+                long bucket = resolved.floor(time);
+                if (bucket < from || bucket > endTime.getTime()) {
+                    continue;
+                }
+                String key = group == null ? null : dimension(group).get(row);
+                buckets.computeIfAbsent(bucket, k -> new TreeMap<>(Comparator.nullsFirst(Comparator.naturalOrder())))
+                        .merge(key, count, Long::sum);
+            }
+        } finally {
+            lock.readLock().unlock();
+        }
+
+        AlertTrend trend = new AlertTrend();
+        trend.setGranularity(resolved.name());
+        trend.setStartTime(startTime);
+        trend.setEndTime(endTime);
+        trend.setGroupBy(group);
+        long total = 0;
+        for (Map.Entry<Long, TreeMap<String, Long>> bucket : buckets.entrySet()) {
+            for (Map.Entry<String, Long> point : bucket.getValue().entrySet()) {
+                if (point.getValue() != 0) {
+                    trend.getPoints().add(new AlertTrend.Point(new Date(bucket.getKey()), point.getKey(), point.getValue()));
+                    total += point.getValue();
+                }
+            }
+        }
+        trend.setTotalCount(total);
+        return trend;
+    }
+
+    /**
+     * 当前告警数
+     */
+    public int size() {
+        lock.readLock().lock();
+        try {
+            return rowById.size();
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    @PostConstruct
+    public void loadSnapshot() {
+        if (snapshotPath == null || !Files.exists(snapshotPath)) {
+            return;
+        }
+        int count = 0;
+        lock.writeLock().lock();
+        try (BufferedReader reader = new BufferedReader(new InputStreamReader(
+                new GZIPInputStream(Files.newInputStream(snapshotPath)), StandardCharsets.UTF_8))) {
+            String line;
+            while ((line = reader.readLine()) != null) {
+                if (line.isBlank()) {
+                    continue;
+                }
+                Alert alert = objectMapper.readValue(line, Alert.class);
+                Integer row = rowById.get(alert.getId());
+                if (row == null) {
+                    insert(alert);
+                } else {
+                    write(row, alert);
+                }
+                count++;
+            }
+            snapshotVersion = version.get();
+        } catch (IOException e) {
+            // 快照损坏时不能以空数据启动，否则下一次快照会覆盖原有数据
+            throw new UncheckedIOException("读取告警快照失败：" + snapshotPath, e);
+        } finally {
+            lock.writeLock().unlock();
+        }
+        log.info("从快照恢复告警 {} 条：{}", count, snapshotPath);
+    }
+
+    @Scheduled(initialDelayString = "${alert.storage.memory.snapshot-interval:60000}",
+            fixedDelayString = "${alert.storage.memory.snapshot-interval:60000}")
+    public void scheduledSnapshot() {
+        if (snapshotPath == null || version.get() == snapshotVersion) {
+            return;
+        }
+        try {
+            writeSnapshot();
+        } catch (Exception e) {
+            log.warn("写入告警快照失败：{}", e.getMessage());
+        }
+    }
+
+    @PreDestroy
+    public void shutdownSnapshot() {
+        scheduledSnapshot();
+    }
+
+    /**
+     * 把当前数据写入快照文件：读锁内只复制行，序列化和写盘在锁外进行，不阻塞写入
+     *
+     * @return 写入的告警数
+     */
+    public synchronized int writeSnapshot() throws IOException {
+        if (snapshotPath == null) {
+            throw new IllegalStateException("未配置快照路径 alert.storage.memory.snapshot-path");
+        }
+        long currentVersion;
+        List<Alert> alerts = new ArrayList<>();
+        lock.readLock().lock();
+        try {
+            currentVersion = version.get();
+            live.stream().forEach(row -> alerts.add(materialize(row, true)));
+        } finally {
+            lock.readLock().unlock();
+        }
+
+        Path target = snapshotPath.toAbsolutePath();
+        Files.createDirectories(target.getParent());
+        Path temp = Files.createTempFile(target.getParent(), target.getFileName().toString(), ".tmp");
+        try {
+            try (Writer writer = new BufferedWriter(new OutputStreamWriter(
+                    new GZIPOutputStream(Files.newOutputStream(temp)), StandardCharsets.UTF_8))) {
+                for (Alert alert : alerts) {
+                    writer.write(objectMapper.writeValueAsString(alert));
+                    writer.write('\n');
+                }
+            }
+            Files.move(temp, target, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+        } finally {
+            Files.deleteIfExists(temp);
+        }
+        snapshotVersion = currentVersion;
+        log.debug("写入告警快照 {} 条：{}", alerts.size(), target);
+        return alerts.size();
+    }
+
+    /**
+     * 精确条件和 company/systemName 的文本条件用位图求交，其余文本条件在剩余行上逐行比较匹配键
+     */
+    private BitSet match(AlertFilter filter) {
+        AlertMatchMode mode = filter.getMatchMode();
+        BitSet matches = (BitSet) live.clone();
+        if (filter.getStatus() != null) matches.and(status.rows(filter.getStatus()));
+        if (filter.getAlarmLevel() != null) matches.and(alarmLevel.rows(filter.getAlarmLevel()));
+        if (filter.getAlarmType() != null) matches.and(alarmType.rows(filter.getAlarmType()));
+        if (filter.getCompany() != null) matches.and(company.rows(filter.getCompany()));
+        if (filter.getSystemName() != null) matches.and(systemName.rows(filter.getSystemName()));
+        if (filter.getCompanyLike() != null) matches.and(company.rowsMatching(filter.getCompanyLike(), mode));
+        if (filter.getSystemNameLike() != null) matches.and(systemName.rowsMatching(filter.getSystemNameLike(), mode));
+        if (filter.getEndTimeFrom() != null || filter.getEndTimeTo() != null) {
+            matches.and(endTimeRows(filter.getEndTimeFrom(), filter.getEndTimeTo()));
+        }
+        if (filter.getCaseExecIdLike() != null || filter.getTaskNameLike() != null || filter.getHostLike() != null) {
+            String caseExecIdKey = AlertMatchKeys.normalize(filter.getCaseExecIdLike());
+            String taskNameKey = AlertMatchKeys.normalize(filter.getTaskNameLike());
+            String hostKey = AlertMatchKeys.normalize(filter.getHostLike());
+            for (int row = matches.nextSetBit(0); row >= 0; row = matches.nextSetBit(row + 1)) {
+                if (!AlertMatchKeys.matches(caseExecIdKeys[row], caseExecIdKey, mode)
+                        || !AlertMatchKeys.matches(taskNameKeys[row], taskNameKey, mode)
+                        || !AlertMatchKeys.matches(hostKeys[row], hostKey, mode)) {
+                    matches.clear(row);
+                }
+            }
+        }
+        return matches;
+    }
+
+    private BitSet endTimeRows(Date from, Date to) {
+        BitSet result = new BitSet();
+        if (from != null && to != null && from.after(to)) {
+            return result;
+        }
+        NavigableMap<Long, RowList> range = endTimeIndex;
+        if (from != null) range = range.tailMap(from.getTime(), true);
+        if (to != null) range = range.headMap(to.getTime(), true);
+        range.values().forEach(list -> list.forEach(result::set));
+        return result;
+    }
+
+    /**
+     * 任一检索字段按正则匹配的行，与 {@link AlertTextSearchService#regexQuery} 一致
+     */
+    private BitSet matchRegex(Pattern pattern) {
+        BitSet matches = new BitSet();
+        for (int row = live.nextSetBit(0); row >= 0; row = live.nextSetBit(row + 1)) {
+            for (String value : AlertTextTokenizer.sourceValues(textSource(row))) {
+                if (value != null && pattern.matcher(value).find()) {
+                    matches.set(row);
+                    break;
+                }
+            }
+        }
+        return matches;
+    }
+
+    /**
+     * 查询词元全部出现时返回出现总次数，否则返回0
+     */
+    private static int score(String searchText, Set<String> tokens) {
+        if (searchText == null || searchText.isEmpty()) {
+            return 0;
+        }
+        Map<String, Integer> frequencies = new HashMap<>();
+        for (String token : searchText.split(" ")) {
+            if (tokens.contains(token)) {
+                frequencies.merge(token, 1, Integer::sum);
+            }
+        }
+        return frequencies.size() < tokens.size() ? 0 : frequencies.values().stream().mapToInt(Integer::intValue).sum();
+    }
+
+    private DictionaryColumn<String> dimension(String name) {
+        return switch (name) {
+            case "alarmLevel" -> alarmLevel;
+            case "alarmType" -> alarmType;
+            case "company" -> company;
+            case "systemName" -> systemName;
+            default -> throw new IllegalArgumentException("不支持的维度：" + name + "，可选 " + AlertRollupService.DIMENSIONS);
+        };
+    }
+
+    private static Method sortReader(String sortField) {
+        if ("id".equals(sortField)) {
+            return null;
+        }
+        PropertyDescriptor descriptor = BeanUtils.getPropertyDescriptor(Alert.class, sortField);
+        if (descriptor == null || descriptor.getReadMethod() == null) {
+            throw new IllegalArgumentException("不支持的排序字段：" + sortField);
+        }
+        return descriptor.getReadMethod();
+    }
+
+    /**
+     * 按排序字段 + ID 的顺序选出一页的行号。按 endTime 排序时沿时间索引顺序遍历，其余字段先排序全部命中行。
+     * 空值按 MongoDB 的规则视为最小：升序排在最前，降序排在最后。
+     */
+    private int[] select(BitSet matches, String sortField, Method reader, boolean ascending, AlertCursor cursor,
+                         long skip, int limit) {
+        Selection selection = new Selection(ascending, cursor, skip, limit);
+        if ("endTime".equals(sortField)) {
+            boolean afterNulls = cursor != null && cursor.getLastValue() != null;
+            if (ascending && !afterNulls && offer(selection, sortedById(nullEndTime, matches, true), null)) {
+                return selection.rows();
+            }
+            // 降序时空值排在最后，游标已落在空值段则无需再遍历时间索引
+            if (ascending || cursor == null || afterNulls) {
+                NavigableMap<Long, RowList> times = ascending ? endTimeIndex : endTimeIndex.descendingMap();
+                if (afterNulls && cursor.getLastValue() instanceof Date last) {
+                    times = ascending ? endTimeIndex.tailMap(last.getTime(), true)
+                            : endTimeIndex.headMap(last.getTime(), true).descendingMap();
+                }
+                for (Map.Entry<Long, RowList> entry : times.entrySet()) {
+                    BitSet bucket = new BitSet();
+                    entry.getValue().forEach(row -> {
+                        if (matches.get(row)) bucket.set(row);
+                    });
+                    if (!bucket.isEmpty() && offer(selection, sortedById(bucket, null, ascending), new Date(entry.getKey()))) {
+                        return selection.rows();
+                    }
+                }
+            }
+            if (!ascending) {
+                offer(selection, sortedById(nullEndTime, matches, false), null);
+            }
+            return selection.rows();
+        }
+
+        List<SortKey> keys = new ArrayList<>();
+        for (int row = matches.nextSetBit(0); row >= 0; row = matches.nextSetBit(row + 1)) {
+            keys.add(new SortKey(row, sortValue(row, sortField, reader), ids[row]));
+        }
+        keys.sort(selection.order);
+        for (SortKey key : keys) {
+            if (selection.offer(key)) {
+                break;
+            }
+        }
+        return selection.rows();
+    }
+
+    /**
+     * 依次提交同一排序值下已按ID排好序的行
+     *
+     * @return 是否已收满
+     */
+    private boolean offer(Selection selection, int[] sortedRows, Object value) {
+        for (int row : sortedRows) {
+            if (selection.offer(new SortKey(row, value, ids[row]))) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    private Object sortValue(int row, String sortField, Method reader) {
+        return switch (sortField) {
+            case "id" -> ids[row];
+            case "status" -> status.get(row);
+            case "alarmLevel" -> alarmLevel.get(row);
+            case "alarmType" -> alarmType.get(row);
+            case "company" -> company.get(row);
+            case "systemName" -> systemName.get(row);
+            case "endTime" -> endTimes[row] == NULL_TIME ? null : new Date(endTimes[row]);
+            default -> ReflectionUtils.invokeMethod(reader, rows[row]);
+        };
+    }
+
+    private int[] sortedById(BitSet rowSet, BitSet matches, boolean ascending) {
+        BitSet selected = rowSet;
+        if (matches != null) {
+            selected = (BitSet) rowSet.clone();
+            selected.and(matches);
+        }
+        Comparator<Integer> byId = Comparator.comparing(row -> ids[row]);
+        return selected.stream().boxed().sorted(ascending ? byId : byId.reversed()).mapToInt(Integer::intValue).toArray();
+    }
+
+    /**
+     * 按 MongoDB 的比较规则比较两个排序值：空值最小，数字按数值比较
+     */
+    static int compareValues(Object a, Object b) {
+        if (a == null || b == null) {
+            return a == null ? (b == null ? 0 : -1) : 1;
+        }
+        if (a instanceof Number x && b instanceof Number y) {
+            return Double.compare(x.doubleValue(), y.doubleValue());
+        }
+        if (a instanceof Date x && b instanceof Date y) {
+            return x.compareTo(y);
+        }
+        if (a instanceof Boolean x && b instanceof Boolean y) {
+            return x.compareTo(y);
+        }
+        return a.toString().compareTo(b.toString());
+    }
+
+    private record SortKey(int row, Object value, String id) {
+    }
+
+    /**
+     * 依次接收已排好序的行，跳过游标之前的行和偏移量，收满 limit 条为止
+     */
+    private static final class Selection {
+
+        private final Comparator<SortKey> order;
+        private final SortKey after;
+        private long skip;
+        private final int[] rows;
+        private int size;
+
+        private Selection(boolean ascending, AlertCursor cursor, long skip, int limit) {
+            Comparator<SortKey> ascendingOrder = (a, b) -> {
+                int result = compareValues(a.value(), b.value());
+                return result != 0 ? result : a.id().compareTo(b.id());
+            };
+            this.order = ascending ? ascendingOrder : ascendingOrder.reversed();
+            this.after = cursor == null ? null : new SortKey(-1, cursor.getLastValue(), cursor.getLastId());
+            this.skip = skip;
+            this.rows = new int[limit];
+        }
+
+        /**
+         * @return 是否已收满
+         */
+        private boolean offer(SortKey key) {
+            if (after != null && order.compare(key, after) <= 0) {
+                return false;
+            }
+            if (skip > 0) {
+                skip--;
+                return false;
+            }
+            rows[size++] = key.row();
+            return size == rows.length;
+        }
+
+        private int[] rows() {
+            return Arrays.copyOf(rows, size);
+        }
+    }
+
+    private int insert(Alert alert) {
+        int row = live.nextClearBit(0);
+        ensureCapacity(row + 1);
+        write(row, alert);
+        live.set(row);
+        rowById.put(alert.getId(), row);
+        return row;
+    }
+
+    private void write(int row, Alert alert) {
+        ids[row] = alert.getId();
+        status.set(row, alert.getStatus());
+        alarmLevel.set(row, alert.getAlarmLevel());
+        alarmType.set(row, alert.getAlarmType());
+        company.set(row, alert.getCompany());
+        systemName.set(row, alert.getSystemName());
+        setEndTime(row, alert.getEndTime() == null ? NULL_TIME : alert.getEndTime().getTime());
+        caseExecIdKeys[row] = AlertMatchKeys.normalize(alert.getCaseExecId());
+        taskNameKeys[row] = AlertMatchKeys.normalize(alert.getTaskName());
+        hostKeys[row] = AlertMatchKeys.normalize(alert.getHost());
+        searchTexts[row] = AlertTextTokenizer.searchText(alert);
+        Alert rest = AlertChangeEvent.snapshot(alert);
+        rest.setId(null);
+        rest.setStatus(null);
+        rest.setAlarmLevel(null);
+        rest.setAlarmType(null);
+        rest.setCompany(null);
+        rest.setSystemName(null);
+        rest.setEndTime(null);
+        rows[row] = rest;
+    }
+
+    private void remove(int row) {
+        status.clear(row);
+        alarmLevel.clear(row);
+        alarmType.clear(row);
+        company.clear(row);
+        systemName.clear(row);
+        setEndTime(row, NULL_TIME);
+        nullEndTime.clear(row);
+        caseExecIdKeys[row] = null;
+        taskNameKeys[row] = null;
+        hostKeys[row] = null;
+        searchTexts[row] = null;
+        rowById.remove(ids[row]);
+        ids[row] = null;
+        rows[row] = null;
+        live.clear(row);
+    }
+
+    private void setEndTime(int row, long time) {
+        long old = endTimes[row];
+        if (old == NULL_TIME) {
+            nullEndTime.clear(row);
+        } else {
+            RowList list = endTimeIndex.get(old);
+            list.remove(row);
+            if (list.isEmpty()) {
+                endTimeIndex.remove(old);
+            }
+        }
+        endTimes[row] = time;
+        if (time == NULL_TIME) {
+            nullEndTime.set(row);
+        } else {
+            endTimeIndex.computeIfAbsent(time, key -> new RowList()).add(row);
+        }
+    }
+
+    private Alert materialize(int row, boolean withPayload) {
+        Alert alert = AlertChangeEvent.snapshot(rows[row]);
+        alert.setId(ids[row]);
+        alert.setStatus(status.get(row));
+        alert.setAlarmLevel(alarmLevel.get(row));
+        alert.setAlarmType(alarmType.get(row));
+        alert.setCompany(company.get(row));
+        alert.setSystemName(systemName.get(row));
+        alert.setEndTime(endTimes[row] == NULL_TIME ? null : new Date(endTimes[row]));
+        if (!withPayload) {
+            alert.setResponse(null);
+            alert.setActualValue(null);
+        }
+        return alert;
+    }
+
+    /**
+     * 批量操作和状态流转返回的投影：id、caseExecId、统计相关字段及推送流过滤用到的 taskName/host/endTime，
+     * 状态流转另含恢复标记和恢复时间
+     */
+    private Alert projection(int row, boolean withRecover) {
+        Alert alert = new Alert();
+        alert.setId(ids[row]);
+        alert.setCaseExecId(rows[row].getCaseExecId());
+        alert.setStatus(status.get(row));
+        alert.setAlarmLevel(alarmLevel.get(row));
+        alert.setAlarmType(alarmType.get(row));
+        alert.setCompany(company.get(row));
+        alert.setSystemName(systemName.get(row));
+        alert.setTaskName(rows[row].getTaskName());
+        alert.setHost(rows[row].getHost());
+        alert.setEndTime(endTimes[row] == NULL_TIME ? null : new Date(endTimes[row]));
+        if (withRecover) {
+            alert.setIsRecover(rows[row].getIsRecover());
+            alert.setRecoverTime(rows[row].getRecoverTime());
+        }
+        return alert;
+    }
+
+    /**
+     * 参与全文检索的字段
+     */
+    private Alert textSource(int row) {
+        Alert alert = new Alert();
+        alert.setCaseExecId(rows[row].getCaseExecId());
+        alert.setFailReason(rows[row].getFailReason());
+        alert.setAlarmType(alarmType.get(row));
+        alert.setLayerName(rows[row].getLayerName());
+        alert.setCompany(company.get(row));
+        alert.setSystemName(systemName.get(row));
+        alert.setTaskName(rows[row].getTaskName());
+        alert.setHost(rows[row].getHost());
+        return alert;
+    }
+
+    private void ensureCapacity(int capacity) {
+        if (capacity <= ids.length) {
+            return;
+        }
+        int oldLength = ids.length;
+        int newLength = Math.max(capacity, oldLength * 2);
+        ids = Arrays.copyOf(ids, newLength);
+        rows = Arrays.copyOf(rows, newLength);
+        endTimes = Arrays.copyOf(endTimes, newLength);
+        Arrays.fill(endTimes, oldLength, newLength, NULL_TIME);
+        caseExecIdKeys = Arrays.copyOf(caseExecIdKeys, newLength);
+        taskNameKeys = Arrays.copyOf(taskNameKeys, newLength);
+        hostKeys = Arrays.copyOf(hostKeys, newLength);
+        searchTexts = Arrays.copyOf(searchTexts, newLength);
+        status.ensureCapacity(newLength);
+        alarmLevel.ensureCapacity(newLength);
+        alarmType.ensureCapacity(newLength);
+        company.ensureCapacity(newLength);
+        systemName.ensureCapacity(newLength);
+    }
+
+    /**
+     * 去空、去重
+     */
+    private static Set<String> distinct(Collection<String> ids) {
+        Set<String> distinct = new LinkedHashSet<>();
+        for (String id : ids) {
+            if (id != null && !id.trim().isEmpty()) {
+                distinct.add(id.trim());
+            }
+        }
+        return distinct;
+    }
+
+    /**
+     * 字典编码列：每个不同取值分配一个 int 编码（0 表示空值），每行保存编码，每个编码一张行号位图
+     */
+    private static final class DictionaryColumn<T> {
+
+        private final Map<T, Integer> codes = new HashMap<>();
+        private final List<T> values = new ArrayList<>();
+        private final List<BitSet> postings = new ArrayList<>();
+        private int[] codeByRow;
+
+        private DictionaryColumn(int capacity) {
+            values.add(null);
+            postings.add(new BitSet());
+            codeByRow = new int[capacity];
+        }
+
+        private void ensureCapacity(int capacity) {
+            if (capacity > codeByRow.length) {
+                codeByRow = Arrays.copyOf(codeByRow, capacity);
+            }
+        }
+
+        private T get(int row) {
+            return values.get(codeByRow[row]);
+        }
+
+        private void set(int row, T value) {
+            postings.get(codeByRow[row]).clear(row);
+            int code = value == null ? 0 : codes.computeIfAbsent(value, key -> {
+                values.add(key);
+                postings.add(new BitSet());
+                return values.size() - 1;
+            });
+            codeByRow[row] = code;
+            postings.get(code).set(row);
+        }
+
+        private void clear(int row) {
+            postings.get(codeByRow[row]).clear(row);
+            codeByRow[row] = 0;
+        }
+
+        /**
+         * 取值等于 value 的行，返回内部位图，调用方不得修改
+         */
+        private BitSet rows(T value) {
+            Integer code = codes.get(value);
+            return code == null ? new BitSet() : postings.get(code);
+        }
+
+        /**
+         * 取值按 mode 匹配 keyword（不区分大小写）的行：只需检查字典中的不同取值
+         */
+        private BitSet rowsMatching(String keyword, AlertMatchMode mode) {
+            String key = AlertMatchKeys.normalize(keyword);
+            BitSet result = new BitSet();
+            for (int code = 1; code < values.size(); code++) {
+                if (AlertMatchKeys.matches(AlertMatchKeys.normalize(values.get(code).toString()), key, mode)) {
+                    result.or(postings.get(code));
+                }
+            }
+            return result;
+        }
+
+        /**
+         * 按取值分桶计数，空值计入“未知”，计数为0的分桶不返回
+         *
+         * @param matches 参与统计的行，为 null 时统计全部行
+         */
+        private void count(BitSet matches, Map<String, Long> target) {
+            long[] counts = new long[values.size()];
+            if (matches == null) {
+                for (int code = 0; code < counts.length; code++) {
+                    counts[code] = postings.get(code).cardinality();
+                }
+            } else {
+                matches.stream().forEach(row -> counts[codeByRow[row]]++);
+            }
+            for (int code = 0; code < counts.length; code++) {
+                if (counts[code] > 0) {
+                    target.put(code == 0 ? AlertStatisticsService.UNKNOWN_BUCKET : values.get(code).toString(), counts[code]);
+                }
+            }
+        }
+    }
+
+    /**
+     * 同一时间戳下的行号
+     */
+    private static final class RowList {
+
+        private int[] rows = new int[2];
+        private int size;
+
+        private void add(int row) {
+            if (size == rows.length) {
+                rows = Arrays.copyOf(rows, size * 2);
+            }
+            rows[size++] = row;
+        }
+
+        private void remove(int row) {
+            for (int i = 0; i < size; i++) {
+                if (rows[i] == row) {
+                    rows[i] = rows[--size];
+                    return;
+                }
+            }
+        }
+
+        private boolean isEmpty() {
+            return size == 0;
+        }
+
+        private void forEach(IntConsumer action) {
+            for (int i = 0; i < size; i++) {
+                action.accept(rows[i]);
+            }
+        }
+    }
+}
@@ -0,0 +1,330 @@
+package com.qtp.mcpserver.storage;
+
+import com.qtp.mcpserver.dto.AlertBulkResult;
+import com.qtp.mcpserver.dto.AlertFilter;
+import com.qtp.mcpserver.dto.AlertMatchMode;
+import com.qtp.mcpserver.dto.AlertPageRequest;
+import com.qtp.mcpserver.dto.AlertPageResult;
+import com.qtp.mcpserver.dto.AlertStatistics;
+import com.qtp.mcpserver.dto.AlertTransitionResult;
+import com.qtp.mcpserver.dto.AlertTrend;
+import com.qtp.mcpserver.entity.Alert;
+import com.qtp.mcpserver.event.AlertChangeEvent;
+import com.qtp.mcpserver.service.AlertArchiveService;
+import com.qtp.mcpserver.service.AlertBulkService;
+import com.qtp.mcpserver.service.AlertCacheService;
+import com.qtp.mcpserver.service.AlertMatchKeys;
+import com.qtp.mcpserver.service.AlertPageService;
+import com.qtp.mcpserver.service.AlertPayloadService;
+import com.qtp.mcpserver.service.AlertQueryCoalescer;
+import com.qtp.mcpserver.service.AlertRollupService;
+import com.qtp.mcpserver.service.AlertStatisticsService;
+import com.qtp.mcpserver.service.AlertTextSearchService;
+import com.qtp.mcpserver.service.AlertTransitionService;
+import org.bson.Document;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.context.ApplicationEventPublisher;
+import org.springframework.data.domain.Sort;
+import org.springframework.data.mongodb.core.FindAndReplaceOptions;
+import org.springframework.data.mongodb.core.MongoTemplate;
+import org.springframework.data.mongodb.core.aggregation.Aggregation;
+import org.springframework.data.mongodb.core.aggregation.AggregationOperation;
+import org.springframework.data.mongodb.core.query.Criteria;
+import org.springframework.data.mongodb.core.query.Query;
+import org.springframework.stereotype.Component;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Date;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.regex.Pattern;
+
+/**
+ * 基于 MongoDB 的告警存储：读取走按ID缓存，分页、批量操作、状态流转、统计委托给对应的服务，
+ * 只负责把 {@link AlertFilter} 转换为查询条件。读取类操作在条件触及归档时合并归档集合（{@link AlertArchiveService}），
+ * 分页、统计、find 以转换后的查询条件为键经 {@link AlertQueryCoalescer} 合并相同的并发查询。
+ * 全文检索和趋势分别委托给 {@link AlertTextSearchService}（文本索引）和 {@link AlertRollupService}（预聚合分桶）。
+ */
+@Component
+@ConditionalOnProperty(name = "alert.storage.type", havingValue = "mongo", matchIfMissing = true)
+public class MongoAlertStore implements AlertStore {
+
+    private final MongoTemplate mongoTemplate;
+
+    private final ApplicationEventPublisher eventPublisher;
+
+    private final AlertCacheService alertCacheService;
+
+    private final AlertPayloadService alertPayloadService;
+
+    private final AlertPageService alertPageService;
+
+    private final AlertBulkService alertBulkService;
+
+    private final AlertTransitionService alertTransitionService;
+
+    private final AlertStatisticsService alertStatisticsService;
+
+    private final AlertArchiveService alertArchiveService;
+
+    private final AlertQueryCoalescer alertQueryCoalescer;
+
+    private final AlertTextSearchService alertTextSearchService;
+
+    private final AlertRollupService alertRollupService;
+
+    @Autowired
+    public MongoAlertStore(MongoTemplate mongoTemplate,
+                           ApplicationEventPublisher eventPublisher,
+                           AlertCacheService alertCacheService,
+                           AlertPayloadService alertPayloadService,
+                           AlertPageService alertPageService,
+                           AlertBulkService alertBulkService,
+                           AlertTransitionService alertTransitionService,
+                           AlertStatisticsService alertStatisticsService,
+                           AlertArchiveService alertArchiveService,
+                           AlertQueryCoalescer alertQueryCoalescer,
+                           AlertTextSearchService alertTextSearchService,
+                           AlertRollupService alertRollupService) {
+        this.mongoTemplate = mongoTemplate;
+        this.eventPublisher = eventPublisher;
+        this.alertCacheService = alertCacheService;
+        this.alertPayloadService = alertPayloadService;
+        this.alertPageService = alertPageService;
+        this.alertBulkService = alertBulkService;
+        this.alertTransitionService = alertTransitionService;
+        this.alertStatisticsService = alertStatisticsService;
+        this.alertArchiveService = alertArchiveService;
+        this.alertQueryCoalescer = alertQueryCoalescer;
+        this.alertTextSearchService = alertTextSearchService;
+        this.alertRollupService = alertRollupService;
+    }
+
+    @Override
+    public Alert findById(String id) {
+        Alert alert = alertCacheService.findById(id);
+        return alert != null ? alert : alertArchiveService.findById(id);
+    }
+
+    /**
+     * ID为空时直接插入；否则一次 findAndReplace（upsert）完成替换并取回替换前的告警（不含报文），不需要先读（报文拆分存储时见 {@link #findAndReplace}）
+     */
+    @Override
+    public Alert save(Alert alert) {
+        if (alert.getId() == null) {
+            Alert saved = mongoTemplate.insert(alert);
+            eventPublisher.publishEvent(AlertChangeEvent.created(saved));
+            return saved;
+        }
+        Alert existing = findAndReplace(alert, true);
+        if (existing == null) {
+            // 修改归档中的告警：保存到 alert 后删除归档副本，避免合并查询时重复计入
+            existing = alertArchiveService.remove(alert.getId());
+        }
+        eventPublisher.publishEvent(existing != null
+                ? AlertChangeEvent.updated(existing, alert) : AlertChangeEvent.created(alert));
+        return alert;
+    }
+
+    /**
+     * alert 中不存在时再看归档，归档中的告警按 {@link #save} 移回 alert
+     */
+    @Override
+    public Alert replace(Alert alert) {
+        Alert existing = findAndReplace(alert, false);
+        if (existing != null) {
+            eventPublisher.publishEvent(AlertChangeEvent.updated(existing, alert));
+            return alert;
+        }
+        return alertArchiveService.findById(alert.getId()) != null ? save(alert) : null;
+    }
+
+    /**
+     * 报文拆分存储时，findAndReplace 发出的 AfterSaveEvent 以替换前（已排除报文）的文档为源，
+     * 监听器据此保存报文会删掉 alert_payload 中的报文，且 upsert 新建时不发事件；
+     * 因此拆分存储下先读出替换前的告警再用 save 写入，报文由监听器按传入的 alert 保存
+     *
+     * @return 替换前的告警（不含报文），不存在时返回 null
+     */
+    private Alert findAndReplace(Alert alert, boolean upsert) {
+        if (alertPayloadService.isSplit()) {
+            Alert existing = findWithoutPayload(alert.getId());
+            if (existing != null || upsert) {
+                mongoTemplate.save(alert);
+            }
+            return existing;
+        }
+        Query query = AlertPayloadService.excludePayload(Query.query(Criteria.where("id").is(alert.getId())));
+        FindAndReplaceOptions options = upsert ? FindAndReplaceOptions.options().upsert() : FindAndReplaceOptions.options();
+        return mongoTemplate.findAndReplace(query, alert, options, Alert.class,
+                mongoTemplate.getCollectionName(Alert.class), Alert.class);
+    }
+
+    @Override
+    public Alert deleteById(String id) {
+        Alert existing = findWithoutPayload(id);
+        if (existing != null) {
+            mongoTemplate.remove(Query.query(Criteria.where("id").is(id)), Alert.class);
+        } else {
+            existing = alertArchiveService.remove(id);
+        }
+        if (existing == null) {
+            return null;
+        }
+        eventPublisher.publishEvent(AlertChangeEvent.deleted(existing));
+        return existing;
+    }
+
+    @Override
+    public AlertBulkResult deleteByIds(Collection<String> ids) {
+        return alertBulkService.deleteByIds(ids);
+    }
+
+    @Override
+    public AlertBulkResult updateStatus(Collection<String> ids, Integer targetStatus) {
+        return alertBulkService.updateStatus(ids, targetStatus);
+    }
+
+    @Override
+    public AlertTransitionResult resolve(String id) {
+        return alertTransitionService.resolve(id);
+    }
+
+    @Override
+    public AlertTransitionResult activate(String id) {
+        return alertTransitionService.activate(id);
+    }
+
+    @Override
+    public AlertTransitionResult escalate(String id) {
+        return alertTransitionService.escalate(id);
+    }
+
+    @Override
+    public AlertPageResult page(AlertFilter filter, AlertPageRequest request) {
+        Query query = query(filter);
+        boolean includeArchive = alertArchiveService.reaches(filter);
+        return alertQueryCoalescer.execute("page", AlertQueryCoalescer.key(query.getQueryObject().toJson(), request, includeArchive),
+                () -> alertPageService.page(query, request, includeArchive));
+    }
+
+    /**
+     * 无过滤条件时可使用内存计数器，其余情况按条件聚合
+     */
+    @Override
+    public AlertStatistics statistics(AlertFilter filter) {
+        if (filter.isEmpty()) {
+            return alertStatisticsService.statistics(null, null, null, null);
+        }
+        boolean includeArchive = alertArchiveService.reaches(filter);
+        return alertQueryCoalescer.execute("statistics", AlertQueryCoalescer.key(query(filter).getQueryObject().toJson(), includeArchive),
+                () -> alertStatisticsService.aggregate(criteria(filter), includeArchive));
+    }
+
+    @Override
+    public List<Alert> find(AlertFilter filter, int limit) {
+        boolean includeArchive = alertArchiveService.reaches(filter);
+        return alertQueryCoalescer.execute("find", AlertQueryCoalescer.key(query(filter).getQueryObject().toJson(), limit, includeArchive),
+                () -> findLatest(filter, limit, includeArchive));
+    }
+
+    @Override
+    public AlertPageResult search(String keyword, String mode, AlertPageRequest request) {
+        return alertTextSearchService.search(keyword, mode, request);
+    }
+
+    @Override
+    public AlertTrend trend(Date startTime, Date endTime, String granularity, Map<String, String> filters, String groupBy) {
+        return alertRollupService.trend(startTime, endTime, granularity, filters, groupBy);
+    }
+
+    private List<Alert> findLatest(AlertFilter filter, int limit, boolean includeArchive) {
+        if (!includeArchive) {
+            Query query = query(filter).with(Sort.by(Sort.Direction.DESC, "endTime")).limit(limit);
+            return mongoTemplate.find(AlertPayloadService.excludePayload(query), Alert.class);
+        }
+        Document filterObject = query(filter).getQueryObject();
+        List<AggregationOperation> operations = new ArrayList<>();
+        if (!filterObject.isEmpty()) {
+            operations.add(context -> new Document("$match", context.getMappedObject(filterObject, Alert.class)));
+        }
+        operations.add(context -> alertArchiveService.unionStage(context.getMappedObject(filterObject, Alert.class)));
+        operations.add(Aggregation.sort(Sort.by(Sort.Direction.DESC, "endTime")));
+        operations.add(Aggregation.limit(limit));
+        operations.add(context -> AlertPayloadService.excludePayloadStage());
+        return mongoTemplate.aggregate(Aggregation.newAggregation(Alert.class, operations), Alert.class).getMappedResults();
+    }
+
+    private Alert findWithoutPayload(String id) {
+        return mongoTemplate.findOne(AlertPayloadService.excludePayload(Query.query(Criteria.where("id").is(id))), Alert.class);
+    }
+
+    /**
+     * 过滤条件转换为查询，各字段条件平铺在同一层，与原有查询形态一致（索引顾问按此识别）；
+     * 同一字段出现多个条件时改用 $and 组合
+     */
+    public static Query query(AlertFilter filter) {
+        List<Criteria> criteriaList = criteriaList(filter);
+        Set<String> keys = new HashSet<>();
+        for (Criteria criteria : criteriaList) {
+            if (!keys.add(criteria.getKey())) {
+                return new Query(new Criteria().andOperator(criteriaList));
+            }
+        }
+        Query query = new Query();
+        criteriaList.forEach(query::addCriteria);
+        return query;
+    }
+
+    /**
+     * 过滤条件转换为聚合使用的匹配条件，没有条件时返回 null
+     */
+    public static Criteria criteria(AlertFilter filter) {
+        List<Criteria> criteriaList = criteriaList(filter);
+        if (criteriaList.isEmpty()) {
+            return null;
+        }
+        return criteriaList.size() == 1 ? criteriaList.get(0) : new Criteria().andOperator(criteriaList);
+    }
+
+    /**
+     * 文本条件落在写入时维护的归一化匹配键上：精确匹配为等值条件，前缀匹配为锚定开头的正则（转换为索引范围扫描），
+     * 包含匹配为不锚定的正则；关键字经 {@link Pattern#quote} 转义后按字面量匹配
+     */
+    private static List<Criteria> criteriaList(AlertFilter filter) {
+        AlertMatchMode mode = filter.getMatchMode();
+        List<Criteria> criteriaList = new ArrayList<>();
+        if (filter.getStatus() != null) criteriaList.add(Criteria.where("status").is(filter.getStatus()));
+        if (filter.getAlarmLevel() != null) criteriaList.add(Criteria.where("alarmLevel").is(filter.getAlarmLevel()));
+        if (filter.getAlarmType() != null) criteriaList.add(Criteria.where("alarmType").is(filter.getAlarmType()));
+        if (filter.getCompany() != null) criteriaList.add(Criteria.where("company").is(filter.getCompany()));
+        if (filter.getSystemName() != null) criteriaList.add(Criteria.where("systemName").is(filter.getSystemName()));
+        if (filter.getCaseExecIdLike() != null) criteriaList.add(match("caseExecId", filter.getCaseExecIdLike(), mode));
+        if (filter.getCompanyLike() != null) criteriaList.add(match("company", filter.getCompanyLike(), mode));
+        if (filter.getSystemNameLike() != null) criteriaList.add(match("systemName", filter.getSystemNameLike(), mode));
+        if (filter.getTaskNameLike() != null) criteriaList.add(match("taskName", filter.getTaskNameLike(), mode));
+        if (filter.getHostLike() != null) criteriaList.add(match("host", filter.getHostLike(), mode));
+        if (filter.getEndTimeFrom() != null && filter.getEndTimeTo() != null) {
+            criteriaList.add(Criteria.where("endTime").gte(filter.getEndTimeFrom()).lte(filter.getEndTimeTo()));
+        } else if (filter.getEndTimeFrom() != null) {
+            criteriaList.add(Criteria.where("endTime").gte(filter.getEndTimeFrom()));
+        } else if (filter.getEndTimeTo() != null) {
+            criteriaList.add(Criteria.where("endTime").lte(filter.getEndTimeTo()));
+        }
+        return criteriaList;
+    }
+
+    private static Criteria match(String field, String keyword, AlertMatchMode mode) {
+        String key = AlertMatchKeys.normalize(keyword);
+        Criteria criteria = Criteria.where(AlertMatchKeys.path(field));
+        return switch (mode) {
+            case EXACT -> criteria.is(key);
+            case PREFIX -> criteria.regex("^" + Pattern.quote(key));
+            case CONTAINS -> criteria.regex(Pattern.quote(key));
+        };
+    }
+}
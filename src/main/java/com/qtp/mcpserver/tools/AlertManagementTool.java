@@ -1,18 +1,21 @@
 package com.qtp.mcpserver.tools;
 
 import cn.hutool.core.util.StrUtil;
-import cn.hutool.json.JSONUtil;
-import com.fasterxml.jackson.databind.ObjectMapper;
-import com.fasterxml.jackson.datatype.jsr310.JavaTimeModule;
+import com.qtp.mcpserver.dto.AlertBulkResult;
+import com.qtp.mcpserver.dto.AlertCountMode;
+import com.qtp.mcpserver.dto.AlertFilter;
+import com.qtp.mcpserver.dto.AlertPageRequest;
+import com.qtp.mcpserver.dto.AlertPageResult;
+import com.qtp.mcpserver.dto.AlertStatistics;
+import com.qtp.mcpserver.dto.AlertTransitionResult;
+import com.qtp.mcpserver.dto.AlertTrend;
 import com.qtp.mcpserver.entity.Alert;
+import com.qtp.mcpserver.service.AlertTextSearchService;
+import com.qtp.mcpserver.storage.AlertStore;
 import lombok.extern.slf4j.Slf4j;
 import org.springframework.ai.tool.annotation.Tool;
 import org.springframework.ai.tool.annotation.ToolParam;
 import org.springframework.beans.factory.annotation.Autowired;
-import org.springframework.data.mongodb.core.MongoTemplate;
-import org.springframework.data.mongodb.core.query.Criteria;
-import org.springframework.data.mongodb.core.query.Query;
-import org.springframework.data.domain.Sort;
 import org.springframework.stereotype.Service;
 
 import java.util.*;
@@ -21,28 +24,11 @@ import java.util.*;
 @Slf4j
 public class AlertManagementTool {
     
-    // 自定义的JSON序列化器
-    private final ObjectMapper objectMapper;
-    
     @Autowired
-    private MongoTemplate mongoTemplate;
-    
-    public AlertManagementTool() {
-        this.objectMapper = new ObjectMapper();
-        this.objectMapper.registerModule(new JavaTimeModule());
-    }
+    private AlertStore alertStore;
     
-    /**
-     * 自定义JSON序列化方法
-     */
-    private String toJsonString(Object obj) {
-        try {
-            return objectMapper.writerWithDefaultPrettyPrinter().writeValueAsString(obj);
-        } catch (Exception e) {
-            log.error("JSON序列化失败", e);
-            return JSONUtil.toJsonPrettyStr(obj);
-        }
-    }
+    @Autowired
+    private ToolResultRenderer renderer;
     
     @Tool(description = "更新告警信息")
     public String updateAlert(
@@ -73,7 +59,7 @@ public class AlertManagementTool {
             if (StrUtil.isBlank(id)) {
                 return "错误：文档ID不能为空";
             }
-            Alert alert = mongoTemplate.findById(id, Alert.class);
+            Alert alert = alertStore.findById(id);
             if (alert == null) {
                 return "未找到ID为 " + id + " 的告警";
             }
@@ -98,8 +84,7 @@ public class AlertManagementTool {
             if (StrUtil.isNotBlank(response)) alert.setResponse(response);
             if (StrUtil.isNotBlank(actualValue)) alert.setActualValue(actualValue);
             if (isReply != null) alert.setIsReply(isReply);
-            mongoTemplate.save(alert);
-            return toJsonString(alert);
+            return renderer.render("updateAlert", null, alertStore.save(alert));
         } catch (Exception e) {
             log.error("更新告警失败", e);
             return "更新告警失败：" + e.getMessage();
@@ -112,11 +97,10 @@ public class AlertManagementTool {
             if (StrUtil.isBlank(id)) {
                 return "错误：文档ID不能为空";
             }
-            Alert alert = mongoTemplate.findById(id, Alert.class);
+            Alert alert = alertStore.deleteById(id);
             if (alert == null) {
                 return "未找到ID为 " + id + " 的告警";
             }
-            mongoTemplate.remove(alert);
             return "告警删除成功：" + alert.getCaseExecId() + " (ID: " + id + ")";
         } catch (Exception e) {
             log.error("删除告警失败", e);
@@ -130,19 +114,10 @@ public class AlertManagementTool {
             if (StrUtil.isBlank(ids)) {
                 return "错误：文档ID列表不能为空";
             }
-            String[] idArray = ids.split(",");
+            AlertBulkResult bulkResult = alertStore.deleteByIds(Arrays.asList(ids.split(",")));
             List<String> deletedAlerts = new ArrayList<>();
-            List<String> notFoundAlerts = new ArrayList<>();
-            for (String id : idArray) {
-                String trimmedId = id.trim();
-                Alert alert = mongoTemplate.findById(trimmedId, Alert.class);
-                if (alert != null) {
-                    mongoTemplate.remove(alert);
-                    deletedAlerts.add(alert.getCaseExecId() + " (ID: " + trimmedId + ")");
-                } else {
-                    notFoundAlerts.add(trimmedId);
-                }
-            }
+            bulkResult.getAffected().forEach(alert -> deletedAlerts.add(alert.getCaseExecId() + " (ID: " + alert.getId() + ")"));
+            List<String> notFoundAlerts = bulkResult.getNotFoundIds();
             StringBuilder result = new StringBuilder();
             result.append("批量删除结果：\n");
             result.append("成功删除 ").append(deletedAlerts.size()).append(" 条告警：\n");
@@ -164,15 +139,12 @@ public class AlertManagementTool {
             if (StrUtil.isBlank(id)) {
                 return "错误：文档ID不能为空";
             }
-            Alert alert = mongoTemplate.findById(id, Alert.class);
-            if (alert == null) {
-                return "未找到ID为 " + id + " 的告警";
-            }
-            alert.setStatus(1); // 假设1表示已解决
-            alert.setIsRecover(true);
-            alert.setRecoverTime(new Date());
-            mongoTemplate.save(alert);
-            return "告警已解决：" + alert.getCaseExecId() + " (ID: " + id + ")";
+            AlertTransitionResult result = alertStore.resolve(id);
+            return switch (result.getOutcome()) {
+                case NOT_FOUND -> "未找到ID为 " + id + " 的告警";
+                case APPLIED -> "告警已解决：" + result.getBefore().getCaseExecId() + " (ID: " + id + ")";
+                default -> result.getMessage() + "：" + result.getBefore().getCaseExecId() + " (ID: " + id + ")";
+            };
         } catch (Exception e) {
             log.error("解决告警失败", e);
             return "解决告警失败：" + e.getMessage();
@@ -185,100 +157,102 @@ public class AlertManagementTool {
             if (StrUtil.isBlank(id)) {
                 return "错误：文档ID不能为空";
             }
-            Alert alert = mongoTemplate.findById(id, Alert.class);
-            if (alert == null) {
-                return "未找到ID为 " + id + " 的告警";
-            }
-            alert.setStatus(0); // 假设0表示活跃
-            alert.setIsRecover(false);
-            mongoTemplate.save(alert);
-            return "告警已激活：" + alert.getCaseExecId() + " (ID: " + id + ")";
+            AlertTransitionResult result = alertStore.activate(id);
+            return switch (result.getOutcome()) {
+                case NOT_FOUND -> "未找到ID为 " + id + " 的告警";
+                case APPLIED -> "告警已激活：" + result.getBefore().getCaseExecId() + " (ID: " + id + ")";
+                default -> result.getMessage() + "：" + result.getBefore().getCaseExecId() + " (ID: " + id + ")";
+            };
         } catch (Exception e) {
             log.error("激活告警失败", e);
             return "激活告警失败：" + e.getMessage();
         }
     }
     
-    @Tool(description = "获取告警统计信息")
-    public String getAlertStatistics() {
+    @Tool(description = "获取告警统计信息，支持按时间范围、单位、系统过滤")
+    public String getAlertStatistics(
+            @ToolParam(description = "开始时间，可选") Date beginTime,
+            @ToolParam(description = "结束时间，可选") Date endTime,
+            @ToolParam(description = "所属单位，可选") String company,
+            @ToolParam(description = "所属系统，可选") String systemName) {
         try {
-            List<Alert> alerts = mongoTemplate.findAll(Alert.class);
-            
-            // 按状态统计
-            Map<Integer, Long> statusStats = new HashMap<>();
-            statusStats = alerts.stream()
-                    .collect(java.util.stream.Collectors.groupingBy(Alert::getStatus, java.util.stream.Collectors.counting()));
+            AlertFilter filter = AlertFilter.endTimeBetween(beginTime, endTime);
+            filter.setCompany(company);
+            filter.setSystemName(systemName);
+            AlertStatistics stats = alertStore.statistics(filter);
             
-            // 按级别统计
-            Map<String, Long> levelStats = new HashMap<>();
-            levelStats = alerts.stream()
-                    .collect(java.util.stream.Collectors.groupingBy(Alert::getAlarmLevel, java.util.stream.Collectors.counting()));
+            Map<String, Object> statistics = new LinkedHashMap<>();
+            statistics.put("总告警数", stats.getTotalCount());
+            statistics.put("按状态统计", stats.getStatusStats());
+            statistics.put("按级别统计", stats.getLevelStats());
+            statistics.put("按类型统计", stats.getTypeStats());
+            statistics.put("按公司统计", stats.getCompanyStats());
+            statistics.put("按系统统计", stats.getSystemStats());
             
-            // 按类型统计
-            Map<String, Long> typeStats = new HashMap<>();
-            typeStats = alerts.stream()
-                    .collect(java.util.stream.Collectors.groupingBy(Alert::getAlarmType, java.util.stream.Collectors.counting()));
-            
-            // 按公司统计
-            Map<String, Long> companyStats = new HashMap<>();
-            companyStats = alerts.stream()
-                    .collect(java.util.stream.Collectors.groupingBy(Alert::getCompany, java.util.stream.Collectors.counting()));
-            
-            Map<String, Object> statistics = new HashMap<>();
-            statistics.put("总告警数", alerts.size());
-            statistics.put("按状态统计", statusStats);
-            statistics.put("按级别统计", levelStats);
-            statistics.put("按类型统计", typeStats);
-            statistics.put("按公司统计", companyStats);
-            
-            return "告警统计信息：\n" + toJsonString(statistics);
+            return renderer.render("getAlertStatistics", "告警统计信息：\n", statistics);
         } catch (Exception e) {
             log.error("获取告警统计失败", e);
             return "获取告警统计失败：" + e.getMessage();
         }
     }
     
-    @Tool(description = "全文搜索告警")
+    @Tool(description = "查询告警趋势：按分钟或小时统计告警数，可按级别、类型、系统、单位过滤，并按其中一个维度拆分")
+    public String getAlertTrend(
+            @ToolParam(description = "开始时间") Date startTime,
+            @ToolParam(description = "结束时间") Date endTime,
+            @ToolParam(description = "统计粒度：minute 或 hour，可选，默认6小时内按分钟、否则按小时") String granularity,
+            @ToolParam(description = "告警级别，可选") String alarmLevel,
+            @ToolParam(description = "告警类型，可选") String alarmType,
+            @ToolParam(description = "所属系统，可选") String systemName,
+            @ToolParam(description = "所属单位，可选") String company,
+            @ToolParam(description = "拆分维度：alarmLevel、alarmType、systemName、company 之一，可选") String groupBy) {
+        try {
+            Map<String, String> filters = new LinkedHashMap<>();
+            filters.put("alarmLevel", alarmLevel);
+            filters.put("alarmType", alarmType);
+            filters.put("systemName", systemName);
+            filters.put("company", company);
+            AlertTrend trend = alertStore.trend(startTime, endTime, granularity, filters, groupBy);
+            String header = "告警趋势（" + trend.getGranularity() + "），共 " + trend.getTotalCount() + " 条：\n";
+            return renderer.render("getAlertTrend", header, trend.getPoints());
+        } catch (Exception e) {
+            log.error("查询告警趋势失败", e);
+            return "查询告警趋势失败：" + e.getMessage();
+        }
+    }
+    
+    @Tool(description = "全文搜索告警，结果按相关度排序")
     public String searchAlerts(
             @ToolParam(description = "搜索关键词") String keyword,
             @ToolParam(description = "每页数量，默认10") Integer pageSize,
-            @ToolParam(description = "页码，默认1") Integer pageNum) {
+            @ToolParam(description = "页码，默认1") Integer pageNum,
+            @ToolParam(description = "返回字段，逗号分隔（如 id,alarmLevel,endTime,failReason），可选，默认全部字段") String fields) {
         try {
             if (StrUtil.isBlank(keyword)) {
                 return "错误：搜索关键词不能为空";
             }
             
-            if (pageSize == null || pageSize <= 0) pageSize = 10;
-            if (pageNum == null || pageNum <= 0) pageNum = 1;
+            AlertPageResult page = alertStore.search(keyword, AlertTextSearchService.MODE_TEXT,
+                    AlertPageRequest.of(pageNum, pageSize, null, null, null));
             
-            Query query = new Query();
-            query.addCriteria(new Criteria().orOperator(
-                Criteria.where("caseExecId").regex(keyword, "i"),
-                Criteria.where("failReason").regex(keyword, "i"),
-                Criteria.where("alarmType").regex(keyword, "i"),
-                Criteria.where("layerName").regex(keyword, "i"),
-                Criteria.where("company").regex(keyword, "i"),
-                Criteria.where("systemName").regex(keyword, "i"),
-                Criteria.where("taskName").regex(keyword, "i"),
-                Criteria.where("host").regex(keyword, "i")
-            ));
-            
-            long total = mongoTemplate.count(query, Alert.class);
-            query.skip((long) (pageNum - 1) * pageSize).limit(pageSize);
-            List<Alert> alerts = mongoTemplate.find(query, Alert.class);
-            
-            return "搜索结果（关键词：" + keyword + "，第" + pageNum + "页，共" + total + "条）：\n" + 
-                   toJsonString(alerts);
+            try (ToolResultRenderer.Output out = renderer.open("searchAlerts.fulltext", fields)) {
+                return out.text("搜索结果（关键词：" + keyword + "，第" + page.getPageNum() + "页，共" + page.getTotal() + (page.isTotalCapped() ? "+" : "") + "条）：\n")
+                        .list(page.getData())
+                        .finish();
+            }
         } catch (Exception e) {
             log.error("搜索告警失败", e);
             return "搜索告警失败：" + e.getMessage();
         }
     }
     
-    @Tool(description = "按时间范围查询告警")
+    @Tool(description = "按时间范围查询告警：首次调用返回该时间范围的统计摘要和最新的前N条，结果中的游标可用于继续获取后续记录")
     public String getAlertsByTimeRange(
             @ToolParam(description = "开始时间") Date startTime,
-            @ToolParam(description = "结束时间") Date endTime) {
+            @ToolParam(description = "结束时间") Date endTime,
+            @ToolParam(description = "本次返回条数，默认20，最多200") Integer limit,
+            @ToolParam(description = "继续获取的游标，来自上一次结果，可选") String cursor,
+            @ToolParam(description = "返回字段，逗号分隔（如 id,alarmLevel,endTime,failReason），可选，默认全部字段") String fields) {
         try {
             if (startTime == null || endTime == null) {
                 return "错误：开始时间和结束时间不能为空";
@@ -288,13 +262,32 @@ public class AlertManagementTool {
                 return "错误：开始时间不能晚于结束时间";
             }
             
-            Query query = new Query();
-            query.addCriteria(Criteria.where("endTime").gte(startTime).lte(endTime));
+            int size = limit == null || limit <= 0 ? 20 : Math.min(limit, 200);
+            AlertFilter filter = AlertFilter.endTimeBetween(startTime, endTime);
+            AlertPageRequest pageRequest = AlertPageRequest.of(1, size, "endTime", "desc", cursor);
+            pageRequest.setCountMode(AlertCountMode.CAPPED);
+            AlertPageResult page = alertStore.page(filter, pageRequest);
             
-            List<Alert> alerts = mongoTemplate.find(query, Alert.class);
-            
-            return "时间范围查询结果（" + startTime + " 至 " + endTime + "，共" + alerts.size() + "条）：\n" + 
-                   toJsonString(alerts);
+            try (ToolResultRenderer.Output out = renderer.open("getAlertsByTimeRange", fields)) {
+                out.text("时间范围查询结果（" + startTime + " 至 " + endTime + "）：\n");
+                if (cursor == null) {
+                    AlertStatistics stats = alertStore.statistics(filter);
+                    Map<String, Object> summary = new LinkedHashMap<>();
+                    summary.put("总告警数", stats.getTotalCount());
+                    summary.put("按状态统计", stats.getStatusStats());
+                    summary.put("按级别统计", stats.getLevelStats());
+                    summary.put("按系统统计", stats.getSystemStats());
+                    out.text("统计摘要：\n").json(summary).text("\n");
+                }
+                out.text("本次返回" + page.getData().size() + "条（按告警时间倒序）：\n");
+                out.list(page.getData()).text("\n");
+                if (page.getNextCursor() != null) {
+                    out.text("还有更多记录，使用游标继续获取：" + page.getNextCursor());
+                } else {
+                    out.text("已返回全部记录");
+                }
+                return out.finish();
+            }
         } catch (Exception e) {
             log.error("按时间范围查询告警失败", e);
             return "按时间范围查询告警失败：" + e.getMessage();
@@ -308,31 +301,13 @@ public class AlertManagementTool {
                 return "错误：文档ID不能为空";
             }
             
-            Alert alert = mongoTemplate.findById(id, Alert.class);
-            if (alert == null) {
-                return "未找到ID为 " + id + " 的告警";
-            }
-            
-            String currentLevel = alert.getAlarmLevel();
-            String newLevel;
-            
-            switch (currentLevel.toLowerCase()) {
-                case "info":
-                    newLevel = "warning";
-                    break;
-                case "warning":
-                    newLevel = "critical";
-                    break;
-                case "critical":
-                    return "告警已是最高级别（critical），无法再升级";
-                default:
-                    return "未知的告警级别：" + currentLevel;
-            }
-            
-            alert.setAlarmLevel(newLevel);
-            mongoTemplate.save(alert);
-            
-            return "告警级别已升级：" + alert.getCaseExecId() + " 从 " + currentLevel + " 升级到 " + newLevel;
+            AlertTransitionResult result = alertStore.escalate(id);
+            return switch (result.getOutcome()) {
+                case NOT_FOUND -> "未找到ID为 " + id + " 的告警";
+                case APPLIED -> "告警级别已升级：" + result.getBefore().getCaseExecId() + " 从 "
+                        + result.getBefore().getAlarmLevel() + " 升级到 " + result.getChanges().get("alarmLevel");
+                default -> result.getMessage();
+            };
         } catch (Exception e) {
             log.error("升级告警失败", e);
             return "升级告警失败：" + e.getMessage();
@@ -348,22 +323,11 @@ public class AlertManagementTool {
                 return "错误：文档ID列表和目标状态不能为空";
             }
             
-            String[] idArray = ids.split(",");
+            AlertBulkResult bulkResult = alertStore.updateStatus(Arrays.asList(ids.split(",")), targetStatus);
             List<String> updatedAlerts = new ArrayList<>();
-            List<String> notFoundAlerts = new ArrayList<>();
-            
-            for (String id : idArray) {
-                String trimmedId = id.trim();
-                Alert alert = mongoTemplate.findById(trimmedId, Alert.class);
-                if (alert != null) {
-                    Integer oldStatus = alert.getStatus();
-                    alert.setStatus(targetStatus);
-                    updatedAlerts.add(alert.getCaseExecId() + " (ID: " + trimmedId + ") " + oldStatus + " → " + targetStatus);
-                    mongoTemplate.save(alert);
-                } else {
-                    notFoundAlerts.add(trimmedId);
-                }
-            }
+            bulkResult.getAffected().forEach(alert -> updatedAlerts.add(
+                    alert.getCaseExecId() + " (ID: " + alert.getId() + ") " + alert.getStatus() + " → " + targetStatus));
+            List<String> notFoundAlerts = bulkResult.getNotFoundIds();
             
             StringBuilder result = new StringBuilder();
             result.append("批量状态更新结果：\n");
@@ -0,0 +1,105 @@
+package com.qtp.mcpserver.tools;
+
+import com.qtp.mcpserver.entity.Alert;
+import com.qtp.mcpserver.event.AlertChangeEvent;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.modelcontextprotocol.spec.McpServerTransportProvider;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.ObjectProvider;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.event.EventListener;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+
+import java.util.ArrayList;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * 告警资源（{@link AlertResources}）的变更通知。
+ * <p>
+ * 告警变更事件只把受影响的资源URI记入待通知集合，同一URI在一个通知间隔内多次变化只通知一次；
+ * 定时任务把集合中的URI以 notifications/resources/updated 发给所有MCP会话，写入路径不直接向会话发送消息。
+ * 单次待通知的告警详情超过 max-updates 个时（如批量操作）只通知活跃告警列表，客户端据此重新读取。
+ * <p>
+ * 当前的MCP SDK不处理 resources/subscribe，通知发给所有会话，由客户端按URI取舍。
+ */
+@Component
+@Slf4j
+public class AlertResourceNotifier {
+
+    private static final String UPDATED = "notifications/resources/updated";
+
+    private final ObjectProvider<McpServerTransportProvider> transportProvider;
+
+    private final int maxUpdates;
+
+    private final Set<String> pending = ConcurrentHashMap.newKeySet();
+
+    private final Counter sent;
+
+    private final Counter skipped;
+
+    @Autowired
+    public AlertResourceNotifier(ObjectProvider<McpServerTransportProvider> transportProvider,
+                                 MeterRegistry meterRegistry,
+                                 @Value("${alert.resources.max-updates:100}") int maxUpdates) {
+        this.transportProvider = transportProvider;
+        this.maxUpdates = maxUpdates;
+        this.sent = Counter.builder("alert.resources.notifications")
+                .description("发送的告警资源更新通知（按URI计，每个URI发给全部会话）")
+                .tag("result", "sent")
+                .register(meterRegistry);
+        this.skipped = Counter.builder("alert.resources.notifications")
+                .description("发送的告警资源更新通知（按URI计，每个URI发给全部会话）")
+                .tag("result", "skipped")
+                .register(meterRegistry);
+    }
+
+    @EventListener
+    public void onAlertChange(AlertChangeEvent event) {
+        pending.add(AlertResources.alertUri(event.getAlertId()));
+        markActive(event.getBefore());
+        markActive(event.getAfter());
+    }
+
+    private void markActive(Alert alert) {
+        if (alert == null || !Integer.valueOf(0).equals(alert.getStatus())) {
+            return;
+        }
+        pending.add(AlertResources.ACTIVE);
+        if (alert.getSystemName() != null) {
+            pending.add(AlertResources.activeUri(alert.getSystemName()));
+        }
+    }
+
+    @Scheduled(fixedDelayString = "${alert.resources.notify-interval:1000}")
+    public void flush() {
+        if (pending.isEmpty()) {
+            return;
+        }
+        List<String> uris = new ArrayList<>();
+        for (Iterator<String> iterator = pending.iterator(); iterator.hasNext(); ) {
+            uris.add(iterator.next());
+            iterator.remove();
+        }
+        McpServerTransportProvider transport = transportProvider.getIfAvailable();
+        if (transport == null) {
+            return;
+        }
+        long alertUpdates = uris.stream().filter(uri -> uri.startsWith(AlertResources.ALERT_PREFIX)).count();
+        if (alertUpdates > maxUpdates) {
+            uris.removeIf(uri -> uri.startsWith(AlertResources.ALERT_PREFIX));
+            uris.add(AlertResources.ACTIVE);
+            skipped.increment(alertUpdates);
+        }
+        uris.stream().distinct().forEach(uri -> transport.notifyClients(UPDATED, Map.of("uri", uri))
+                .doOnSuccess(ignored -> sent.increment())
+                .subscribe(null, e -> log.warn("发送告警资源更新通知失败：{}", e.getMessage())));
+    }
+}
@@ -0,0 +1,141 @@
+package com.qtp.mcpserver.tools;
+
+import com.qtp.mcpserver.dto.AlertFilter;
+import com.qtp.mcpserver.dto.AlertStatistics;
+import com.qtp.mcpserver.entity.Alert;
+import com.qtp.mcpserver.storage.AlertStore;
+import io.modelcontextprotocol.server.McpServerFeatures;
+import io.modelcontextprotocol.spec.McpSchema;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+import reactor.core.publisher.Mono;
+import reactor.core.scheduler.Schedulers;
+
+import java.net.URLDecoder;
+import java.net.URLEncoder;
+import java.nio.charset.StandardCharsets;
+import java.util.List;
+
+/**
+ * 以MCP资源的形式提供告警，客户端读取一次后根据 {@link AlertResourceNotifier} 发出的
+ * notifications/resources/updated 重新读取变化的资源，不必反复调用查询工具。
+ * <ul>
+ *     <li>alert://active：全部活跃告警（status=0）的级别、系统分布及最近的若干条</li>
+ *     <li>alert://active/{systemName}：某个系统的活跃告警，系统名需URL编码</li>
+ *     <li>alert://alert/{id}：单个告警的完整信息</li>
+ * </ul>
+ */
+@Component
+@Slf4j
+public class AlertResources {
+
+    public static final String ACTIVE = "alert://active";
+
+    public static final String ALERT_PREFIX = "alert://alert/";
+
+    private static final String MIME_TYPE = "text/plain";
+
+    private final AlertStore alertStore;
+
+    private final ToolResultRenderer renderer;
+
+    private final int activeLimit;
+
+    @Autowired
+    public AlertResources(AlertStore alertStore,
+                          ToolResultRenderer renderer,
+                          @Value("${alert.resources.active-limit:50}") int activeLimit) {
+        this.alertStore = alertStore;
+        this.renderer = renderer;
+        this.activeLimit = activeLimit;
+    }
+
+    public static String activeUri(String systemName) {
+        return ACTIVE + "/" + encode(systemName);
+    }
+
+    public static String alertUri(String id) {
+        return ALERT_PREFIX + encode(id);
+    }
+
+    public List<McpServerFeatures.SyncResourceSpecification> syncSpecifications() {
+        return resources().stream()
+                .map(resource -> new McpServerFeatures.SyncResourceSpecification(resource,
+                        (exchange, request) -> read(request.uri())))
+                .toList();
+    }
+
+    /**
+     * 异步MCP服务端使用，读取在 boundedElastic 线程池上执行
+     */
+    public List<McpServerFeatures.AsyncResourceSpecification> asyncSpecifications() {
+        return resources().stream()
+                .map(resource -> new McpServerFeatures.AsyncResourceSpecification(resource,
+                        (exchange, request) -> Mono.fromCallable(() -> read(request.uri()))
+                                .subscribeOn(Schedulers.boundedElastic())))
+                .toList();
+    }
+
+    private List<McpSchema.Resource> resources() {
+        return List.of(
+                new McpSchema.Resource(ACTIVE, "活跃告警",
+                        "全部活跃告警的级别、系统分布及最近 " + activeLimit + " 条，有告警产生、恢复或修改时发送更新通知", MIME_TYPE, null),
+                new McpSchema.Resource(ACTIVE + "/{systemName}", "系统活跃告警",
+                        "某个系统的活跃告警（系统名需URL编码），该系统的活跃告警变化时发送更新通知", MIME_TYPE, null),
+                new McpSchema.Resource(ALERT_PREFIX + "{id}", "告警详情",
+                        "单个告警的完整信息，告警被修改或删除时发送更新通知", MIME_TYPE, null));
+    }
+
+    McpSchema.ReadResourceResult read(String uri) {
+        return new McpSchema.ReadResourceResult(List.of(new McpSchema.TextResourceContents(uri, MIME_TYPE, render(uri))));
+    }
+
+    private String render(String uri) {
+        try {
+            if (uri.equals(ACTIVE)) {
+                return renderActive(null);
+            }
+            if (uri.startsWith(ACTIVE + "/")) {
+                return renderActive(decode(uri.substring(ACTIVE.length() + 1)));
+            }
+            if (uri.startsWith(ALERT_PREFIX)) {
+                String id = decode(uri.substring(ALERT_PREFIX.length()));
+                Alert alert = alertStore.findById(id);
+                if (alert == null) {
+                    return "未找到ID为 " + id + " 的告警";
+                }
+                return renderer.render("resource:alert", null, alert);
+            }
+            return "未知的告警资源：" + uri;
+        } catch (Exception e) {
+            log.error("读取告警资源失败：{}", uri, e);
+            return "读取告警资源失败：" + e.getMessage();
+        }
+    }
+
+    private String renderActive(String systemName) {
+        AlertFilter filter = new AlertFilter();
+        filter.setStatus(0);
+        filter.setSystemName(systemName);
+        AlertStatistics statistics = alertStore.statistics(filter);
+        List<Alert> alerts = alertStore.find(filter, activeLimit);
+        try (ToolResultRenderer.Output out = renderer.open("resource:active")) {
+            out.text((systemName == null ? "" : systemName + " ") + "活跃告警共 " + statistics.getTotalCount() + " 条，按级别：")
+                    .json(statistics.getLevelStats());
+            if (systemName == null) {
+                out.text("，按系统：").json(statistics.getSystemStats());
+            }
+            return out.text("\n最近 " + alerts.size() + " 条：\n").list(alerts).finish();
+        }
+    }
+
+    private static String encode(String value) {
+        return URLEncoder.encode(value, StandardCharsets.UTF_8).replace("+", "%20");
+    }
+
+    private static String decode(String value) {
+        return URLDecoder.decode(value, StandardCharsets.UTF_8);
+    }
+}
@@ -1,56 +1,32 @@
 package com.qtp.mcpserver.tools;
 
 import cn.hutool.core.util.StrUtil;
-import com.fasterxml.jackson.databind.ObjectMapper;
-import com.fasterxml.jackson.datatype.jsr310.JavaTimeModule;
+import com.qtp.mcpserver.dto.AlertFilter;
+import com.qtp.mcpserver.dto.AlertPageRequest;
 import com.qtp.mcpserver.entity.Alert;
+import com.qtp.mcpserver.storage.AlertStore;
 import lombok.extern.slf4j.Slf4j;
-import lombok.Data;
-import lombok.AllArgsConstructor;
 import org.springframework.ai.tool.annotation.Tool;
 import org.springframework.ai.tool.annotation.ToolParam;
 import org.springframework.beans.factory.annotation.Autowired;
-import org.springframework.data.domain.Sort;
-import org.springframework.data.mongodb.core.MongoTemplate;
-import org.springframework.data.mongodb.core.query.Criteria;
-import org.springframework.data.mongodb.core.query.Query;
 import org.springframework.stereotype.Service;
 import java.util.Date;
-import java.util.List;
 
 /**
- * 基于MongoDB的告警MCP工具，所有数据均来源于数据库。
+ * 告警查询MCP工具，数据来自当前配置的告警存储（{@link AlertStore}）。
  */
 @Service
 @Slf4j
 public class AlertTool {
     
-    private final MongoTemplate mongoTemplate;
+    private final AlertStore alertStore;
     
-    // 自定义的JSON序列化器
-    private final ObjectMapper objectMapper;
+    private final ToolResultRenderer renderer;
     
     @Autowired
-    public AlertTool(MongoTemplate mongoTemplate) {
-        this.mongoTemplate = mongoTemplate;
-        this.objectMapper = new ObjectMapper();
-        this.objectMapper.registerModule(new JavaTimeModule());
-    }
-    
-    /**
-     * 自定义JSON序列化方法
-     */
-    private String toJsonString(Object obj) {
-        try {
-            if (obj instanceof AlertPageResult) {
-                AlertPageResult page = (AlertPageResult) obj;
-                return String.format("第%d页, 每页%d, 总数%d\n%s", page.getPageNum(), page.getPageSize(), page.getTotal(), objectMapper.writerWithDefaultPrettyPrinter().writeValueAsString(page.getData()));
-            }
-            return objectMapper.writerWithDefaultPrettyPrinter().writeValueAsString(obj);
-        } catch (Exception e) {
-            log.error("JSON序列化失败", e);
-            return obj.toString();
-        }
+    public AlertTool(AlertStore alertStore, ToolResultRenderer renderer) {
+        this.alertStore = alertStore;
+        this.renderer = renderer;
     }
 
     @Tool(description = "查询某个告警的详细信息")
@@ -59,11 +35,11 @@ public class AlertTool {
             if (StrUtil.isBlank(alertId)) {
                 return "错误：告警ID不能为空";
             }
-            Alert alert = mongoTemplate.findById(alertId, Alert.class);
+            Alert alert = alertStore.findById(alertId);
             if (alert == null) {
                 return "未找到ID为 " + alertId + " 的告警";
             }
-            return toJsonString(alert);
+            return renderer.render("queryAlert", null, alert);
         } catch (Exception e) {
             log.error("查询告警失败", e);
             return "查询告警失败：" + e.getMessage();
@@ -78,21 +54,15 @@ public class AlertTool {
             @ToolParam(description = "每页数量，默认10") Integer pageSize,
             @ToolParam(description = "页码，默认1") Integer pageNum,
             @ToolParam(description = "排序字段（如endTime），可选") String sortField,
-            @ToolParam(description = "排序方式，asc/desc，可选") String sortOrder) {
+            @ToolParam(description = "排序方式，asc/desc，可选") String sortOrder,
+            @ToolParam(description = "分页游标，传入上一次结果中的下一页游标可继续翻页，可选") String cursor,
+            @ToolParam(description = "返回字段，逗号分隔（如 id,alarmLevel,endTime,failReason），可选，默认全部字段") String fields) {
         try {
-            if (pageSize == null || pageSize <= 0) pageSize = 10;
-            if (pageNum == null || pageNum <= 0) pageNum = 1;
-            if (sortField == null) sortField = "endTime";
-            Sort.Direction direction = "asc".equalsIgnoreCase(sortOrder) ? Sort.Direction.ASC : Sort.Direction.DESC;
-            Query query = new Query();
-            if (status != null) query.addCriteria(Criteria.where("status").is(status));
-            if (alarmLevel != null) query.addCriteria(Criteria.where("alarmLevel").is(alarmLevel));
-            if (alarmType != null) query.addCriteria(Criteria.where("alarmType").is(alarmType));
-            query.with(Sort.by(direction, sortField));
-            long total = mongoTemplate.count(query, Alert.class);
-            query.skip((long) (pageNum - 1) * pageSize).limit(pageSize);
-            java.util.List<Alert> alerts = mongoTemplate.find(query, Alert.class);
-            return toJsonString(new AlertPageResult(alerts, total, pageNum, pageSize));
+            AlertFilter filter = new AlertFilter();
+            filter.setStatus(status);
+            filter.setAlarmLevel(alarmLevel);
+            filter.setAlarmType(alarmType);
+            return renderer.renderPage("queryAlertList", alertStore.page(filter, AlertPageRequest.of(pageNum, pageSize, sortField, sortOrder, cursor)), fields);
         } catch (Exception e) {
             log.error("查询告警列表失败", e);
             return "查询告警列表失败：" + e.getMessage();
@@ -110,42 +80,20 @@ public class AlertTool {
             @ToolParam(description = "页码，默认1") Integer pageNum,
             @ToolParam(description = "每页数量，默认10") Integer pageSize,
             @ToolParam(description = "排序字段（如endTime），可选") String sortField,
-            @ToolParam(description = "排序方式，asc/desc，可选") String sortOrder
+            @ToolParam(description = "排序方式，asc/desc，可选") String sortOrder,
+            @ToolParam(description = "分页游标，传入上一次结果中的下一页游标可继续翻页，可选") String cursor,
+            @ToolParam(description = "返回字段，逗号分隔（如 id,alarmLevel,endTime,failReason），可选，默认全部字段") String fields
     ) {
         try {
-            if (pageNum == null || pageNum <= 0) pageNum = 1;
-            if (pageSize == null || pageSize <= 0) pageSize = 10;
-            if (sortField == null) sortField = "endTime";
-            Sort.Direction direction = "asc".equalsIgnoreCase(sortOrder) ? Sort.Direction.ASC : Sort.Direction.DESC;
-            Query query = new Query();
-            if (alarmLevel != null) query.addCriteria(Criteria.where("alarmLevel").is(alarmLevel));
-            if (alarmType != null) query.addCriteria(Criteria.where("alarmType").is(alarmType));
-            if (company != null) query.addCriteria(Criteria.where("company").is(company));
-            if (status != null) query.addCriteria(Criteria.where("status").is(status));
-            if (beginTime != null && endTime != null) {
-                query.addCriteria(Criteria.where("endTime").gte(beginTime).lte(endTime));
-            } else if (beginTime != null) {
-                query.addCriteria(Criteria.where("endTime").gte(beginTime));
-            } else if (endTime != null) {
-                query.addCriteria(Criteria.where("endTime").lte(endTime));
-            }
-            query.with(Sort.by(direction, sortField));
-            long total = mongoTemplate.count(query, Alert.class);
-            query.skip((long) (pageNum - 1) * pageSize).limit(pageSize);
-            java.util.List<Alert> alerts = mongoTemplate.find(query, Alert.class);
-            return toJsonString(new AlertPageResult(alerts, total, pageNum, pageSize));
+            AlertFilter filter = AlertFilter.endTimeBetween(beginTime, endTime);
+            filter.setAlarmLevel(alarmLevel);
+            filter.setAlarmType(alarmType);
+            filter.setCompany(company);
+            filter.setStatus(status);
+            return renderer.renderPage("searchAlerts", alertStore.page(filter, AlertPageRequest.of(pageNum, pageSize, sortField, sortOrder, cursor)), fields);
         } catch (Exception e) {
             log.error("多条件分页查询告警失败", e);
             return "多条件分页查询告警失败：" + e.getMessage();
         }
     }
-
-    @Data
-    @AllArgsConstructor
-    static class AlertPageResult {
-        private List<Alert> data;
-        private long total;
-        private int pageNum;
-        private int pageSize;
-    }
 } 
\ No newline at end of file
@@ -0,0 +1,183 @@
+package com.qtp.mcpserver.tools;
+
+import cn.hutool.core.util.StrUtil;
+import com.qtp.mcpserver.dto.AlertCountMode;
+import com.qtp.mcpserver.dto.AlertFilter;
+import com.qtp.mcpserver.dto.AlertPageRequest;
+import com.qtp.mcpserver.dto.AlertPageResult;
+import com.qtp.mcpserver.dto.AlertStatistics;
+import com.qtp.mcpserver.service.ReactiveAlertQueryService;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.ai.tool.annotation.Tool;
+import org.springframework.ai.tool.annotation.ToolParam;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.stereotype.Service;
+import reactor.core.publisher.Mono;
+
+import java.util.Date;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+/**
+ * 告警查询类MCP工具的非阻塞实现，alert.tools.mode=reactive 时替换 {@link AlertTool} 和
+ * {@link AlertManagementTool} 中的同名工具。工具名、参数和返回文本与同步实现保持一致。
+ */
+@Service
+@Slf4j
+@ConditionalOnProperty(name = "alert.tools.mode", havingValue = "reactive")
+public class ReactiveAlertTool {
+
+    private final ReactiveAlertQueryService queryService;
+
+    private final ToolResultRenderer renderer;
+
+    @Autowired
+    public ReactiveAlertTool(ReactiveAlertQueryService queryService, ToolResultRenderer renderer) {
+        this.queryService = queryService;
+        this.renderer = renderer;
+    }
+
+    @Tool(description = "查询某个告警的详细信息")
+    public Mono<String> queryAlert(@ToolParam(description = "告警ID") String alertId) {
+        if (StrUtil.isBlank(alertId)) {
+            return Mono.just("错误：告警ID不能为空");
+        }
+        return queryService.findById(alertId)
+                .map(alert -> renderer.render("queryAlert", null, alert))
+                .defaultIfEmpty("未找到ID为 " + alertId + " 的告警")
+                .onErrorResume(e -> {
+                    log.error("查询告警失败", e);
+                    return Mono.just("查询告警失败：" + e.getMessage());
+                });
+    }
+
+    @Tool(description = "查询告警信息列表，支持按状态、级别、类型筛选")
+    public Mono<String> queryAlertList(
+            @ToolParam(description = "告警状态筛选（Int32），可选") Integer status,
+            @ToolParam(description = "告警等级筛选（String），可选") String alarmLevel,
+            @ToolParam(description = "告警类型筛选（String），可选") String alarmType,
+            @ToolParam(description = "每页数量，默认10") Integer pageSize,
+            @ToolParam(description = "页码，默认1") Integer pageNum,
+            @ToolParam(description = "排序字段（如endTime），可选") String sortField,
+            @ToolParam(description = "排序方式，asc/desc，可选") String sortOrder,
+            @ToolParam(description = "分页游标，传入上一次结果中的下一页游标可继续翻页，可选") String cursor,
+            @ToolParam(description = "返回字段，逗号分隔（如 id,alarmLevel,endTime,failReason），可选，默认全部字段") String fields) {
+        AlertFilter filter = new AlertFilter();
+        filter.setStatus(status);
+        filter.setAlarmLevel(alarmLevel);
+        filter.setAlarmType(alarmType);
+        return queryService.page(filter, AlertPageRequest.of(pageNum, pageSize, sortField, sortOrder, cursor))
+                .map(page -> renderer.renderPage("queryAlertList", page, fields))
+                .onErrorResume(e -> {
+                    log.error("查询告警列表失败", e);
+                    return Mono.just("查询告警列表失败：" + e.getMessage());
+                });
+    }
+
+    @Tool(description = "多条件分页查询告警信息列表")
+    public Mono<String> searchAlerts(
+            @ToolParam(description = "告警等级（String），可选") String alarmLevel,
+            @ToolParam(description = "告警类型（String），可选") String alarmType,
+            @ToolParam(description = "所属单位（String），可选") String company,
+            @ToolParam(description = "告警状态（Int32），可选") Integer status,
+            @ToolParam(description = "开始时间（Date），可选") Date beginTime,
+            @ToolParam(description = "结束时间（Date），可选") Date endTime,
+            @ToolParam(description = "页码，默认1") Integer pageNum,
+            @ToolParam(description = "每页数量，默认10") Integer pageSize,
+            @ToolParam(description = "排序字段（如endTime），可选") String sortField,
+            @ToolParam(description = "排序方式，asc/desc，可选") String sortOrder,
+            @ToolParam(description = "分页游标，传入上一次结果中的下一页游标可继续翻页，可选") String cursor,
+            @ToolParam(description = "返回字段，逗号分隔（如 id,alarmLevel,endTime,failReason），可选，默认全部字段") String fields
+    ) {
+        AlertFilter filter = AlertFilter.endTimeBetween(beginTime, endTime);
+        filter.setAlarmLevel(alarmLevel);
+        filter.setAlarmType(alarmType);
+        filter.setCompany(company);
+        filter.setStatus(status);
+        return queryService.page(filter, AlertPageRequest.of(pageNum, pageSize, sortField, sortOrder, cursor))
+                .map(page -> renderer.renderPage("searchAlerts", page, fields))
+                .onErrorResume(e -> {
+                    log.error("多条件分页查询告警失败", e);
+                    return Mono.just("多条件分页查询告警失败：" + e.getMessage());
+                });
+    }
+
+    @Tool(description = "获取告警统计信息，支持按时间范围、单位、系统过滤")
+    public Mono<String> getAlertStatistics(
+            @ToolParam(description = "开始时间，可选") Date beginTime,
+            @ToolParam(description = "结束时间，可选") Date endTime,
+            @ToolParam(description = "所属单位，可选") String company,
+            @ToolParam(description = "所属系统，可选") String systemName) {
+        AlertFilter filter = AlertFilter.endTimeBetween(beginTime, endTime);
+        filter.setCompany(company);
+        filter.setSystemName(systemName);
+        return queryService.statistics(filter)
+                .map(stats -> {
+                    Map<String, Object> statistics = new LinkedHashMap<>();
+                    statistics.put("总告警数", stats.getTotalCount());
+                    statistics.put("按状态统计", stats.getStatusStats());
+                    statistics.put("按级别统计", stats.getLevelStats());
+                    statistics.put("按类型统计", stats.getTypeStats());
+                    statistics.put("按公司统计", stats.getCompanyStats());
+                    statistics.put("按系统统计", stats.getSystemStats());
+                    return renderer.render("getAlertStatistics", "告警统计信息：\n", statistics);
+                })
+                .onErrorResume(e -> {
+                    log.error("获取告警统计失败", e);
+                    return Mono.just("获取告警统计失败：" + e.getMessage());
+                });
+    }
+
+    @Tool(description = "按时间范围查询告警：首次调用返回该时间范围的统计摘要和最新的前N条，结果中的游标可用于继续获取后续记录")
+    public Mono<String> getAlertsByTimeRange(
+            @ToolParam(description = "开始时间") Date startTime,
+            @ToolParam(description = "结束时间") Date endTime,
+            @ToolParam(description = "本次返回条数，默认20，最多200") Integer limit,
+            @ToolParam(description = "继续获取的游标，来自上一次结果，可选") String cursor,
+            @ToolParam(description = "返回字段，逗号分隔（如 id,alarmLevel,endTime,failReason），可选，默认全部字段") String fields) {
+        if (startTime == null || endTime == null) {
+            return Mono.just("错误：开始时间和结束时间不能为空");
+        }
+        if (startTime.after(endTime)) {
+            return Mono.just("错误：开始时间不能晚于结束时间");
+        }
+
+        int size = limit == null || limit <= 0 ? 20 : Math.min(limit, 200);
+        AlertFilter filter = AlertFilter.endTimeBetween(startTime, endTime);
+        AlertPageRequest pageRequest = AlertPageRequest.of(1, size, "endTime", "desc", cursor);
+        pageRequest.setCountMode(AlertCountMode.CAPPED);
+        // 摘要与页面两个查询并发执行
+        Mono<AlertStatistics> summary = cursor == null
+                ? queryService.aggregate(filter)
+                : Mono.just(new AlertStatistics());
+        return Mono.zip(queryService.page(filter, pageRequest), summary)
+                .map(tuple -> {
+                    AlertPageResult page = tuple.getT1();
+                    try (ToolResultRenderer.Output out = renderer.open("getAlertsByTimeRange", fields)) {
+                        out.text("时间范围查询结果（" + startTime + " 至 " + endTime + "）：\n");
+                        if (cursor == null) {
+                            AlertStatistics stats = tuple.getT2();
+                            Map<String, Object> summaryMap = new LinkedHashMap<>();
+                            summaryMap.put("总告警数", stats.getTotalCount());
+                            summaryMap.put("按状态统计", stats.getStatusStats());
+                            summaryMap.put("按级别统计", stats.getLevelStats());
+                            summaryMap.put("按系统统计", stats.getSystemStats());
+                            out.text("统计摘要：\n").json(summaryMap).text("\n");
+                        }
+                        out.text("本次返回" + page.getData().size() + "条（按告警时间倒序）：\n");
+                        out.list(page.getData()).text("\n");
+                        if (page.getNextCursor() != null) {
+                            out.text("还有更多记录，使用游标继续获取：" + page.getNextCursor());
+                        } else {
+                            out.text("已返回全部记录");
+                        }
+                        return out.finish();
+                    }
+                })
+                .onErrorResume(e -> {
+                    log.error("按时间范围查询告警失败", e);
+                    return Mono.just("按时间范围查询告警失败：" + e.getMessage());
+                });
+    }
+}
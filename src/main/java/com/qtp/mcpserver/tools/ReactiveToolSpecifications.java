@@ -0,0 +1,95 @@
+package com.qtp.mcpserver.tools;
+
+import io.modelcontextprotocol.server.McpServerFeatures;
+import io.modelcontextprotocol.spec.McpSchema;
+import org.springframework.ai.mcp.McpToolUtils;
+import org.springframework.ai.tool.ToolCallback;
+import org.springframework.ai.tool.annotation.Tool;
+import org.springframework.ai.tool.definition.ToolDefinition;
+import org.springframework.ai.tool.execution.DefaultToolCallResultConverter;
+import org.springframework.ai.tool.execution.ToolCallResultConverter;
+import org.springframework.ai.tool.support.ToolDefinitions;
+import org.springframework.ai.util.json.JsonParser;
+import org.springframework.aop.support.AopUtils;
+import org.springframework.util.ReflectionUtils;
+import reactor.core.publisher.Mono;
+
+import java.lang.reflect.Method;
+import java.lang.reflect.Parameter;
+import java.lang.reflect.Type;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * 把返回 {@link Mono} 的 {@link Tool} 方法注册为MCP异步工具。
+ * <p>
+ * Spring AI 的 MethodToolCallback 只支持同步返回值，ASYNC 模式下会把它们统一放到 boundedElastic 线程池执行；
+ * 这里直接按方法签名生成工具定义和入参转换，调用结果原样作为 Mono 交给MCP服务端，全程不阻塞线程。
+ * 入参转换和返回值序列化与 MethodToolCallback 相同，客户端看到的工具定义和结果一致。
+ */
+public final class ReactiveToolSpecifications {
+
+    private static final ToolCallResultConverter RESULT_CONVERTER = new DefaultToolCallResultConverter();
+
+    private ReactiveToolSpecifications() {
+    }
+
+    /**
+     * 合并异步工具与同步工具：同名时以异步实现为准，其余同步工具在 boundedElastic 线程池上执行。
+     * 同步工具之间同名时保留先出现的一个，与自动配置的去重规则一致。
+     */
+    public static List<McpServerFeatures.AsyncToolSpecification> merge(List<McpServerFeatures.AsyncToolSpecification> reactiveSpecifications,
+                                                                       Collection<ToolCallback> blockingCallbacks) {
+        Map<String, McpServerFeatures.AsyncToolSpecification> specifications = new LinkedHashMap<>();
+        for (McpServerFeatures.AsyncToolSpecification specification : reactiveSpecifications) {
+            specifications.put(specification.tool().name(), specification);
+        }
+        for (ToolCallback callback : blockingCallbacks) {
+            specifications.putIfAbsent(callback.getToolDefinition().name(), McpToolUtils.toAsyncToolSpecification(callback));
+        }
+        return List.copyOf(specifications.values());
+    }
+
+    /**
+     * 为对象上所有返回 Mono 的 @Tool 方法生成异步工具定义
+     */
+    public static List<McpServerFeatures.AsyncToolSpecification> from(Object toolObject) {
+        Method[] methods = ReflectionUtils.getUniqueDeclaredMethods(AopUtils.getTargetClass(toolObject),
+                method -> method.isAnnotationPresent(Tool.class) && Mono.class.isAssignableFrom(method.getReturnType()));
+        return Arrays.stream(methods).map(method -> specification(toolObject, method)).toList();
+    }
+
+    private static McpServerFeatures.AsyncToolSpecification specification(Object toolObject, Method method) {
+        ToolDefinition definition = ToolDefinitions.from(method);
+        McpSchema.Tool tool = new McpSchema.Tool(definition.name(), definition.description(), definition.inputSchema());
+        ReflectionUtils.makeAccessible(method);
+        return new McpServerFeatures.AsyncToolSpecification(tool, (exchange, arguments) ->
+                Mono.defer(() -> (Mono<?>) ReflectionUtils.invokeMethod(method, toolObject, arguments(method, arguments)))
+                        .map(result -> new McpSchema.CallToolResult(
+                                List.of(new McpSchema.TextContent(RESULT_CONVERTER.convert(result, result.getClass()))), false))
+                        .switchIfEmpty(Mono.fromSupplier(() -> new McpSchema.CallToolResult(
+                                List.of(new McpSchema.TextContent(RESULT_CONVERTER.convert(null, Void.TYPE))), false)))
+                        .onErrorResume(e -> Mono.just(new McpSchema.CallToolResult(
+                                List.of(new McpSchema.TextContent(e.getMessage())), true))));
+    }
+
+    private static Object[] arguments(Method method, Map<String, Object> input) {
+        Parameter[] parameters = method.getParameters();
+        Object[] arguments = new Object[parameters.length];
+        for (int i = 0; i < parameters.length; i++) {
+            Object raw = input == null ? null : input.get(parameters[i].getName());
+            arguments[i] = raw == null ? null : typed(raw, parameters[i].getParameterizedType());
+        }
+        return arguments;
+    }
+
+    private static Object typed(Object value, Type type) {
+        if (type instanceof Class<?> clazz) {
+            return JsonParser.toTypedObject(value, clazz);
+        }
+        return JsonParser.fromJson(JsonParser.toJson(value), type);
+    }
+}
@@ -0,0 +1,123 @@
+package com.qtp.mcpserver.tools;
+
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import io.modelcontextprotocol.server.McpServerFeatures;
+import org.springframework.ai.chat.model.ToolContext;
+import org.springframework.ai.tool.ToolCallback;
+import org.springframework.ai.tool.ToolCallbackProvider;
+import org.springframework.ai.tool.definition.ToolDefinition;
+import org.springframework.ai.tool.metadata.ToolMetadata;
+import org.springframework.stereotype.Component;
+import reactor.core.publisher.Mono;
+
+import java.util.Arrays;
+import java.util.List;
+
+/**
+ * MCP工具调用耗时统计：包装注册给MCP服务端的工具，每次调用记录到 alert.tool.calls（按工具名、结果区分）。
+ * <p>
+ * 同步工具执行期间在当前线程记下工具名（{@link #currentTool()}），MongoDB 慢查询记录据此标注调用方；
+ * 响应式工具的查询在驱动线程上执行，慢查询记录中没有工具名。
+ */
+@Component
+public class ToolMetrics {
+
+    public static final String TIMER = "alert.tool.calls";
+
+    private static final ThreadLocal<String> CURRENT_TOOL = new ThreadLocal<>();
+
+    private final MeterRegistry meterRegistry;
+
+    public ToolMetrics(MeterRegistry meterRegistry) {
+        this.meterRegistry = meterRegistry;
+    }
+
+    /**
+     * 当前线程正在执行的同步工具，没有时返回 null
+     */
+    public static String currentTool() {
+        return CURRENT_TOOL.get();
+    }
+
+    public ToolCallbackProvider timed(ToolCallbackProvider provider) {
+        ToolCallback[] callbacks = Arrays.stream(provider.getToolCallbacks()).map(this::timed).toArray(ToolCallback[]::new);
+        return () -> callbacks;
+    }
+
+    public ToolCallback timed(ToolCallback callback) {
+        return new TimedToolCallback(callback);
+    }
+
+    /**
+     * 响应式工具从订阅到结果发出计时
+     */
+    public List<McpServerFeatures.AsyncToolSpecification> timed(List<McpServerFeatures.AsyncToolSpecification> specifications) {
+        return specifications.stream().map(specification -> {
+            String tool = specification.tool().name();
+            return new McpServerFeatures.AsyncToolSpecification(specification.tool(), (exchange, arguments) ->
+                    Mono.defer(() -> {
+                        Timer.Sample sample = Timer.start(meterRegistry);
+                        return specification.call().apply(exchange, arguments)
+                                .doOnSuccess(result -> sample.stop(timer(tool,
+                                        result != null && Boolean.TRUE.equals(result.isError()) ? "error" : "success")))
+                                .doOnError(e -> sample.stop(timer(tool, "error")));
+                    }));
+        }).toList();
+    }
+
+    private Timer timer(String tool, String outcome) {
+        return Timer.builder(TIMER)
+                .description("MCP工具调用耗时")
+                .tag("tool", tool)
+                .tag("outcome", outcome)
+                .register(meterRegistry);
+    }
+
+    private final class TimedToolCallback implements ToolCallback {
+
+        private final ToolCallback delegate;
+
+        private final String tool;
+
+        private TimedToolCallback(ToolCallback delegate) {
+            this.delegate = delegate;
+            this.tool = delegate.getToolDefinition().name();
+        }
+
+        @Override
+        public ToolDefinition getToolDefinition() {
+            return delegate.getToolDefinition();
+        }
+
+        @Override
+        public ToolMetadata getToolMetadata() {
+            return delegate.getToolMetadata();
+        }
+
+        @Override
+        public String call(String toolInput) {
+            return call(toolInput, null);
+        }
+
+        @Override
+        public String call(String toolInput, ToolContext toolContext) {
+            String previous = CURRENT_TOOL.get();
+            CURRENT_TOOL.set(tool);
+            Timer.Sample sample = Timer.start(meterRegistry);
+            String outcome = "error";
+            try {
+                String result = toolContext == null ? delegate.call(toolInput) : delegate.call(toolInput, toolContext);
+                outcome = "success";
+                return result;
+            } finally {
+                sample.stop(timer(tool, outcome));
+                if (previous == null) {
+                    CURRENT_TOOL.remove();
+                } else {
+                    CURRENT_TOOL.set(previous);
+                }
+            }
+        }
+    }
+}
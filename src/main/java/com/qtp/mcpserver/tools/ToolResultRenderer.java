@@ -0,0 +1,431 @@
+package com.qtp.mcpserver.tools;
+
+import com.fasterxml.jackson.annotation.JsonFilter;
+import com.fasterxml.jackson.annotation.JsonInclude;
+import com.fasterxml.jackson.core.JsonGenerator;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.ObjectWriter;
+import com.fasterxml.jackson.databind.SerializerProvider;
+import com.fasterxml.jackson.databind.module.SimpleModule;
+import com.fasterxml.jackson.databind.ser.FilterProvider;
+import com.fasterxml.jackson.databind.ser.impl.SimpleBeanPropertyFilter;
+import com.fasterxml.jackson.databind.ser.impl.SimpleFilterProvider;
+import com.fasterxml.jackson.databind.ser.std.StdSerializer;
+import com.fasterxml.jackson.datatype.jsr310.JavaTimeModule;
+import com.qtp.mcpserver.dto.AlertPageResult;
+import com.qtp.mcpserver.entity.Alert;
+import io.micrometer.core.instrument.DistributionSummary;
+import io.micrometer.core.instrument.FunctionCounter;
+import io.micrometer.core.instrument.MeterRegistry;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.BeanWrapperImpl;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.charset.Charset;
+import java.nio.charset.StandardCharsets;
+import java.util.Arrays;
+import java.util.LinkedHashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.TreeMap;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.LongAccumulator;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * MCP工具返回文本的统一渲染。
+ * <p>
+ * 工具结果最终进入大模型上下文，这里统一控制体积：JSON 采用紧凑格式并省略空值字段，超长字符串截断，
+ * 列表逐条写入并在超出 alert.tools.render.max-bytes 时停止，末尾注明省略的条数；调用方可通过 fields
+ * 只返回指定的告警字段。内容直接写入池化的可复用缓冲区，每个工具的输出字节数和截断次数都有统计。
+ * <pre>
+ * try (ToolResultRenderer.Output out = renderer.open("queryAlertList", fields)) {
+ *     return out.text("...").list(alerts).finish();
+ * }
+ * </pre>
+ */
+@Component
+@Slf4j
+public class ToolResultRenderer {
+
+    private static final String ALERT_FILTER = "alertFields";
+
+    /** 为列表之后的游标、提示等尾部文本预留的字节数 */
+    private static final int TAIL_RESERVE = 256;
+
+    private final ObjectMapper objectMapper;
+
+    private final int maxBytes;
+
+    private final int maxStringLength;
+
+    private final BlockingQueue<RenderBuffer> bufferPool;
+
+    private final FilterProvider allFields = new SimpleFilterProvider()
+            .setDefaultFilter(SimpleBeanPropertyFilter.serializeAll());
+
+    private final Map<String, ToolOutputStats> stats = new ConcurrentHashMap<>();
+
+    /** 输出字节数和截断次数同时登记为指标，为空时只做内部统计 */
+    private final MeterRegistry meterRegistry;
+
+    public ToolResultRenderer(int maxBytes, int maxStringLength, int bufferPoolSize) {
+        this(maxBytes, maxStringLength, bufferPoolSize, null);
+    }
+
+    @Autowired
+    public ToolResultRenderer(@Value("${alert.tools.render.max-bytes:16384}") int maxBytes,
+                              @Value("${alert.tools.render.max-string-length:2000}") int maxStringLength,
+                              @Value("${alert.tools.render.buffer-pool-size:32}") int bufferPoolSize,
+                              MeterRegistry meterRegistry) {
+        this.meterRegistry = meterRegistry;
+        this.maxBytes = maxBytes;
+        this.maxStringLength = maxStringLength;
+        this.bufferPool = new ArrayBlockingQueue<>(bufferPoolSize);
+        this.objectMapper = new ObjectMapper();
+        this.objectMapper.registerModule(new JavaTimeModule());
+        this.objectMapper.setSerializationInclusion(JsonInclude.Include.NON_NULL);
+        this.objectMapper.getFactory().disable(JsonGenerator.Feature.AUTO_CLOSE_TARGET);
+        this.objectMapper.addMixIn(Alert.class, AlertFieldsMixin.class);
+        this.objectMapper.registerModule(new SimpleModule().addSerializer(String.class, new CappedStringSerializer()));
+    }
+
+    /**
+     * 开始渲染一次工具结果，用完须关闭以归还缓冲区
+     *
+     * @param tool   工具名，用于输出统计
+     * @param fields 告警字段列表（逗号分隔），为空时输出全部字段
+     */
+    public Output open(String tool, String fields) {
+        RenderBuffer buffer = bufferPool.poll();
+        if (buffer == null) {
+            buffer = new RenderBuffer(Math.min(maxBytes, 4096));
+        }
+        return new Output(tool, buffer, fieldFilter(fields));
+    }
+
+    public Output open(String tool) {
+        return open(tool, null);
+    }
+
+    /**
+     * 渲染单个值（对象、统计表等），前面可带一行说明文字
+     */
+    public String render(String tool, String header, Object value) {
+        try (Output out = open(tool)) {
+            return out.text(header).json(value).finish();
+        }
+    }
+
+    /**
+     * 渲染分页结果：页码、总数、游标说明加上按预算截断的当前页数据
+     */
+    public String renderPage(String tool, AlertPageResult page, String fields) {
+        try (Output out = open(tool, fields)) {
+            String total = page.getTotal() + (page.isTotalCapped() ? "+" : "");
+            out.text(String.format("第%d页, 每页%d, 总数%s\n", page.getPageNum(), page.getPageSize(), total));
+            if (page.getNextCursor() != null) {
+                out.text("下一页游标：" + page.getNextCursor() + "\n");
+            }
+            return out.list(page.getData()).finish();
+        }
+    }
+
+    private FilterProvider fieldFilter(String fields) {
+        if (fields == null || fields.trim().isEmpty()) {
+            return allFields;
+        }
+        BeanWrapperImpl wrapper = new BeanWrapperImpl(Alert.class);
+        Set<String> selected = new LinkedHashSet<>();
+        for (String field : fields.split(",")) {
+            String trimmed = field.trim();
+            if (trimmed.isEmpty()) {
+                continue;
+            }
+            if (!wrapper.isReadableProperty(trimmed)) {
+                throw new IllegalArgumentException("不支持的字段：" + trimmed);
+            }
+            selected.add(trimmed);
+        }
+        if (selected.isEmpty()) {
+            return allFields;
+        }
+        return new SimpleFilterProvider().addFilter(ALERT_FILTER, SimpleBeanPropertyFilter.filterOutAllExcept(selected));
+    }
+
+    private void release(RenderBuffer buffer) {
+        // 偶尔被撑大的缓冲区不回池，避免长期占用内存
+        if (buffer.capacity() <= maxBytes * 2) {
+            buffer.reset(0);
+            bufferPool.offer(buffer);
+        }
+    }
+
+    /**
+     * 各工具的输出字节数统计，按工具名排序
+     */
+    public Map<String, Object> stats() {
+        Map<String, Object> result = new TreeMap<>();
+        stats.forEach((tool, toolStats) -> result.put(tool, toolStats.snapshot()));
+        return result;
+    }
+
+    public Map<String, ToolOutputStats> getToolStats() {
+        return stats;
+    }
+
+    private ToolOutputStats newStats(String tool) {
+        ToolOutputStats toolStats = new ToolOutputStats();
+        if (meterRegistry != null) {
+            toolStats.size = DistributionSummary.builder("alert.tool.output.size")
+                    .description("MCP工具返回文本的字节数")
+                    .baseUnit("bytes")
+                    .tag("tool", tool)
+                    .register(meterRegistry);
+            FunctionCounter.builder("alert.tool.output.truncated", toolStats, ToolOutputStats::getTruncated)
+                    .description("MCP工具返回因超出字节上限被截断的次数")
+                    .tag("tool", tool)
+                    .register(meterRegistry);
+        }
+        return toolStats;
+    }
+
+    /**
+     * 一次渲染的输出，文本与 JSON 依次追加到同一个缓冲区
+     */
+    public final class Output implements AutoCloseable {
+
+        private final String tool;
+        private final RenderBuffer buffer;
+        private final ObjectWriter writer;
+        private boolean truncated;
+        private boolean closed;
+
+        private Output(String tool, RenderBuffer buffer, FilterProvider filters) {
+            this.tool = tool;
+            this.buffer = buffer;
+            this.writer = objectMapper.writer(filters);
+        }
+
+        public Output text(String text) {
+            if (text != null && !text.isEmpty()) {
+                buffer.write(text.getBytes(StandardCharsets.UTF_8));
+            }
+            return this;
+        }
+
+        /**
+         * 写入一个紧凑 JSON 值，超出预算时截断到预算为止
+         */
+        public Output json(Object value) {
+            writeValue(value);
+            if (buffer.size() > maxBytes) {
+                int over = buffer.size() - maxBytes;
+                buffer.reset(utf8Boundary(maxBytes));
+                truncated = true;
+                text("…（输出已截断，超出 " + over + " 字节）");
+            }
+            return this;
+        }
+
+        /**
+         * 逐条写入 JSON 数组，写入某条后超出预算则回退这一条并停止，末尾注明省略的条数。
+         * 第一条总会保留（其中的超长字符串已截断）
+         */
+        public Output list(List<?> items) {
+            int limit = Math.max(maxBytes - TAIL_RESERVE, 0);
+            buffer.write('[');
+            int written = 0;
+            for (Object item : items) {
+                int mark = buffer.size();
+                if (written > 0) {
+                    buffer.write(',');
+                }
+                writeValue(item);
+                if (written > 0 && buffer.size() > limit) {
+                    buffer.reset(mark);
+                    break;
+                }
+                written++;
+            }
+            buffer.write(']');
+            if (written < items.size()) {
+                truncated = true;
+                text("\n…另有 " + (items.size() - written) + " 条未显示（超出输出上限），可指定 fields 只返回需要的字段，或缩小查询范围");
+            }
+            return this;
+        }
+
+        private void writeValue(Object value) {
+            try {
+                writer.writeValue(buffer, value);
+            } catch (IOException e) {
+                log.error("JSON序列化失败", e);
+                text(String.valueOf(value));
+            }
+        }
+
+        private int utf8Boundary(int position) {
+            // 回退到 UTF-8 字符起始字节，避免截断出半个汉字
+            while (position > 0 && (buffer.byteAt(position) & 0xC0) == 0x80) {
+                position--;
+            }
+            return position;
+        }
+
+        /**
+         * 结束渲染，记录输出统计并返回文本
+         */
+        public String finish() {
+            stats.computeIfAbsent(tool, ToolResultRenderer.this::newStats).record(buffer.size(), truncated);
+            return buffer.toString(StandardCharsets.UTF_8);
+        }
+
+        @Override
+        public void close() {
+            if (!closed) {
+                closed = true;
+                release(buffer);
+            }
+        }
+    }
+
+    /**
+     * 单个工具的输出统计
+     */
+    public static final class ToolOutputStats {
+
+        private final LongAdder count = new LongAdder();
+        private final LongAdder totalBytes = new LongAdder();
+        private final LongAccumulator maxBytes = new LongAccumulator(Math::max, 0);
+        private final LongAdder truncated = new LongAdder();
+        private DistributionSummary size;
+
+        void record(int bytes, boolean wasTruncated) {
+            if (size != null) {
+                size.record(bytes);
+            }
+            count.increment();
+            totalBytes.add(bytes);
+            maxBytes.accumulate(bytes);
+            if (wasTruncated) {
+                truncated.increment();
+            }
+        }
+
+        public long getCount() {
+            return count.sum();
+        }
+
+        public long getTotalBytes() {
+            return totalBytes.sum();
+        }
+
+        public long getMaxBytes() {
+            return maxBytes.get();
+        }
+
+        public long getTruncated() {
+            return truncated.sum();
+        }
+
+        Map<String, Object> snapshot() {
+            Map<String, Object> snapshot = new LinkedHashMap<>();
+            long calls = getCount();
+            snapshot.put("count", calls);
+            snapshot.put("totalBytes", getTotalBytes());
+            snapshot.put("avgBytes", calls == 0 ? 0 : getTotalBytes() / calls);
+            snapshot.put("maxBytes", getMaxBytes());
+            snapshot.put("truncated", getTruncated());
+            return snapshot;
+        }
+    }
+
+    @JsonFilter(ALERT_FILTER)
+    private interface AlertFieldsMixin {
+    }
+
+    /**
+     * 超长字符串（探测报文、失败原因等）截断输出
+     */
+    private final class CappedStringSerializer extends StdSerializer<String> {
+
+        private CappedStringSerializer() {
+            super(String.class);
+        }
+
+        @Override
+        public void serialize(String value, JsonGenerator generator, SerializerProvider provider) throws IOException {
+            if (value.length() <= maxStringLength) {
+                generator.writeString(value);
+            } else {
+                generator.writeString(value.substring(0, maxStringLength) + "…（已截断，共" + value.length() + "字符）");
+            }
+        }
+    }
+
+    /**
+     * 可复用的字节缓冲区，支持回退到指定位置。不做同步，同一时刻只由一次渲染持有
+     */
+    private static final class RenderBuffer extends OutputStream {
+
+        private byte[] bytes;
+        private int size;
+
+        private RenderBuffer(int capacity) {
+            this.bytes = new byte[capacity];
+        }
+
+        @Override
+        public void write(int b) {
+            ensureCapacity(size + 1);
+            bytes[size++] = (byte) b;
+        }
+
+        @Override
+        public void write(byte[] source) {
+            write(source, 0, source.length);
+        }
+
+        @Override
+        public void write(byte[] source, int offset, int length) {
+            ensureCapacity(size + length);
+            System.arraycopy(source, offset, bytes, size, length);
+            size += length;
+        }
+
+        private void ensureCapacity(int required) {
+            if (required > bytes.length) {
+                bytes = Arrays.copyOf(bytes, Math.max(required, bytes.length * 2));
+            }
+        }
+
+        int size() {
+            return size;
+        }
+
+        int capacity() {
+            return bytes.length;
+        }
+
+        byte byteAt(int position) {
+            return bytes[position];
+        }
+
+        void reset(int position) {
+            size = position;
+        }
+
+        String toString(Charset charset) {
+            return new String(bytes, 0, size, charset);
+        }
+    }
+}
@@ -8,11 +8,21 @@ let totalPages = 0;
 let selectedAlerts = new Set();
 let charts = {};
 
+// 实时推送：当前页数据和统计保存在本地，收到变更后直接更新
+let liveStream = null;
+let liveConnected = false;
+let currentAlerts = [];
+let currentTotal = 0;
+let currentTotalCapped = false;
+let currentStats = null;
+let listReloadTimer = null;
+// resync 后重新加载前的最大随机延迟（毫秒）
+const RESYNC_JITTER_MS = 3000;
+
 // 页面加载完成后初始化
 document.addEventListener('DOMContentLoaded', function() {
     initializePage();
-    loadAlerts();
-    loadStatistics();
+    openLiveStream();
     updateCurrentTime();
     setInterval(updateCurrentTime, 1000);
 });
@@ -49,9 +59,10 @@ async function loadAlerts(page = 1) {
         const data = await response.json();
         
         if (response.ok) {
-            renderAlertTable(data.data);
-            renderPagination(data.total, data.pageSize, data.pageNum);
-            updateAlertCount(data.total);
+            currentAlerts = data.data;
+            currentTotal = data.total;
+            currentTotalCapped = data.totalCapped;
+            refreshAlertView();
         } else {
             showError('加载告警列表失败');
         }
@@ -76,6 +87,7 @@ function buildSearchParams() {
     const systemName = document.getElementById('searchSystemName').value;
     const taskName = document.getElementById('searchTaskName').value;
     const host = document.getElementById('searchHost').value;
+    const match = document.getElementById('searchMatch').value;
     const sortField = document.getElementById('searchSortField').value;
     const sortOrder = document.getElementById('searchSortOrder').value;
     
@@ -87,6 +99,7 @@ function buildSearchParams() {
     if (systemName) params.append('systemName', systemName);
     if (taskName) params.append('taskName', taskName);
     if (host) params.append('host', host);
+    if (match && (caseExecId || company || systemName || taskName || host)) params.append('match', match);
     
     // 时间范围
     const timeRange = $('#searchTimeRange').data('daterangepicker');
@@ -119,7 +132,7 @@ function renderAlertTable(alerts) {
         row.innerHTML = `
             <td>
                 <input type="checkbox" class="form-check-input alert-checkbox" 
-                       value="${alert.id}" onchange="toggleAlertSelection('${alert.id}')">
+                       value="${alert.id}" ${selectedAlerts.has(alert.id) ? 'checked' : ''} onchange="toggleAlertSelection('${alert.id}')">
             </td>
             <td>${alert.caseExecId || '-'}</td>
             <td>
@@ -208,6 +221,7 @@ async function loadStatistics() {
         const data = await response.json();
         
         if (response.ok) {
+            currentStats = data;
             updateStatisticsDisplay(data);
         }
     } catch (error) {
@@ -225,9 +239,132 @@ function updateStatisticsDisplay(stats) {
     document.getElementById('infoAlerts').textContent = stats.levelStats?.info || 0;
 }
 
-// 搜索告警
+// 搜索告警：按新的条件重新订阅，连接建立后加载第一页
 function searchAlerts() {
-    loadAlerts(1);
+    currentPage = 1;
+    openLiveStream();
+}
+
+// 订阅告警变更推送，过滤条件与列表查询相同
+function openLiveStream() {
+    if (liveStream) {
+        liveStream.close();
+    }
+    liveConnected = false;
+    if (typeof EventSource === 'undefined') {
+        loadAlerts(currentPage);
+        loadStatistics();
+        return;
+    }
+    const stream = new EventSource(`${API_BASE_URL}/stream?${buildSearchParams()}`);
+    liveStream = stream;
+    stream.onopen = () => { liveConnected = true; };
+    stream.onerror = () => {
+        liveConnected = false;
+        // 服务端拒绝或连接彻底关闭时浏览器不再自动重连，稍后重新订阅
+        if (stream.readyState === EventSource.CLOSED && liveStream === stream) {
+            setTimeout(() => { if (liveStream === stream) openLiveStream(); }, 5000);
+        }
+    };
+    stream.addEventListener('ready', () => {
+        liveConnected = true;
+        loadAlerts(currentPage);
+        loadStatistics();
+    });
+    stream.addEventListener('alert', event => {
+        const delta = JSON.parse(event.data);
+        applyStatsDelta(delta.stats);
+        applyAlertDelta(delta);
+    });
+    stream.addEventListener('enter', event => {
+        const delta = JSON.parse(event.data);
+        applyStatsDelta(delta.stats);
+        currentTotal++;
+        // 修改后才满足条件的告警只有变化字段，稍后重新查询当前页
+        scheduleListReload();
+        refreshAlertView();
+    });
+    stream.addEventListener('leave', event => {
+        const delta = JSON.parse(event.data);
+        applyStatsDelta(delta.stats);
+        removeAlertRow(delta.id);
+    });
+    stream.addEventListener('stats', event => {
+        applyStatsDelta(JSON.parse(event.data).stats);
+    });
+    stream.addEventListener('resync', () => {
+        // 溢出时所有页面同时收到 resync，随机延迟后再重新订阅和加载，避免同时查询列表和统计
+        stream.close();
+        liveConnected = false;
+        setTimeout(() => { if (liveStream === stream) openLiveStream(); }, Math.random() * RESYNC_JITTER_MS);
+    });
+}
+
+// 推送连接正常时由变更更新页面，否则重新查询
+function reloadUnlessLive() {
+    if (!liveConnected) {
+        loadAlerts(currentPage);
+        loadStatistics();
+    }
+}
+
+function scheduleListReload() {
+    clearTimeout(listReloadTimer);
+    listReloadTimer = setTimeout(() => loadAlerts(currentPage), 1000);
+}
+
+// 应用统计增量
+function applyStatsDelta(stats) {
+    if (!stats || !currentStats) {
+        return;
+    }
+    currentStats.totalCount = (currentStats.totalCount || 0) + stats.totalCount;
+    ['statusStats', 'levelStats', 'typeStats', 'companyStats', 'systemStats'].forEach(dimension => {
+        const buckets = currentStats[dimension] || (currentStats[dimension] = {});
+        Object.entries(stats[dimension] || {}).forEach(([key, count]) => {
+            buckets[key] = (buckets[key] || 0) + count;
+            if (buckets[key] === 0) {
+                delete buckets[key];
+            }
+        });
+    });
+    updateStatisticsDisplay(currentStats);
+}
+
+// 应用满足当前条件的告警变更
+function applyAlertDelta(delta) {
+    const index = currentAlerts.findIndex(alert => alert.id === delta.id);
+    if (delta.type === 'created') {
+        currentTotal++;
+        const sortField = document.getElementById('searchSortField').value;
+        const sortOrder = document.getElementById('searchSortOrder').value;
+        // 按告警时间倒序的第一页直接插入，其余页只更新总数
+        if (currentPage === 1 && sortField === 'endTime' && sortOrder === 'desc') {
+            currentAlerts.unshift({ id: delta.id, ...delta.fields });
+            if (currentAlerts.length > pageSize) {
+                currentAlerts.pop();
+            }
+        }
+        refreshAlertView();
+    } else if (delta.type === 'deleted') {
+        removeAlertRow(delta.id);
+    } else if (index >= 0) {
+        Object.assign(currentAlerts[index], delta.fields);
+        refreshAlertView();
+    }
+}
+
+function removeAlertRow(id) {
+    currentTotal = Math.max(0, currentTotal - 1);
+    currentAlerts = currentAlerts.filter(alert => alert.id !== id);
+    selectedAlerts.delete(id);
+    refreshAlertView();
+}
+
+function refreshAlertView() {
+    renderAlertTable(currentAlerts);
+    renderPagination(currentTotal, pageSize, currentPage);
+    updateAlertCount(currentTotalCapped ? `${currentTotal}+` : currentTotal);
 }
 
 // 重置搜索
@@ -240,9 +377,10 @@ function resetSearch() {
     document.getElementById('searchSystemName').value = '';
     document.getElementById('searchTaskName').value = '';
     document.getElementById('searchHost').value = '';
+    document.getElementById('searchMatch').value = 'prefix';
     $('#searchTimeRange').data('daterangepicker').setStartDate(moment().subtract(7, 'days'));
     $('#searchTimeRange').data('daterangepicker').setEndDate(moment());
-    loadAlerts(1);
+    searchAlerts();
 }
 
 // 刷新数据
@@ -403,7 +541,7 @@ async function saveAlert() {
         if (response.ok) {
             showSuccess(isEdit ? '告警更新成功' : '告警创建成功');
             bootstrap.Modal.getInstance(document.getElementById('alertFormModal')).hide();
-            loadAlerts(currentPage);
+            reloadUnlessLive();
         } else {
             showError('保存失败');
         }
@@ -449,8 +587,7 @@ async function resolveAlert(id) {
         
         if (response.ok) {
             showSuccess('告警已解决');
-            loadAlerts(currentPage);
-            loadStatistics();
+            reloadUnlessLive();
         } else {
             showError('解决告警失败');
         }
@@ -473,8 +610,7 @@ async function escalateAlert(id) {
         
         if (response.ok) {
             showSuccess('告警已升级');
-            loadAlerts(currentPage);
-            loadStatistics();
+            reloadUnlessLive();
         } else {
             const error = await response.text();
             showError(error || '升级告警失败');
@@ -498,8 +634,7 @@ async function deleteAlert(id) {
         
         if (response.ok) {
             showSuccess('告警已删除');
-            loadAlerts(currentPage);
-            loadStatistics();
+            reloadUnlessLive();
         } else {
             showError('删除告警失败');
         }
@@ -538,8 +673,7 @@ async function batchResolve() {
             showSuccess(`成功解决 ${result.updatedCount} 个告警`);
             selectedAlerts.clear();
             updateSelectAllCheckbox();
-            loadAlerts(currentPage);
-            loadStatistics();
+            reloadUnlessLive();
         } else {
             showError('批量解决失败');
         }
@@ -575,8 +709,7 @@ async function batchDelete() {
             showSuccess(`成功删除 ${result.deletedCount} 个告警`);
             selectedAlerts.clear();
             updateSelectAllCheckbox();
-            loadAlerts(currentPage);
-            loadStatistics();
+            reloadUnlessLive();
         } else {
             showError('批量删除失败');
         }
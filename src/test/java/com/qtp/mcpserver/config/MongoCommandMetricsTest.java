@@ -0,0 +1,73 @@
+package com.qtp.mcpserver.config;
+
+import com.mongodb.ServerAddress;
+import com.mongodb.client.MongoClient;
+import com.mongodb.connection.ClusterId;
+import com.mongodb.connection.ConnectionDescription;
+import com.mongodb.connection.ServerId;
+import com.mongodb.event.CommandStartedEvent;
+import com.mongodb.event.CommandSucceededEvent;
+import com.qtp.mcpserver.dto.SlowQuery;
+import io.micrometer.core.instrument.Timer;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.bson.BsonDocument;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.support.StaticListableBeanFactory;
+
+import java.time.Duration;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class MongoCommandMetricsTest {
+
+    private static final ConnectionDescription CONNECTION = new ConnectionDescription(new ServerId(new ClusterId(), new ServerAddress()));
+
+    private final SimpleMeterRegistry registry = new SimpleMeterRegistry();
+
+    private final MongoCommandMetrics metrics = new MongoCommandMetrics(registry,
+            new StaticListableBeanFactory().getBeanProvider(MongoClient.class), Runnable::run,
+            Duration.ofMillis(100), 10, 2);
+
+    private void run(int requestId, String command, long elapsedMillis) {
+        BsonDocument document = BsonDocument.parse(command);
+        String commandName = document.getFirstKey();
+        metrics.commandStarted(new CommandStartedEvent(null, requestId, requestId, CONNECTION, "test", commandName, document));
+        metrics.commandSucceeded(new CommandSucceededEvent(null, requestId, requestId, CONNECTION, "test", commandName,
+                new BsonDocument(), TimeUnit.MILLISECONDS.toNanos(elapsedMillis)));
+    }
+
+    @Test
+    void groupsCommandsByShapeAndCapsShapeCount() {
+        run(1, "{find: 'alert', filter: {alarmLevel: 'critical', endTime: {$gte: 1}}}", 5);
+        run(2, "{find: 'alert', filter: {alarmLevel: 'low', endTime: {$gte: 2}}}", 5);
+        run(3, "{aggregate: 'alert', pipeline: [{$match: {company: 'a'}}, {$group: {_id: '$alarmLevel'}}]}", 5);
+        run(4, "{count: 'alert', query: {systemName: 'x'}}", 5);
+
+        Timer find = registry.find(MongoCommandMetrics.TIMER).tag("command", "find").timer();
+        assertNotNull(find);
+        assertEquals(2, find.count());
+        assertEquals("{\"alarmLevel\": \"?\", \"endTime\": {\"$gte\": \"?\"}}", find.getId().getTag("shape"));
+        assertEquals("other", registry.find(MongoCommandMetrics.TIMER).tag("command", "count").timer().getId().getTag("shape"));
+        assertTrue(metrics.slowQueries().isEmpty());
+    }
+
+    @Test
+    void recordsSlowCommandWithCommandAndExplainOutcome() {
+        run(1, "{find: 'alert', filter: {caseExecId: 'c1'}, lsid: {id: 1}}", 350);
+        run(2, "{update: 'alert', updates: [{q: {_id: 'a'}, u: {$set: {status: 'RESOLVED'}}}]}", 150);
+
+        List<SlowQuery> slowQueries = metrics.slowQueries();
+        assertEquals(2, slowQueries.size());
+        SlowQuery update = slowQueries.get(0);
+        assertEquals("update", update.getCommandName());
+        assertNull(update.getCommand());
+        SlowQuery find = slowQueries.get(1);
+        assertEquals(350, find.getDurationMillis());
+        assertEquals("alert", find.getCollection());
+        assertTrue(find.getCommand().contains("c1"));
+        assertTrue(find.getCaller().startsWith("thread:"));
+        assertNotNull(find.getExplainError());
+    }
+}
@@ -0,0 +1,85 @@
+package com.qtp.mcpserver.loadgen;
+
+import java.net.URI;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * REST 接口并发压测工具（非单元测试），用于比较 web 配置下平台线程与虚拟线程两种模式。
+ * <p>
+ * 固定并发数的客户端在给定时长内循环请求列表、统计等读接口，输出吞吐、错误数和延迟分位数。
+ * 以相同参数分别压测两种模式的服务端即可对比：
+ * <pre>
+ * java -jar mcp-alarm-server.jar --spring.threads.virtual.enabled=false
+ * java -jar mcp-alarm-server.jar --spring.threads.virtual.enabled=true
+ * </pre>
+ * 用法：AlertApiLoadGenerator [并发数=500] [持续秒数=30] [服务地址=http://localhost:8128]
+ */
+public class AlertApiLoadGenerator {
+
+    private static final String[] PATHS = {
+            "/api/alerts/search?pageNum=1&pageSize=20",
+            "/api/alerts/search?pageNum=1&pageSize=20&alarmLevel=critical",
+            "/api/alerts/statistics",
+            "/api/alerts/statistics?company=%E6%80%BB%E9%83%A8",
+            "/api/alerts/fulltext?keyword=timeout&pageSize=20"
+    };
+
+    public static void main(String[] args) throws Exception {
+        int concurrency = args.length > 0 ? Integer.parseInt(args[0]) : 500;
+        int seconds = args.length > 1 ? Integer.parseInt(args[1]) : 30;
+        String baseUrl = args.length > 2 ? args[2] : "http://localhost:8128";
+
+        HttpClient client = HttpClient.newBuilder().connectTimeout(Duration.ofSeconds(10)).build();
+        List<Long> latencies = Collections.synchronizedList(new ArrayList<>());
+        AtomicInteger errors = new AtomicInteger();
+        long deadline = System.nanoTime() + seconds * 1_000_000_000L;
+
+        long start = System.nanoTime();
+        try (ExecutorService executor = Executors.newVirtualThreadPerTaskExecutor()) {
+            for (int i = 0; i < concurrency; i++) {
+                executor.submit(() -> {
+                    while (System.nanoTime() < deadline) {
+                        String path = PATHS[ThreadLocalRandom.current().nextInt(PATHS.length)];
+                        HttpRequest request = HttpRequest.newBuilder(URI.create(baseUrl + path))
+                                .timeout(Duration.ofSeconds(60)).GET().build();
+                        long begin = System.nanoTime();
+                        try {
+                            HttpResponse<Void> response = client.send(request, HttpResponse.BodyHandlers.discarding());
+                            if (response.statusCode() == 200) {
+                                latencies.add((System.nanoTime() - begin) / 1_000_000);
+                            } else {
+                                errors.incrementAndGet();
+                            }
+                        } catch (Exception e) {
+                            errors.incrementAndGet();
+                        }
+                    }
+                });
+            }
+        }
+        double elapsed = (System.nanoTime() - start) / 1e9;
+
+        List<Long> sorted = new ArrayList<>(latencies);
+        Collections.sort(sorted);
+        System.out.printf("并发 %d，持续 %.1f 秒：成功 %d，失败 %d，吞吐 %.1f 次/秒%n",
+                concurrency, elapsed, sorted.size(), errors.get(), sorted.size() / elapsed);
+        if (!sorted.isEmpty()) {
+            System.out.printf("延迟(ms)：p50=%d p90=%d p99=%d max=%d%n",
+                    percentile(sorted, 0.50), percentile(sorted, 0.90), percentile(sorted, 0.99), sorted.get(sorted.size() - 1));
+        }
+    }
+
+    private static long percentile(List<Long> sorted, double p) {
+        return sorted.get(Math.min(sorted.size() - 1, (int) Math.ceil(p * sorted.size()) - 1));
+    }
+}
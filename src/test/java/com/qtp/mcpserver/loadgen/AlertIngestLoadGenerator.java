@@ -0,0 +1,95 @@
+package com.qtp.mcpserver.loadgen;
+
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.net.URI;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.nio.charset.StandardCharsets;
+import java.util.concurrent.ThreadLocalRandom;
+
+/**
+ * /api/alerts/ingest 压测工具（非单元测试），边生成边发送 NDJSON，打印服务端汇总与持续写入速率。
+ * <p>
+ * 用法：AlertIngestLoadGenerator [总条数=100000] [地址=http://localhost:8128/api/alerts/ingest] [非法行比例=0.01]
+ */
+public class AlertIngestLoadGenerator {
+
+    private static final String[] LEVELS = {"info", "warning", "critical"};
+    private static final String[] TYPES = {"host", "business"};
+    private static final String[] COMPANIES = {"总部", "华东分公司", "华南分公司", "华北分公司"};
+    private static final String[] SYSTEMS = {"订单系统", "支付系统", "用户中心", "消息平台"};
+
+    public static void main(String[] args) throws Exception {
+        long total = args.length > 0 ? Long.parseLong(args[0]) : 100_000;
+        String url = args.length > 1 ? args[1] : "http://localhost:8128/api/alerts/ingest";
+        double invalidRatio = args.length > 2 ? Double.parseDouble(args[2]) : 0.01;
+
+        HttpRequest request = HttpRequest.newBuilder(URI.create(url))
+                .header("Content-Type", "application/x-ndjson")
+                .POST(HttpRequest.BodyPublishers.ofInputStream(() -> new GeneratingStream(total, invalidRatio)))
+                .build();
+
+        long start = System.nanoTime();
+        HttpResponse<String> response = HttpClient.newHttpClient().send(request, HttpResponse.BodyHandlers.ofString());
+        double seconds = (System.nanoTime() - start) / 1e9;
+
+        System.out.println("HTTP " + response.statusCode());
+        System.out.println(response.body());
+        System.out.printf("发送 %d 行，耗时 %.2f 秒，客户端视角 %.0f 行/秒%n", total, seconds, total / seconds);
+    }
+
+    /**
+     * 按需生成告警行，不在内存中保留整个请求体
+     */
+    private static class GeneratingStream extends InputStream {
+
+        private final long total;
+        private final double invalidRatio;
+        private long produced;
+        private ByteArrayInputStream current = new ByteArrayInputStream(new byte[0]);
+
+        GeneratingStream(long total, double invalidRatio) {
+            this.total = total;
+            this.invalidRatio = invalidRatio;
+        }
+
+        @Override
+        public int read() throws IOException {
+            byte[] one = new byte[1];
+            return read(one, 0, 1) < 0 ? -1 : one[0] & 0xFF;
+        }
+
+        @Override
+        public int read(byte[] b, int off, int len) {
+            while (current.available() == 0) {
+                if (produced >= total) {
+                    return -1;
+                }
+                current = new ByteArrayInputStream(nextLine().getBytes(StandardCharsets.UTF_8));
+            }
+            return current.read(b, off, len);
+        }
+
+        private String nextLine() {
+            ThreadLocalRandom random = ThreadLocalRandom.current();
+            long n = produced++;
+            if (random.nextDouble() < invalidRatio) {
+                return "{\"caseExecId\":\"\",\"alarmLevel\":\"fatal\"}\n";
+            }
+            return "{\"caseExecId\":\"LOAD-" + n + "\""
+                    + ",\"alarmLevel\":\"" + LEVELS[random.nextInt(LEVELS.length)] + "\""
+                    + ",\"alarmType\":\"" + TYPES[random.nextInt(TYPES.length)] + "\""
+                    + ",\"alertId\":\"A" + random.nextInt(1000) + "\""
+                    + ",\"company\":\"" + COMPANIES[random.nextInt(COMPANIES.length)] + "\""
+                    + ",\"systemName\":\"" + SYSTEMS[random.nextInt(SYSTEMS.length)] + "\""
+                    + ",\"host\":\"10.0." + random.nextInt(256) + "." + random.nextInt(256) + "\""
+                    + ",\"taskName\":\"巡检任务" + random.nextInt(50) + "\""
+                    + ",\"failReason\":\"压测生成的告警 " + n + "\""
+                    + ",\"endTime\":" + System.currentTimeMillis()
+                    + ",\"status\":0}\n";
+        }
+    }
+}
@@ -0,0 +1,170 @@
+package com.qtp.mcpserver.loadgen;
+
+import java.io.BufferedReader;
+import java.io.InputStream;
+import java.io.InputStreamReader;
+import java.net.URI;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.nio.charset.StandardCharsets;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * MCP SSE 并发会话压测工具（非单元测试），用于比较 alert.tools.mode=blocking 与 reactive 两种实现。
+ * <p>
+ * 建立指定数量的 SSE 会话，每个会话完成 initialize 握手后循环调用同一个工具，统计成功建立的会话数、
+ * 调用吞吐和延迟分位数。分别以两种模式启动 sse 配置的服务端各跑一次即可对比：
+ * <pre>
+ * java -jar mcp-alarm-server.jar --spring.profiles.active=sse --alert.tools.mode=blocking --spring.ai.mcp.server.type=SYNC
+ * java -jar mcp-alarm-server.jar --spring.profiles.active=sse
+ * </pre>
+ * 用法：McpSseSessionLoadGenerator [会话数=200] [每会话调用次数=20] [服务地址=http://localhost:8128] [工具名=getAlertsByTimeRange]
+ */
+public class McpSseSessionLoadGenerator {
+
+    public static void main(String[] args) throws Exception {
+        int sessions = args.length > 0 ? Integer.parseInt(args[0]) : 200;
+        int callsPerSession = args.length > 1 ? Integer.parseInt(args[1]) : 20;
+        String baseUrl = args.length > 2 ? args[2] : "http://localhost:8128";
+        String toolName = args.length > 3 ? args[3] : "getAlertsByTimeRange";
+        String toolArguments = "getAlertsByTimeRange".equals(toolName)
+                ? "{\"startTime\":\"2020-01-01T00:00:00.000+00:00\",\"endTime\":\"2030-01-01T00:00:00.000+00:00\",\"limit\":20}"
+                : "{}";
+
+        HttpClient client = HttpClient.newBuilder().connectTimeout(Duration.ofSeconds(10)).build();
+        List<Long> latencies = Collections.synchronizedList(new ArrayList<>());
+        AtomicInteger established = new AtomicInteger();
+        AtomicInteger failedCalls = new AtomicInteger();
+        AtomicLong firstError = new AtomicLong();
+        CountDownLatch done = new CountDownLatch(sessions);
+
+        long start = System.nanoTime();
+        try (ExecutorService executor = Executors.newVirtualThreadPerTaskExecutor()) {
+            for (int i = 0; i < sessions; i++) {
+                executor.submit(() -> {
+                    try {
+                        runSession(client, baseUrl, toolName, toolArguments, callsPerSession, established, latencies, failedCalls);
+                    } catch (Exception e) {
+                        if (firstError.compareAndSet(0, 1)) {
+                            System.err.println("会话失败：" + e);
+                        }
+                    } finally {
+                        done.countDown();
+                    }
+                });
+            }
+            done.await(10, TimeUnit.MINUTES);
+        }
+        double seconds = (System.nanoTime() - start) / 1e9;
+
+        List<Long> sorted = new ArrayList<>(latencies);
+        Collections.sort(sorted);
+        System.out.printf("会话：请求 %d，建立 %d%n", sessions, established.get());
+        System.out.printf("调用：成功 %d，失败 %d，耗时 %.2f 秒，吞吐 %.1f 次/秒%n",
+                sorted.size(), failedCalls.get(), seconds, sorted.size() / seconds);
+        if (!sorted.isEmpty()) {
+            System.out.printf("延迟(ms)：p50=%d p90=%d p99=%d max=%d%n",
+                    percentile(sorted, 0.50), percentile(sorted, 0.90), percentile(sorted, 0.99), sorted.get(sorted.size() - 1));
+        }
+    }
+
+    private static void runSession(HttpClient client, String baseUrl, String toolName, String toolArguments, int calls,
+                                   AtomicInteger established, List<Long> latencies, AtomicInteger failedCalls) throws Exception {
+        HttpRequest sseRequest = HttpRequest.newBuilder(URI.create(baseUrl + "/sse"))
+                .header("Accept", "text/event-stream").GET().build();
+        HttpResponse<InputStream> sse = client.send(sseRequest, HttpResponse.BodyHandlers.ofInputStream());
+        Map<Integer, CompletableFuture<String>> pending = new ConcurrentHashMap<>();
+        CompletableFuture<String> endpoint = new CompletableFuture<>();
+
+        Thread reader = Thread.ofVirtual().start(() -> readEvents(sse.body(), endpoint, pending));
+        try {
+            String messageUrl = baseUrl + endpoint.get(30, TimeUnit.SECONDS);
+            call(client, messageUrl, pending, 0, "initialize",
+                    "{\"protocolVersion\":\"2024-11-05\",\"capabilities\":{},\"clientInfo\":{\"name\":\"loadgen\",\"version\":\"1.0\"}}");
+            post(client, messageUrl, "{\"jsonrpc\":\"2.0\",\"method\":\"notifications/initialized\"}");
+            established.incrementAndGet();
+
+            for (int i = 1; i <= calls; i++) {
+                long begin = System.nanoTime();
+                String response = call(client, messageUrl, pending, i, "tools/call",
+                        "{\"name\":\"" + toolName + "\",\"arguments\":" + toolArguments + "}");
+                if (response.contains("\"isError\":true") || response.contains("\"error\"")) {
+                    failedCalls.incrementAndGet();
+                } else {
+                    latencies.add((System.nanoTime() - begin) / 1_000_000);
+                }
+            }
+        } finally {
+            sse.body().close();
+            reader.interrupt();
+        }
+    }
+
+    private static String call(HttpClient client, String messageUrl, Map<Integer, CompletableFuture<String>> pending,
+                               int id, String method, String params) throws Exception {
+        CompletableFuture<String> response = new CompletableFuture<>();
+        pending.put(id, response);
+        post(client, messageUrl, "{\"jsonrpc\":\"2.0\",\"id\":" + id + ",\"method\":\"" + method + "\",\"params\":" + params + "}");
+        return response.get(120, TimeUnit.SECONDS);
+    }
+
+    private static void post(HttpClient client, String url, String body) throws Exception {
+        HttpRequest request = HttpRequest.newBuilder(URI.create(url))
+                .header("Content-Type", "application/json")
+                .POST(HttpRequest.BodyPublishers.ofString(body, StandardCharsets.UTF_8))
+                .build();
+        client.send(request, HttpResponse.BodyHandlers.discarding());
+    }
+
+    /**
+     * 读取 SSE 事件：endpoint 事件给出消息地址，message 事件按 JSON-RPC id 完成对应的调用
+     */
+    private static void readEvents(InputStream body, CompletableFuture<String> endpoint,
+                                   Map<Integer, CompletableFuture<String>> pending) {
+        try (BufferedReader reader = new BufferedReader(new InputStreamReader(body, StandardCharsets.UTF_8))) {
+            String event = null;
+            String line;
+            while ((line = reader.readLine()) != null) {
+                if (line.startsWith("event:")) {
+                    event = line.substring(6).trim();
+                } else if (line.startsWith("data:")) {
+                    String data = line.substring(5).trim();
+                    if ("endpoint".equals(event)) {
+                        endpoint.complete(data);
+                    } else {
+                        int idStart = data.indexOf("\"id\":");
+                        if (idStart >= 0) {
+                            int idEnd = idStart + 5;
+                            while (idEnd < data.length() && Character.isDigit(data.charAt(idEnd))) {
+                                idEnd++;
+                            }
+                            CompletableFuture<String> future = pending.remove(Integer.parseInt(data.substring(idStart + 5, idEnd)));
+                            if (future != null) {
+                                future.complete(data);
+                            }
+                        }
+                    }
+                }
+            }
+        } catch (Exception e) {
+            endpoint.completeExceptionally(e);
+        }
+    }
+
+    private static long percentile(List<Long> sorted, double p) {
+        return sorted.get(Math.min(sorted.size() - 1, (int) Math.ceil(p * sorted.size()) - 1));
+    }
+}
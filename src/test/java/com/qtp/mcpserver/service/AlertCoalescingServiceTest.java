@@ -0,0 +1,217 @@
+package com.qtp.mcpserver.service;
+
+import com.mongodb.client.MongoClient;
+import com.mongodb.client.MongoClients;
+import com.qtp.mcpserver.dto.AlertFilter;
+import com.qtp.mcpserver.entity.Alert;
+import com.qtp.mcpserver.event.AlertChangeEvent;
+import com.qtp.mcpserver.event.AlertMongoEventListener;
+import com.qtp.mcpserver.storage.MongoAlertStore;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.AfterAll;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.condition.EnabledIfSystemProperty;
+import org.springframework.context.support.GenericApplicationContext;
+import org.springframework.core.task.SyncTaskExecutor;
+import org.springframework.data.domain.Sort;
+import org.springframework.data.mongodb.BulkOperationException;
+import org.springframework.data.mongodb.core.MongoTemplate;
+import org.springframework.data.mongodb.core.query.Criteria;
+import org.springframework.data.mongodb.core.query.Query;
+import org.springframework.util.unit.DataSize;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.Date;
+import java.util.List;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * 需要可用的 MongoDB，默认跳过：mvn test -Dalert.test.mongo-uri=mongodb://localhost:27017
+ * 使用独立的 alert_coalescing_test 库，每个用例前清空 alert 集合
+ */
+@EnabledIfSystemProperty(named = "alert.test.mongo-uri", matches = ".+")
+class AlertCoalescingServiceTest {
+
+    private static final long BASE = 1_700_000_000_000L;
+
+    private static final long WINDOW = 300_000L;
+
+    private static MongoClient client;
+
+    private final List<AlertChangeEvent> events = new CopyOnWriteArrayList<>();
+
+    private MongoTemplate mongoTemplate;
+
+    private AlertCoalescingService service;
+
+    @AfterAll
+    static void closeClient() {
+        if (client != null) {
+            client.close();
+        }
+    }
+
+    @BeforeEach
+    void setUp() {
+        if (client == null) {
+            client = MongoClients.create(System.getProperty("alert.test.mongo-uri"));
+        }
+        mongoTemplate = new MongoTemplate(client, "alert_coalescing_test");
+        mongoTemplate.dropCollection(Alert.class);
+        AlertPayloadService payloadService = new AlertPayloadService(mongoTemplate, "inline", 512);
+        GenericApplicationContext context = new GenericApplicationContext();
+        context.registerBean(AlertMongoEventListener.class, () -> new AlertMongoEventListener(payloadService));
+        context.refresh();
+        mongoTemplate.setApplicationContext(context);
+        service = newService();
+    }
+
+    private AlertCoalescingService newService() {
+        AlertCacheService cacheService = new AlertCacheService(mongoTemplate, new AlertPayloadService(mongoTemplate, "inline", 512),
+                false, DataSize.ofMegabytes(1), Duration.ofMinutes(1));
+        AlertArchiveService archiveService = new AlertArchiveService(mongoTemplate, new AlertPayloadService(mongoTemplate, "inline", 512),
+                new SimpleMeterRegistry(), false, false, "alert_archive", Duration.ofDays(30), 500, 10, Duration.ZERO);
+        AlertRollupService rollupService = new AlertRollupService(mongoTemplate, archiveService, new SyncTaskExecutor(), false,
+                Duration.ofDays(7));
+        return new AlertCoalescingService(mongoTemplate, event -> events.add((AlertChangeEvent) event), cacheService,
+                new AlertPayloadService(mongoTemplate, "inline", 512), rollupService, true, WINDOW, "alertId,host,taskName", 100);
+    }
+
+    @Test
+    void upsertedAlertsMatchTextFilters() {
+        service.coalesce(List.of(alert("A-1", 0)));
+
+        AlertFilter filter = new AlertFilter();
+        filter.setCompanyLike("ACME");
+        filter.setHostLike("10.0.0");
+        List<Alert> found = mongoTemplate.find(MongoAlertStore.query(filter), Alert.class);
+        assertEquals(1, found.size());
+        assertEquals("A-1", found.get(0).getAlertId());
+    }
+
+    @Test
+    void mergesRepeatsWithinWindow() {
+        assertEquals(2, service.coalesce(List.of(alert("A-1", 0), alert("A-1", 60_000), alert("A-1", 30_000))));
+
+        Alert merged = single("A-1");
+        assertEquals(3, merged.getOccurrenceCount());
+        assertEquals(new Date(BASE), merged.getFirstSeen());
+        assertEquals(new Date(BASE + 60_000), merged.getLastSeen());
+        assertEquals(new Date(BASE + 60_000), merged.getEndTime());
+        assertEquals(1, events.size());
+    }
+
+    @Test
+    void startsNewDocumentAfterWindow() {
+        service.coalesce(List.of(alert("A-1", 0)));
+        assertEquals(0, service.coalesce(List.of(alert("A-1", WINDOW))));
+
+        List<Alert> documents = mongoTemplate.find(new Query().with(Sort.by("firstSeen")), Alert.class);
+        assertEquals(2, documents.size());
+        assertEquals(new Date(BASE), documents.get(0).getFirstSeen());
+        assertEquals(new Date(BASE + WINDOW), documents.get(1).getFirstSeen());
+        assertEquals(2, events.size());
+    }
+
+    @Test
+    void hotFingerprintsUpdateAndRecreateInPlace() {
+        service.coalesce(List.of(alert("A-1", 0)));
+        // 热点表命中：按 (fingerprint, firstSeen) 直接更新
+        assertEquals(1, service.coalesce(List.of(alert("A-1", 30_000))));
+        Alert merged = single("A-1");
+        assertEquals(2, merged.getOccurrenceCount());
+        assertEquals(1, events.size());
+
+        // 文档被删除后，热点表中的窗口仍然有效，upsert 以原 firstSeen 重新建档
+        mongoTemplate.remove(new Query(), Alert.class);
+        assertEquals(0, service.coalesce(List.of(alert("A-1", 60_000))));
+        Alert recreated = single("A-1");
+        assertEquals(1, recreated.getOccurrenceCount());
+        assertEquals(new Date(BASE), recreated.getFirstSeen());
+        assertEquals(2, events.size());
+    }
+
+    @Test
+    void concurrentColdUpsertsShareOneDocument() throws Exception {
+        new AlertIndexManager(mongoTemplate, new SyncTaskExecutor(), false).ensureIndexes();
+        int writers = 8;
+        // 每个写入方有自己的热点表，都走范围条件 upsert
+        List<AlertCoalescingService> services = new ArrayList<>();
+        for (int i = 0; i < writers; i++) {
+            services.add(newService());
+        }
+        CountDownLatch start = new CountDownLatch(1);
+        ExecutorService executor = Executors.newFixedThreadPool(writers);
+        try {
+            List<Future<Integer>> results = new ArrayList<>();
+            for (AlertCoalescingService writer : services) {
+                results.add(executor.submit(() -> {
+                    start.await();
+                    return writer.coalesce(List.of(alert("A-1", 0)));
+                }));
+            }
+            start.countDown();
+            int coalesced = 0;
+            for (Future<Integer> result : results) {
+                coalesced += result.get(10, TimeUnit.SECONDS);
+            }
+            assertEquals(writers - 1, coalesced);
+        } finally {
+            executor.shutdownNow();
+        }
+        assertEquals(writers, single("A-1").getOccurrenceCount());
+    }
+
+    @Test
+    void reportsWrittenAlertsWhenBatchFailsPartway() {
+        Alert existing = plain("p-1");
+        mongoTemplate.insert(existing);
+
+        AlertCoalescingService.Progress progress = new AlertCoalescingService.Progress();
+        assertThrows(BulkOperationException.class,
+                () -> service.coalesce(List.of(alert("A-1", 0), plain("p-1"), plain("p-2")), progress));
+        assertEquals(2, progress.getWritten());
+        assertEquals(0, progress.getCoalesced());
+        assertEquals(2, events.size());
+    }
+
+    private Alert single(String alertId) {
+        List<Alert> documents = mongoTemplate.find(new Query(Criteria.where("alertId").is(alertId)), Alert.class);
+        assertEquals(1, documents.size());
+        return documents.get(0);
+    }
+
+    /**
+     * 指纹字段全部为空的告警，不参与合并
+     */
+    private static Alert plain(String id) {
+        Alert alert = new Alert();
+        alert.setId(id);
+        alert.setStatus(0);
+        alert.setEndTime(new Date(BASE));
+        return alert;
+    }
+
+    private static Alert alert(String alertId, long offsetMillis) {
+        Alert alert = new Alert();
+        alert.setAlertId(alertId);
+        alert.setCaseExecId("case-" + alertId);
+        alert.setAlarmLevel("critical");
+        alert.setStatus(0);
+        alert.setCompany("Acme 华东");
+        alert.setSystemName("计费");
+        alert.setTaskName("探测");
+        alert.setHost("10.0.0.1");
+        alert.setEndTime(new Date(BASE + offsetMillis));
+        return alert;
+    }
+}
@@ -0,0 +1,64 @@
+package com.qtp.mcpserver.service;
+
+import com.qtp.mcpserver.dto.AlertStatistics;
+import com.qtp.mcpserver.entity.Alert;
+import com.qtp.mcpserver.event.AlertChangeEvent;
+import org.junit.jupiter.api.Test;
+
+import java.util.Map;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class AlertCounterStoreTest {
+
+    @Test
+    void eventsDuringReconcileSurviveReset() {
+        AlertCounterStore counterStore = new AlertCounterStore();
+        counterStore.reset(statistics(1, "info"));
+
+        counterStore.beginReconcile();
+        // 聚合结果取出之后、替换之前到达的事件
+        counterStore.onAlertChange(AlertChangeEvent.created(alert("critical")));
+        assertEquals(0, counterStore.reset(statistics(1, "info")));
+
+        AlertStatistics snapshot = counterStore.snapshot();
+        assertEquals(2, snapshot.getTotalCount());
+        assertEquals(Map.of("info", 1L, "critical", 1L), snapshot.getLevelStats());
+
+        // 对账结束后不再记录增量
+        counterStore.onAlertChange(AlertChangeEvent.deleted(alert("critical")));
+        assertEquals(-1, counterStore.reset(statistics(0, "info")));
+        assertEquals(0, counterStore.snapshot().getTotalCount());
+    }
+
+    @Test
+    void eventsBeforeFirstSeedAreAppliedOnceReconcileStarts() {
+        AlertCounterStore counterStore = new AlertCounterStore();
+        counterStore.onAlertChange(AlertChangeEvent.created(alert("info")));
+        counterStore.beginReconcile();
+        counterStore.onAlertChange(AlertChangeEvent.created(alert("info")));
+        assertFalse(counterStore.isSeeded());
+        counterStore.reset(statistics(3, "info"));
+        assertEquals(4, counterStore.snapshot().getTotalCount());
+
+        counterStore.beginReconcile();
+        counterStore.onAlertChange(AlertChangeEvent.created(alert("info")));
+        counterStore.cancelReconcile();
+        assertEquals(5, counterStore.snapshot().getTotalCount());
+    }
+
+    private static AlertStatistics statistics(long count, String level) {
+        AlertStatistics statistics = new AlertStatistics();
+        statistics.setTotalCount(count);
+        if (count > 0) {
+            statistics.getLevelStats().put(level, count);
+        }
+        return statistics;
+    }
+
+    private static Alert alert(String level) {
+        Alert alert = new Alert();
+        alert.setAlarmLevel(level);
+        return alert;
+    }
+}
@@ -0,0 +1,37 @@
+package com.qtp.mcpserver.service;
+
+import com.qtp.mcpserver.dto.AlertMatchMode;
+import com.qtp.mcpserver.entity.Alert;
+import org.bson.Document;
+import org.junit.jupiter.api.Test;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class AlertMatchKeysTest {
+
+    @Test
+    void normalizesCaseWidthAndSurroundingSpaces() {
+        assertEquals("billing-api 01", AlertMatchKeys.normalize(" ＢＩＬＬＩＮＧ-Api ０１　"));
+        assertEquals("华东分公司", AlertMatchKeys.normalize("华东分公司"));
+        assertNull(AlertMatchKeys.normalize(null));
+    }
+
+    @Test
+    void documentSkipsEmptyFields() {
+        Alert alert = new Alert();
+        alert.setCompany("Acme");
+        alert.setHost("10.0.0.1");
+        alert.setFailReason("超时");
+        assertEquals(new Document("company", "acme").append("host", "10.0.0.1"), AlertMatchKeys.document(alert));
+    }
+
+    @Test
+    void matchesByMode() {
+        assertTrue(AlertMatchKeys.matches("billing-api", "billing", AlertMatchMode.PREFIX));
+        assertFalse(AlertMatchKeys.matches("billing-api", "api", AlertMatchMode.PREFIX));
+        assertTrue(AlertMatchKeys.matches("billing-api", "api", AlertMatchMode.CONTAINS));
+        assertFalse(AlertMatchKeys.matches("billing-api", "billing", AlertMatchMode.EXACT));
+        assertFalse(AlertMatchKeys.matches(null, "billing", AlertMatchMode.CONTAINS));
+        assertTrue(AlertMatchKeys.matches(null, null, AlertMatchMode.EXACT));
+    }
+}
@@ -0,0 +1,152 @@
+package com.qtp.mcpserver.service;
+
+import com.qtp.mcpserver.entity.Alert;
+import com.qtp.mcpserver.event.AlertChangeEvent;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.Test;
+import reactor.core.publisher.Mono;
+import reactor.core.publisher.Sinks;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class AlertQueryCoalescerTest {
+
+    @Test
+    void concurrentIdenticalQueriesShareOneExecution() throws Exception {
+        AlertQueryCoalescer coalescer = new AlertQueryCoalescer(new SimpleMeterRegistry(), true, Duration.ZERO, Duration.ZERO, 10);
+        AtomicInteger executions = new AtomicInteger();
+        CountDownLatch release = new CountDownLatch(1);
+        ExecutorService executor = Executors.newFixedThreadPool(4);
+        try {
+            List<Future<String>> results = new ArrayList<>();
+            for (int i = 0; i < 4; i++) {
+                results.add(executor.submit(() -> coalescer.execute("statistics", "{\"status\": 0}", () -> {
+                    executions.incrementAndGet();
+                    await(release);
+                    return "结果";
+                })));
+            }
+            // 等其余调用都加入进行中的查询
+            while (joined(coalescer) < 3) {
+                Thread.sleep(5);
+            }
+            release.countDown();
+            for (Future<String> result : results) {
+                assertEquals("结果", result.get(5, TimeUnit.SECONDS));
+            }
+        } finally {
+            executor.shutdownNow();
+        }
+        assertEquals(1, executions.get());
+        assertEquals(0.75, stats(coalescer).get("coalescingRatio"));
+
+        coalescer.execute("statistics", "{\"status\": 0}", executions::incrementAndGet);
+        assertEquals(2, executions.get());
+    }
+
+    @Test
+    void alertChangeInvalidatesRecentResults() {
+        AlertQueryCoalescer coalescer = new AlertQueryCoalescer(new SimpleMeterRegistry(), true, Duration.ofMinutes(1), Duration.ZERO, 10);
+        AtomicInteger executions = new AtomicInteger();
+        assertEquals(1, coalescer.execute("page", "k", executions::incrementAndGet));
+        assertEquals(1, coalescer.execute("page", "k", executions::incrementAndGet));
+
+        Alert alert = new Alert();
+        alert.setId("1");
+        coalescer.onAlertChange(AlertChangeEvent.created(alert));
+        assertEquals(2, coalescer.execute("page", "k", executions::incrementAndGet));
+        assertEquals(1L, stats(coalescer).get("cached"));
+    }
+
+    @Test
+    void alertChangeKeepsJoiningWithinStaleness() throws Exception {
+        Alert alert = new Alert();
+        alert.setId("1");
+        for (Duration maxStaleness : List.of(Duration.ofMinutes(1), Duration.ZERO)) {
+            AlertQueryCoalescer coalescer = new AlertQueryCoalescer(new SimpleMeterRegistry(), true, Duration.ZERO, maxStaleness, 10);
+            AtomicInteger executions = new AtomicInteger();
+            CountDownLatch started = new CountDownLatch(1);
+            CountDownLatch release = new CountDownLatch(1);
+            ExecutorService executor = Executors.newSingleThreadExecutor();
+            try {
+                Future<Integer> first = executor.submit(() -> coalescer.execute("statistics", "k", () -> {
+                    started.countDown();
+                    await(release);
+                    return executions.incrementAndGet();
+                }));
+                await(started);
+                coalescer.onAlertChange(AlertChangeEvent.created(alert));
+                if (maxStaleness.isZero()) {
+                    // 写后读：写入前开始的查询不再被加入
+                    assertEquals(1, coalescer.execute("statistics", "k", executions::incrementAndGet));
+                    release.countDown();
+                    assertEquals(2, first.get(5, TimeUnit.SECONDS));
+                } else {
+                    CompletableFuture<Integer> second = CompletableFuture.supplyAsync(
+                            () -> coalescer.execute("statistics", "k", executions::incrementAndGet));
+                    while (joined(coalescer) < 1) {
+                        Thread.sleep(5);
+                    }
+                    release.countDown();
+                    assertEquals(1, first.get(5, TimeUnit.SECONDS));
+                    assertEquals(1, second.get(5, TimeUnit.SECONDS));
+                }
+            } finally {
+                executor.shutdownNow();
+            }
+        }
+    }
+
+    @Test
+    void reactiveSubscribersShareResult() throws Exception {
+        AlertQueryCoalescer coalescer = new AlertQueryCoalescer(new SimpleMeterRegistry(), true, Duration.ZERO, Duration.ZERO, 10);
+        AtomicInteger executions = new AtomicInteger();
+        Sinks.One<String> result = Sinks.one();
+        Mono<String> first = coalescer.executeReactive("page", "k", () -> {
+            executions.incrementAndGet();
+            return result.asMono();
+        });
+        Mono<String> second = coalescer.executeReactive("page", "k", () -> {
+            executions.incrementAndGet();
+            return Mono.just("另一次执行");
+        });
+
+        CompletableFuture<List<String>> both = Mono.zip(first, second)
+                .map(tuple -> List.of(tuple.getT1(), tuple.getT2()))
+                .toFuture();
+        result.tryEmitValue("结果");
+        assertEquals(List.of("结果", "结果"), both.get(5, TimeUnit.SECONDS));
+        assertEquals(1, executions.get());
+    }
+
+    private static Map<String, Object> stats(AlertQueryCoalescer coalescer) {
+        Map<String, Object> stats = coalescer.stats();
+        @SuppressWarnings("unchecked")
+        Map<String, Object> operation = (Map<String, Object>) stats.values().iterator().next();
+        return operation;
+    }
+
+    private static long joined(AlertQueryCoalescer coalescer) {
+        return coalescer.stats().isEmpty() ? 0 : (Long) stats(coalescer).get("joined");
+    }
+
+    private static void await(CountDownLatch latch) {
+        try {
+            latch.await(5, TimeUnit.SECONDS);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+}
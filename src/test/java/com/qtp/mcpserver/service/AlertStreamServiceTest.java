@@ -0,0 +1,135 @@
+package com.qtp.mcpserver.service;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.qtp.mcpserver.dto.AlertFilter;
+import com.qtp.mcpserver.entity.Alert;
+import com.qtp.mcpserver.event.AlertChangeEvent;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.Test;
+import org.springframework.http.codec.ServerSentEvent;
+import reactor.core.publisher.Flux;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class AlertStreamServiceTest {
+
+    private final ObjectMapper objectMapper = new ObjectMapper();
+
+    private final SimpleMeterRegistry meterRegistry = new SimpleMeterRegistry();
+
+    private AlertStreamService service(int bufferSize) {
+        return new AlertStreamService(objectMapper, meterRegistry, bufferSize, 10, 100, Duration.ofMinutes(1));
+    }
+
+    @Test
+    void namesEventsByFilterAndCarriesStatisticsDelta() throws Exception {
+        AlertStreamService service = service(16);
+        AlertFilter filter = new AlertFilter();
+        filter.setCompanyLike("acme");
+        Flux<ServerSentEvent<String>> stream = service.subscribe(filter, true, null);
+
+        Alert created = alert("1", "Acme 华东", "warning", 0);
+        service.onAlertChange(AlertChangeEvent.created(created));
+        Alert escalated = alert("1", "Acme 华东", "critical", 0);
+        service.onAlertChange(AlertChangeEvent.updated(created, escalated));
+        Alert moved = alert("1", "Other", "critical", 0);
+        service.onAlertChange(AlertChangeEvent.updated(escalated, moved));
+        service.onAlertChange(AlertChangeEvent.created(alert("2", "Other", "info", 0)));
+        service.flush();
+
+        List<ServerSentEvent<String>> events = stream.take(5).collectList().block(Duration.ofSeconds(5));
+        assertEquals(List.of("ready", "alert", "alert", "leave", "stats"),
+                events.stream().map(ServerSentEvent::event).toList());
+
+        JsonNode first = objectMapper.readTree(events.get(1).data());
+        assertEquals("created", first.get("type").asText());
+        assertEquals("Acme 华东", first.get("fields").get("company").asText());
+        assertEquals(1, first.get("stats").get("totalCount").asLong());
+
+        JsonNode second = objectMapper.readTree(events.get(2).data());
+        assertEquals("escalated", second.get("type").asText());
+        assertEquals(List.of("alarmLevel"), fieldNames(second.get("fields")));
+        assertEquals(-1, second.get("stats").get("levelStats").get("warning").asLong());
+        assertEquals(1, second.get("stats").get("levelStats").get("critical").asLong());
+        assertEquals(0, second.get("stats").get("totalCount").asLong());
+        assertFalse(second.get("stats").get("companyStats").has("Acme 华东"));
+
+        assertFalse(objectMapper.readTree(events.get(4).data()).has("fields"));
+    }
+
+    @Test
+    void replaysMissedChangesAfterLastEventId() {
+        AlertStreamService service = service(16);
+        Flux<ServerSentEvent<String>> first = service.subscribe(new AlertFilter(), false, null);
+        service.onAlertChange(AlertChangeEvent.created(alert("1", "Acme", "info", 0)));
+        service.flush();
+        List<ServerSentEvent<String>> seen = first.take(2).collectList().block(Duration.ofSeconds(5));
+
+        service.onAlertChange(AlertChangeEvent.created(alert("2", "Acme", "info", 0)));
+        service.onAlertChange(AlertChangeEvent.deleted(alert("1", "Acme", "info", 0)));
+        service.flush();
+
+        List<ServerSentEvent<String>> replayed = service.subscribe(new AlertFilter(), false, seen.get(1).id())
+                .take(2).collectList().block(Duration.ofSeconds(5));
+        assertTrue(replayed.get(0).data().contains("\"id\":\"2\""));
+        assertTrue(replayed.get(1).data().contains("\"deleted\""));
+    }
+
+    @Test
+    void overflowEndsStreamWithResync() {
+        AlertStreamService service = service(4);
+        Flux<ServerSentEvent<String>> stream = service.subscribe(new AlertFilter(), false, null);
+        for (int i = 0; i < 20; i++) {
+            service.onAlertChange(AlertChangeEvent.created(alert(String.valueOf(i), "Acme", "info", 0)));
+        }
+        service.flush();
+
+        List<ServerSentEvent<String>> events = stream.collectList().block(Duration.ofSeconds(5));
+        assertEquals("resync", events.get(events.size() - 1).event());
+        assertTrue(events.size() < 20);
+        assertEquals(1, meterRegistry.counter("alert.stream.resyncs", "reason", "overflow").count());
+    }
+
+    @Test
+    void mergesStatsOnlyChangesPerFlush() throws Exception {
+        AlertStreamService service = service(16);
+        AlertFilter filter = new AlertFilter();
+        filter.setCompanyLike("acme");
+        Flux<ServerSentEvent<String>> stream = service.subscribe(filter, true, null);
+
+        service.onAlertChange(AlertChangeEvent.created(alert("1", "Other", "info", 0)));
+        service.onAlertChange(AlertChangeEvent.created(alert("2", "Acme", "warning", 0)));
+        service.onAlertChange(AlertChangeEvent.created(alert("3", "Other", "critical", 0)));
+        service.flush();
+        service.onAlertChange(AlertChangeEvent.created(alert("4", "Acme", "info", 0)));
+        service.flush();
+
+        List<ServerSentEvent<String>> events = stream.take(4).collectList().block(Duration.ofSeconds(5));
+        assertEquals(List.of("ready", "alert", "stats", "alert"), events.stream().map(ServerSentEvent::event).toList());
+        JsonNode stats = objectMapper.readTree(events.get(2).data()).get("stats");
+        assertEquals(2, stats.get("totalCount").asLong());
+        assertEquals(1, stats.get("levelStats").get("info").asLong());
+        assertEquals(1, stats.get("levelStats").get("critical").asLong());
+        assertTrue(events.get(2).id().endsWith(":3"));
+    }
+
+    private static List<String> fieldNames(JsonNode node) {
+        List<String> names = new ArrayList<>();
+        node.fieldNames().forEachRemaining(names::add);
+        return names;
+    }
+
+    private static Alert alert(String id, String company, String level, int status) {
+        Alert alert = new Alert();
+        alert.setId(id);
+        alert.setCompany(company);
+        alert.setAlarmLevel(level);
+        alert.setStatus(status);
+        return alert;
+    }
+}
@@ -0,0 +1,33 @@
+package com.qtp.mcpserver.service;
+
+import com.qtp.mcpserver.entity.Alert;
+import org.junit.jupiter.api.Test;
+
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class AlertTextTokenizerTest {
+
+    @Test
+    void chineseIsSplitIntoBigramsAndLatinIntoLowercaseWords() {
+        assertEquals(List.of("数据", "据库", "库连", "连接", "超时", "db01"),
+                List.copyOf(AlertTextTokenizer.queryTokens("数据库连接，超时 DB01")));
+    }
+
+    @Test
+    void searchTextCoversAllSourceFields() {
+        Alert alert = new Alert();
+        alert.setFailReason("接口超时");
+        alert.setHost("10.0.0.1");
+        alert.setCompany("Acme");
+        assertEquals("接口 口超 超时 acme 10 0 0 1", AlertTextTokenizer.searchText(alert));
+    }
+
+    @Test
+    void detectsSingleCjkCharacter() {
+        assertTrue(AlertTextTokenizer.hasSingleCjkChar("库"));
+        assertTrue(AlertTextTokenizer.hasSingleCjkChar("db 库"));
+        assertFalse(AlertTextTokenizer.hasSingleCjkChar("数据库"));
+    }
+}
@@ -0,0 +1,487 @@
+package com.qtp.mcpserver.storage;
+
+import com.qtp.mcpserver.dto.AlertBulkResult;
+import com.qtp.mcpserver.dto.AlertCountMode;
+import com.qtp.mcpserver.dto.AlertFilter;
+import com.qtp.mcpserver.dto.AlertMatchMode;
+import com.qtp.mcpserver.dto.AlertPageRequest;
+import com.qtp.mcpserver.dto.AlertPageResult;
+import com.qtp.mcpserver.dto.AlertStatistics;
+import com.qtp.mcpserver.dto.AlertTransitionResult;
+import com.qtp.mcpserver.dto.AlertTransitionResult.Outcome;
+import com.qtp.mcpserver.dto.AlertTrend;
+import com.qtp.mcpserver.entity.Alert;
+import com.qtp.mcpserver.event.AlertChangeEvent;
+import com.qtp.mcpserver.service.AlertRollupService.Granularity;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.context.ApplicationEventPublisher;
+
+import java.util.ArrayList;
+import java.util.Date;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * 告警存储的一致性测试，每种 {@link AlertStore} 实现继承本类并提供空的存储实例，
+ * 保证过滤、排序、游标分页、计数方式、统计、状态流转和批量操作的语义一致。
+ */
+abstract class AlertStoreConformanceTest {
+
+    protected static final int COUNT_CAP = 5;
+
+    private static final long BASE = 1_700_000_000_000L;
+
+    protected final List<AlertChangeEvent> events = new ArrayList<>();
+
+    protected AlertStore store;
+
+    /**
+     * 创建空的存储
+     *
+     * @param publisher 接收写入路径发布的事件
+     * @param countCap  CAPPED 计数方式的上限
+     */
+    protected abstract AlertStore createStore(ApplicationEventPublisher publisher, int countCap);
+
+    @BeforeEach
+    void createStore() {
+        store = createStore(event -> {
+            if (event instanceof AlertChangeEvent changeEvent) {
+                events.add(changeEvent);
+            }
+        }, COUNT_CAP);
+    }
+
+    /**
+     * 8 条告警：a02/a03 告警时间相同，a05 没有告警时间和状态，a06 没有级别和单位
+     */
+    protected void saveFixtures() {
+        store.save(alert("a01", 0, "info", "host", "华东分公司", "Billing", 1L));
+        store.save(alert("a02", 1, "warning", "business", "华南分公司", "billing-api", 2L));
+        store.save(alert("a03", 0, "critical", "host", "总部", "Order", 2L));
+        store.save(alert("a04", 2, "INFO", "host", "华东分公司", "Order", 3L));
+        store.save(alert("a05", null, "warning", "business", "总部", "Order", null));
+        store.save(alert("a06", 1, null, "host", null, "Pay", 5L));
+        store.save(alert("a07", 0, "info", "business", "a.b", "Pay", 4L));
+        store.save(alert("a08", 0, "warning", "host", "axb", "Billing", 6L));
+        events.clear();
+    }
+
+    private static Alert alert(String id, Integer status, String level, String type, String company, String system,
+                               Long endMinute) {
+        Alert alert = new Alert();
+        alert.setId(id);
+        alert.setCaseExecId("CASE-" + id.toUpperCase());
+        alert.setStatus(status);
+        alert.setAlarmLevel(level);
+        alert.setAlarmType(type);
+        alert.setCompany(company);
+        alert.setSystemName(system);
+        alert.setTaskName("任务-" + id);
+        alert.setHost("10.0.0." + id.substring(1));
+        alert.setEndTime(endMinute == null ? null : minute(endMinute));
+        alert.setFailReason("超时");
+        alert.setResponse("{\"code\":500}");
+        alert.setActualValue("<html/>");
+        return alert;
+    }
+
+    private static Date minute(long minute) {
+        return new Date(BASE + minute * 60_000L);
+    }
+
+    private static List<String> ids(List<Alert> alerts) {
+        return alerts.stream().map(Alert::getId).toList();
+    }
+
+    private List<String> pageIds(AlertFilter filter, String sortField, String sortOrder) {
+        return ids(store.page(filter, AlertPageRequest.of(1, 100, sortField, sortOrder, null)).getData());
+    }
+
+    @Test
+    void saveAssignsIdsAndPublishesEvents() {
+        saveFixtures();
+        Alert alert = store.findById("a01");
+        assertEquals("Billing", alert.getSystemName());
+        assertEquals(minute(1), alert.getEndTime());
+        assertEquals("{\"code\":500}", alert.getResponse());
+        alert.setStatus(9);
+        assertEquals(0, store.findById("a01").getStatus());
+
+        alert.setSystemName("Pay");
+        store.save(alert);
+        assertEquals(AlertChangeEvent.Type.UPDATED, events.get(0).getType());
+        assertEquals("Billing", events.get(0).getBefore().getSystemName());
+        assertEquals("Pay", store.findById("a01").getSystemName());
+
+        Alert created = store.save(alert("x", 0, "info", "host", "总部", "Pay", 7L));
+        created.setId(null);
+        String id = store.save(created).getId();
+        assertNotNull(id);
+        assertEquals("Pay", store.findById(id).getSystemName());
+        assertEquals(AlertChangeEvent.Type.CREATED, events.get(events.size() - 1).getType());
+        assertNull(store.findById("missing"));
+    }
+
+    @Test
+    void replaceOnlyExisting() {
+        saveFixtures();
+        Alert alert = store.findById("a01");
+        alert.setSystemName("Pay");
+        assertNotNull(store.replace(alert));
+        assertEquals("Pay", store.findById("a01").getSystemName());
+        assertEquals(AlertChangeEvent.Type.UPDATED, events.get(0).getType());
+        assertEquals("Billing", events.get(0).getBefore().getSystemName());
+
+        Alert missing = alert("missing", 0, "info", "host", "总部", "Pay", 7L);
+        assertNull(store.replace(missing));
+        assertNull(store.findById("missing"));
+        assertEquals(1, events.size());
+    }
+
+    @Test
+    void exactFiltersAreCaseSensitive() {
+        saveFixtures();
+        AlertFilter filter = new AlertFilter();
+        filter.setAlarmLevel("info");
+        assertEquals(List.of("a01", "a07"), pageIds(filter, "id", "asc"));
+
+        filter.setStatus(0);
+        filter.setAlarmType("business");
+        assertEquals(List.of("a07"), pageIds(filter, "id", "asc"));
+
+        AlertFilter blank = new AlertFilter();
+        blank.setCompany(" ");
+        assertTrue(blank.isEmpty());
+        assertEquals(8, store.page(blank, AlertPageRequest.of(1, 100, null, null, null)).getTotal());
+    }
+
+    @Test
+    void textFiltersDefaultToCaseInsensitivePrefix() {
+        saveFixtures();
+        AlertFilter system = new AlertFilter();
+        system.setSystemNameLike("BILL");
+        assertEquals(List.of("a01", "a02", "a08"), pageIds(system, "id", "asc"));
+        system.setSystemNameLike("api");
+        assertEquals(List.of(), pageIds(system, "id", "asc"));
+
+        AlertFilter company = new AlertFilter();
+        company.setCompanyLike("a.");
+        assertEquals(List.of("a07"), pageIds(company, "id", "asc"));
+
+        AlertFilter combined = new AlertFilter();
+        combined.setCompanyLike("华东");
+        combined.setCaseExecIdLike("case-a0");
+        combined.setHostLike("10.0.0.04");
+        assertEquals(List.of("a04"), pageIds(combined, "id", "asc"));
+    }
+
+    @Test
+    void exactTextFilterIgnoresCaseAndWidth() {
+        saveFixtures();
+        AlertFilter system = new AlertFilter();
+        system.setMatchMode(AlertMatchMode.EXACT);
+        system.setSystemNameLike("ＢＩＬＬＩＮＧ");
+        assertEquals(List.of("a01", "a08"), pageIds(system, "id", "asc"));
+
+        AlertFilter task = new AlertFilter();
+        task.setMatchMode(AlertMatchMode.EXACT);
+        task.setTaskNameLike("任务-A0");
+        assertEquals(List.of(), pageIds(task, "id", "asc"));
+        task.setTaskNameLike("任务-A03");
+        assertEquals(List.of("a03"), pageIds(task, "id", "asc"));
+    }
+
+    @Test
+    void containsFiltersAreCaseInsensitiveLiterals() {
+        saveFixtures();
+        AlertFilter system = new AlertFilter();
+        system.setMatchMode(AlertMatchMode.CONTAINS);
+        system.setSystemNameLike("API");
+        assertEquals(List.of("a02"), pageIds(system, "id", "asc"));
+
+        AlertFilter company = new AlertFilter();
+        company.setMatchMode(AlertMatchMode.CONTAINS);
+        company.setCompanyLike("a.b");
+        assertEquals(List.of("a07"), pageIds(company, "id", "asc"));
+
+        AlertFilter combined = new AlertFilter();
+        combined.setMatchMode(AlertMatchMode.CONTAINS);
+        combined.setCompanyLike("华东");
+        combined.setCaseExecIdLike("a0");
+        combined.setHostLike(".04");
+        assertEquals(List.of("a04"), pageIds(combined, "id", "asc"));
+
+        AlertFilter task = new AlertFilter();
+        task.setMatchMode(AlertMatchMode.CONTAINS);
+        task.setTaskNameLike("-A0");
+        task.setCompany("总部");
+        assertEquals(List.of("a03", "a05"), pageIds(task, "id", "asc"));
+    }
+
+    @Test
+    void endTimeRangeIsInclusive() {
+        saveFixtures();
+        assertEquals(List.of("a02", "a03", "a04", "a07"),
+                pageIds(AlertFilter.endTimeBetween(minute(2), minute(4)), "id", "asc"));
+        assertEquals(List.of("a06", "a08"), pageIds(AlertFilter.endTimeBetween(minute(5), null), "id", "asc"));
+        assertEquals(List.of("a01"), pageIds(AlertFilter.endTimeBetween(null, minute(1)), "id", "asc"));
+        assertEquals(List.of(), pageIds(AlertFilter.endTimeBetween(minute(4), minute(2)), "id", "asc"));
+    }
+
+    @Test
+    void sortsWithNullsLowestAndIdTiebreak() {
+        saveFixtures();
+        AlertFilter all = new AlertFilter();
+        assertEquals(List.of("a08", "a06", "a07", "a04", "a03", "a02", "a01", "a05"), pageIds(all, "endTime", "desc"));
+        assertEquals(List.of("a05", "a01", "a02", "a03", "a04", "a07", "a06", "a08"), pageIds(all, "endTime", "asc"));
+        assertEquals(List.of("a05", "a01", "a03", "a07", "a08", "a02", "a06", "a04"), pageIds(all, "status", "asc"));
+        // 字符串按二进制比较，大写字母排在小写字母之前
+        assertEquals(List.of("a08", "a05", "a02", "a07", "a01", "a03", "a04", "a06"), pageIds(all, "alarmLevel", "desc"));
+        assertEquals(List.of("a08", "a07", "a06", "a05", "a04", "a03", "a02", "a01"), pageIds(all, "taskName", "desc"));
+    }
+
+    @Test
+    void cursorPagingMatchesOffsetPaging() {
+        saveFixtures();
+        AlertFilter filter = new AlertFilter();
+        filter.setAlarmType("host");
+        String[][] sorts = {{"endTime", "desc"}, {"endTime", "asc"}, {"status", "asc"}, {"status", "desc"},
+                {"alarmLevel", "desc"}, {"id", "asc"}, {"company", "asc"}};
+        for (String[] sort : sorts) {
+            List<String> expected = pageIds(filter, sort[0], sort[1]);
+            List<String> visited = new ArrayList<>();
+            String cursor = null;
+            do {
+                AlertPageResult page = store.page(filter, AlertPageRequest.of(1, 2, sort[0], sort[1], cursor));
+                visited.addAll(ids(page.getData()));
+                cursor = page.getNextCursor();
+            } while (cursor != null);
+            assertEquals(expected, visited, sort[0] + " " + sort[1]);
+            assertEquals(expected.subList(2, 4),
+                    ids(store.page(filter, AlertPageRequest.of(2, 2, sort[0], sort[1], null)).getData()));
+        }
+    }
+
+    @Test
+    void rejectsMismatchedCursorAndUnknownSortField() {
+        saveFixtures();
+        String cursor = store.page(new AlertFilter(), AlertPageRequest.of(1, 2, "endTime", "desc", null)).getNextCursor();
+        assertThrows(IllegalArgumentException.class,
+                () -> store.page(new AlertFilter(), AlertPageRequest.of(1, 2, "endTime", "asc", cursor)));
+        assertThrows(IllegalArgumentException.class,
+                () -> store.page(new AlertFilter(), AlertPageRequest.of(1, 2, "noSuchField", "asc", null)));
+    }
+
+    @Test
+    void countModes() {
+        saveFixtures();
+        AlertPageRequest capped = AlertPageRequest.of(1, 2, null, null, null);
+        capped.setCountMode(AlertCountMode.CAPPED);
+        AlertPageResult result = store.page(new AlertFilter(), capped);
+        assertEquals(COUNT_CAP, result.getTotal());
+        assertTrue(result.isTotalCapped());
+        assertNotNull(result.getNextCursor());
+
+        AlertPageRequest exact = AlertPageRequest.of(1, 2, null, null, null);
+        exact.setCountMode(AlertCountMode.EXACT);
+        result = store.page(new AlertFilter(), exact);
+        assertEquals(8, result.getTotal());
+        assertFalse(result.isTotalCapped());
+
+        // FACET：当前页、游标翻页和总数与 EXACT 一致
+        AlertPageRequest facet = AlertPageRequest.of(1, 2, null, null, null);
+        facet.setCountMode(AlertCountMode.FACET);
+        AlertPageResult facetResult = store.page(new AlertFilter(), facet);
+        assertEquals(AlertCountMode.FACET, facetResult.getCountMode());
+        assertEquals(8, facetResult.getTotal());
+        assertEquals(ids(result.getData()), ids(facetResult.getData()));
+        AlertPageRequest facetNext = AlertPageRequest.of(1, 2, null, null, facetResult.getNextCursor());
+        facetNext.setCountMode(AlertCountMode.FACET);
+        exact = AlertPageRequest.of(1, 2, null, null, result.getNextCursor());
+        exact.setCountMode(AlertCountMode.EXACT);
+        assertEquals(ids(store.page(new AlertFilter(), exact).getData()), ids(store.page(new AlertFilter(), facetNext).getData()));
+        assertEquals(8, store.page(new AlertFilter(), facetNext).getTotal());
+
+        AlertPageRequest estimated = AlertPageRequest.of(1, 2, null, null, null);
+        estimated.setCountMode(AlertCountMode.ESTIMATED);
+        AlertFilter filter = new AlertFilter();
+        filter.setStatus(0);
+        result = store.page(filter, estimated);
+        assertEquals(AlertCountMode.CAPPED, result.getCountMode());
+        assertEquals(4, result.getTotal());
+    }
+
+    @Test
+    void listResultsExcludePayload() {
+        saveFixtures();
+        List<Alert> page = store.page(new AlertFilter(), AlertPageRequest.of(1, 100, null, null, null)).getData();
+        assertTrue(page.stream().allMatch(alert -> alert.getResponse() == null && alert.getActualValue() == null));
+        List<Alert> found = store.find(new AlertFilter(), 3);
+        assertEquals(List.of("a08", "a06", "a07"), ids(found));
+        assertNull(found.get(0).getResponse());
+        assertEquals("超时", found.get(0).getFailReason());
+    }
+
+    @Test
+    void statistics() {
+        saveFixtures();
+        AlertStatistics all = store.statistics(new AlertFilter());
+        assertEquals(8, all.getTotalCount());
+        assertEquals(Map.of("0", 4L, "1", 2L, "2", 1L, "未知", 1L), all.getStatusStats());
+        assertEquals(Map.of("info", 2L, "warning", 3L, "critical", 1L, "INFO", 1L, "未知", 1L), all.getLevelStats());
+        assertEquals(Map.of("host", 5L, "business", 3L), all.getTypeStats());
+        assertEquals(Map.of("Billing", 2L, "billing-api", 1L, "Order", 3L, "Pay", 2L), all.getSystemStats());
+
+        AlertFilter filter = AlertFilter.endTimeBetween(minute(2), minute(6));
+        filter.setAlarmType("host");
+        AlertStatistics filtered = store.statistics(filter);
+        assertEquals(4, filtered.getTotalCount());
+        assertEquals(Map.of("总部", 1L, "华东分公司", 1L, "axb", 1L, "未知", 1L), filtered.getCompanyStats());
+
+        AlertFilter none = new AlertFilter();
+        none.setSystemName("nothing");
+        AlertStatistics empty = store.statistics(none);
+        assertEquals(0, empty.getTotalCount());
+        assertTrue(empty.getLevelStats().isEmpty());
+    }
+
+    @Test
+    void transitions() {
+        saveFixtures();
+        AlertTransitionResult resolved = store.resolve("a01");
+        assertEquals(Outcome.APPLIED, resolved.getOutcome());
+        assertEquals(List.of("id", "status", "isRecover", "recoverTime"), List.copyOf(resolved.getChanges().keySet()));
+        assertEquals(0, resolved.getBefore().getStatus());
+        assertEquals("CASE-A01", resolved.getBefore().getCaseExecId());
+        Alert after = store.findById("a01");
+        assertEquals(1, after.getStatus());
+        assertTrue(after.getIsRecover());
+        assertEquals("{\"code\":500}", after.getResponse());
+        assertEquals(AlertChangeEvent.Type.UPDATED, events.get(0).getType());
+
+        AlertTransitionResult again = store.resolve("a01");
+        assertEquals(Outcome.UNCHANGED, again.getOutcome());
+        assertEquals("告警已是已解决状态", again.getMessage());
+        assertEquals(1, events.size());
+
+        assertEquals(Outcome.APPLIED, store.activate("a05").getOutcome());
+        assertEquals("告警已是活跃状态", store.activate("a05").getMessage());
+        assertFalse(store.findById("a05").getIsRecover());
+
+        AlertTransitionResult escalated = store.escalate("a04");
+        assertEquals(Outcome.APPLIED, escalated.getOutcome());
+        assertEquals("warning", escalated.getChanges().get("alarmLevel"));
+        assertEquals("critical", store.escalate("a02").getChanges().get("alarmLevel"));
+
+        AlertTransitionResult highest = store.escalate("a03");
+        assertEquals(Outcome.REJECTED, highest.getOutcome());
+        assertEquals("告警已是最高级别（critical），无法再升级", highest.getMessage());
+        assertEquals("未知的告警级别：null", store.escalate("a06").getMessage());
+
+        AlertTransitionResult missing = store.resolve("missing");
+        assertEquals(Outcome.NOT_FOUND, missing.getOutcome());
+        assertEquals("告警不存在", missing.getMessage());
+    }
+
+    @Test
+    void bulkOperationsAndDelete() {
+        saveFixtures();
+        AlertBulkResult updated = store.updateStatus(List.of("a01", "a02", "missing", "a01", " "), 1);
+        assertEquals(List.of("a01", "a02"), ids(updated.getAffected()).stream().sorted().toList());
+        assertEquals(List.of("missing"), updated.getNotFoundIds());
+        assertEquals(1, updated.getModifiedCount());
+        assertEquals(0, updated.getAffected().stream().filter(alert -> "a01".equals(alert.getId())).findFirst().orElseThrow().getStatus());
+        assertEquals(1, store.findById("a01").getStatus());
+
+        events.clear();
+        AlertBulkResult deleted = store.deleteByIds(List.of("a01", "a03", "nope"));
+        assertEquals(2, deleted.getModifiedCount());
+        assertEquals(List.of("nope"), deleted.getNotFoundIds());
+        assertNull(store.findById("a03"));
+        assertEquals(2, events.stream().filter(event -> event.getType() == AlertChangeEvent.Type.DELETED).count());
+
+        Alert removed = store.deleteById("a04");
+        assertEquals("INFO", removed.getAlarmLevel());
+        assertNull(store.deleteById("a04"));
+        assertEquals(5, store.statistics(new AlertFilter()).getTotalCount());
+    }
+
+    @Test
+    void indexesStayConsistentAfterDeleteAndReinsert() {
+        saveFixtures();
+        store.deleteById("a01");
+        store.save(alert("a09", 0, "critical", "host", "华东分公司", "Billing", 1L));
+        Alert moved = store.findById("a02");
+        moved.setEndTime(minute(9));
+        moved.setAlarmLevel("critical");
+        store.save(moved);
+
+        AlertFilter filter = new AlertFilter();
+        filter.setAlarmLevel("critical");
+        assertEquals(List.of("a02", "a03", "a09"), pageIds(filter, "id", "asc"));
+        assertEquals(List.of("a02", "a08", "a06"), ids(store.find(new AlertFilter(), 3)));
+        assertEquals(List.of("a09"), pageIds(AlertFilter.endTimeBetween(minute(1), minute(1)), "id", "asc"));
+        assertEquals(Map.of("info", 1L, "warning", 2L, "critical", 3L, "INFO", 1L, "未知", 1L),
+                store.statistics(new AlertFilter()).getLevelStats());
+    }
+
+    @Test
+    void searchMatchesTokensOrRegex() {
+        saveFixtures();
+        AlertPageResult text = store.search("Billing", "text", AlertPageRequest.of(1, 10, null, null, null));
+        assertEquals(3, text.getTotal());
+        // 相关度的算法各实现不同，只比较命中集合
+        assertEquals(Set.of("a01", "a02", "a08"), Set.copyOf(ids(text.getData())));
+        assertEquals(0, store.search("bill", "text", AlertPageRequest.of(1, 10, null, null, null)).getTotal());
+
+        AlertPageRequest capped = AlertPageRequest.of(1, 2, null, null, null);
+        capped.setCountMode(AlertCountMode.CAPPED);
+        AlertPageResult cappedResult = store.search("超时", "text", capped);
+        assertEquals(COUNT_CAP, cappedResult.getTotal());
+        assertTrue(cappedResult.isTotalCapped());
+        assertEquals(2, cappedResult.getData().size());
+
+        assertEquals(List.of("a04", "a03", "a05"),
+                ids(store.search("ord", "regex", AlertPageRequest.of(1, 10, null, null, null)).getData()));
+        // 单个汉字无法命中二元组，退回正则
+        assertEquals(8, store.search("超", "text", AlertPageRequest.of(1, 10, null, null, null)).getTotal());
+    }
+
+    @Test
+    void trendCountsOccurrencesPerBucket() {
+        saveFixtures();
+        Alert merged = alert("a09", 0, "critical", "host", "总部", "Order", 9L);
+        merged.setFirstSeen(minute(8));
+        merged.setOccurrenceCount(3);
+        store.save(merged);
+
+        AlertTrend trend = store.trend(minute(0), minute(10), "minute", Map.of(), null);
+        assertEquals("MINUTE", trend.getGranularity());
+        assertEquals(10, trend.getTotalCount());
+        assertEquals(List.of(bucket(1), bucket(2), bucket(3), bucket(4), bucket(5), bucket(6), bucket(8)),
+                trend.getPoints().stream().map(AlertTrend.Point::getBucket).toList());
+        assertEquals(2, trend.getPoints().get(1).getCount());
+        assertEquals(3, trend.getPoints().get(6).getCount());
+
+        Map<String, String> filters = new LinkedHashMap<>();
+        filters.put("systemName", "Order");
+        filters.put("company", "");
+        AlertTrend grouped = store.trend(minute(0), minute(10), null, filters, "alarmLevel");
+        assertEquals(List.of(new AlertTrend.Point(bucket(2), "critical", 1), new AlertTrend.Point(bucket(3), "INFO", 1),
+                new AlertTrend.Point(bucket(8), "critical", 3)), grouped.getPoints());
+        assertEquals(5, grouped.getTotalCount());
+
+        assertEquals(1, store.trend(minute(0), minute(1), "minute", Map.of(), null).getTotalCount());
+        assertThrows(IllegalArgumentException.class, () -> store.trend(minute(0), minute(10), null, Map.of(), "host"));
+    }
+
+    private static Date bucket(long minute) {
+        return new Date(Granularity.MINUTE.floor(minute(minute).getTime()));
+    }
+}
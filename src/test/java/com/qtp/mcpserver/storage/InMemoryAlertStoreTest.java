@@ -0,0 +1,54 @@
+package com.qtp.mcpserver.storage;
+
+import com.qtp.mcpserver.dto.AlertFilter;
+import com.qtp.mcpserver.dto.AlertPageRequest;
+import com.qtp.mcpserver.entity.Alert;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import org.springframework.context.ApplicationEventPublisher;
+
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class InMemoryAlertStoreTest extends AlertStoreConformanceTest {
+
+    @TempDir
+    Path tempDir;
+
+    private Path snapshot() {
+        return tempDir.resolve("data").resolve("alerts.ndjson.gz");
+    }
+
+    @Override
+    protected AlertStore createStore(ApplicationEventPublisher publisher, int countCap) {
+        return new InMemoryAlertStore(publisher, "EXACT", countCap, snapshot().toString());
+    }
+
+    @Test
+    void snapshotRoundTrip() throws Exception {
+        saveFixtures();
+        store.resolve("a01");
+        store.deleteById("a02");
+        assertEquals(7, ((InMemoryAlertStore) store).writeSnapshot());
+        assertTrue(Files.exists(snapshot()));
+        try (var files = Files.list(snapshot().getParent())) {
+            assertEquals(1, files.count());
+        }
+
+        InMemoryAlertStore restored = new InMemoryAlertStore(event -> {
+        }, "EXACT", COUNT_CAP, snapshot().toString());
+        restored.loadSnapshot();
+        assertEquals(7, restored.size());
+        for (String id : List.of("a01", "a03", "a04", "a05", "a06", "a07", "a08")) {
+            assertEquals(store.findById(id), restored.findById(id));
+        }
+        assertNull(restored.findById("a02"));
+        assertEquals(store.statistics(new AlertFilter()), restored.statistics(new AlertFilter()));
+        AlertPageRequest request = AlertPageRequest.of(1, 100, "endTime", "desc", null);
+        assertEquals(store.page(new AlertFilter(), request).getData().stream().map(Alert::getId).toList(),
+                restored.page(new AlertFilter(), request).getData().stream().map(Alert::getId).toList());
+    }
+}
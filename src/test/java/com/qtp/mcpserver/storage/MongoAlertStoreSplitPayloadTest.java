@@ -0,0 +1,63 @@
+package com.qtp.mcpserver.storage;
+
+import com.qtp.mcpserver.entity.Alert;
+import com.qtp.mcpserver.service.AlertPayloadService;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.condition.EnabledIfSystemProperty;
+
+import java.util.Date;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * 报文拆分存储（alert.payload.storage=split）下的 MongoDB 存储，除一致性用例外验证更新不会丢失报文。
+ * 需要可用的 MongoDB，默认跳过：mvn test -Dalert.test.mongo-uri=mongodb://localhost:27017
+ */
+@EnabledIfSystemProperty(named = "alert.test.mongo-uri", matches = ".+")
+class MongoAlertStoreSplitPayloadTest extends MongoAlertStoreTest {
+
+    @Override
+    protected String payloadStorage() {
+        return AlertPayloadService.STORAGE_SPLIT;
+    }
+
+    @Test
+    void updatesKeepPayload() {
+        Alert alert = payloadAlert("p01");
+        store.save(alert);
+        assertPayload("p01", "响应-p01", "页面-p01");
+
+        // save：替换已有告警
+        alert.setStatus(1);
+        store.save(alert);
+        assertPayload("p01", "响应-p01", "页面-p01");
+        assertEquals(1, store.findById("p01").getStatus());
+
+        // replace：PUT /api/alerts/{id}、updateAlert 的写入路径
+        alert.setStatus(2);
+        alert.setResponse("新响应");
+        assertNotNull(store.replace(alert));
+        assertPayload("p01", "新响应", "页面-p01");
+        assertEquals(2, store.findById("p01").getStatus());
+
+        // 指定ID新建（upsert）同样保存报文
+        store.save(payloadAlert("p02"));
+        assertPayload("p02", "响应-p02", "页面-p02");
+    }
+
+    private void assertPayload(String id, String response, String actualValue) {
+        Alert found = store.findById(id);
+        assertEquals(response, found.getResponse());
+        assertEquals(actualValue, found.getActualValue());
+    }
+
+    private static Alert payloadAlert(String id) {
+        Alert alert = new Alert();
+        alert.setId(id);
+        alert.setStatus(0);
+        alert.setEndTime(new Date(1_700_000_000_000L));
+        alert.setResponse("响应-" + id);
+        alert.setActualValue("页面-" + id);
+        return alert;
+    }
+}
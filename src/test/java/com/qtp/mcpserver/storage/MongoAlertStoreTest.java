@@ -0,0 +1,149 @@
+package com.qtp.mcpserver.storage;
+
+import com.mongodb.client.MongoClient;
+import com.mongodb.client.MongoClients;
+import com.qtp.mcpserver.dto.AlertBulkResult;
+import com.qtp.mcpserver.dto.AlertTransitionResult;
+import com.qtp.mcpserver.dto.AlertTransitionResult.Outcome;
+import com.qtp.mcpserver.entity.Alert;
+import com.qtp.mcpserver.event.AlertChangeEvent;
+import com.qtp.mcpserver.event.AlertMongoEventListener;
+import com.qtp.mcpserver.service.AlertArchiveService;
+import com.qtp.mcpserver.service.AlertBulkService;
+import com.qtp.mcpserver.service.AlertCacheService;
+import com.qtp.mcpserver.service.AlertCounterStore;
+import com.qtp.mcpserver.service.AlertIndexAdvisor;
+import com.qtp.mcpserver.service.AlertIndexManager;
+import com.qtp.mcpserver.service.AlertPageService;
+import com.qtp.mcpserver.service.AlertPayloadService;
+import com.qtp.mcpserver.service.AlertQueryCoalescer;
+import com.qtp.mcpserver.service.AlertRollupService;
+import com.qtp.mcpserver.service.AlertStatisticsService;
+import com.qtp.mcpserver.service.AlertTextSearchService;
+import com.qtp.mcpserver.service.AlertTransitionService;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.AfterAll;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.condition.EnabledIfSystemProperty;
+import org.springframework.context.ApplicationEventPublisher;
+import org.springframework.context.support.GenericApplicationContext;
+import org.springframework.core.task.SyncTaskExecutor;
+import org.springframework.data.mongodb.core.MongoTemplate;
+import org.springframework.data.mongodb.core.query.Query;
+import org.springframework.util.unit.DataSize;
+
+import java.time.Duration;
+import java.util.Date;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * 需要可用的 MongoDB，默认跳过：mvn test -Dalert.test.mongo-uri=mongodb://localhost:27017
+ * 使用独立的 alert_store_conformance 库，每个用例前清空 alert、报文、归档和趋势汇总集合
+ */
+@EnabledIfSystemProperty(named = "alert.test.mongo-uri", matches = ".+")
+class MongoAlertStoreTest extends AlertStoreConformanceTest {
+
+    private static final String ARCHIVE = "alert_archive_conformance";
+
+    private static MongoClient client;
+
+    private MongoTemplate mongoTemplate;
+
+    private AlertArchiveService archiveService;
+
+    @AfterAll
+    static void closeClient() {
+        if (client != null) {
+            client.close();
+        }
+    }
+
+    /**
+     * 报文存储方式，子类覆盖后以拆分存储跑同一套用例
+     */
+    protected String payloadStorage() {
+        return "inline";
+    }
+
+    @Override
+    protected AlertStore createStore(ApplicationEventPublisher publisher, int countCap) {
+        if (client == null) {
+            client = MongoClients.create(System.getProperty("alert.test.mongo-uri"));
+        }
+        mongoTemplate = new MongoTemplate(client, "alert_store_conformance");
+        mongoTemplate.dropCollection(Alert.class);
+        mongoTemplate.dropCollection(AlertPayloadService.COLLECTION);
+        mongoTemplate.dropCollection(AlertRollupService.COLLECTION);
+        // 全文检索依赖文本索引
+        new AlertIndexManager(mongoTemplate, new SyncTaskExecutor(), false).ensureIndexes();
+        AlertPayloadService payloadService = new AlertPayloadService(mongoTemplate, payloadStorage(), 512);
+        // 写入前维护匹配键等派生字段
+        GenericApplicationContext context = new GenericApplicationContext();
+        context.registerBean(AlertMongoEventListener.class, () -> new AlertMongoEventListener(payloadService));
+        context.refresh();
+        mongoTemplate.setApplicationContext(context);
+        // 测试中没有事件监听失效缓存，关闭按ID缓存
+        AlertCacheService cacheService = new AlertCacheService(mongoTemplate, payloadService, false,
+                DataSize.ofMegabytes(1), Duration.ofMinutes(1));
+        AlertIndexAdvisor indexAdvisor = new AlertIndexAdvisor(mongoTemplate, new SyncTaskExecutor(), 100);
+        mongoTemplate.dropCollection(ARCHIVE);
+        archiveService = new AlertArchiveService(mongoTemplate, payloadService, new SimpleMeterRegistry(),
+                false, true, ARCHIVE, Duration.ofDays(30), 500, 10, Duration.ZERO);
+        AlertRollupService rollupService = new AlertRollupService(mongoTemplate, archiveService, new SyncTaskExecutor(),
+                true, Duration.ofDays(7));
+        // 趋势汇总由变更事件驱动
+        ApplicationEventPublisher rollupPublisher = event -> {
+            publisher.publishEvent(event);
+            if (event instanceof AlertChangeEvent changeEvent) {
+                rollupService.onAlertChange(changeEvent);
+            }
+        };
+        AlertPageService pageService = new AlertPageService(mongoTemplate, indexAdvisor, archiveService, "EXACT", countCap);
+        return new MongoAlertStore(mongoTemplate, rollupPublisher, cacheService, payloadService, pageService,
+                new AlertBulkService(mongoTemplate, rollupPublisher, archiveService, 1000),
+                new AlertTransitionService(mongoTemplate, rollupPublisher, archiveService),
+                new AlertStatisticsService(mongoTemplate, new AlertCounterStore(), archiveService, false),
+                archiveService, new AlertQueryCoalescer(new SimpleMeterRegistry(), true, Duration.ZERO, Duration.ZERO, 100),
+                new AlertTextSearchService(mongoTemplate, pageService, new SyncTaskExecutor(), false, countCap),
+                rollupService);
+    }
+
+    @Test
+    void transitionsAndBulkOperationsReachArchivedAlerts() {
+        for (String id : List.of("r01", "r02", "r03", "r04")) {
+            store.save(recovered(id));
+        }
+        assertEquals(4, archiveService.archive());
+        assertNull(mongoTemplate.findById("r01", Alert.class));
+
+        AlertTransitionResult activated = store.activate("r01");
+        assertEquals(Outcome.APPLIED, activated.getOutcome());
+        assertEquals(0, store.findById("r01").getStatus());
+
+        AlertBulkResult updated = store.updateStatus(List.of("r02", "missing"), 0);
+        assertEquals(1, updated.getModifiedCount());
+        assertEquals(List.of("missing"), updated.getNotFoundIds());
+        assertEquals(0, store.findById("r02").getStatus());
+
+        AlertBulkResult deleted = store.deleteByIds(List.of("r03"));
+        assertEquals(1, deleted.getModifiedCount());
+        assertTrue(deleted.getNotFoundIds().isEmpty());
+        assertNull(store.findById("r03"));
+
+        // 未被操作的告警留在归档
+        assertEquals(1, mongoTemplate.count(new Query(), ARCHIVE));
+        assertNotNull(store.findById("r04"));
+    }
+
+    private static Alert recovered(String id) {
+        Alert alert = new Alert();
+        alert.setId(id);
+        alert.setStatus(1);
+        alert.setIsRecover(true);
+        alert.setAlarmLevel("info");
+        alert.setEndTime(new Date(1_700_000_000_000L));
+        return alert;
+    }
+}
@@ -0,0 +1,78 @@
+package com.qtp.mcpserver.tools;
+
+import com.qtp.mcpserver.entity.Alert;
+import com.qtp.mcpserver.event.AlertChangeEvent;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import io.modelcontextprotocol.spec.McpServerSession;
+import io.modelcontextprotocol.spec.McpServerTransportProvider;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.support.StaticListableBeanFactory;
+import reactor.core.publisher.Mono;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class AlertResourceNotifierTest {
+
+    private final List<String> notified = new ArrayList<>();
+
+    private AlertResourceNotifier notifier(int maxUpdates) {
+        McpServerTransportProvider transport = new McpServerTransportProvider() {
+            @Override
+            public void setSessionFactory(McpServerSession.Factory sessionFactory) {
+            }
+
+            @Override
+            public Mono<Void> notifyClients(String method, Object params) {
+                return Mono.fromRunnable(() -> notified.add(((Map<?, ?>) params).get("uri").toString()));
+            }
+
+            @Override
+            public Mono<Void> closeGracefully() {
+                return Mono.empty();
+            }
+        };
+        return new AlertResourceNotifier(new StaticListableBeanFactory(Map.of("transport", transport))
+                .getBeanProvider(McpServerTransportProvider.class), new SimpleMeterRegistry(), maxUpdates);
+    }
+
+    @Test
+    void coalescesChangesWithinOneInterval() {
+        AlertResourceNotifier notifier = notifier(100);
+        Alert active = alert("1", "计费 系统", 0);
+        Alert resolved = alert("1", "计费 系统", 1);
+        notifier.onAlertChange(AlertChangeEvent.created(active));
+        notifier.onAlertChange(AlertChangeEvent.updated(active, resolved));
+        notifier.onAlertChange(AlertChangeEvent.updated(resolved, alert("1", "计费 系统", 1)));
+        notifier.flush();
+
+        assertEquals(3, notified.size());
+        assertTrue(notified.containsAll(List.of("alert://alert/1", "alert://active",
+                "alert://active/%E8%AE%A1%E8%B4%B9%20%E7%B3%BB%E7%BB%9F")));
+
+        notified.clear();
+        notifier.flush();
+        assertTrue(notified.isEmpty());
+    }
+
+    @Test
+    void collapsesLargeBatchesIntoActiveList() {
+        AlertResourceNotifier notifier = notifier(2);
+        for (int i = 0; i < 5; i++) {
+            notifier.onAlertChange(AlertChangeEvent.deleted(alert(String.valueOf(i), null, 0)));
+        }
+        notifier.flush();
+        assertEquals(List.of("alert://active"), notified);
+    }
+
+    private static Alert alert(String id, String systemName, int status) {
+        Alert alert = new Alert();
+        alert.setId(id);
+        alert.setSystemName(systemName);
+        alert.setStatus(status);
+        return alert;
+    }
+}
@@ -0,0 +1,60 @@
+package com.qtp.mcpserver.tools;
+
+import com.qtp.mcpserver.entity.Alert;
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class ToolResultRendererTest {
+
+    private static Alert alert(String id, String failReason) {
+        Alert alert = new Alert();
+        alert.setId(id);
+        alert.setAlarmLevel("critical");
+        alert.setFailReason(failReason);
+        return alert;
+    }
+
+    @Test
+    void writesCompactJsonWithoutNullsAndKeepsOnlySelectedFields() {
+        ToolResultRenderer renderer = new ToolResultRenderer(16384, 2000, 4);
+        try (ToolResultRenderer.Output out = renderer.open("queryAlertList", "id, alarmLevel")) {
+            assertEquals("[{\"id\":\"a1\",\"alarmLevel\":\"critical\"}]", out.list(List.of(alert("a1", "超时"))).finish());
+        }
+        assertEquals("{\"id\":\"a1\",\"alarmLevel\":\"critical\",\"failReason\":\"超时\"}",
+                renderer.render("queryAlert", null, alert("a1", "超时")));
+    }
+
+    @Test
+    void stopsListAtBudgetAndReportsOmittedCount() {
+        ToolResultRenderer renderer = new ToolResultRenderer(1024, 2000, 4);
+        List<Alert> alerts = new ArrayList<>();
+        for (int i = 0; i < 50; i++) {
+            alerts.add(alert("id-" + i, "接口响应超时".repeat(5)));
+        }
+        String text;
+        try (ToolResultRenderer.Output out = renderer.open("getAlertsByTimeRange", null)) {
+            text = out.list(alerts).finish();
+        }
+        String json = text.substring(0, text.indexOf("\n"));
+        assertTrue(json.startsWith("[{") && json.endsWith("}]"));
+        int shown = json.split("\"id\":").length - 1;
+        assertTrue(shown > 0 && shown < 50);
+        assertTrue(text.contains("另有 " + (50 - shown) + " 条未显示"));
+
+        Map<String, Object> stats = renderer.stats();
+        assertEquals(1L, ((Map<?, ?>) stats.get("getAlertsByTimeRange")).get("truncated"));
+    }
+
+    @Test
+    void capsLongStringsAndRejectsUnknownFields() {
+        ToolResultRenderer renderer = new ToolResultRenderer(16384, 10, 4);
+        String text = renderer.render("queryAlert", null, alert("a1", "x".repeat(100)));
+        assertTrue(text.contains("\"failReason\":\"xxxxxxxxxx…（已截断，共100字符）\""));
+        assertThrows(IllegalArgumentException.class, () -> renderer.open("queryAlertList", "noSuchField"));
+    }
+}